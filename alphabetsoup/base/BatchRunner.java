@@ -0,0 +1,187 @@
+/**
+ * 
+ */
+package alphabetsoup.base;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import alphabetsoup.framework.SimulationContext;
+import alphabetsoup.framework.SimulationWorld;
+
+/**BatchRunner runs many seeded replications of a simulation without the user interface,
+ * several at a time within one JVM.  Each replication gets its own SimulationContext
+ * (random number generator, map, waypoint graph, etc.), and runs entirely on one thread of a fixed pool.
+ * One replication is run for each combination of configuration file and seed, and the reports
+ * of all of the seeds of each configuration file are combined with SummaryReport.generateAggregateReportText
+ * and written to AlphabetSoupBatchReport.txt.  If latency_histograms is on, the latency histograms of all of the seeds
+ * of each configuration file are also merged, and their pooled percentiles added to its report.<br>
+ * Usage: BatchRunner simulation_class first_seed num_seeds num_threads configuration_file ...<br>
+ * where simulation_class is a SimulationWorld with a constructor taking the configuration file name,
+ * and num_threads of 0 uses one thread per processor.
+ */
+public class BatchRunner {
+
+	private String simulationClassName;
+	private List<String> configurationFiles = new ArrayList<String>();
+	private List<Long> seeds = new ArrayList<Long>();
+	private int numThreads;
+	//merged LatencyRecorder of the replications of each configuration file which have finished
+	private HashMap<String, LatencyRecorder> pooledLatency = new HashMap<String, LatencyRecorder>();
+
+	/**Constructs a BatchRunner
+	 * @param simulation_class_name fully qualified name of the SimulationWorld class to run
+	 * @param num_threads number of simulations to run at once, 0 for one per processor
+	 */
+	public BatchRunner(String simulation_class_name, int num_threads) {
+		simulationClassName = simulation_class_name;
+		if(num_threads <= 0)
+			num_threads = Runtime.getRuntime().availableProcessors();
+		numThreads = num_threads;
+	}
+
+	/**
+	 * @param configuration_file_name configuration file to run every seed on
+	 */
+	public void addConfigurationFile(String configuration_file_name) {
+		configurationFiles.add(configuration_file_name);
+	}
+
+	/**
+	 * @param seed random_seed to run every configuration file with, must not be 0, since a random_seed
+	 * of 0 leaves the simulation unseeded and the replication couldn't be reproduced
+	 */
+	public void addSeed(long seed) {
+		if(seed == 0)
+			throw new IllegalArgumentException("seed 0 leaves the simulation unseeded");
+		seeds.add(seed);
+	}
+
+	/**Builds and runs one replication on the calling thread, the same way as the simulation's main function
+	 * when the user interface is not used.
+	 * @param configuration_file_name configuration file to load
+	 * @param seed random_seed to use
+	 * @return the report of the replication
+	 */
+	public List<String> runReplication(String configuration_file_name, long seed) throws Exception {
+		SimulationContext context = new SimulationContext();
+		context.setParameterOverride("random_seed", Long.toString(seed));
+		context.setParameterOverride("useGUI", "0");
+		SimulationContext.setCurrentContext(context);
+		try {
+			SimulationWorld sw = (SimulationWorld)Class.forName(simulationClassName)
+									.getConstructor(String.class).newInstance(configuration_file_name);
+			double warmup_time = Double.parseDouble(sw.getParams().getProperty("simulation_warmup_time", "0"));
+			double simulation_time = Double.parseDouble(sw.getParams().getProperty("simulation_duration"));
+			//replications running at once can't share a telemetry file
+			String telemetry_file = sw.getParams().getProperty("telemetry_file", "");
+			if(telemetry_file.length() > 0)
+				sw.getParams().setProperty("telemetry_file", telemetry_file + "." + seed);
+
+			sw = sw.run(warmup_time, simulation_time);
+
+			List<String> report = SummaryReport.generateReportText(sw);
+			if(sw.getLatencyRecorder() != null) {
+				synchronized(pooledLatency) {
+					if(!pooledLatency.containsKey(configuration_file_name))
+						pooledLatency.put(configuration_file_name, new LatencyRecorder());
+					pooledLatency.get(configuration_file_name).merge(sw.getLatencyRecorder());
+				}
+			}
+			return report;
+		} finally {
+			//don't keep the simulation around once this thread moves on, even if it failed
+			SimulationContext.setCurrentContext(null);
+		}
+	}
+
+	/**Runs every configuration file with every seed, and returns the aggregated report of each configuration file.
+	 * Replications which fail are reported to the console and left out of the aggregate.
+	 * @return map from configuration file name to its aggregated report, in the order the files were added
+	 */
+	public LinkedHashMap<String, List<String>> run() throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+
+		//submit every replication up front so the pool stays busy
+		LinkedHashMap<String, List<Future<List<String>>>> futures = new LinkedHashMap<String, List<Future<List<String>>>>();
+		for(final String config : configurationFiles) {
+			List<Future<List<String>>> config_futures = new ArrayList<Future<List<String>>>();
+			for(final long seed : seeds)
+				config_futures.add(pool.submit(new Callable<List<String>>() {
+					public List<String> call() throws Exception {
+						return runReplication(config, seed);
+					}
+				}));
+			futures.put(config, config_futures);
+		}
+		pool.shutdown();
+
+		LinkedHashMap<String, List<String>> reports = new LinkedHashMap<String, List<String>>();
+		for(String config : futures.keySet()) {
+			List<List<String>> config_reports = new ArrayList<List<String>>();
+			List<Future<List<String>>> config_futures = futures.get(config);
+			for(int i = 0; i < config_futures.size(); i++) {
+				try {
+					config_reports.add(config_futures.get(i).get());
+				} catch(ExecutionException e) {
+					System.out.println("replication of " + config + " with seed " + seeds.get(i) + " failed: " + e.getCause());
+				}
+			}
+			List<String> aggregate = SummaryReport.generateAggregateReportText(config_reports);
+			synchronized(pooledLatency) {
+				if(pooledLatency.containsKey(config))
+					aggregate.addAll(pooledLatency.get(config).getReportText("pooled "));
+			}
+			reports.put(config, aggregate);
+		}
+		return reports;
+	}
+
+	/**Runs a batch of replications and writes the aggregated reports to AlphabetSoupBatchReport.txt
+	 * @param args simulation_class first_seed num_seeds num_threads configuration_file ...
+	 */
+	public static void main(String[] args) throws Exception {
+		if(args.length < 5) {
+			System.out.println("usage: BatchRunner simulation_class first_seed num_seeds num_threads configuration_file ...");
+			System.exit(1);
+		}
+
+		BatchRunner runner = new BatchRunner(args[0], Integer.parseInt(args[3]));
+		long first_seed = Long.parseLong(args[1]);
+		int num_seeds = Integer.parseInt(args[2]);
+		if(first_seed <= 0 && first_seed + num_seeds > 0) {
+			System.out.println("the seeds must not include 0, which leaves the simulation unseeded");
+			System.exit(1);
+		}
+		for(long seed = first_seed; seed < first_seed + num_seeds; seed++)
+			runner.addSeed(seed);
+		for(int i = 4; i < args.length; i++) {
+			if(!new File(args[i]).exists()) {
+				System.out.println("could not open " + args[i]);
+				System.exit(1);
+			}
+			runner.addConfigurationFile(args[i]);
+		}
+
+		long start_time = System.currentTimeMillis();
+		LinkedHashMap<String, List<String>> reports = runner.run();
+
+		PrintWriter outf;
+		try {
+			outf = new PrintWriter(new FileWriter("AlphabetSoupBatchReport.txt"));
+		}
+		catch (Throwable e) {
+			System.out.println("Could not open file AlphabetSoupBatchReport.txt");
+			return;
+		}
+		for(String config : reports.keySet()) {
+			outf.println("configuration: " + config + ", seeds " + first_seed + " to " + (first_seed + num_seeds - 1));
+			for(String s : reports.get(config))
+				outf.println(s);
+			outf.println();
+		}
+		outf.close();
+		System.out.println("batch finished in " + (System.currentTimeMillis() - start_time) / 1000.0 + " seconds");
+	}
+}
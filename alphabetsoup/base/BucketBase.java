@@ -8,19 +8,29 @@ import java.util.*;
 import alphabetsoup.framework.Bucket;
 import alphabetsoup.framework.Circle;
 import alphabetsoup.framework.Letter;
+import alphabetsoup.framework.LetterInventory;
 
 /**BucketBase is the basic and fully capable implementation of a passive Bucket.
- * BucketBase manages its contents, but performs no actions itself. 
+ * BucketBase manages its contents, but performs no actions itself.  Along with the Letters themselves,
+ * which are needed for the stations to check for the specific Letter they were handed, the number of
+ * each type of letter is kept in a LetterInventory, so that matching letters can be counted or ruled out
+ * without looking through the contents.
  * @author Chris Hazard
  */
 public class BucketBase extends Circle implements Bucket {
+	private static final long serialVersionUID = 1L;
+
 	private int capacity;
 	protected HashSet<Letter> letters;
+	private Collection<Letter> unmodifiableLetters;
+	protected LetterInventory inventory;
 	
 	public BucketBase(float bucket_radius, int bucket_capacity) {
 		super(bucket_radius);
 		capacity = bucket_capacity;
 		letters = new HashSet<Letter>();
+		unmodifiableLetters = Collections.unmodifiableSet(letters);
+		inventory = new LetterInventory();
 	}
 	
 	/* (non-Javadoc)
@@ -34,22 +44,24 @@ public class BucketBase extends Circle implements Bucket {
 	 * @see alphabetsoup.framework.Bucket#getLetters()
 	 */
 	public Collection<Letter> getLetters() {
-		return letters;
+		//contents must be changed through addLetter and removeLetter to keep the inventory right
+		return unmodifiableLetters;
 	}
 	
 	/* (non-Javadoc)
 	 * @see alphabetsoup.framework.Bucket#addLetter(alphabetsoup.framework.Letter)
 	 */
 	public void addLetter(Letter l) {
-		if(letters.size() < capacity)
-			letters.add(l);
+		if(letters.size() < capacity && letters.add(l))
+			inventory.add(l);
 	}
 	
 	/* (non-Javadoc)
 	 * @see alphabetsoup.framework.Bucket#removeLetter(alphabetsoup.framework.Letter)
 	 */
 	public void removeLetter(Letter l) {
-		letters.remove(l);
+		if(letters.remove(l))
+			inventory.take(l);
 	}
 	
 	/* (non-Javadoc)
@@ -63,12 +75,29 @@ public class BucketBase extends Circle implements Bucket {
 	 * @see alphabetsoup.framework.Bucket#containsMatchingLetter(alphabetsoup.framework.Letter)
 	 */
 	public Letter containsMatchingLetter(Letter l) {
+		if(inventory.getCount(l) == 0)
+			return null;
 		for(Letter m : letters)
 			if(l.doesMatch(m))
 				return m;
 		return null;
 	}
 	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Bucket#getNumMatchingLetters(alphabetsoup.framework.Letter)
+	 */
+	public int getNumMatchingLetters(Letter l) {
+		return inventory.getCount(l);
+	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Bucket#removeAllLetters()
+	 */
+	public void removeAllLetters() {
+		letters.clear();
+		inventory.clear();
+	}
+	
 	/**Returns a list of strings containing detailed information about the current state of the letter station.
 	 * Override to use.
 	 * @return
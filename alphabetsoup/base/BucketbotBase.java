@@ -3,12 +3,14 @@
  */
 package alphabetsoup.base;
 
+import java.io.Serializable;
 import java.util.*;
 
 import alphabetsoup.framework.Bucket;
 import alphabetsoup.framework.Bucketbot;
 import alphabetsoup.framework.Circle;
 import alphabetsoup.framework.Map;
+import alphabetsoup.framework.Schedulable;
 import alphabetsoup.framework.SimulationWorld;
 import alphabetsoup.framework.Updateable;
 import org.codehaus.jackson.annotate.JsonIgnore;
@@ -19,11 +21,10 @@ import org.codehaus.jackson.annotate.JsonProperty;
  * but does not have logic to control them.  BucketbotBase should be extended to include logic.
  * @author Chris Hazard
  */
-public class BucketbotBase extends Circle implements Bucketbot, Updateable {
+public class BucketbotBase extends Circle implements Bucketbot, Updateable, Schedulable {
+	private static final long serialVersionUID = 1L;
 	
 	private float bucketPickupSetdownTime;
-	private float maxAcceleration;
-	private float maxVelocity;
 	private float collisionPenaltyTime;
 
 	@JsonIgnore
@@ -31,20 +32,15 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	
 	private float direction;		//current direction in radians
 
-	@JsonProperty
-	private float xVelocity;
-	@JsonProperty
-	private float yVelocity;
-	
-	private float targetXVelocity;
-	private float targetYVelocity;
+	//position, velocities, target velocities, maximum velocity and acceleration, and the blocked,
+	// accelerate and cruise until times are kept in the bucketbot's entry of kinematics
+	@JsonIgnore
+	private BucketbotKinematics kinematics = new BucketbotKinematics(1);
+	private int kinematicsIndex = kinematics.addEntry(this);
 	
 	//timing information
-	private double blockedUntil;	//time when bucketbot will be done performing a blocking action
-									// (such as picking up a bucket)
-	private double accelerateUntil;	//time when bucketbot will be done [ac|de]celerating to [maxVelocity|0]
-	public double cruiseUntil;	//freely setable by anything -how long the bucketbot plans to cruise for
 	private double minUntil;		//minimum of *Until times -set in getNextEventTime
+	private double checkUntil = Double.NEGATIVE_INFINITY;	//time a kinetic bucketbot next needs to act -set in getWakeTime
 
 	public double curTime;		//current time of last action
 
@@ -62,8 +58,14 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	private int numCollisions;
 
 
-	private HashMap<String, Double> totalTimes;	//amount of time in each state/task
+	private HashMap<String, double[]> totalTimes;	//amount of time in each state/task, in arrays so it can be added to without boxing
 	private double taskStartTime = 0.0;
+	
+	//total times of the last task type and state, so they don't need to be looked up on every update
+	private BucketbotTask.TaskType lastTaskType = null;
+	private double lastTaskTime[] = null;
+	private String lastStateName = null;
+	private double lastStateTime[] = null;
 
 
 	public BucketbotBase () {}
@@ -72,7 +74,11 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 		numSetdowns = 0;
 		distanceTraveled = 0.0;
 		numCollisions = 0;
-		totalTimes = new HashMap<String, Double>();
+		totalTimes = new HashMap<String, double[]>();
+		lastTaskType = null;
+		lastTaskTime = null;
+		lastStateName = null;
+		lastStateTime = null;
 		taskStartTime = curTime;
 	}
 
@@ -81,7 +87,7 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 * in each state, and also maintains the stateQueue.
 	 * @author Chris Hazard
 	 */
-	public interface BucketbotState {
+	public interface BucketbotState extends Serializable {
 		/**Returns the state name as will be kept track in the global statistics
 		 * @return the state name
 		 */
@@ -101,20 +107,68 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 		resetStatistics();
 		
 		bucketPickupSetdownTime = bucket_pickup_setdown_time;
-		maxAcceleration = bucketbot_max_acceleration;
-		maxVelocity = bucketbot_max_velocity;
 		collisionPenaltyTime = collision_penalty_time;
 		
+		int k = kinematicsIndex;
+		kinematics.maxAcceleration[k] = bucketbot_max_acceleration;
+		kinematics.maxVelocity[k] = bucketbot_max_velocity;
+		
 		direction = 0.0f;
-		targetXVelocity = 0.0f;
-		targetYVelocity = 0.0f;
+		kinematics.targetXVelocity[k] = 0.0f;
+		kinematics.targetYVelocity[k] = 0.0f;
 
-		xVelocity = 0.0f;
-		yVelocity = 0.0f;
+		kinematics.xVelocity[k] = 0.0f;
+		kinematics.yVelocity[k] = 0.0f;
 		
-		blockedUntil = -1.0;
-		accelerateUntil = -1.0;
-		cruiseUntil = -1.0;
+		kinematics.blockedUntil[k] = -1.0;
+		kinematics.accelerateUntil[k] = -1.0;
+		kinematics.cruiseUntil[k] = -1.0;
+	}
+	
+	/**Moves the kinematic state of the bucketbot to a new entry of the specified BucketbotKinematics,
+	 * which may be shared with other bucketbots.
+	 * @param k BucketbotKinematics to keep the state in from now on
+	 */
+	public void setKinematics(BucketbotKinematics k) {
+		int index = k.addEntry(this);
+		kinematics.copyEntry(kinematicsIndex, k, index);
+		kinematics = k;
+		kinematicsIndex = index;
+	}
+	
+	/**
+	 * @return the BucketbotKinematics the kinematic state of the bucketbot is kept in
+	 */
+	public BucketbotKinematics getKinematics() {
+		return kinematics;
+	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Circle#getX()
+	 */
+	public float getX() {
+		return kinematics.xPosition[kinematicsIndex];
+	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Circle#setX(float)
+	 */
+	protected void setX(float x) {
+		kinematics.xPosition[kinematicsIndex] = x;
+	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Circle#getY()
+	 */
+	public float getY() {
+		return kinematics.yPosition[kinematicsIndex];
+	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Circle#setY(float)
+	 */
+	protected void setY(float y) {
+		kinematics.yPosition[kinematicsIndex] = y;
 	}
 	
 	/**returns the difference of two angles, positive if angle2 is to the left of angle1,
@@ -163,8 +217,10 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	
 		//pick it up!
 		bucket = b;
-		blockedUntil = curTime + bucketPickupSetdownTime;
+		map.bucketPickup(this);
+		kinematics.blockedUntil[kinematicsIndex] = curTime + bucketPickupSetdownTime;
 		numPickups++;
+		SimulationWorld.getSimulationWorld().rescheduleUpdateable(this);
 		return true;
 	}
 	
@@ -178,8 +234,10 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 		if(getSpeed() > 0.0f)
 			return false;
 		if(bucket != null) {
-			blockedUntil = curTime + bucketPickupSetdownTime;
+			SimulationWorld.getSimulationWorld().getMap().bucketSetdown(this, bucket);
+			kinematics.blockedUntil[kinematicsIndex] = curTime + bucketPickupSetdownTime;
 			numSetdowns++;
+			SimulationWorld.getSimulationWorld().rescheduleUpdateable(this);
 		}
 		bucket = null;
 		return true;
@@ -189,17 +247,25 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 * @see alphabetsoup.framework.Bucketbot#waitUntil(double time)
 	 */
 	final public void waitUntil(double time) {
-		blockedUntil = Math.max(time, blockedUntil);
+		kinematics.blockedUntil[kinematicsIndex] = Math.max(time, kinematics.blockedUntil[kinematicsIndex]);
+		SimulationWorld.getSimulationWorld().rescheduleUpdateable(this);
 	}
 	
 	/* (non-Javadoc)
 	 * @see alphabetsoup.framework.Updateable#getNextEventTime(double)
 	 */
 	public double getNextEventTime(double cur_time) {
+		double blockedUntil = kinematics.blockedUntil[kinematicsIndex];
+		double accelerateUntil = kinematics.accelerateUntil[kinematicsIndex];
+		double cruiseUntil = kinematics.cruiseUntil[kinematicsIndex];
+		//under kinetic motion, a bucketbot which isn't blocked always has a next time to act
+		double nextCheckUntil = (kinematics.isKinetic() && cur_time >= blockedUntil) ? checkUntil : Double.NEGATIVE_INFINITY;
 		//if not waiting on anything, then not planning on moving in the near future
 		// -only if bucketbot has nothing to do
 		if(cur_time >= blockedUntil && cur_time >= accelerateUntil
-				&& cur_time >= cruiseUntil) {
+				&& cur_time >= cruiseUntil && cur_time >= nextCheckUntil) {
+			//nothing pending, so don't leave minUntil depending on when this was last called
+			minUntil = cur_time;
 			return Double.POSITIVE_INFINITY;
 		}
 		else { //return soonest event that has not happened yet
@@ -207,56 +273,98 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 			if(blockedUntil > cur_time)		minUntil = Math.min(blockedUntil,		minUntil);
 			if(accelerateUntil > cur_time)	minUntil = Math.min(accelerateUntil,	minUntil);
 			if(cruiseUntil > cur_time)		minUntil = Math.min(cruiseUntil, 		minUntil);
+			if(nextCheckUntil > cur_time)	minUntil = Math.min(nextCheckUntil,		minUntil);
 			return minUntil;
 		}
 	}
 	
+	/**Returns the time when the bucketbot next needs to be updated, which is when it is no longer blocked.
+	 * If the motion is kinetic, its moves are made for it, so if it isn't blocked, it only needs to act again
+	 * when it is done accelerating or cruising, or when its collision certificate runs out, since until then
+	 * nothing can come within its sensing distance (see getSensingDistance()).  A bucketbot which isn't following a
+	 * plan, or already has something within its sensing distance, stays awake and acts on every step, as under
+	 * stepped motion, and keeps the steps as short as the time it takes to cover 0.9 of its diameter.
+	 * @see alphabetsoup.framework.Schedulable#getWakeTime()
+	 */
+	public double getWakeTime() {
+		double blocked_until = kinematics.blockedUntil[kinematicsIndex];
+		if(!kinematics.isKinetic() || blocked_until > curTime)
+			return blocked_until;
+		
+		double cruise_until = kinematics.cruiseUntil[kinematicsIndex];
+		checkUntil = curTime + 1.8f * getRadius() / getMaxVelocity();
+		if(cruise_until <= curTime)
+			return curTime;
+		
+		double safe_until = SimulationWorld.getSimulationWorld().getMap().certifyBucketbot(this, getSensingDistance(), curTime);
+		if(safe_until <= curTime)
+			return curTime;
+		checkUntil = Math.min(cruise_until, safe_until);
+		return checkUntil;
+	}
+	
+	/**Returns the distance from the center of the bucketbot within which it reacts to other bucketbots
+	 * (and buckets, if it is carrying one) while it is following a plan.  BucketbotBase only reacts to collisions,
+	 * so it returns 0, but a subclass which steers around what it sees should return how far it looks.
+	 * @return the distance within which the bucketbot reacts to other objects
+	 */
+	public float getSensingDistance() {
+		return 0.0f;
+	}
+	
 	/* (non-Javadoc)
 	 * @see alphabetsoup.framework.Updateable#update(double, double)
 	 */
 	public void update(double last_time, double cur_time) {
-		if(cur_time < blockedUntil)
+		BucketbotKinematics kin = kinematics;
+		int k = kinematicsIndex;
+		//a move resolved along with the others at the start of the step must still be finished
+		byte move_result = kin.takeMoveResult(k);
+		if(cur_time < kin.blockedUntil[k] && move_result == BucketbotKinematics.MOVE_NONE)
 			return;
 		curTime = cur_time;
 		double time_delta = (cur_time - last_time);
 
-		//use old velocities to clamp acceleration
-		float old_x_velocity = xVelocity;
-		float old_y_velocity = yVelocity;
-
-		//set new velocity
-		xVelocity = targetXVelocity;
-		yVelocity = targetYVelocity;
-
-		//clamp velocity
-		if(xVelocity*xVelocity + yVelocity*yVelocity > maxVelocity*maxVelocity) {
-			float velocity_magnitude = (float)Math.sqrt(xVelocity*xVelocity + yVelocity*yVelocity);
-			xVelocity = maxVelocity * (xVelocity/velocity_magnitude);
-			yVelocity = maxVelocity * (yVelocity/velocity_magnitude);
+		float xVelocity, yVelocity;
+		double distance_moved;
+		boolean moved;
+		if(move_result == BucketbotKinematics.MOVE_NONE) {
+			//move toward the target velocity within the limits, unless already done for this step
+			if(!kin.isProposed(k, last_time, cur_time))
+				kin.computeVelocity(k, time_delta);
+			kin.proposed[k] = false;
+			xVelocity = kin.xVelocity[k] = kin.nextXVelocity[k];
+			yVelocity = kin.yVelocity[k] = kin.nextYVelocity[k];
+			
+			//calculate movement
+			float x_old = kin.xPosition[k];
+			float y_old = kin.yPosition[k];
+			float x_new = (float)(xVelocity * time_delta + x_old);
+			float y_new = (float)(yVelocity * time_delta + y_old);
+			
+			//try to make move
+			moved = SimulationWorld.getSimulationWorld().getMap().moveBucketbot(this, x_new, y_new);
+			distance_moved = Math.sqrt( (x_new-x_old)*(x_new-x_old) + (y_new-y_old)*(y_new-y_old));
 		}
-
-		//clamp acceleration
-		double x_accel = (float)( (xVelocity - old_x_velocity) / time_delta );
-		double y_accel = (float)( (yVelocity - old_y_velocity) / time_delta );
-		if( x_accel*x_accel + y_accel*y_accel > maxAcceleration*maxAcceleration) {
-			double accel_magnitude = Math.sqrt(x_accel*x_accel + y_accel*y_accel);
-			xVelocity = (float)(old_x_velocity + maxAcceleration*time_delta * (x_accel/accel_magnitude));
-			yVelocity = (float)(old_y_velocity + maxAcceleration*time_delta * (y_accel/accel_magnitude));
+		else {
+			//already moved, or found to collide, along with all of the other bucketbots
+			// (under kinetic motion, possibly over several steps since the last update)
+			xVelocity = kin.xVelocity[k];
+			yVelocity = kin.yVelocity[k];
+			moved = (move_result == BucketbotKinematics.MOVE_MADE);
+			distance_moved = kin.takeMovedDistance(k);
 		}
-		
-		//calculate movement
-		float x_old = getX();
-		float y_old = getY();
-		float x_new = (float)(xVelocity * time_delta + getX());
-		float y_new = (float)(yVelocity * time_delta + getY());
-
-		//try to make move.  if can't move due to a collision, then stop
-		if(!SimulationWorld.getSimulationWorld().getMap().moveBucketbot(this, x_new, y_new)) {
-			xVelocity = 0.0f;
-			yVelocity = 0.0f;
-			targetXVelocity = 0.0f;
-			targetYVelocity= 0.0f;
-			blockedUntil = curTime + collisionPenaltyTime;
+
+		//if can't move due to a collision, then stop
+		if(!moved) {
+			//count what a kinetic bucketbot moved before it was stopped
+			distanceTraveled += (move_result == BucketbotKinematics.MOVE_NONE) ? 0.0 : distance_moved;
+			kin.xVelocity[k] = 0.0f;
+			kin.yVelocity[k] = 0.0f;
+			kin.targetXVelocity[k] = 0.0f;
+			kin.targetYVelocity[k] = 0.0f;
+			kin.blockedUntil[k] = curTime + collisionPenaltyTime;
+			SimulationWorld.getSimulationWorld().getMap().bucketbotStopped(this);
 			numCollisions++;
 			return;
 		}
@@ -270,23 +378,26 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 			((Circle)getBucket()).setMoving(isMoving());
 		
 		//count distanceTraveled
-		distanceTraveled += Math.sqrt( (x_new-x_old)*(x_new-x_old) + (y_new-y_old)*(y_new-y_old));
+		distanceTraveled += distance_moved;
 
 		//compute time in previous task and state
 		if(currentTask != null) {
-			String s = currentTask.getTaskType().toString();
-			if(totalTimes.containsKey(s))
-				totalTimes.put(s, totalTimes.get(s) + curTime - taskStartTime);
-			else
-				totalTimes.put(s, curTime - taskStartTime);
+			BucketbotTask.TaskType task_type = currentTask.getTaskType();
+			if(task_type != lastTaskType) {
+				lastTaskType = task_type;
+				lastTaskTime = getTotalTime(task_type.toString());
+			}
+			lastTaskTime[0] = lastTaskTime[0] + curTime - taskStartTime;
 		}
 		
 		if(stateQueue.size() > 0) {
-			String s = stateQueue.get(0).getStateName();
-			if(totalTimes.containsKey(s))
-				totalTimes.put(s, totalTimes.get(s) + curTime - taskStartTime);
-			else
-				totalTimes.put(s, curTime - taskStartTime);
+			String state_name = stateQueue.get(0).getStateName();
+			//state names are usually constants, so only look it up if it's a different String
+			if(state_name != lastStateName) {
+				lastStateName = state_name;
+				lastStateTime = getTotalTime(state_name);
+			}
+			lastStateTime[0] = lastStateTime[0] + curTime - taskStartTime;
 		}
 		
 		taskStartTime = curTime;
@@ -347,6 +458,8 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 */
 	@JsonIgnore
 	public float getSpeed() {
+		float xVelocity = kinematics.xVelocity[kinematicsIndex];
+		float yVelocity = kinematics.yVelocity[kinematicsIndex];
 		return (float)Math.sqrt(xVelocity*xVelocity + yVelocity*yVelocity);
 	}
 	
@@ -355,6 +468,8 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 */
 	@JsonIgnore
 	public float getTargetSpeed() {
+		float targetXVelocity = kinematics.targetXVelocity[kinematicsIndex];
+		float targetYVelocity = kinematics.targetYVelocity[kinematicsIndex];
 		return (float)Math.sqrt(targetXVelocity*targetXVelocity + targetYVelocity*targetYVelocity);
 	}
 	
@@ -363,6 +478,9 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 */
 	@JsonIgnore
 	public float getTargetSpeedDifference() {
+		int k = kinematicsIndex;
+		float xVelocity = kinematics.xVelocity[k], yVelocity = kinematics.yVelocity[k];
+		float targetXVelocity = kinematics.targetXVelocity[k], targetYVelocity = kinematics.targetYVelocity[k];
 		return (float)Math.sqrt( (targetXVelocity-xVelocity)*(targetXVelocity-xVelocity)
 				+ (targetYVelocity-yVelocity)*(targetYVelocity-yVelocity));
 	}
@@ -372,17 +490,20 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 * @param new_speed target speed value in [0,maxVelocity]
 	 */
 	public void setTargetSpeed(float new_speed) {
+		int k = kinematicsIndex;
 		//clamp to allowed values
-		if(new_speed > maxVelocity)
-			new_speed = maxVelocity;
+		if(new_speed > kinematics.maxVelocity[k])
+			new_speed = kinematics.maxVelocity[k];
 		else if(new_speed < 0)
 			new_speed = 0;
 
-		targetXVelocity = (float)(new_speed * Math.cos(getDirection()));
-		targetYVelocity = (float)(new_speed * Math.sin(getDirection()));
+		kinematics.targetXVelocity[k] = (float)(new_speed * Math.cos(getDirection()));
+		kinematics.targetYVelocity[k] = (float)(new_speed * Math.sin(getDirection()));
+		kinematics.proposed[k] = false;
 
 		//find out how long it will take until the desired speed is reached
-		accelerateUntil = curTime + getTargetSpeedDifference() / maxAcceleration;
+		kinematics.accelerateUntil[k] = curTime + getTargetSpeedDifference() / kinematics.maxAcceleration[k];
+		SimulationWorld.getSimulationWorld().rescheduleUpdateable(this);
 	}
 	
 	/**Sets the target velocity (and updates the target direction).  Also sets
@@ -392,15 +513,18 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 * @param y_velocity desired y component of the velocity
 	 */
 	public void setTargetVelocity(float x_velocity, float y_velocity) {
-		targetXVelocity = x_velocity;
-		targetYVelocity = y_velocity;
+		int k = kinematicsIndex;
+		kinematics.targetXVelocity[k] = x_velocity;
+		kinematics.targetYVelocity[k] = y_velocity;
+		kinematics.proposed[k] = false;
 		
 		//update direction unless stopping
 		if(x_velocity != 0.0f || y_velocity != 0.0f)
-			direction = (float)Math.atan2(targetYVelocity, targetXVelocity);
+			direction = (float)Math.atan2(y_velocity, x_velocity);
 		
 		//find out how long it will take until the desired speed is reached
-		accelerateUntil = curTime + getTargetSpeedDifference() / maxAcceleration;
+		kinematics.accelerateUntil[k] = curTime + getTargetSpeedDifference() / kinematics.maxAcceleration[k];
+		SimulationWorld.getSimulationWorld().rescheduleUpdateable(this);
 	}
 
 	/**
@@ -410,7 +534,7 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 * @see alphabetsoup.framework.Bucketbot#getMaxVelocity()
 	 */
 	public float getMaxVelocity() {
-		return maxVelocity;
+		return kinematics.maxVelocity[kinematicsIndex];
 	}
 	
 	/* (non-Javadoc)
@@ -445,7 +569,23 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 * @see alphabetsoup.framework.Bucketbot#getTotalTimes()
 	 */
 	public HashMap<String, Double> getTotalTimes() {
-		return totalTimes;
+		HashMap<String, Double> times = new HashMap<String, Double>();
+		for(String s : totalTimes.keySet())
+			times.put(s, totalTimes.get(s)[0]);
+		return times;
+	}
+	
+	/**Returns the total time of the specified task or state, adding it if it isn't there yet
+	 * @param s name of the task or state
+	 * @return array holding the total time
+	 */
+	private double[] getTotalTime(String s) {
+		double time[] = totalTimes.get(s);
+		if(time == null) {
+			time = new double[] {0.0};
+			totalTimes.put(s, time);
+		}
+		return time;
 	}
 
 	/**
@@ -469,7 +609,7 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 * @see alphabetsoup.framework.Bucketbot#getMaxAcceleration()
 	 */
 	public float getMaxAcceleration() {
-		return maxAcceleration;
+		return kinematics.maxAcceleration[kinematicsIndex];
 	}
 
 	/**
@@ -497,38 +637,52 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	 * @return Returns the accelerateUntil.
 	 */
 	public double getAccelerateUntil() {
-		return accelerateUntil;
+		return kinematics.accelerateUntil[kinematicsIndex];
+	}
+
+	/**
+	 * @return Returns the cruiseUntil.
+	 */
+	public double getCruiseUntil() {
+		return kinematics.cruiseUntil[kinematicsIndex];
+	}
+
+	/**Sets how long the bucketbot plans to cruise for.  May be set freely by anything.
+	 * @param cruise_until the time to cruise until
+	 */
+	public void setCruiseUntil(double cruise_until) {
+		kinematics.cruiseUntil[kinematicsIndex] = cruise_until;
 	}
 
 	/**
 	 * @return Returns the targetXVelocity.
 	 */
 	public float getTargetXVelocity() {
-		return targetXVelocity;
+		return kinematics.targetXVelocity[kinematicsIndex];
 	}
 
 	/**
 	 * @return Returns the targetYVelocity.
 	 */
 	public float getTargetYVelocity() {
-		return targetYVelocity;
+		return kinematics.targetYVelocity[kinematicsIndex];
 	}
 
 	/**
 	 * @return Returns the xVelocity.
 	 */
-	@JsonIgnore
+	@JsonProperty("xVelocity")
 	public float getXVelocity() {
-		return xVelocity;
+		return kinematics.xVelocity[kinematicsIndex];
 	}
 
 
 	/**
 	 * @return Returns the yVelocity.
 	 */
-	@JsonIgnore
+	@JsonProperty("yVelocity")
 	public float getYVelocity() {
-		return yVelocity;
+		return kinematics.yVelocity[kinematicsIndex];
 	}
 
 	/**
@@ -546,7 +700,7 @@ public class BucketbotBase extends Circle implements Bucketbot, Updateable {
 	}
 
 	public double getBlockedUntil() {
-		return blockedUntil;
+		return kinematics.blockedUntil[kinematicsIndex];
 	}
 
 
@@ -0,0 +1,525 @@
+/**
+ * 
+ */
+package alphabetsoup.base;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import alphabetsoup.framework.Bucketbot;
+import alphabetsoup.framework.Circle;
+import alphabetsoup.framework.Map;
+import alphabetsoup.framework.SimulationWorld;
+import alphabetsoup.framework.Updateable;
+
+/**BucketbotKinematics holds the positions, velocities, target velocities, limits and timing of bucketbots
+ * in parallel arrays, one entry per bucketbot, and BucketbotBase reads and writes its kinematic state
+ * through its entry.  BucketbotBase overrides the position getters and setters of Circle, so when the Map's
+ * spatial indexes move a bucketbot, they write its position into its entry.  Every BucketbotBase starts out with its own BucketbotKinematics of one entry,
+ * but the bucketbots of a SimulationWorld can all be attached to one shared BucketbotKinematics.
+ * When the shared BucketbotKinematics is updated at the start of each step (before the bucketbots),
+ * the clamped velocities of all of the bucketbots are computed in one loop over the arrays,
+ * and each bucketbot then uses its precomputed velocity in its own update, unless its target
+ * velocity has been changed in the meantime.  The velocities are computed exactly the same way
+ * either way, so the results of a seeded simulation don't depend on which is used.<br>
+ * If moves are resolved together, the shared BucketbotKinematics also moves all of the bucketbots at the start
+ * of each step, instead of each bucketbot moving itself in its own update.  First the velocities and new positions
+ * of all of the bucketbots which can move are computed in one loop over the arrays, and then each proposed position
+ * is checked against the spatial indexes as they were at the start of the step
+ * (this part can be split among a number of threads, since nothing is changed).  Then the proposals are checked
+ * against each other with a sweep along x, and any two which would collide are both rejected.  Then the
+ * remaining moves are all committed.  Finally the rejected moves are tried again against where everything is after
+ * the committed moves, one at a time in sweep order, and the passes are repeated as long as any of them get made,
+ * so that a bucketbot following another which moved away, or one of two which only collided with each other,
+ * still moves.  Since the first round only checks against where the others were and where they're proposing to go,
+ * and the retries go in sweep order, the outcome doesn't depend on the order of the bucketbots.
+ * Each bucketbot then finishes its update with the outcome of its move, counting the distance or, only if its
+ * move still failed, taking the collision penalty.<br>
+ * If the motion is kinetic, moves are resolved together as above, but each bucketbot follows its trajectory as an
+ * analytic function of time, accelerating at its maximum acceleration until it reaches its target velocity and then
+ * holding it, rather than taking on its new velocity for the whole step.  A bucketbot following a plan isn't updated
+ * itself until its next event (see BucketbotBase.getWakeTime()), so the distances of its moves add up until it is,
+ * and a bucketbot whose move is blocked is woken up to take the collision penalty.
+ */
+public class BucketbotKinematics implements Updateable {
+	private static final long serialVersionUID = 1L;
+
+	/**outcomes of a move resolved together with the others, kept until the bucketbot's update*/
+	static final byte MOVE_NONE = 0, MOVE_MADE = 1, MOVE_BLOCKED = 2;
+
+	int numBucketbots = 0;
+	BucketbotBase bucketbots[];	//owner of each entry
+
+	float xPosition[];		//written by the spatial indexes through BucketbotBase.setX and setY
+	float yPosition[];
+	float xVelocity[];
+	float yVelocity[];
+	float targetXVelocity[];
+	float targetYVelocity[];
+	float maxVelocity[];
+	float maxAcceleration[];
+
+	double blockedUntil[];		//time when the bucketbot will be done performing a blocking action
+	double accelerateUntil[];	//time when the bucketbot will be done [ac|de]celerating to its target velocity
+	double cruiseUntil[];		//how long the bucketbot plans to cruise for
+
+	//velocities computed by the last update, for the step from proposedLastTime to proposedCurTime
+	float nextXVelocity[];
+	float nextYVelocity[];
+	boolean proposed[];		//cleared whenever the inputs of the velocity computation change
+	private double proposedLastTime = Double.NaN;
+	private double proposedCurTime = Double.NaN;
+
+	//moves resolved together at the start of each step, if map is not null
+	private Map map = null;
+	private boolean kinetic = false;
+	private int numThreads = 1;
+	private transient ExecutorService pool = null;
+	byte moveResult[];		//outcome of the move of the step, MOVE_NONE if the bucketbot is to move itself
+	double movedDistance[];	//distance covered by the moves since the bucketbot last took it
+	private float proposedX[];
+	private float proposedY[];
+	private boolean validProposal[];	//proposal doesn't collide with where anything was at the start of the step
+	private boolean conflicted[];		//proposal collides with another proposal
+	private int sweepOrder[];			//entries sorted by sweepX, kept between steps since it barely changes
+	private float sweepX[];
+
+	/**Constructs an empty BucketbotKinematics
+	 * @param capacity number of bucketbots to make room for
+	 */
+	public BucketbotKinematics(int capacity) {
+		capacity = Math.max(capacity, 1);
+		bucketbots = new BucketbotBase[capacity];
+		xPosition = new float[capacity];
+		yPosition = new float[capacity];
+		xVelocity = new float[capacity];
+		yVelocity = new float[capacity];
+		targetXVelocity = new float[capacity];
+		targetYVelocity = new float[capacity];
+		maxVelocity = new float[capacity];
+		maxAcceleration = new float[capacity];
+		blockedUntil = new double[capacity];
+		accelerateUntil = new double[capacity];
+		cruiseUntil = new double[capacity];
+		nextXVelocity = new float[capacity];
+		nextYVelocity = new float[capacity];
+		proposed = new boolean[capacity];
+		moveResult = new byte[capacity];
+		movedDistance = new double[capacity];
+	}
+
+	/**Constructs a BucketbotKinematics and attaches every BucketbotBase of the array to it,
+	 * in order, carrying over their current kinematic state.
+	 * @param bucketbots bucketbots to attach
+	 */
+	public BucketbotKinematics(Bucketbot bucketbots[]) {
+		this(bucketbots.length);
+		for(Bucketbot b : bucketbots)
+			if(b instanceof BucketbotBase)
+				((BucketbotBase)b).setKinematics(this);
+	}
+
+	/**Adds a new entry, growing the arrays if needed
+	 * @param owner bucketbot the entry is for
+	 * @return index of the new entry
+	 */
+	int addEntry(BucketbotBase owner) {
+		if(numBucketbots == xVelocity.length) {
+			int capacity = 2 * xVelocity.length;
+			bucketbots = Arrays.copyOf(bucketbots, capacity);
+			xPosition = Arrays.copyOf(xPosition, capacity);
+			yPosition = Arrays.copyOf(yPosition, capacity);
+			xVelocity = Arrays.copyOf(xVelocity, capacity);
+			yVelocity = Arrays.copyOf(yVelocity, capacity);
+			targetXVelocity = Arrays.copyOf(targetXVelocity, capacity);
+			targetYVelocity = Arrays.copyOf(targetYVelocity, capacity);
+			maxVelocity = Arrays.copyOf(maxVelocity, capacity);
+			maxAcceleration = Arrays.copyOf(maxAcceleration, capacity);
+			blockedUntil = Arrays.copyOf(blockedUntil, capacity);
+			accelerateUntil = Arrays.copyOf(accelerateUntil, capacity);
+			cruiseUntil = Arrays.copyOf(cruiseUntil, capacity);
+			nextXVelocity = Arrays.copyOf(nextXVelocity, capacity);
+			nextYVelocity = Arrays.copyOf(nextYVelocity, capacity);
+			proposed = Arrays.copyOf(proposed, capacity);
+			moveResult = Arrays.copyOf(moveResult, capacity);
+			movedDistance = Arrays.copyOf(movedDistance, capacity);
+		}
+		bucketbots[numBucketbots] = owner;
+		xPosition[numBucketbots] = Float.NaN;	//start out at a non-existant location, as Circle does
+		yPosition[numBucketbots] = Float.NaN;
+		moveResult[numBucketbots] = MOVE_NONE;
+		return numBucketbots++;
+	}
+
+	/**Copies all of the kinematic state of one entry to an entry of another BucketbotKinematics
+	 */
+	void copyEntry(int from, BucketbotKinematics to, int to_index) {
+		to.xPosition[to_index] = xPosition[from];
+		to.yPosition[to_index] = yPosition[from];
+		to.xVelocity[to_index] = xVelocity[from];
+		to.yVelocity[to_index] = yVelocity[from];
+		to.targetXVelocity[to_index] = targetXVelocity[from];
+		to.targetYVelocity[to_index] = targetYVelocity[from];
+		to.maxVelocity[to_index] = maxVelocity[from];
+		to.maxAcceleration[to_index] = maxAcceleration[from];
+		to.blockedUntil[to_index] = blockedUntil[from];
+		to.accelerateUntil[to_index] = accelerateUntil[from];
+		to.cruiseUntil[to_index] = cruiseUntil[from];
+		to.proposed[to_index] = false;
+		to.moveResult[to_index] = MOVE_NONE;
+		to.movedDistance[to_index] = 0.0;
+	}
+
+	/**Computes the velocity of the entry after time_delta, moving toward the target velocity
+	 * while keeping within the maximum velocity and acceleration, and puts it in nextXVelocity and nextYVelocity
+	 * @param i index of the entry
+	 * @param time_delta amount of time to accelerate for
+	 */
+	void computeVelocity(int i, double time_delta) {
+		//use old velocities to clamp acceleration
+		float old_x_velocity = xVelocity[i];
+		float old_y_velocity = yVelocity[i];
+
+		//set new velocity
+		float x_velocity = targetXVelocity[i];
+		float y_velocity = targetYVelocity[i];
+
+		//clamp velocity
+		float max_velocity = maxVelocity[i];
+		if(x_velocity*x_velocity + y_velocity*y_velocity > max_velocity*max_velocity) {
+			float velocity_magnitude = (float)Math.sqrt(x_velocity*x_velocity + y_velocity*y_velocity);
+			x_velocity = max_velocity * (x_velocity/velocity_magnitude);
+			y_velocity = max_velocity * (y_velocity/velocity_magnitude);
+		}
+
+		//clamp acceleration
+		float max_acceleration = maxAcceleration[i];
+		double x_accel = (float)( (x_velocity - old_x_velocity) / time_delta );
+		double y_accel = (float)( (y_velocity - old_y_velocity) / time_delta );
+		if( x_accel*x_accel + y_accel*y_accel > max_acceleration*max_acceleration) {
+			double accel_magnitude = Math.sqrt(x_accel*x_accel + y_accel*y_accel);
+			x_velocity = (float)(old_x_velocity + max_acceleration*time_delta * (x_accel/accel_magnitude));
+			y_velocity = (float)(old_y_velocity + max_acceleration*time_delta * (y_accel/accel_magnitude));
+		}
+
+		nextXVelocity[i] = x_velocity;
+		nextYVelocity[i] = y_velocity;
+	}
+
+	/**Computes where the entry will be after time_delta following its trajectory exactly, accelerating toward the
+	 * target velocity (within the maximum velocity) at the maximum acceleration until reaching it, and then cruising.
+	 * Puts the velocity at the end in nextXVelocity and nextYVelocity, and the position in proposedX and proposedY.
+	 * @param i index of the entry
+	 * @param time_delta amount of time to move for
+	 * @param cur_time time at the end of the move, by which the target velocity is reached if accelerateUntil has passed
+	 */
+	private void computeTrajectory(int i, double time_delta, double cur_time) {
+		float x_velocity = xVelocity[i];
+		float y_velocity = yVelocity[i];
+
+		//clamp target velocity
+		float target_x_velocity = targetXVelocity[i];
+		float target_y_velocity = targetYVelocity[i];
+		float max_velocity = maxVelocity[i];
+		if(target_x_velocity*target_x_velocity + target_y_velocity*target_y_velocity > max_velocity*max_velocity) {
+			float velocity_magnitude = (float)Math.sqrt(target_x_velocity*target_x_velocity + target_y_velocity*target_y_velocity);
+			target_x_velocity = max_velocity * (target_x_velocity/velocity_magnitude);
+			target_y_velocity = max_velocity * (target_y_velocity/velocity_magnitude);
+		}
+
+		double x = xPosition[i], y = yPosition[i];
+		double dx_velocity = target_x_velocity - x_velocity;
+		double dy_velocity = target_y_velocity - y_velocity;
+		double velocity_difference = Math.sqrt(dx_velocity*dx_velocity + dy_velocity*dy_velocity);
+		double max_acceleration = maxAcceleration[i];
+		double accelerate_time = velocity_difference / max_acceleration;
+
+		if(velocity_difference > 0.0 && accelerate_time >= time_delta && cur_time < accelerateUntil[i]) {
+			//accelerating for the whole step
+			double x_accel = max_acceleration * dx_velocity / velocity_difference;
+			double y_accel = max_acceleration * dy_velocity / velocity_difference;
+			nextXVelocity[i] = (float)(x_velocity + x_accel * time_delta);
+			nextYVelocity[i] = (float)(y_velocity + y_accel * time_delta);
+			proposedX[i] = (float)(x + (x_velocity + x_accel * time_delta / 2) * time_delta);
+			proposedY[i] = (float)(y + (y_velocity + y_accel * time_delta / 2) * time_delta);
+		}
+		else {
+			//reaches the target velocity during the step, at the average velocity while accelerating
+			accelerate_time = Math.min(accelerate_time, time_delta);
+			nextXVelocity[i] = target_x_velocity;
+			nextYVelocity[i] = target_y_velocity;
+			proposedX[i] = (float)(x + (x_velocity + target_x_velocity) / 2 * accelerate_time
+										+ target_x_velocity * (time_delta - accelerate_time));
+			proposedY[i] = (float)(y + (y_velocity + target_y_velocity) / 2 * accelerate_time
+										+ target_y_velocity * (time_delta - accelerate_time));
+		}
+	}
+
+	/**Returns true if the velocity of the entry has already been computed for the step
+	 * from last_time to cur_time, and its inputs haven't changed since
+	 */
+	boolean isProposed(int i, double last_time, double cur_time) {
+		return proposed[i] && last_time == proposedLastTime && cur_time == proposedCurTime;
+	}
+
+	/**Returns the outcome of the entry's move resolved at the start of the step, and clears it
+	 * @return MOVE_NONE if the bucketbot still needs to move itself, otherwise MOVE_MADE or MOVE_BLOCKED
+	 */
+	byte takeMoveResult(int i) {
+		byte result = moveResult[i];
+		moveResult[i] = MOVE_NONE;
+		return result;
+	}
+
+	/**Returns the distance covered by the entry's moves since it was last taken, and clears it
+	 */
+	double takeMovedDistance(int i) {
+		double distance = movedDistance[i];
+		movedDistance[i] = 0.0;
+		return distance;
+	}
+
+	/**
+	 * @return true if the bucketbots follow their trajectories exactly, and are only updated at their own events
+	 */
+	public boolean isKinetic() {
+		return kinetic;
+	}
+
+	/**Makes the moves of all of the bucketbots be resolved together at the start of each step.
+	 * @param m Map the bucketbots move on
+	 * @param num_threads number of threads to check the proposed moves with, 0 for one per processor
+	 */
+	public void setMoveResolution(Map m, int num_threads) {
+		setMoveResolution(m, num_threads, false);
+	}
+
+	/**Makes the moves of all of the bucketbots be resolved together at the start of each step.
+	 * @param m Map the bucketbots move on
+	 * @param num_threads number of threads to check the proposed moves with, 0 for one per processor
+	 * @param kinetic_motion true to follow each trajectory exactly over the step, and let bucketbots which
+	 * are following a plan skip their updates
+	 */
+	public void setMoveResolution(Map m, int num_threads, boolean kinetic_motion) {
+		map = m;
+		kinetic = kinetic_motion;
+		if(num_threads <= 0)
+			num_threads = Runtime.getRuntime().availableProcessors();
+		numThreads = num_threads;
+		proposedX = new float[numBucketbots];
+		proposedY = new float[numBucketbots];
+		validProposal = new boolean[numBucketbots];
+		conflicted = new boolean[numBucketbots];
+		sweepX = new float[numBucketbots];
+		sweepOrder = new int[numBucketbots];
+		for(int i = 0; i < numBucketbots; i++)
+			sweepOrder[i] = i;
+	}
+
+	/**Computes the velocities and proposed positions of the entries from first up to but not including last,
+	 * and checks the proposals against the spatial indexes
+	 */
+	private void proposeMoves(int first, int last, double cur_time, double time_delta) {
+		//integrate over the arrays first, leaving the spatial index queries for a second loop
+		for(int i = first; i < last; i++) {
+			validProposal[i] = false;
+			conflicted[i] = false;
+			proposed[i] = false;
+			moveResult[i] = MOVE_NONE;
+			if(cur_time < blockedUntil[i])
+				continue;
+			if(kinetic)
+				computeTrajectory(i, time_delta, cur_time);
+			else {
+				computeVelocity(i, time_delta);
+				proposedX[i] = (float)(nextXVelocity[i] * time_delta + xPosition[i]);
+				proposedY[i] = (float)(nextYVelocity[i] * time_delta + yPosition[i]);
+			}
+			//moving this step, and stays blocked unless the move is committed
+			moveResult[i] = MOVE_BLOCKED;
+		}
+		for(int i = first; i < last; i++)
+			if(moveResult[i] == MOVE_BLOCKED)
+				validProposal[i] = map.isBucketbotMoveValid(bucketbots[i], proposedX[i], proposedY[i]);
+	}
+
+	/**Proposes the moves of all of the entries, splitting them among the threads
+	 */
+	private void proposeMoves(final double cur_time, final double time_delta) {
+		if(numThreads == 1 || numBucketbots <= 1) {
+			proposeMoves(0, numBucketbots, cur_time, time_delta);
+			return;
+		}
+		if(pool == null)
+			pool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "bucketbot moves");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		int per_thread = (numBucketbots + numThreads - 1) / numThreads;
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(numThreads);
+		for(int first = 0; first < numBucketbots; first += per_thread) {
+			final int first_entry = first;
+			final int last_entry = Math.min(numBucketbots, first + per_thread);
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					proposeMoves(first_entry, last_entry, cur_time, time_delta);
+					return null;
+				}
+			});
+		}
+		try {
+			for(Future<Object> f : pool.invokeAll(tasks))
+				f.get();
+		} catch(InterruptedException e) {
+			throw new RuntimeException("interrupted while moving bucketbots", e);
+		} catch(ExecutionException e) {
+			throw new RuntimeException("failed to move bucketbots", e.getCause());
+		}
+	}
+
+	/**Returns true if the proposed moves of the two entries would collide with each other,
+	 * either the bucketbots themselves or the buckets they are carrying
+	 */
+	private boolean isConflict(int i, int j) {
+		float dx = proposedX[i] - proposedX[j];
+		float dy = proposedY[i] - proposedY[j];
+		float r = bucketbots[i].getRadius() + bucketbots[j].getRadius();
+		if(dx*dx + dy*dy <= r*r)
+			return true;
+		Circle bucket_i = (Circle)bucketbots[i].getBucket();
+		Circle bucket_j = (Circle)bucketbots[j].getBucket();
+		if(bucket_i == null || bucket_j == null)
+			return false;
+		r = bucket_i.getRadius() + bucket_j.getRadius();
+		return dx*dx + dy*dy <= r*r;
+	}
+
+	/**Rejects every pair of valid proposals which would collide, sweeping along x
+	 */
+	private void findConflicts() {
+		float max_radius = 0.0f;
+		for(int i = 0; i < numBucketbots; i++) {
+			sweepX[i] = validProposal[i] ? proposedX[i] : xPosition[i];
+			if(validProposal[i]) {
+				max_radius = Math.max(max_radius, bucketbots[i].getRadius());
+				if(bucketbots[i].getBucket() != null)
+					max_radius = Math.max(max_radius, ((Circle)bucketbots[i].getBucket()).getRadius());
+			}
+		}
+
+		//insertion sort, since the order hardly changes from one step to the next
+		for(int a = 1; a < numBucketbots; a++) {
+			int i = sweepOrder[a];
+			int c = a - 1;
+			for( ; c >= 0 && sweepX[sweepOrder[c]] > sweepX[i]; c--)
+				sweepOrder[c + 1] = sweepOrder[c];
+			sweepOrder[c + 1] = i;
+		}
+
+		float reach = 2 * max_radius;
+		for(int a = 0; a < numBucketbots; a++) {
+			int i = sweepOrder[a];
+			if(!validProposal[i])
+				continue;
+			for(int c = a + 1; c < numBucketbots && sweepX[sweepOrder[c]] - sweepX[i] <= reach; c++) {
+				int j = sweepOrder[c];
+				if(validProposal[j] && isConflict(i, j)) {
+					conflicted[i] = true;
+					conflicted[j] = true;
+				}
+			}
+		}
+	}
+
+	/**Commits the moves which are valid and don't conflict, in the order of the entries.  The committed moves
+	 * don't collide with each other or with anything that stays, so none of them can fail.
+	 */
+	private void commitMoves() {
+		for(int i = 0; i < numBucketbots; i++) {
+			if(moveResult[i] == MOVE_NONE)
+				continue;
+			xVelocity[i] = nextXVelocity[i];
+			yVelocity[i] = nextYVelocity[i];
+			if(validProposal[i] && !conflicted[i])
+				makeMove(i);
+		}
+	}
+
+	/**Moves the entry's bucketbot to its proposed position if the move is valid, and adds up the distance
+	 * @return true if the move was made
+	 */
+	private boolean makeMove(int i) {
+		float x_old = xPosition[i], y_old = yPosition[i];
+		if(!map.moveBucketbot(bucketbots[i], proposedX[i], proposedY[i]))
+			return false;
+		float x_new = xPosition[i], y_new = yPosition[i];
+		movedDistance[i] += Math.sqrt( (x_new-x_old)*(x_new-x_old) + (y_new-y_old)*(y_new-y_old));
+		moveResult[i] = MOVE_MADE;
+		return true;
+	}
+
+	/**Tries the rejected moves again against the positions after the committed moves, in sweep order,
+	 * until a pass makes none of them
+	 */
+	private void retryMoves() {
+		boolean any_made = true;
+		while(any_made) {
+			any_made = false;
+			for(int a = 0; a < numBucketbots; a++) {
+				int i = sweepOrder[a];
+				if(moveResult[i] == MOVE_BLOCKED && makeMove(i))
+					any_made = true;
+			}
+		}
+	}
+
+	/**Wakes up every bucketbot whose move is still blocked, since a kinetic bucketbot may be asleep,
+	 * but needs to stop and take the collision penalty now
+	 */
+	private void wakeBlocked() {
+		for(int i = 0; i < numBucketbots; i++)
+			if(moveResult[i] == MOVE_BLOCKED)
+				SimulationWorld.getSimulationWorld().rescheduleUpdateable(bucketbots[i]);
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Updateable#getNextEventTime(double)
+	 */
+	public double getNextEventTime(double cur_time) {
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**Computes the velocities of all of the bucketbots which won't be blocked for the step,
+	 * and moves them if moves are resolved together
+	 * @see alphabetsoup.framework.Updateable#update(double, double)
+	 */
+	public void update(double last_time, double cur_time) {
+		double time_delta = cur_time - last_time;
+		proposedLastTime = last_time;
+		proposedCurTime = cur_time;
+		if(map != null) {
+			proposeMoves(cur_time, time_delta);
+			findConflicts();
+			commitMoves();
+			retryMoves();
+			if(kinetic)
+				wakeBlocked();
+			return;
+		}
+		for(int i = 0; i < numBucketbots; i++) {
+			proposed[i] = (cur_time >= blockedUntil[i]);
+			if(proposed[i])
+				computeVelocity(i, time_delta);
+		}
+	}
+
+	/**
+	 * @return the number of bucketbots attached
+	 */
+	public int getNumBucketbots() {
+		return numBucketbots;
+	}
+}
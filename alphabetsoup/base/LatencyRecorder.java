@@ -0,0 +1,169 @@
+/**
+ * 
+ */
+package alphabetsoup.base;
+
+import java.io.Serializable;
+import java.text.DecimalFormat;
+import java.util.*;
+
+import alphabetsoup.framework.LatencyHistogram;
+import alphabetsoup.framework.SimulationWorld;
+import alphabetsoup.framework.Word;
+import alphabetsoup.framework.WordStation;
+
+/**LatencyRecorder measures how long each word takes from being assigned to a word station to being completed,
+ * overall and for each word station, and how long each bucketbot task takes from being assigned to being completed
+ * (or aborted), for each type of task.  Durations are kept in LatencyHistograms, so the memory used doesn't
+ * grow with the length of the run, and the recorders of replications can be merged to get the percentiles of all of them.
+ * A task which is replaced by another before it is completed counts as aborted.
+ * Resetting the statistics empties the histograms, but keeps the start times of the words and tasks in progress.
+ */
+public class LatencyRecorder implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final double resolution = 0.001;	//durations are told apart down to 1 ms
+	public static final double percentiles[] = {0.5, 0.9, 0.99};
+	public static final String percentileNames[] = {"p50", "p90", "p99"};
+
+	private LatencyHistogram wordCycleTime = new LatencyHistogram(resolution);
+	private List<LatencyHistogram> stationCycleTime = new ArrayList<LatencyHistogram>();
+	private EnumMap<BucketbotTask.TaskType, LatencyHistogram> taskLeadTime
+					= new EnumMap<BucketbotTask.TaskType, LatencyHistogram>(BucketbotTask.TaskType.class);
+	private EnumMap<BucketbotTask.TaskType, LatencyHistogram> taskAbortTime
+					= new EnumMap<BucketbotTask.TaskType, LatencyHistogram>(BucketbotTask.TaskType.class);
+
+	//start times of the words and tasks in progress, by identity since neither defines equals
+	private IdentityHashMap<Word, Double> wordStartTimes = new IdentityHashMap<Word, Double>();
+	private IdentityHashMap<BucketbotTask, Double> taskStartTimes = new IdentityHashMap<BucketbotTask, Double>();
+
+	public LatencyRecorder() {
+		for(BucketbotTask.TaskType type : BucketbotTask.TaskType.values()) {
+			taskLeadTime.put(type, new LatencyHistogram(resolution));
+			taskAbortTime.put(type, new LatencyHistogram(resolution));
+		}
+	}
+
+	/**Empties the histograms, keeping the words and tasks in progress
+	 */
+	public void resetStatistics() {
+		wordCycleTime.reset();
+		for(LatencyHistogram h : stationCycleTime)
+			h.reset();
+		for(LatencyHistogram h : taskLeadTime.values())
+			h.reset();
+		for(LatencyHistogram h : taskAbortTime.values())
+			h.reset();
+	}
+
+	/**Returns the histogram of the cycle times at the word station of the specified index, creating it if needed
+	 */
+	private LatencyHistogram getStationCycleTime(int station) {
+		while(stationCycleTime.size() <= station)
+			stationCycleTime.add(new LatencyHistogram(resolution));
+		return stationCycleTime.get(station);
+	}
+
+	/**Records that a word has been assigned to a word station
+	 * @param w word assigned
+	 * @param cur_time current simulation time
+	 */
+	public void wordAssigned(Word w, double cur_time) {
+		wordStartTimes.put(w, cur_time);
+	}
+
+	/**Records that a word has been completed
+	 * @param w word completed
+	 * @param ws word station the word was completed at
+	 * @param cur_time current simulation time
+	 */
+	public void wordCompleted(Word w, WordStation ws, double cur_time) {
+		Double start_time = wordStartTimes.remove(w);
+		if(start_time == null)
+			return;
+		double cycle_time = cur_time - start_time;
+		wordCycleTime.record(cycle_time);
+
+		WordStation stations[] = SimulationWorld.getSimulationWorld().wordStations;
+		for(int i = 0; i < stations.length; i++)
+			if(stations[i] == ws) {
+				getStationCycleTime(i).record(cycle_time);
+				break;
+			}
+	}
+
+	/**Records that a task has been assigned to a bucketbot
+	 * @param t task assigned
+	 * @param replaced task the bucketbot had before, counted as aborted if still in progress
+	 * @param cur_time current simulation time
+	 */
+	public void taskAssigned(BucketbotTask t, BucketbotTask replaced, double cur_time) {
+		if(replaced != null && replaced != t)
+			taskAborted(replaced, cur_time);
+		taskStartTimes.put(t, cur_time);
+	}
+
+	/**Records that a task has been completed
+	 * @param t task completed
+	 * @param cur_time current simulation time
+	 */
+	public void taskCompleted(BucketbotTask t, double cur_time) {
+		Double start_time = (t != null) ? taskStartTimes.remove(t) : null;
+		if(start_time != null)
+			taskLeadTime.get(t.getTaskType()).record(cur_time - start_time);
+	}
+
+	/**Records that a task has been aborted
+	 * @param t task aborted
+	 * @param cur_time current simulation time
+	 */
+	public void taskAborted(BucketbotTask t, double cur_time) {
+		Double start_time = (t != null) ? taskStartTimes.remove(t) : null;
+		if(start_time != null)
+			taskAbortTime.get(t.getTaskType()).record(cur_time - start_time);
+	}
+
+	/**Adds the histograms of another recorder (e.g. of another replication) to this one
+	 * @param r recorder to merge in
+	 */
+	public void merge(LatencyRecorder r) {
+		wordCycleTime.merge(r.wordCycleTime);
+		for(int i = 0; i < r.stationCycleTime.size(); i++)
+			getStationCycleTime(i).merge(r.stationCycleTime.get(i));
+		for(BucketbotTask.TaskType type : BucketbotTask.TaskType.values()) {
+			taskLeadTime.get(type).merge(r.taskLeadTime.get(type));
+			taskAbortTime.get(type).merge(r.taskAbortTime.get(type));
+		}
+	}
+
+	/**Adds the lines of a histogram to the report, if it has anything in it
+	 */
+	private void addHistogramLines(List<String> lines, String label, LatencyHistogram h, boolean always) {
+		if(h.getCount() == 0 && !always)
+			return;
+		lines.add(label + " count: " + h.getCount());
+		if(h.getCount() == 0)
+			return;
+		DecimalFormat three_digits = new DecimalFormat("0.000");
+		lines.add(label + " mean: " + three_digits.format(h.getMean()));
+		for(int p = 0; p < percentiles.length; p++)
+			lines.add(label + " " + percentileNames[p] + ": " + three_digits.format(h.getPercentile(percentiles[p])));
+		lines.add(label + " max: " + three_digits.format(h.getMax()));
+	}
+
+	/**Returns the lines to add to the SummaryReport, with times in seconds
+	 * @param prefix text to start each label with (e.g. "pooled "), or an empty string
+	 * @return a List of Strings in sequential order
+	 */
+	public List<String> getReportText(String prefix) {
+		List<String> lines = new ArrayList<String>();
+		addHistogramLines(lines, prefix + "word cycle time", wordCycleTime, true);
+		for(int i = 0; i < stationCycleTime.size(); i++)
+			addHistogramLines(lines, prefix + "word station " + i + " cycle time", stationCycleTime.get(i), false);
+		for(BucketbotTask.TaskType type : BucketbotTask.TaskType.values()) {
+			addHistogramLines(lines, prefix + type + " task lead time", taskLeadTime.get(type), false);
+			addHistogramLines(lines, prefix + type + " task abort time", taskAbortTime.get(type), false);
+		}
+		return lines;
+	}
+}
@@ -12,7 +12,9 @@ import alphabetsoup.framework.*;
  * when requested to do so.
  * @author Chris Hazard
  */
-public class LetterStationBase extends Circle implements LetterStation, Updateable {
+public class LetterStationBase extends Circle implements LetterStation, Updateable, Schedulable {
+	private static final long serialVersionUID = 1L;
+
 	private int capacity;
 	private int bundleSize;
 	private float letterToBucketTime;
@@ -72,6 +74,13 @@ public class LetterStationBase extends Circle implements LetterStation, Updateab
 		else
 			return blockedUntilTime;
 	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Schedulable#getWakeTime()
+	 */
+	public double getWakeTime() {
+		return blockedUntilTime;
+	}
 
 	/* (non-Javadoc)
 	 * @see alphabetsoup.framework.Updateable#update(double, double)
@@ -166,6 +175,13 @@ public class LetterStationBase extends Circle implements LetterStation, Updateab
 	public double getIdleTime() {
 		return idleTime;
 	}
+	
+	/**
+	 * @return the number of letter requests waiting to be transferred to buckets
+	 */
+	public int getNumRequestsWaiting() {
+		return lettersRequested.size();
+	}
 
 	/**
 	 * @return Returns the letterToBucketTime.
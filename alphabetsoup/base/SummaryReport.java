@@ -98,7 +98,70 @@ public class SummaryReport {
 			ave_bucket_capacity += (double)b.getLetters().size() / b.getCapacity();
 		}
 		lines.add("bucket utilization: " + four_digits.format(ave_bucket_capacity / sw.buckets.length) );
+		
+		//how the warmup and run length were decided, if they weren't fixed
+		if(sw.getOutputAnalyzer() != null)
+			lines.addAll(sw.getOutputAnalyzer().getReportText());
+		
+		//what the telemetry cost, if it was recorded
+		if(sw.getTelemetry() != null)
+			lines.addAll(sw.getTelemetry().getReportText());
+		
+		//where the time of the steps went, if profiled
+		if(sw.getUpdateProfiler() != null)
+			lines.addAll(sw.getUpdateProfiler().getReportText());
+		
+		if(sw.getLatencyRecorder() != null)
+			lines.addAll(sw.getLatencyRecorder().getReportText(""));
+		
+		//how much searching the routes took
+		if(sw.getContext().waypointGraph != null)
+			lines.addAll(sw.getContext().waypointGraph.getReportText());
+
+		return lines;
+	}
 
+	/**Combines the reports of several replications of the same simulation, as generated by generateReportText,
+	 * into one report giving the mean and standard deviation of each numeric statistic across the replications.
+	 * Statistics are matched by their label, and listed in the order they were first seen.
+	 * @param reports reports of each replication
+	 * @return a List of Strings in sequential order
+	 */
+	static public List<String> generateAggregateReportText(List<List<String>> reports) {
+		DecimalFormat four_digits = new DecimalFormat("0.000");
+		
+		//collect all values of each statistic
+		LinkedHashMap<String, List<Double>> values = new LinkedHashMap<String, List<Double>>();
+		for(List<String> report : reports) {
+			for(String line : report) {
+				int separator = line.lastIndexOf(": ");
+				if(separator < 0)
+					continue;
+				double value;
+				try {
+					value = Double.parseDouble(line.substring(separator + 2).trim());
+				} catch(NumberFormatException e) { continue; }
+				String label = line.substring(0, separator);
+				if(!values.containsKey(label))
+					values.put(label, new ArrayList<Double>());
+				values.get(label).add(value);
+			}
+		}
+		
+		List<String> lines = new ArrayList<String>();
+		lines.add("replications: " + reports.size());
+		for(String label : values.keySet()) {
+			List<Double> v = values.get(label);
+			double mean = 0.0;
+			for(double d : v) mean += d;
+			mean /= v.size();
+			double variance = 0.0;
+			for(double d : v) variance += (d - mean) * (d - mean);
+			if(v.size() > 1)
+				variance /= (v.size() - 1);
+			lines.add(label + ": " + four_digits.format(mean) + " (std dev " + four_digits.format(Math.sqrt(variance))
+					+ ", n=" + v.size() + ")");
+		}
 		return lines;
 	}
 
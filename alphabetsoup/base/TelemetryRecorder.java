@@ -0,0 +1,439 @@
+/**
+ * 
+ */
+package alphabetsoup.base;
+
+import java.io.*;
+import java.text.DecimalFormat;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import alphabetsoup.framework.Bucketbot;
+import alphabetsoup.framework.LetterStation;
+import alphabetsoup.framework.SimulationWorld;
+import alphabetsoup.framework.TelemetrySource;
+import alphabetsoup.framework.Updateable;
+import alphabetsoup.framework.Word;
+import alphabetsoup.framework.WordStation;
+
+/**TelemetryRecorder records a time series of the state of a simulation, sampled at the end of the first step
+ * at or after each multiple of the sampling interval.  Each sample is a row of columns, put into preallocated ring buffers
+ * of primitives, one per column, so sampling doesn't allocate anything (other than when a bucketbot enters a state that
+ * hasn't been seen before, which adds a column).  A background thread writes the rows out in blocks, so the simulation
+ * only waits on the file if the ring buffers fill up.<br>
+ * The columns are the time, then for each interval: the words and letters completed, collisions, distance traveled, pickups,
+ * setdowns, and the idle time summed over the letter stations and over the word stations; the letter requests and letter takes
+ * waiting at the stations at the time of the sample (total and largest); the values of any Updateable which is a TelemetrySource;
+ * and the bucketbot time spent in each state or task during the interval.  Values counted over an interval start over from zero
+ * when the statistics are reset.<br>
+ * The file is gzipped, and starts with an int magic number, an int version and the double sampling interval, followed by blocks,
+ * each of which is an int number of rows, an int number of columns and the UTF name of each column, then all of the double times
+ * of the block, then all of the float values of each other column in turn.  The main function converts a file to CSV.
+ */
+public class TelemetryRecorder {
+
+	/**"ASTL" at the start of every telemetry file*/
+	public static final int magic = 0x4153544C;
+	public static final int version = 1;
+
+	/**names and ring buffers of the columns other than time, replaced as a whole when a column is added
+	 */
+	private static class Columns {
+		Columns(String n[], float d[][]) {	names = n;	data = d;	}
+		final String names[];
+		final float data[][];
+	}
+
+	private double interval;
+	private int capacity;		//number of rows each ring buffer holds
+	private double nextSampleTime = Double.NEGATIVE_INFINITY;
+
+	private double times[];
+	private volatile Columns columns;
+	private boolean perInterval[];	//true if the column is counted over the interval, false if it is a level
+	private double lastValues[];	//value at the last sample of each column counted over the interval
+	private double values[];		//values of the sample being taken
+	private HashMap<String, Integer> stateColumns = new HashMap<String, Integer>();
+
+	//fixed columns, followed by the columns of the sources and then of the states
+	private static final String fixedNames[] = {"completed words", "completed letters", "collisions", "distance", "pickups", "setdowns",
+		"letter station idle time", "word station idle time", "letter station requests waiting", "largest letter station requests waiting",
+		"word station requests waiting", "largest word station requests waiting"};
+	private static final int numPerIntervalColumns = 8;
+	private TelemetrySource sources[];
+	private SimulationWorld world;		//simulation the sources are from
+	private int sourceOffsets[];
+
+	private double lastStatisticsTime = Double.NaN;
+	private int numWordsSeen = 0;
+	private int numLettersCompleted = 0;
+
+	//rows are put in by the simulation thread and taken out by the writer thread
+	private volatile long numSampled = 0;
+	private volatile long numWritten = 0;
+	private final Object lock = new Object();
+	private volatile boolean closed = false;
+	private Thread writer;
+	private DataOutputStream out;
+	private IOException writeError = null;
+	private Thread shutdownHook;
+
+	//cost on the simulation thread
+	private long sampleNanos = 0;
+	private long numStalls = 0;
+
+	/**Opens the telemetry file of the simulation and starts the writer thread
+	 * @param sw simulation to record
+	 * @param file_name name of the file to write
+	 * @param sampling_interval amount of simulated time between samples
+	 * @param buffer_rows number of rows the ring buffers hold
+	 */
+	public TelemetryRecorder(SimulationWorld sw, String file_name, double sampling_interval, int buffer_rows) throws IOException {
+		interval = sampling_interval;
+		capacity = Math.max(buffer_rows, 2);
+
+		findSources(sw);
+		sourceOffsets = new int[sources.length];
+
+		List<String> names = new ArrayList<String>(Arrays.asList(fixedNames));
+		for(int i = 0; i < sources.length; i++) {
+			sourceOffsets[i] = names.size();
+			names.addAll(Arrays.asList(sources[i].getTelemetryNames()));
+		}
+		int n = names.size();
+		times = new double[capacity];
+		columns = new Columns(names.toArray(new String[n]), new float[n][capacity]);
+		perInterval = new boolean[n];
+		Arrays.fill(perInterval, 0, numPerIntervalColumns, true);
+		lastValues = new double[n];
+		values = new double[n];
+
+		out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file_name), 1 << 16)));
+		out.writeInt(magic);
+		out.writeInt(version);
+		out.writeDouble(interval);
+
+		writer = new Thread("telemetry writer") {
+			public void run() {
+				writeRows();
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+
+		//write out whatever is left if the simulation is ended some other way (e.g. the user interface is closed)
+		shutdownHook = new Thread() {
+			public void run() {
+				close();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**Finds the Updateables of the simulation which are TelemetrySources
+	 */
+	private void findSources(SimulationWorld sw) {
+		world = sw;
+		List<TelemetrySource> source_list = new ArrayList<TelemetrySource>();
+		for(Updateable u : sw.getUpdateables())
+			if(u instanceof TelemetrySource)
+				source_list.add((TelemetrySource)u);
+		sources = source_list.toArray(new TelemetrySource[source_list.size()]);
+	}
+
+	/**Adds a column for a state or task which hasn't been seen before
+	 * @return the index of the new column
+	 */
+	private int addStateColumn(String state) {
+		Columns c = columns;
+		int n = c.names.length;
+		String names[] = Arrays.copyOf(c.names, n + 1);
+		names[n] = "time in " + state;
+		float data[][] = Arrays.copyOf(c.data, n + 1);
+		data[n] = new float[capacity];
+		perInterval = Arrays.copyOf(perInterval, n + 1);
+		perInterval[n] = true;
+		lastValues = Arrays.copyOf(lastValues, n + 1);
+		values = Arrays.copyOf(values, n + 1);
+		stateColumns.put(state, n);
+		columns = new Columns(names, data);
+		return n;
+	}
+
+	/**Takes a sample of the simulation if the next sampling time has been reached.  Must be called by the simulation thread
+	 * after every step.
+	 * @param sw simulation to sample
+	 * @param cur_time current simulation time
+	 */
+	public void sample(SimulationWorld sw, double cur_time) {
+		if(cur_time < nextSampleTime || closed)
+			return;
+		long start_time = System.nanoTime();
+		if(nextSampleTime == Double.NEGATIVE_INFINITY)
+			nextSampleTime = cur_time;
+		while(nextSampleTime <= cur_time)
+			nextSampleTime += interval;
+
+		//everything counted over an interval starts over when the statistics are reset
+		if(sw.getStatisticsTime() != lastStatisticsTime) {
+			lastStatisticsTime = sw.getStatisticsTime();
+			Arrays.fill(lastValues, 0.0);
+			numWordsSeen = 0;
+			numLettersCompleted = 0;
+		}
+		Arrays.fill(values, 0.0);
+
+		List<Word> completed = sw.getWordList().getCompletedWords();
+		for(int i = numWordsSeen; i < completed.size(); i++)
+			numLettersCompleted += completed.get(i).getOriginalLetters().length;
+		numWordsSeen = completed.size();
+		values[0] = completed.size();
+		values[1] = numLettersCompleted;
+
+		for(Bucketbot b : sw.bucketbots) {
+			values[2] += b.getNumCollisions();
+			values[3] += b.getDistanceTraveled();
+			values[4] += b.getNumPickups();
+			values[5] += b.getNumSetdowns();
+			for(java.util.Map.Entry<String, Double> e : b.getTotalTimes().entrySet()) {
+				Integer column = stateColumns.get(e.getKey());
+				if(column == null)
+					column = addStateColumn(e.getKey());	//replaces values, so must be done before indexing it
+				values[column] += e.getValue();
+			}
+		}
+
+		for(LetterStation s : sw.letterStations) {
+			values[6] += s.getIdleTime();
+			if(s instanceof LetterStationBase) {
+				int waiting = ((LetterStationBase)s).getNumRequestsWaiting();
+				values[8] += waiting;
+				values[9] = Math.max(values[9], waiting);
+			}
+		}
+		for(WordStation s : sw.wordStations) {
+			values[7] += s.getIdleTime();
+			if(s instanceof WordStationBase) {
+				int waiting = ((WordStationBase)s).getNumRequestsWaiting();
+				values[10] += waiting;
+				values[11] = Math.max(values[11], waiting);
+			}
+		}
+
+		//a simulation loaded from a checkpoint carries on with its own sources, which have the same columns
+		if(sw != world)
+			findSources(sw);
+		for(int i = 0; i < sources.length; i++)
+			sources[i].sampleTelemetry(values, sourceOffsets[i]);
+
+		//wait for the writer if the ring buffers are full
+		if(numSampled - numWritten >= capacity) {
+			synchronized(lock) {
+				while(numSampled - numWritten >= capacity) {
+					numStalls++;
+					lock.notifyAll();
+					try {
+						lock.wait();
+					} catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+			}
+		}
+
+		int row = (int)(numSampled % capacity);
+		times[row] = cur_time;
+		float data[][] = columns.data;
+		for(int c = 0; c < data.length; c++) {
+			if(perInterval[c]) {
+				data[c][row] = (float)(values[c] - lastValues[c]);
+				lastValues[c] = values[c];
+			}
+			else
+				data[c][row] = (float)values[c];
+		}
+		numSampled++;
+
+		//let the writer know once there's a block worth writing
+		if(numSampled - numWritten == capacity / 2) {
+			synchronized(lock) {
+				lock.notifyAll();
+			}
+		}
+		sampleNanos += System.nanoTime() - start_time;
+	}
+
+	/**Loop of the writer thread, which writes blocks of rows until closed
+	 */
+	private void writeRows() {
+		while(true) {
+			synchronized(lock) {
+				while(!closed && numSampled - numWritten < capacity / 2) {
+					try {
+						lock.wait();
+					} catch(InterruptedException e) {
+						return;
+					}
+				}
+			}
+			long last = numSampled;
+			if(last > numWritten)
+				writeBlock(numWritten, last);
+			synchronized(lock) {
+				numWritten = last;
+				lock.notifyAll();
+			}
+			if(closed && numWritten == numSampled)
+				return;
+		}
+	}
+
+	/**Writes the rows from first up to but not including last as one block
+	 */
+	private void writeBlock(long first, long last) {
+		if(writeError != null)
+			return;
+		//read after numSampled, so it has every column of the rows
+		Columns c = columns;
+		try {
+			int num_rows = (int)(last - first);
+			out.writeInt(num_rows);
+			out.writeInt(c.names.length);
+			for(String name : c.names)
+				out.writeUTF(name);
+			for(long r = first; r < last; r++)
+				out.writeDouble(times[(int)(r % capacity)]);
+			for(float column[] : c.data)
+				for(long r = first; r < last; r++)
+					out.writeFloat(column[(int)(r % capacity)]);
+		} catch(IOException e) {
+			writeError = e;
+		}
+	}
+
+	/**Writes out all of the remaining rows and closes the file.  Does nothing if already closed.
+	 */
+	public void close() {
+		synchronized(lock) {
+			if(closed)
+				return;
+			closed = true;
+			lock.notifyAll();
+		}
+		try {
+			writer.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			out.close();
+		} catch(IOException e) {
+			if(writeError == null)
+				writeError = e;
+		}
+		if(writeError != null)
+			System.out.println("could not write telemetry. " + writeError);
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch(IllegalStateException e) { }	//already shutting down
+	}
+
+	/**
+	 * @return the number of samples taken
+	 */
+	public long getNumSamples() {
+		return numSampled;
+	}
+
+	/**
+	 * @return the time the simulation thread has spent taking samples, in seconds
+	 */
+	public double getSamplingTime() {
+		return sampleNanos / 1e9;
+	}
+
+	/**
+	 * @return the number of times the simulation thread had to wait for the writer
+	 */
+	public long getNumStalls() {
+		return numStalls;
+	}
+
+	/**Returns the lines to add to the SummaryReport
+	 * @return a List of Strings in sequential order
+	 */
+	public List<String> getReportText() {
+		DecimalFormat three_digits = new DecimalFormat("0.000");
+		List<String> lines = new ArrayList<String>();
+		lines.add("telemetry samples: " + numSampled);
+		lines.add("telemetry sampling time: " + three_digits.format(getSamplingTime()));
+		lines.add("telemetry stalls: " + numStalls);
+		return lines;
+	}
+
+	/**Writes a telemetry file to standard output as CSV, with a column for every column that appears in any block
+	 * @param args telemetry_file
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1) {
+			System.out.println("usage: TelemetryRecorder telemetry_file");
+			System.exit(1);
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(args[0]))));
+		if(in.readInt() != magic || in.readInt() != version) {
+			System.out.println(args[0] + " is not a telemetry file of this version");
+			System.exit(1);
+		}
+		in.readDouble();
+
+		//read every block, since columns can be added part way through
+		List<String> names = new ArrayList<String>();
+		List<double[]> block_times = new ArrayList<double[]>();
+		List<String[]> block_names = new ArrayList<String[]>();
+		List<float[][]> block_data = new ArrayList<float[][]>();
+		while(true) {
+			int num_rows;
+			try {
+				num_rows = in.readInt();
+			} catch(EOFException e) { break; }
+			String column_names[] = new String[in.readInt()];
+			for(int c = 0; c < column_names.length; c++) {
+				column_names[c] = in.readUTF();
+				if(!names.contains(column_names[c]))
+					names.add(column_names[c]);
+			}
+			double t[] = new double[num_rows];
+			for(int r = 0; r < num_rows; r++)
+				t[r] = in.readDouble();
+			float data[][] = new float[column_names.length][num_rows];
+			for(int c = 0; c < column_names.length; c++)
+				for(int r = 0; r < num_rows; r++)
+					data[c][r] = in.readFloat();
+			block_times.add(t);
+			block_names.add(column_names);
+			block_data.add(data);
+		}
+		in.close();
+
+		PrintStream o = new PrintStream(new BufferedOutputStream(System.out));
+		o.print("time");
+		for(String name : names)
+			o.print("," + name);
+		o.println();
+		for(int b = 0; b < block_times.size(); b++) {
+			int column_of_name[] = new int[names.size()];
+			Arrays.fill(column_of_name, -1);
+			for(int c = 0; c < block_names.get(b).length; c++)
+				column_of_name[names.indexOf(block_names.get(b)[c])] = c;
+			for(int r = 0; r < block_times.get(b).length; r++) {
+				o.print(block_times.get(b)[r]);
+				for(int i = 0; i < names.size(); i++)
+					o.print("," + (column_of_name[i] >= 0 ? Float.toString(block_data.get(b)[column_of_name[i]][r]) : ""));
+				o.println();
+			}
+		}
+		o.flush();
+	}
+}
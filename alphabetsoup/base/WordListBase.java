@@ -18,6 +18,7 @@ import alphabetsoup.framework.WordList;
  * @author Chris Hazard
  */
 public class WordListBase implements WordList {
+	private static final long serialVersionUID = 1L;
 
 	public List<Word> words = new ArrayList<Word>();
 	public List<Word> availableWords = new ArrayList<Word>();
@@ -27,6 +28,10 @@ public class WordListBase implements WordList {
 	protected List<LetterColor> baseColors;
 	protected HashMap<Character, Float> letterProbabilities;
 	
+	//streams of random numbers for new words and for new letters
+	protected MersenneTwisterFast wordRand = SimulationWorld.newRandomStream("words");
+	protected MersenneTwisterFast letterRand = SimulationWorld.newRandomStream("letters");
+	
 	public void resetStatistics() {
 		completedWords = new ArrayList<Word>();
 	}
@@ -70,9 +75,8 @@ public class WordListBase implements WordList {
 			letterProbabilities.put(c, letterProbabilities.get(c) / number_of_letters);
 		
 		//build initial list
-		MersenneTwisterFast rand = SimulationWorld.rand;
 		for(int i = 0; i < num_words; i++) {
-			Word w = new Word(baseWords[rand.nextInt(baseWords.length)], baseColors);
+			Word w = new Word(baseWords[wordRand.nextInt(baseWords.length)], baseColors, wordRand);
 			words.add(w);
 			availableWords.add(w);
 		}
@@ -83,8 +87,7 @@ public class WordListBase implements WordList {
 	 */
 	public Word takeAvailableWord(int index) {
 		//add a new word on to the end
-		MersenneTwisterFast rand = SimulationWorld.rand;
-		Word w = new Word(baseWords[rand.nextInt(baseWords.length)], baseColors);
+		Word w = new Word(baseWords[wordRand.nextInt(baseWords.length)], baseColors, wordRand);
 		words.add(w);
 		availableWords.add(w);
 
@@ -97,10 +100,8 @@ public class WordListBase implements WordList {
 	 * @see alphabetsoup.framework.WordList#generateRandomLetter()
 	 */
 	public Letter generateRandomLetter() {
-		MersenneTwisterFast rand = SimulationWorld.rand;
-		
 		//get color based on distribution
-		float r = rand.nextFloat();
+		float r = letterRand.nextFloat();
 		//chose a default one just incase
 		int chosen_color = 0;
 		
@@ -115,7 +116,7 @@ public class WordListBase implements WordList {
 		}
 		
 		//now get letter based on distribution
-		r = rand.nextFloat();
+		r = letterRand.nextFloat();
 		//chose a default one just incase
 		char chosen_letter = 'a';
 		
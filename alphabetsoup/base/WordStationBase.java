@@ -12,7 +12,9 @@ import alphabetsoup.framework.*;
  * and can be assigned new words when space permits.
  * @author Chris Hazard
  */
-public class WordStationBase extends Circle implements WordStation, Updateable {
+public class WordStationBase extends Circle implements WordStation, Updateable, Schedulable {
+	private static final long serialVersionUID = 1L;
+
 	private int capacity;
 	private float bucketToLetterTime;
 	private float wordCompletionTime;
@@ -60,8 +62,12 @@ public class WordStationBase extends Circle implements WordStation, Updateable {
 	 * @see alphabetsoup.framework.WordStation#assignWord(alphabetsoup.framework.Word)
 	 */
 	public void assignWord(Word w) {
-		if(assignedWords.size() < capacity)
+		if(assignedWords.size() < capacity) {
 			assignedWords.add(w);
+			LatencyRecorder latency = SimulationWorld.getSimulationWorld().getLatencyRecorder();
+			if(latency != null)
+				latency.wordAssigned(w, SimulationWorld.getSimulationWorld().getCurrentTime());
+		}
 	}
 	
 	/* (non-Javadoc)
@@ -73,6 +79,13 @@ public class WordStationBase extends Circle implements WordStation, Updateable {
 		else
 			return blockedUntilTime;
 	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Schedulable#getWakeTime()
+	 */
+	public double getWakeTime() {
+		return blockedUntilTime;
+	}
 
 	/* (non-Javadoc)
 	 * @see alphabetsoup.framework.Updateable#update(double, double)
@@ -149,6 +162,9 @@ public class WordStationBase extends Circle implements WordStation, Updateable {
 				Word completed = assignedWords.get(w);
 				SimulationWorld.getSimulationWorld().getWordList().completedWord(completed);
 				assignedWords.remove(w);
+				LatencyRecorder latency = SimulationWorld.getSimulationWorld().getLatencyRecorder();
+				if(latency != null)
+					latency.wordCompleted(completed, this, cur_time);
 
 				//exit early and block action
 				blockedUntilTime = cur_time + wordCompletionTime;
@@ -217,6 +233,13 @@ public class WordStationBase extends Circle implements WordStation, Updateable {
 	public double getIdleTime() {
 		return idleTime;
 	}
+	
+	/**
+	 * @return the number of letter takes waiting to be transferred from buckets
+	 */
+	public int getNumRequestsWaiting() {
+		return letterTakesRequested.size();
+	}
 
 	/**
 	 * @return Returns the bucketToLetterTime.
@@ -0,0 +1,466 @@
+/**
+ * 
+ */
+package alphabetsoup.benchmark;
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.*;
+
+import alphabetsoup.base.BucketbotBase;
+import alphabetsoup.framework.*;
+import alphabetsoup.simulators.markettaskallocation.DoubleAuction;
+import alphabetsoup.simulators.markettaskallocation.Exchange;
+import alphabetsoup.simulators.markettaskallocation.LetterHistory;
+import alphabetsoup.waypointgraph.BucketbotDriver;
+import alphabetsoup.waypointgraph.Waypoint;
+
+/**HotPathBenchmark measures the throughput and allocation of the operations the simulation spends its time in,
+ * so that the effect of a change on performance can be measured against a baseline.  Each benchmark is run headless
+ * with fixed seeds for a number of warmup iterations, so the JIT compiler has settled, and then for a number of measured
+ * iterations, each of which runs the operation repeatedly for a fixed amount of wall clock time.  For each benchmark,
+ * the mean and standard deviation of the operations per second over the measured iterations are reported,
+ * along with the bytes allocated per operation and the allocation rate (when the JVM supports measuring them)
+ * and the number of garbage collections and the time spent in them.<br>
+ * The benchmarks are the Quadtree's isValidMove, moveTo and getObjectsWithinCircle, BucketbotDriver.getNextWaypointTo,
+ * BucketbotBase.update, DoubleAuction's addBid and acceptAllExchangesFrom, LetterHistory.addNewValue,
+ * and SimulationWorld.update of the greedy task allocation simulation on the small, medium and large bot configurations,
+ * where an operation is one simulated second.  The simulations are built from the configuration files in the
+ * working directory.  The results are printed and written to AlphabetSoupBenchmarkReport.txt.<br>
+ * Usage: HotPathBenchmark [benchmark_name_prefix [warmup_iterations measured_iterations iteration_milliseconds]]
+ */
+public class HotPathBenchmark {
+
+	static final long seed = 45230;
+	static final String simulationClassName = "alphabetsoup.simulators.greedytaskallocation.SimulationWorldGreedyTaskAllocation";
+	static final String configurationFiles[] = {"small_bots_alphabetsoup.config", "medium_bots_alphabetsoup.config",
+												"large_bots_alphabetsoup.config"};
+
+	/**Operation is one benchmark: prepare is run before each batch without being measured, and run is the measured batch
+	 */
+	public static abstract class Operation {
+
+		/**accumulates results of the operations so that they can't be optimized away*/
+		long checksum = 0;
+
+		/**
+		 * @return name of the benchmark
+		 */
+		public abstract String getName();
+
+		/**Sets up the state for the next batch, which is not measured
+		 */
+		public void prepare() { }
+
+		/**Runs a batch of the operation
+		 * @return the number of operations run
+		 */
+		public abstract int run();
+	}
+
+	private String namePrefix = "";
+	private int warmupIterations = 5, measuredIterations = 5;
+	private long iterationNanos = 1000 * 1000000L;
+	private List<String> results = new ArrayList<String>();
+	
+	/**bytes allocated by measuring the allocation itself, which is taken out of every measurement*/
+	private long allocationOverhead = 0;
+
+	/**Constructs a HotPathBenchmark
+	 * @param name_prefix only benchmarks whose names start with this are run
+	 * @param warmup_iterations number of iterations to run before measuring
+	 * @param measured_iterations number of iterations to measure
+	 * @param iteration_milliseconds wall clock time of each iteration
+	 */
+	public HotPathBenchmark(String name_prefix, int warmup_iterations, int measured_iterations, long iteration_milliseconds) {
+		namePrefix = name_prefix;
+		warmupIterations = warmup_iterations;
+		measuredIterations = Math.max(measured_iterations, 1);
+		iterationNanos = iteration_milliseconds * 1000000L;
+	}
+
+	/**Returns the number of bytes allocated by the current thread so far, -1 if not supported by the JVM
+	 */
+	private static long getAllocatedBytes() {
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if(bean instanceof com.sun.management.ThreadMXBean)
+				return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		} catch(Throwable e) { }
+		return -1;
+	}
+
+	/**Measures the bytes allocated by measuring the allocation, which changes as the JIT compiler optimizes it
+	 */
+	private void calibrateAllocationOverhead() {
+		allocationOverhead = Long.MAX_VALUE;
+		for(int i = 0; i < 1000; i++)
+			allocationOverhead = Math.min(allocationOverhead, -getAllocatedBytes() + getAllocatedBytes());
+	}
+
+	/**Returns the total number of garbage collections and the total time spent in them in milliseconds
+	 */
+	private static long[] getGarbageCollections() {
+		long gc[] = new long[2];
+		for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gc[0] += Math.max(bean.getCollectionCount(), 0);
+			gc[1] += Math.max(bean.getCollectionTime(), 0);
+		}
+		return gc;
+	}
+
+	/**Runs the warmup and measured iterations of the operation, and records its results
+	 * @param o operation to measure
+	 * @return the checksum of the operation
+	 */
+	public long measure(Operation o) {
+		if(!o.getName().startsWith(namePrefix))
+			return 0;
+		double throughputs[] = new double[measuredIterations];
+		long total_ops = 0, total_nanos = 0, total_bytes = 0;
+		boolean bytes_known = true;
+		long gc_start[] = null;
+		for(int iteration = 0; iteration < warmupIterations + measuredIterations; iteration++) {
+			if(iteration == warmupIterations) {
+				calibrateAllocationOverhead();
+				gc_start = getGarbageCollections();
+			}
+			long ops = 0, nanos = 0, bytes = 0;
+			while(nanos < iterationNanos) {
+				o.prepare();
+				long start_bytes = getAllocatedBytes();
+				long start_time = System.nanoTime();
+				ops += o.run();
+				nanos += System.nanoTime() - start_time;
+				long end_bytes = getAllocatedBytes();
+				if(start_bytes < 0 || end_bytes < 0)
+					bytes_known = false;
+				bytes += Math.max(end_bytes - start_bytes - allocationOverhead, 0);
+			}
+			if(iteration >= warmupIterations) {
+				throughputs[iteration - warmupIterations] = ops / (nanos / 1e9);
+				total_ops += ops;
+				total_nanos += nanos;
+				total_bytes += bytes;
+			}
+		}
+		long gc_end[] = getGarbageCollections();
+
+		double mean = 0.0;
+		for(double t : throughputs)
+			mean += t;
+		mean /= measuredIterations;
+		double variance = 0.0;
+		for(double t : throughputs)
+			variance += (t - mean) * (t - mean);
+		double deviation = (measuredIterations > 1) ? Math.sqrt(variance / (measuredIterations - 1)) : 0.0;
+		double bytes_per_op = bytes_known ? (double)total_bytes / total_ops : Double.NaN;
+		double allocation_rate = bytes_known ? total_bytes / (total_nanos / 1e9) / (1024 * 1024) : Double.NaN;
+
+		DecimalFormat three_digits = new DecimalFormat("0.000");
+		String line = o.getName() + "\t" + three_digits.format(mean) + "\t" + three_digits.format(deviation)
+						+ "\t" + three_digits.format(bytes_per_op) + "\t" + three_digits.format(allocation_rate)
+						+ "\t" + (gc_end[0] - gc_start[0]) + "\t" + (gc_end[1] - gc_start[1]);
+		System.out.println(line);
+		results.add(line);
+		return o.checksum;
+	}
+
+	/**
+	 * @return the result line of each benchmark measured so far
+	 */
+	public List<String> getResults() {
+		return results;
+	}
+
+	/**Returns bucketbots placed randomly without overlapping in a Quadtree at the density of the default configuration
+	 * (20 bucketbots of radius 4 on a 200 by 300 map)
+	 */
+	static Circle[] placeBucketbots(Quadtree quadtree, int num_bucketbots, float width, float height, MersenneTwisterFast rand) {
+		float radius = 4.0f;
+		Circle bucketbots[] = new Circle[num_bucketbots];
+		for(int i = 0; i < num_bucketbots; i++) {
+			BucketbotBase r;
+			do {
+				r = new BucketbotBase(radius, 0.5f, 100.0f, 50.0f, 0.5f);
+				r.setInitialPosition(radius + rand.nextFloat() * (width - 2 * radius),
+									radius + rand.nextFloat() * (height - 2 * radius));
+			} while(!quadtree.isValidMove(r, r.getX(), r.getY()));
+			quadtree.addCircleObject(r);
+			bucketbots[i] = r;
+		}
+		return bucketbots;
+	}
+
+	/**Quadtree.isValidMove, moveTo or getObjectsWithinCircle on small random moves of 100 bucketbots
+	 */
+	static class QuadtreeOperation extends Operation {
+		static final int numBucketbots = 100;
+		String method;
+		float width, height;
+		Quadtree quadtree;
+		Circle bucketbots[];
+		Circle view = new Circle(16.0f, 0.0f, 0.0f);
+		MersenneTwisterFast rand = new MersenneTwisterFast(seed);
+
+		QuadtreeOperation(String method) {
+			this.method = method;
+			float scale = (float)Math.sqrt(numBucketbots / 20.0);
+			width = 200 * scale;
+			height = 300 * scale;
+			quadtree = new Quadtree(width, height);
+			bucketbots = placeBucketbots(quadtree, numBucketbots, width, height, rand);
+		}
+
+		public String getName() { return "Quadtree." + method; }
+
+		public int run() {
+			for(Circle c : bucketbots) {
+				float x = c.getX() + rand.nextFloat() - 0.5f, y = c.getY() + rand.nextFloat() - 0.5f;
+				if(method.equals("getObjectsWithinCircle")) {
+					view.setInitialPosition(x, y);
+					checksum += quadtree.getObjectsWithinCircle(view).size();
+					continue;
+				}
+				if(x - c.getRadius() < 0 || x + c.getRadius() > width || y - c.getRadius() < 0 || y + c.getRadius() > height)
+					continue;
+				if(quadtree.isValidMove(c, x, y)) {
+					checksum++;
+					if(method.equals("moveTo"))
+						quadtree.moveTo(c, x, y);
+				}
+			}
+			if(method.equals("moveTo"))
+				quadtree.updateTree();
+			return bucketbots.length;
+		}
+	}
+
+	/**DoubleAuction.addBid of 64 bids into a market with 32 asks, or acceptAllExchangesFrom on such a market
+	 */
+	static class DoubleAuctionOperation extends Operation {
+		static final int numAsks = 32, numBids = 64, numMarkets = 64;
+		boolean accept;
+		MersenneTwisterFast rand = new MersenneTwisterFast(seed);
+		List<DoubleAuction<Integer, Integer, Integer>> markets = new ArrayList<DoubleAuction<Integer, Integer, Integer>>();
+		Set<Integer> buyers = new HashSet<Integer>(), sellers = new HashSet<Integer>();
+
+		DoubleAuctionOperation(boolean accept) {
+			this.accept = accept;
+			for(int i = 0; i < numBids; i++)
+				buyers.add(i);
+			for(int i = 0; i < numAsks; i++)
+				sellers.add(numBids + i);
+		}
+
+		public String getName() { return "DoubleAuction." + (accept ? "acceptAllExchangesFrom" : "addBid"); }
+
+		/**Builds markets with all of their asks, and also all of their bids if accepting exchanges
+		 */
+		public void prepare() {
+			markets.clear();
+			for(int m = 0; m < numMarkets; m++) {
+				DoubleAuction<Integer, Integer, Integer> market = new DoubleAuction<Integer, Integer, Integer>();
+				for(int i = 0; i < numAsks; i++)
+					market.addAsk(numBids + i, rand.nextFloat());
+				if(accept)
+					for(int i = 0; i < numBids; i++)
+						market.addBid(i, rand.nextFloat());
+				markets.add(market);
+			}
+		}
+
+		public int run() {
+			if(accept) {
+				for(DoubleAuction<Integer, Integer, Integer> market : markets) {
+					List<Exchange<Integer, Integer, Integer>> exchanges = market.acceptAllExchangesFrom(buyers, sellers, 0.5f);
+					checksum += exchanges.size();
+				}
+				return numMarkets;
+			}
+			for(DoubleAuction<Integer, Integer, Integer> market : markets) {
+				for(int i = 0; i < numBids; i++)
+					market.addBid(i, rand.nextFloat());
+				checksum += market.getNumBids();
+			}
+			return numMarkets * numBids;
+		}
+	}
+
+	/**LetterHistory.addNewValue of random letters, with the history settings of the market simulations
+	 */
+	static class LetterHistoryOperation extends Operation {
+		static final int batchSize = 256;
+		MersenneTwisterFast rand = new MersenneTwisterFast(seed);
+		LetterHistory history = new LetterHistory(.25f, 1.0f, 100);
+		Letter letters[] = new Letter[26 * 3];
+		double time = 0.0;
+
+		LetterHistoryOperation() {
+			for(int i = 0; i < letters.length; i++)
+				letters[i] = new Letter((char)('a' + i / 3), i % 3);
+		}
+
+		public String getName() { return "LetterHistory.addNewValue"; }
+
+		public int run() {
+			for(int i = 0; i < batchSize; i++) {
+				time += rand.nextDouble();
+				history.addNewValue(letters[rand.nextInt(letters.length)], rand.nextFloat(), time);
+			}
+			checksum += (long)time;
+			return batchSize;
+		}
+	}
+
+	/**Builds a simulation headless with the fixed seed from the configuration file and warms it up
+	 * @param configuration_file_name configuration file to load
+	 * @param warmup_time amount of simulated time to run before measuring
+	 */
+	static SimulationWorld buildSimulation(String configuration_file_name, double warmup_time) {
+		SimulationContext context = new SimulationContext();
+		context.setParameterOverride("random_seed", Long.toString(seed));
+		context.setParameterOverride("useGUI", "0");
+		SimulationContext.setCurrentContext(context);
+		SimulationWorld sw;
+		try {
+			sw = (SimulationWorld)Class.forName(simulationClassName)
+					.getConstructor(String.class).newInstance(configuration_file_name);
+		} catch(Exception e) {
+			throw new RuntimeException("could not build " + simulationClassName + " from " + configuration_file_name, e);
+		}
+		sw.update(warmup_time);
+		return sw;
+	}
+
+	/**BucketbotDriver.getNextWaypointTo between random pairs of waypoints of the default configuration,
+	 * planned for the first bucketbot
+	 */
+	static class NextWaypointOperation extends Operation {
+		static final int batchSize = 64;
+		MersenneTwisterFast rand = new MersenneTwisterFast(seed);
+		BucketbotDriver driver;
+		Waypoint waypoints[];
+
+		NextWaypointOperation() {
+			SimulationWorld sw = buildSimulation("alphabetsoup.config", 0.0);
+			driver = (BucketbotDriver)sw.bucketbots[0];
+			//put the waypoints in a fixed order so the same pairs are chosen every run
+			List<Waypoint> waypoint_list = new ArrayList<Waypoint>(driver.waypointGraph.getWaypoints());
+			Collections.sort(waypoint_list, new Comparator<Waypoint>() {
+				public int compare(Waypoint a, Waypoint b) {
+					if(a.getX() != b.getX())
+						return Float.compare(a.getX(), b.getX());
+					return Float.compare(a.getY(), b.getY());
+				}
+			});
+			waypoints = waypoint_list.toArray(new Waypoint[waypoint_list.size()]);
+		}
+
+		public String getName() { return "BucketbotDriver.getNextWaypointTo"; }
+
+		public int run() {
+			for(int i = 0; i < batchSize; i++) {
+				Waypoint next = driver.getNextWaypointTo(waypoints[rand.nextInt(waypoints.length)],
+														waypoints[rand.nextInt(waypoints.length)]);
+				if(next != null)
+					checksum++;
+			}
+			return batchSize;
+		}
+	}
+
+	/**BucketbotBase.update of every bucketbot of the default configuration, stepping only the bucketbots forward
+	 * to the earliest of their next events, where an operation is one update of one bucketbot
+	 */
+	static class BucketbotUpdateOperation extends Operation {
+		SimulationWorld sw;
+		double time;
+		double minimumUpdateTime;
+
+		BucketbotUpdateOperation() {
+			sw = buildSimulation("alphabetsoup.config", 20.0);
+			time = sw.getCurrentTime();
+			minimumUpdateTime = sw.map.getTolerance() / 3 / sw.map.getMaxVelocity();
+		}
+
+		public String getName() { return "BucketbotBase.update"; }
+
+		public int run() {
+			double next_time = time + 0.1;
+			for(Bucketbot r : sw.bucketbots)
+				next_time = Math.min(next_time, ((Updateable)r).getNextEventTime(time));
+			next_time = Math.max(next_time, time + minimumUpdateTime);
+			for(Bucketbot r : sw.bucketbots)
+				((Updateable)r).update(time, next_time);
+			time = next_time;
+			checksum += (long)time;
+			return sw.bucketbots.length;
+		}
+	}
+
+	/**SimulationWorld.update by one simulated second of a configuration
+	 */
+	static class SimulationUpdateOperation extends Operation {
+		String configurationFileName;
+		SimulationWorld sw;
+
+		SimulationUpdateOperation(String configuration_file_name) {
+			configurationFileName = configuration_file_name;
+			sw = buildSimulation(configuration_file_name, 20.0);
+		}
+
+		public String getName() { return "SimulationWorld.update(" + configurationFileName + ")"; }
+
+		public int run() {
+			sw.update(1.0);
+			checksum += sw.getNumSteps();
+			return 1;
+		}
+	}
+
+	/**Runs the benchmarks and writes their results to AlphabetSoupBenchmarkReport.txt
+	 * @param args optional benchmark name prefix, followed by optional warmup iterations,
+	 * measured iterations and iteration length in milliseconds
+	 */
+	public static void main(String[] args) {
+		String name_prefix = (args.length >= 1) ? args[0] : "";
+		int warmup_iterations = 5, measured_iterations = 5;
+		long iteration_milliseconds = 1000;
+		if(args.length >= 4) {
+			warmup_iterations = Integer.parseInt(args[1]);
+			measured_iterations = Integer.parseInt(args[2]);
+			iteration_milliseconds = Long.parseLong(args[3]);
+		}
+		HotPathBenchmark benchmark = new HotPathBenchmark(name_prefix, warmup_iterations, measured_iterations, iteration_milliseconds);
+
+		System.out.println("benchmark\tops/s\tops/s deviation\tB/op\talloc MB/s\tgc count\tgc ms");
+		long checksum = 0;
+		for(String method : new String[] {"isValidMove", "moveTo", "getObjectsWithinCircle"})
+			if(("Quadtree." + method).startsWith(name_prefix))
+				checksum += benchmark.measure(new QuadtreeOperation(method));
+		if("BucketbotDriver.getNextWaypointTo".startsWith(name_prefix))
+			checksum += benchmark.measure(new NextWaypointOperation());
+		if("BucketbotBase.update".startsWith(name_prefix))
+			checksum += benchmark.measure(new BucketbotUpdateOperation());
+		checksum += benchmark.measure(new DoubleAuctionOperation(false));
+		checksum += benchmark.measure(new DoubleAuctionOperation(true));
+		checksum += benchmark.measure(new LetterHistoryOperation());
+		for(String configuration_file_name : configurationFiles)
+			if(("SimulationWorld.update(" + configuration_file_name + ")").startsWith(name_prefix))
+				checksum += benchmark.measure(new SimulationUpdateOperation(configuration_file_name));
+		System.out.println("checksum: " + checksum);
+
+		try {
+			PrintStream o = new PrintStream(new FileOutputStream("AlphabetSoupBenchmarkReport.txt"));
+			o.println("benchmark\tops/s\tops/s deviation\tB/op\talloc MB/s\tgc count\tgc ms");
+			for(String line : benchmark.getResults())
+				o.println(line);
+			o.close();
+		} catch(IOException e) {
+			System.out.println("could not write AlphabetSoupBenchmarkReport.txt. " + e);
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/**
+ * 
+ */
+package alphabetsoup.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.*;
+
+import alphabetsoup.base.BucketbotBase;
+import alphabetsoup.framework.*;
+import alphabetsoup.framework.Map;
+
+/**SpatialIndexBenchmark times the Map's collision queries with each SpatialIndex,
+ * Quadtree, UniformGrid and LooseQuadtree, for increasing numbers of bucketbots.  The map grows with
+ * the number of bucketbots such that the density stays the same as the default configuration
+ * (20 bucketbots of radius 4 on a 200 by 300 map).  Each operation is run for a number of warmup
+ * rounds so the JIT compiler has settled before the measured rounds, and the time per
+ * call is reported in nanoseconds.  The number of bytes allocated per call is also reported
+ * (when the JVM supports measuring it), since the movement and neighbor queries performed on every
+ * update should not allocate anything.<br>
+ * Usage: SpatialIndexBenchmark [warmup_rounds measured_rounds]
+ */
+public class SpatialIndexBenchmark {
+
+	static final int bucketbotCounts[] = {20, 100, 1000};
+	static final float bucketbotRadius = 4.0f;
+	static final String spatialIndexes[] = {"quadtree", "grid", "loose_quadtree"};
+
+	private Map map;
+	private Bucketbot bucketbots[];
+	private MersenneTwisterFast rand = new MersenneTwisterFast(45230);
+
+	/**accumulates results of the queries so that they can't be optimized away*/
+	private long checksum = 0;
+	
+	/**reused by the neighbor queries which take a List to fill*/
+	private List<Circle> inView = new ArrayList<Circle>();
+	
+	/**bytes allocated per call during the last call to time, NaN if unknown*/
+	private double bytesPerCall = Double.NaN;
+
+	/**Builds a map with the specified number of bucketbots placed randomly without overlapping
+	 * @param num_bucketbots number of bucketbots to place
+	 * @param spatial_index one of spatialIndexes, with the same meaning as the spatial_index configuration parameter
+	 */
+	public SpatialIndexBenchmark(int num_bucketbots, String spatial_index) {
+		float scale = (float)Math.sqrt(num_bucketbots / 20.0);
+		float width = 200 * scale, height = 300 * scale;
+		map = new Map(width, height, 2.5f, 100.0f, 50.0f);
+		if(spatial_index.equals("grid"))
+			map.setSpatialIndexes(new UniformGrid(width, height, 2 * bucketbotRadius),
+									new UniformGrid(width, height, 2 * bucketbotRadius));
+		if(spatial_index.equals("loose_quadtree"))
+			map.setSpatialIndexes(new LooseQuadtree(width, height), new LooseQuadtree(width, height));
+
+		bucketbots = new Bucketbot[num_bucketbots];
+		for(int i = 0; i < num_bucketbots; i++) {
+			BucketbotBase r;
+			do {
+				r = new BucketbotBase(bucketbotRadius, 0.5f, 100.0f, 50.0f, 0.5f);
+				r.setInitialPosition(bucketbotRadius + rand.nextFloat() * (width - 2 * bucketbotRadius),
+									bucketbotRadius + rand.nextFloat() * (height - 2 * bucketbotRadius));
+			} while(!map.addRobot(r));
+			bucketbots[i] = r;
+		}
+	}
+
+	/**Checks a small random move of every bucketbot
+	 */
+	public void isBucketbotMoveValid() {
+		for(Bucketbot r : bucketbots)
+			if(map.isBucketbotMoveValid(r, r.getX() + rand.nextFloat() - 0.5f, r.getY() + rand.nextFloat() - 0.5f))
+				checksum++;
+	}
+
+	/**Attempts a small random move of every bucketbot
+	 */
+	public void moveBucketbot() {
+		for(Bucketbot r : bucketbots)
+			if(map.moveBucketbot(r, r.getX() + rand.nextFloat() - 0.5f, r.getY() + rand.nextFloat() - 0.5f))
+				checksum++;
+		map.update(0.0, 0.0);
+	}
+
+	/**Finds the bucketbots near every bucketbot, at the range used for evasion
+	 */
+	public void getBucketbotsWithinDistance() {
+		for(Bucketbot r : bucketbots)
+			checksum += map.getBucketbotsWithinDistance(r.getX(), r.getY(), 4 * bucketbotRadius).size();
+	}
+
+	/**Finds the bucketbots near every bucketbot, at the range used for evasion,
+	 * reusing the same List for every query
+	 */
+	public void getBucketbotsWithinDistanceReusingList() {
+		for(Bucketbot r : bucketbots) {
+			inView.clear();
+			map.getBucketbotsWithinDistance(r.getX(), r.getY(), 4 * bucketbotRadius, inView);
+			checksum += inView.size();
+		}
+	}
+
+	/**Returns the number of bytes allocated by the current thread so far, -1 if not supported by the JVM
+	 */
+	private static long getAllocatedBytes() {
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if(bean instanceof com.sun.management.ThreadMXBean)
+				return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		} catch(Throwable e) { }
+		return -1;
+	}
+
+	/**Runs the specified operation, and returns the mean time per call in nanoseconds
+	 * @param operation 0 for isBucketbotMoveValid, 1 for moveBucketbot, 2 for getBucketbotsWithinDistance,
+	 * 3 for getBucketbotsWithinDistance reusing a List
+	 * @param warmup_rounds number of rounds to run before timing
+	 * @param measured_rounds number of rounds to time
+	 * @return nanoseconds per call
+	 */
+	public double time(int operation, int warmup_rounds, int measured_rounds) {
+		long start_time = 0, start_bytes = 0;
+		for(int i = 0; i < warmup_rounds + measured_rounds; i++) {
+			if(i == warmup_rounds) {
+				start_bytes = getAllocatedBytes();
+				start_time = System.nanoTime();
+			}
+			switch(operation) {
+			case 0:	isBucketbotMoveValid();	break;
+			case 1:	moveBucketbot();	break;
+			case 2:	getBucketbotsWithinDistance();	break;
+			case 3:	getBucketbotsWithinDistanceReusingList();	break;
+			}
+		}
+		long end_time = System.nanoTime();
+		long end_bytes = getAllocatedBytes();
+		double num_calls = (double)measured_rounds * bucketbots.length;
+		bytesPerCall = (start_bytes < 0 || end_bytes < 0) ? Double.NaN : (end_bytes - start_bytes) / num_calls;
+		return (end_time - start_time) / num_calls;
+	}
+
+	/**
+	 * @return the bytes allocated per call during the last call to time, NaN if the JVM can't measure it
+	 */
+	public double getBytesPerCall() {
+		return bytesPerCall;
+	}
+
+	/**
+	 * @return the accumulated results of the queries
+	 */
+	public long getChecksum() {
+		return checksum;
+	}
+
+	/**Runs all of the operations with each spatial index for each number of bucketbots
+	 * @param args optional number of warmup rounds and measured rounds
+	 */
+	public static void main(String[] args) {
+		int warmup_rounds = 2000, measured_rounds = 2000;
+		if(args.length >= 2) {
+			warmup_rounds = Integer.parseInt(args[0]);
+			measured_rounds = Integer.parseInt(args[1]);
+		}
+
+		String operations[] = {"isBucketbotMoveValid", "moveBucketbot", "getBucketbotsWithinDistance",
+								"getBucketbotsWithinDistance(List)"};
+		DecimalFormat three_digits = new DecimalFormat("0.000");
+		long checksum = 0;
+		String header = "operation\tbucketbots";
+		for(String spatial_index : spatialIndexes)
+			header += "\t" + spatial_index + " ns/op";
+		for(String spatial_index : spatialIndexes)
+			header += "\t" + spatial_index + " B/op";
+		System.out.println(header);
+		for(int operation = 0; operation < operations.length; operation++) {
+			for(int num_bucketbots : bucketbotCounts) {
+				//scale rounds down so every size takes about the same amount of time
+				int scale = Math.max(1, num_bucketbots / bucketbotCounts[0]);
+				String times = "", bytes = "";
+				for(String spatial_index : spatialIndexes) {
+					SpatialIndexBenchmark benchmark = new SpatialIndexBenchmark(num_bucketbots, spatial_index);
+					times += "\t" + three_digits.format(benchmark.time(operation, warmup_rounds / scale + 1, measured_rounds / scale + 1));
+					bytes += "\t" + three_digits.format(benchmark.getBytesPerCall());
+					checksum += benchmark.getChecksum();
+				}
+				System.out.println(operations[operation] + "\t" + num_bucketbots + times + bytes);
+			}
+		}
+		System.out.println("checksum: " + checksum);
+	}
+}
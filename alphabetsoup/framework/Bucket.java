@@ -3,13 +3,14 @@
  */
 package alphabetsoup.framework;
 
+import java.io.Serializable;
 import java.util.*;
 
 /**Bucket defines the interface that buckets must implement in order to properly interact
  * within AlphabetSoup.
  * @author Chris Hazard
  */
-public interface Bucket {
+public interface Bucket extends Serializable {
 	/**Returns the maximum capacity of the Bucket in terms of number of Letter tiles
 	 * @return maximum number of Letter tiles bucket can store
 	 */
@@ -44,6 +45,17 @@ public interface Bucket {
 	 * @return a letter reference to a match contained in the Bucket, null if no matches are found
 	 */
 	public Letter containsMatchingLetter(Letter l);
+	
+	/**Returns the number of Letters within the Bucket that match (color, letter) the Letter
+	 * specified, without having to look through the contents
+	 * @param l reference of a Letter to count the matches of
+	 * @return number of matching letters in the Bucket, 0 if there are none
+	 */
+	public int getNumMatchingLetters(Letter l);
+	
+	/**Removes all Letters from the Bucket
+	 */
+	public void removeAllLetters();
 
 	/**
 	 * @return Returns the x.
@@ -1,5 +1,6 @@
 package alphabetsoup.framework;
 
+import java.io.Serializable;
 import java.util.HashMap;
 
 
@@ -7,7 +8,7 @@ import java.util.HashMap;
  * in AlphabetSoup.
  * @author Chris Hazard
  */
-public interface Bucketbot {
+public interface Bucketbot extends Serializable {
 
 	/**If Bucketbot is within range of picking up the Bucket, it will do so, return true,
 	 * and incur any corresponding timeout.  If the Bucket is out of range, it will return false.  
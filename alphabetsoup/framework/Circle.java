@@ -3,14 +3,19 @@
  */
 package alphabetsoup.framework;
 
+import java.io.Serializable;
+
 /**Class Circle implements a circle in 2D space and functions to determine its
  * relation to other geometric shapes (such as collisions with rectangles and circles) 
  * @author Chris Hazard
  */
-public class Circle {
+public class Circle implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private float x = Float.NaN, y = Float.NaN;	//start out at a non-existant location
 	float radius;
 	boolean isMoving;	//set to true if the circle is currently moving (to check for collisions) 
+	LooseQuadtreeNode looseQuadtreeNode = null;	//node holding the circle, if it's in a LooseQuadtree
 
 	public Circle() {}
 
@@ -38,10 +43,10 @@ public class Circle {
 	 * @param initial_y y position
 	 */
 	public void setInitialPosition(float initial_x, float initial_y) {
-		if(Float.isNaN(x))
-			x = initial_x;
-		if(Float.isNaN(y))
-			y = initial_y;
+		if(Float.isNaN(getX()))
+			setX(initial_x);
+		if(Float.isNaN(getY()))
+			setY(initial_y);
 	}
 
 	/**Returns true if the circle overlaps with the circle provided in the parameter, false otherwise.
@@ -51,7 +56,7 @@ public class Circle {
 	 */
 	public boolean IsCollision(Circle c) {
 		return this != c
-			&& IsCollision(c.x, c.y, c.radius);
+			&& IsCollision(c.getX(), c.getY(), c.radius);
 	};
 	
 	/**Returns true if the circle overlaps with the circle provided in the parameter.
@@ -61,6 +66,7 @@ public class Circle {
 	 * @return Returns the radius.
 	 */
 	public boolean IsCollision(float other_x, float other_y, float other_radius) {
+		float x = getX(), y = getY();
 		return (x - other_x) * (x - other_x)
 				+ (y - other_y) * (y - other_y)
 				<= (radius + other_radius) * (radius + other_radius);
@@ -72,6 +78,7 @@ public class Circle {
 	 * @return Returns the distance.
 	 */
 	public float getDistance(float other_x, float other_y) {
+		float x = getX(), y = getY();
 		return (float)Math.sqrt( (x - other_x) * (x - other_x)
 		+ (y - other_y) * (y - other_y) );
 	}
@@ -93,6 +100,7 @@ public class Circle {
 	 */
 	public boolean IsCollision(float x1, float y1, float x2, float y2) {
 		//translate such that the circle is at (0,0)
+		float x = getX(), y = getY();
 		x1 -= x;	x2 -= x;	y1 -= y;	y2 -= y;
 		
 		if(x2 < 0.0f) { //rectangle to the left of center of circle
@@ -142,10 +150,11 @@ public class Circle {
 		return x;
 	}
 
-	/**
+	/**Sets the x position.  Only the spatial indexes should move a Circle; a subclass may override
+	 * getX and setX together to keep its position elsewhere.
 	 * @param x The x to set.
 	 */
-	void setX(float x) {
+	protected void setX(float x) {
 		this.x = x;
 	}
 
@@ -156,10 +165,11 @@ public class Circle {
 		return y;
 	}
 
-	/**
+	/**Sets the y position.  Only the spatial indexes should move a Circle; a subclass may override
+	 * getY and setY together to keep its position elsewhere.
 	 * @param y The y to set.
 	 */
-	void setY(float y) {
+	protected void setY(float y) {
 		this.y = y;
 	}
 
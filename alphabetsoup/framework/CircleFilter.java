@@ -0,0 +1,15 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+/**CircleFilter chooses which Circles a search (e.g. Quadtree.getNearestObject) may return.
+ */
+public interface CircleFilter {
+
+	/**
+	 * @param c Circle found by the search
+	 * @return true if the search may return c
+	 */
+	public boolean accept(Circle c);
+}
@@ -0,0 +1,198 @@
+/**
+ *
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+
+/**IndexedMinHeap is a binary min-heap over the integer ids [0,capacity), each with a double key.
+ * Because the position of each id within the heap is tracked, keys can be changed or removed
+ * in O(log n) without searching, which makes it suitable for event queues and graph searches
+ * where the same entries are re-keyed many times.  No objects are allocated after construction.
+ */
+public class IndexedMinHeap implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private int heap[];		//ids in heap order
+	private int position[];	//position of each id within heap, -1 if not in the heap
+	private double keys[];	//key of each id
+	private int size = 0;
+
+	/**Constructs an empty IndexedMinHeap that can hold ids from 0 to capacity-1
+	 * @param capacity number of ids the heap can contain
+	 */
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		keys = new double[capacity];
+		for(int i = 0; i < capacity; i++)
+			position[i] = -1;
+	}
+
+	/**
+	 * @return the number of ids currently in the heap
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if there are no ids in the heap
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the maximum number of ids the heap can hold
+	 */
+	public int capacity() {
+		return position.length;
+	}
+
+	/**
+	 * @param id id to check
+	 * @return true if the id is currently in the heap
+	 */
+	public boolean contains(int id) {
+		return position[id] >= 0;
+	}
+
+	/**
+	 * @param id id to look up
+	 * @return the key last set for the id
+	 */
+	public double getKey(int id) {
+		return keys[id];
+	}
+
+	/**
+	 * @return the id with the smallest key.  The heap must not be empty.
+	 */
+	public int peek() {
+		return heap[0];
+	}
+
+	/**
+	 * @return the smallest key in the heap, Double.POSITIVE_INFINITY if the heap is empty
+	 */
+	public double peekKey() {
+		if(size == 0)
+			return Double.POSITIVE_INFINITY;
+		return keys[heap[0]];
+	}
+
+	/**Returns the id at the specified position in the underlying array, such that
+	 * the children of position p are at 2p+1 and 2p+2.  Useful for walking all of the ids
+	 * with keys less than a bound without removing them.
+	 * @param pos position within the heap in [0,size())
+	 * @return id at that position
+	 */
+	public int getAtPosition(int pos) {
+		return heap[pos];
+	}
+
+	/**Inserts the id with the specified key, or changes the key if the id is already in the heap.
+	 * @param id id to add or update
+	 * @param key new key
+	 */
+	public void put(int id, double key) {
+		int pos = position[id];
+		if(pos < 0) {
+			keys[id] = key;
+			pos = size++;
+			heap[pos] = id;
+			position[id] = pos;
+			siftUp(pos);
+			return;
+		}
+
+		double old_key = keys[id];
+		keys[id] = key;
+		if(key < old_key)
+			siftUp(pos);
+		else if(key > old_key)
+			siftDown(pos);
+	}
+
+	/**Removes and returns the id with the smallest key.  The heap must not be empty.
+	 * @return id that had the smallest key
+	 */
+	public int poll() {
+		int id = heap[0];
+		removeAtPosition(0);
+		return id;
+	}
+
+	/**Removes the id from the heap if it is contained
+	 * @param id id to remove
+	 */
+	public void remove(int id) {
+		int pos = position[id];
+		if(pos >= 0)
+			removeAtPosition(pos);
+	}
+
+	/**Removes all ids from the heap
+	 */
+	public void clear() {
+		for(int i = 0; i < size; i++)
+			position[heap[i]] = -1;
+		size = 0;
+	}
+
+	private void removeAtPosition(int pos) {
+		int id = heap[pos];
+		position[id] = -1;
+		size--;
+		if(pos == size)
+			return;
+
+		//move the last element into the hole and restore the ordering in whichever direction is needed
+		int last = heap[size];
+		heap[pos] = last;
+		position[last] = pos;
+		if(pos > 0 && keys[last] < keys[heap[(pos - 1) / 2]])
+			siftUp(pos);
+		else
+			siftDown(pos);
+	}
+
+	private void siftUp(int pos) {
+		int id = heap[pos];
+		double key = keys[id];
+		while(pos > 0) {
+			int parent = (pos - 1) / 2;
+			int parent_id = heap[parent];
+			if(keys[parent_id] <= key)
+				break;
+			heap[pos] = parent_id;
+			position[parent_id] = pos;
+			pos = parent;
+		}
+		heap[pos] = id;
+		position[id] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int id = heap[pos];
+		double key = keys[id];
+		int half = size / 2;
+		while(pos < half) {
+			int child = 2 * pos + 1;
+			int child_id = heap[child];
+			int right = child + 1;
+			if(right < size && keys[heap[right]] < keys[child_id]) {
+				child = right;
+				child_id = heap[child];
+			}
+			if(key <= keys[child_id])
+				break;
+			heap[pos] = child_id;
+			position[child_id] = pos;
+			pos = child;
+		}
+		heap[pos] = id;
+		position[id] = pos;
+	}
+}
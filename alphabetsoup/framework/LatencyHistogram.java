@@ -0,0 +1,128 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+
+/**LatencyHistogram counts durations in a fixed number of logarithmic buckets, so that it takes the same
+ * memory however many values are recorded, and its percentiles are within a fixed relative error.
+ * Each doubling of the duration above the resolution is split into subBuckets equal buckets, so a percentile
+ * is within 1/subBuckets of the true value (or within the resolution, for durations shorter than it).
+ * Durations beyond the range are counted in the last bucket, and the largest duration is kept exactly.
+ * Histograms with the same layout (e.g. from replications of the same simulation) can be merged by adding their counts,
+ * which gives the same histogram as if all of the values had been recorded in one.
+ */
+public class LatencyHistogram implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**number of buckets each doubling of the duration is split into*/
+	public static final int subBuckets = 32;
+	/**number of doublings covered above the resolution*/
+	public static final int numDoublings = 40;
+
+	private double resolution;		//durations shorter than this all go in the first bucket
+	private long counts[] = new long[1 + numDoublings * subBuckets];
+	private long count = 0;
+	private double sum = 0.0;
+	private double max = 0.0;
+
+	/**Constructs an empty LatencyHistogram
+	 * @param resolution_seconds shortest duration told apart from zero
+	 */
+	public LatencyHistogram(double resolution_seconds) {
+		resolution = resolution_seconds;
+	}
+
+	/**Returns the bucket a duration is counted in
+	 */
+	private int getBucket(double duration) {
+		if(!(duration >= resolution))
+			return 0;
+		double scaled = duration / resolution;
+		int doubling = Math.getExponent(scaled);
+		if(doubling >= numDoublings)
+			return counts.length - 1;
+		int sub_bucket = (int)((scaled / Math.scalb(1.0, doubling) - 1.0) * subBuckets);
+		return 1 + doubling * subBuckets + Math.min(sub_bucket, subBuckets - 1);
+	}
+
+	/**Returns the duration in the middle of a bucket
+	 */
+	private double getBucketValue(int bucket) {
+		if(bucket == 0)
+			return resolution / 2;
+		int doubling = (bucket - 1) / subBuckets, sub_bucket = (bucket - 1) % subBuckets;
+		return resolution * Math.scalb(1.0, doubling) * (1.0 + (sub_bucket + 0.5) / subBuckets);
+	}
+
+	/**Records a duration
+	 * @param duration duration in seconds
+	 */
+	public void record(double duration) {
+		counts[getBucket(duration)]++;
+		count++;
+		sum += duration;
+		max = Math.max(max, duration);
+	}
+
+	/**Adds all of the values of another histogram to this one
+	 * @param h histogram with the same resolution
+	 */
+	public void merge(LatencyHistogram h) {
+		if(h.resolution != resolution)
+			throw new IllegalArgumentException("can't merge histograms of different resolutions");
+		for(int i = 0; i < counts.length; i++)
+			counts[i] += h.counts[i];
+		count += h.count;
+		sum += h.sum;
+		max = Math.max(max, h.max);
+	}
+
+	/**Removes all of the values recorded
+	 */
+	public void reset() {
+		java.util.Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0.0;
+		max = 0.0;
+	}
+
+	/**Returns the duration that the specified fraction of the recorded durations are at or below
+	 * @param fraction fraction of the durations, from 0 to 1 (e.g. 0.99 for the 99th percentile)
+	 * @return the duration, or NaN if nothing has been recorded
+	 */
+	public double getPercentile(double fraction) {
+		if(count == 0)
+			return Double.NaN;
+		long rank = Math.max(1, (long)Math.ceil(fraction * count));
+		long seen = 0;
+		for(int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if(seen >= rank)
+				return Math.min(getBucketValue(i), max);
+		}
+		return max;
+	}
+
+	/**
+	 * @return the number of durations recorded
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean duration, NaN if nothing has been recorded
+	 */
+	public double getMean() {
+		return (count > 0) ? sum / count : Double.NaN;
+	}
+
+	/**
+	 * @return the longest duration recorded
+	 */
+	public double getMax() {
+		return max;
+	}
+}
@@ -3,11 +3,15 @@
  */
 package alphabetsoup.framework;
 
+import java.io.Serializable;
+
 /**The class Letter makes up wordList for completion
  * It is dispensed by LetterStation, carried in Bucket, and consumed by WordStation
  * @author Chris Hazard
  */
-public class Letter {
+public class Letter implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private char letter;
 	private int colorID;
 	
@@ -3,13 +3,16 @@
  */
 package alphabetsoup.framework;
 
+import java.io.Serializable;
+
 import org.codehaus.jackson.annotate.JsonProperty;
 
 /**LetterColor represents the color of a Letter tile.  It maintains the color,
  * probability of any tile having the color, and each color's unique ID.
  * @author Chris Hazard
  */
-public class LetterColor {
+public class LetterColor implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	@JsonProperty(value="rvalue")
 	private float rValue;
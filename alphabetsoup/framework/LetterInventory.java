@@ -0,0 +1,202 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**LetterInventory is a multiset of letter types, which counts how many letters of each
+ * (letter, color) are held.  Each type is packed into an int key, 256 * color + letter, and the
+ * counts are kept in an open addressing hash table of int keys and int counts, so adding, taking and
+ * counting letters are constant time and don't allocate anything unless the table needs to grow.
+ */
+public class LetterInventory implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final int EMPTY = -1;
+
+	private int keys[];		//key of each slot, EMPTY if unused
+	private int counts[];	//number of letters of the key of each slot
+	private int mask;		//number of slots - 1
+	private int numTypes = 0;
+	private int numLetters = 0;
+
+	/**Constructs an empty LetterInventory
+	 */
+	public LetterInventory() {
+		this(8);
+	}
+
+	/**Constructs an empty LetterInventory
+	 * @param expected_num_types number of different types of letters expected to be held at once
+	 */
+	public LetterInventory(int expected_num_types) {
+		int capacity = 4;
+		while(capacity < 2 * expected_num_types)
+			capacity *= 2;
+		keys = new int[capacity];
+		counts = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		mask = capacity - 1;
+	}
+
+	/**Returns the key of the type of the Letter, which is the same for all Letters that match
+	 * @param l Letter
+	 * @return 256 * color + letter
+	 */
+	public static int getKey(Letter l) {
+		return 256 * l.getColorID() + (int)l.getLetter();
+	}
+
+	/**Returns the first slot to look in for the key
+	 */
+	private int getHomeSlot(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**Returns the slot holding the key, -1 if it isn't held
+	 */
+	private int findSlot(int key) {
+		for(int slot = getHomeSlot(key); ; slot = (slot + 1) & mask) {
+			if(keys[slot] == key)
+				return slot;
+			if(keys[slot] == EMPTY)
+				return -1;
+		}
+	}
+
+	/**Doubles the number of slots, reinserting everything
+	 */
+	private void grow() {
+		int old_keys[] = keys, old_counts[] = counts;
+		keys = new int[2 * old_keys.length];
+		counts = new int[2 * old_keys.length];
+		Arrays.fill(keys, EMPTY);
+		mask = keys.length - 1;
+		for(int i = 0; i < old_keys.length; i++)
+			if(old_keys[i] != EMPTY) {
+				int slot = getHomeSlot(old_keys[i]);
+				while(keys[slot] != EMPTY)
+					slot = (slot + 1) & mask;
+				keys[slot] = old_keys[i];
+				counts[slot] = old_counts[i];
+			}
+	}
+
+	/**Empties the slot, moving back any later entries of the same run that would no longer be found
+	 */
+	private void removeSlot(int slot) {
+		int free = slot;
+		for(int next = (free + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+			//leave the entry where it is if its home slot is after the free slot (cyclically)
+			int home = getHomeSlot(keys[next]);
+			if(free <= next ? (free < home && home <= next) : (free < home || home <= next))
+				continue;
+			keys[free] = keys[next];
+			counts[free] = counts[next];
+			free = next;
+		}
+		keys[free] = EMPTY;
+		counts[free] = 0;
+	}
+
+	/**Adds a letter of the specified type
+	 * @param key key of the letter's type
+	 */
+	public void add(int key) {
+		int slot = findSlot(key);
+		if(slot < 0) {
+			//keep the table at most half full
+			if(2 * (numTypes + 1) > keys.length)
+				grow();
+			slot = getHomeSlot(key);
+			while(keys[slot] != EMPTY)
+				slot = (slot + 1) & mask;
+			keys[slot] = key;
+			numTypes++;
+		}
+		counts[slot]++;
+		numLetters++;
+	}
+
+	/**Adds the Letter's type
+	 * @param l Letter to add
+	 */
+	public void add(Letter l) {
+		add(getKey(l));
+	}
+
+	/**Removes one letter of the specified type
+	 * @param key key of the letter's type
+	 * @return true if there was a letter of the type to take
+	 */
+	public boolean take(int key) {
+		int slot = findSlot(key);
+		if(slot < 0)
+			return false;
+		if(--counts[slot] == 0) {
+			removeSlot(slot);
+			numTypes--;
+		}
+		numLetters--;
+		return true;
+	}
+
+	/**Removes one letter of the Letter's type
+	 * @param l Letter to take
+	 * @return true if there was a letter of the type to take
+	 */
+	public boolean take(Letter l) {
+		return take(getKey(l));
+	}
+
+	/**
+	 * @param key key of a letter type
+	 * @return the number of letters of the type held
+	 */
+	public int getCount(int key) {
+		int slot = findSlot(key);
+		return slot < 0 ? 0 : counts[slot];
+	}
+
+	/**
+	 * @param l Letter
+	 * @return the number of letters held which match the Letter
+	 */
+	public int getCount(Letter l) {
+		return getCount(getKey(l));
+	}
+
+	/**
+	 * @param key key of a letter type
+	 * @return true if at least one letter of the type is held
+	 */
+	public boolean contains(int key) {
+		return findSlot(key) >= 0;
+	}
+
+	/**
+	 * @return the total number of letters held
+	 */
+	public int size() {
+		return numLetters;
+	}
+
+	/**
+	 * @return the number of different types of letters held
+	 */
+	public int getNumTypes() {
+		return numTypes;
+	}
+
+	/**Removes all letters
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(counts, 0);
+		numTypes = 0;
+		numLetters = 0;
+	}
+}
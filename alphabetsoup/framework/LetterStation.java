@@ -3,13 +3,14 @@
  */
 package alphabetsoup.framework;
 
+import java.io.Serializable;
 import java.util.*;
 
 /**LetterStation defines the interface that letter stations must provide to operate
  * in AlphabetSoup.
  * @author Chris Hazard
  */
-public interface LetterStation {
+public interface LetterStation extends Serializable {
 	
 	/**Returns the maximum capacity of the LetterStation in terms of number of Letter bundles
 	 * @return maximum number of Letter bundles LetterStation can store
@@ -9,6 +9,7 @@ package alphabetsoup.framework;
  *
  */
 public class LetterType extends Letter {
+	private static final long serialVersionUID = 1L;
 	
 	/**Builds a LetterType from the respective letter
 	 * @param l
@@ -0,0 +1,164 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.util.*;
+
+/**LooseQuadtree is a quadtree whose nodes hold any Circle whose center is within their loose bounds,
+ * which extend the area the node covers by looseness (an eighth) of its width and height on every side.  Each Circle keeps a link to the node
+ * holding it, so moving a Circle only changes its position unless it leaves the loose bounds of its node,
+ * in which case it goes up to the nearest ancestor whose loose bounds contain it, and back down from there.
+ * The tree isn't rebalanced on every step; a node is only marked when a move makes it hold too many Circles
+ * (divisionThreshold) or its subtree too few (combineThreshold), and updateTree splits or merges only the marked nodes.
+ * Adding or removing a Circle rebalances the marked nodes right away, as the Quadtree does.
+ * The gap between the two thresholds keeps a Circle moving back and forth over a boundary from splitting and merging
+ * the same nodes over and over.
+ */
+public class LooseQuadtree implements SpatialIndex {
+	private static final long serialVersionUID = 1L;
+
+	/**Head node of the LooseQuadtree
+	 */
+	private LooseQuadtreeNode topnode;
+
+	/**When at least divisionThreshold objects are held by the same leaf, the leaf is split into 4.
+	 */
+	public final static int divisionThreshold = 12;
+	/**When fewer than combineThreshold objects are held by a node and its descendants,
+	 *  the descendants are merged into the node.
+	 */
+	public final static int combineThreshold = 8;
+	/**Nodes are not split once they are smaller than this many times the largest radius,
+	 * since their loose bounds would no longer tell Circles apart.
+	 */
+	public final static float minimumNodeSizeInRadii = 2.0f;
+	/**Fraction of the width and height of a node that its loose bounds extend beyond it on each side.
+	 * Larger margins let Circles move further before changing nodes, but make queries look at more nodes.
+	 */
+	public final static float looseness = 0.125f;
+
+	/**Largest radius of any Circle added, which is how far beyond a query an object may reach
+	 */
+	private float largestRadius = 0.0f;
+
+	/**nodes which may need to be split or merged at the next updateTree*/
+	private List<LooseQuadtreeNode> dirtyNodes = new ArrayList<LooseQuadtreeNode>();
+
+	/**Constructs a LooseQuadtree with the dimensions specified.
+	 * @param width Width of the LooseQuadtree area
+	 * @param height Height of the LooseQuadtree area
+	 */
+	public LooseQuadtree(float width, float height) {
+		topnode = new LooseQuadtreeNode(null, 0, 0, width, height);
+	}
+
+	/**Marks the node to be split or merged at the next updateTree if it has too many or too few Circles
+	 */
+	private void checkBalance(LooseQuadtreeNode n) {
+		if(n.dirty)
+			return;
+		if((n.isLeaf() && n.numObjects >= divisionThreshold)
+				|| (!n.isLeaf() && n.subtreeCount < combineThreshold)) {
+			n.dirty = true;
+			dirtyNodes.add(n);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#addCircleObject(alphabetsoup.framework.Circle)
+	 */
+	public void addCircleObject(Circle c) {
+		if(c.looseQuadtreeNode != null)
+			return;
+		largestRadius = Math.max(largestRadius, c.getRadius());
+		checkBalance(topnode.insert(c));
+		updateTree();
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#removeCircleObject(alphabetsoup.framework.Circle)
+	 */
+	public void removeCircleObject(Circle c) {
+		LooseQuadtreeNode n = c.looseQuadtreeNode;
+		if(n == null)
+			return;
+		n.releaseObject(c);
+		for(; n != null; n = n.parent) {
+			n.subtreeCount--;
+			checkBalance(n);
+		}
+		updateTree();
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#isValidMove(alphabetsoup.framework.Circle, float, float)
+	 */
+	public boolean isValidMove(Circle c, float x_new, float y_new) {
+		return topnode.isValidMove(c, x_new, y_new, c.getRadius() + largestRadius);
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#moveTo(alphabetsoup.framework.Circle, float, float)
+	 */
+	public void moveTo(Circle c, float x_new, float y_new) {
+		c.setX(x_new);	c.setY(y_new);
+		LooseQuadtreeNode n = c.looseQuadtreeNode;
+		//still within the loose bounds of its node, so nothing else changes
+		if(n == null || n.looselyContains(x_new, y_new))
+			return;
+
+		//go up to the nearest node which contains the new position, taking it out of the counts on the way,
+		// then back down from there
+		n.releaseObject(c);
+		while(!n.looselyContains(x_new, y_new)) {
+			n.subtreeCount--;
+			checkBalance(n);
+			n = n.parent;
+		}
+		n.subtreeCount--;
+		checkBalance(n.insert(c));
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#updateTree()
+	 */
+	public void updateTree() {
+		//splitting a node may leave a child which needs splitting too, which is added to the end of the list
+		for(int i = 0; i < dirtyNodes.size(); i++) {
+			LooseQuadtreeNode n = dirtyNodes.get(i);
+			n.dirty = false;
+			//skip nodes which have been merged into their parent since being marked
+			if(n.parent == null && n != topnode)
+				continue;
+
+			if(n.isLeaf()) {
+				if(n.numObjects >= divisionThreshold && n.x2 - n.x1 >= minimumNodeSizeInRadii * largestRadius
+						&& n.y2 - n.y1 >= minimumNodeSizeInRadii * largestRadius) {
+					n.split();
+					for(LooseQuadtreeNode q : n.children)
+						checkBalance(q);
+				}
+			}
+			else if(n.subtreeCount < combineThreshold)
+				n.merge();
+		}
+		dirtyNodes.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#getObjectsWithinCircle(alphabetsoup.framework.Circle)
+	 */
+	public List<Circle> getObjectsWithinCircle(Circle c) {
+		List<Circle> in_view = new ArrayList<Circle>();
+		getObjectsWithinDistance(c.getX(), c.getY(), c.getRadius(), in_view);
+		return in_view;
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#getObjectsWithinDistance(float, float, float, java.util.List)
+	 */
+	public void getObjectsWithinDistance(float x, float y, float distance, List<Circle> in_view) {
+		topnode.getObjectsWithinDistance(in_view, x, y, distance, distance + largestRadius);
+	}
+}
@@ -0,0 +1,206 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**LooseQuadtreeNode is a node of a LooseQuadtree.  Each node covers a square quarter of its parent (its tight bounds),
+ * but may hold any Circle whose center is within its loose bounds, which extend the tight bounds by an eighth
+ * (LooseQuadtree.looseness) of their width and height on every side.  Circles are normally held by leaves, but may be held by a node with children
+ * if they don't fit the loose bounds of the child whose tight bounds are nearest their center.
+ */
+public class LooseQuadtreeNode implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	//using the shape below, with the 4 values representing the order of child nodes
+	// y1 \ x1...x2
+	// ...  0  1
+	// y2   2  3
+	float x1, y1, x2, y2;
+	private float looseX1, looseY1, looseX2, looseY2;
+	LooseQuadtreeNode parent;
+	LooseQuadtreeNode children[] = null;
+
+	//Circles held by this node itself
+	Circle objects[] = new Circle[4];
+	int numObjects = 0;
+
+	/**number of Circles held by this node and all of its descendants*/
+	int subtreeCount = 0;
+
+	/**true if this node is in the LooseQuadtree's list of nodes to split or merge*/
+	boolean dirty = false;
+
+	/**Constructs a LooseQuadtreeNode
+	 * @param parent_node Parent LooseQuadtreeNode, null if head node.
+	 * @param x1_pos x coordinate of the top left corner of the tight bounds.
+	 * @param y1_pos y coordinate of the top left corner of the tight bounds.
+	 * @param x2_pos x coordinate of the bottom right corner of the tight bounds.
+	 * @param y2_pos y coordinate of the bottom right corner of the tight bounds.
+	 */
+	public LooseQuadtreeNode(LooseQuadtreeNode parent_node, float x1_pos, float y1_pos, float x2_pos, float y2_pos) {
+		parent = parent_node;
+		x1 = x1_pos;	y1 = y1_pos;	x2 = x2_pos;	y2 = y2_pos;
+		float margin_x = (x2 - x1) * LooseQuadtree.looseness, margin_y = (y2 - y1) * LooseQuadtree.looseness;
+		looseX1 = x1 - margin_x;	looseY1 = y1 - margin_y;
+		looseX2 = x2 + margin_x;	looseY2 = y2 + margin_y;
+		//the head node holds anything, even if it's off of the map
+		if(parent == null) {
+			looseX1 = looseY1 = Float.NEGATIVE_INFINITY;
+			looseX2 = looseY2 = Float.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * @return true if the node has no children
+	 */
+	public boolean isLeaf() {
+		return children == null;
+	}
+
+	/**Returns true if the position is within the loose bounds of this node
+	 * @param x x position
+	 * @param y y position
+	 */
+	public boolean looselyContains(float x, float y) {
+		return x >= looseX1 && x <= looseX2 && y >= looseY1 && y <= looseY2;
+	}
+
+	/**Returns true if any part of the rectangle overlaps the loose bounds of this node
+	 */
+	private boolean looselyOverlaps(float x_min, float y_min, float x_max, float y_max) {
+		return x_max >= looseX1 && x_min <= looseX2 && y_max >= looseY1 && y_min <= looseY2;
+	}
+
+	/**Returns the index of the child node whose tight bounds contain the position, or are nearest to it
+	 * @param x x position
+	 * @param y y position
+	 * @return index of the child node
+	 */
+	int getChildIndex(float x, float y) {
+		if(x < x1 + (x2 - x1)/2)
+			return (y < y1 + (y2 - y1)/2) ? 0 : 2;
+		return (y < y1 + (y2 - y1)/2) ? 1 : 3;
+	}
+
+	/**Adds the Circle to this node itself, without changing any counts
+	 */
+	void holdObject(Circle c) {
+		if(numObjects == objects.length)
+			objects = java.util.Arrays.copyOf(objects, 2 * objects.length);
+		objects[numObjects++] = c;
+		c.looseQuadtreeNode = this;
+	}
+
+	/**Removes the Circle from this node itself, without changing any counts
+	 */
+	void releaseObject(Circle c) {
+		for(int i = 0; i < numObjects; i++)
+			if(objects[i] == c) {
+				objects[i] = objects[--numObjects];
+				objects[numObjects] = null;
+				break;
+			}
+		c.looseQuadtreeNode = null;
+	}
+
+	/**Adds the Circle to the deepest node below this one whose loose bounds contain its center,
+	 * adding it to the subtreeCount of every node on the way down, including this one.
+	 * @param c Circle to add
+	 * @return the node which holds the Circle
+	 */
+	LooseQuadtreeNode insert(Circle c) {
+		LooseQuadtreeNode n = this;
+		n.subtreeCount++;
+		while(n.children != null) {
+			LooseQuadtreeNode child = n.children[n.getChildIndex(c.getX(), c.getY())];
+			if(!child.looselyContains(c.getX(), c.getY()))
+				break;
+			n = child;
+			n.subtreeCount++;
+		}
+		n.holdObject(c);
+		return n;
+	}
+
+	/**Returns true if Circle c moving to location x_new, y_new will not collide with another Circle
+	 * held by this node or its descendants.
+	 * @param c Circle to check against for collisions.
+	 * @param x_new new x position.
+	 * @param y_new new y position.
+	 * @param reach distance from (x_new, y_new) within which the center of another Circle could collide
+	 * @return true if the move is valid
+	 */
+	public boolean isValidMove(Circle c, float x_new, float y_new, float reach) {
+		for(int i = 0; i < numObjects; i++) {
+			Circle o = objects[i];
+			//don't detect collision with self
+			if(c == o)
+				continue;
+			if(o.IsCollision(x_new, y_new, c.getRadius()))
+				return false;
+		}
+		if(children != null)
+			for(LooseQuadtreeNode q : children)
+				if(q.subtreeCount > 0 && q.looselyOverlaps(x_new - reach, y_new - reach, x_new + reach, y_new + reach)
+						&& !q.isValidMove(c, x_new, y_new, reach))
+					return false;
+		return true;
+	}
+
+	/**Populates in_view with the list of objects within the specified distance of (x, y)
+	 * @param in_view List<Circle> to add objects within distance to.
+	 * @param x x coordinate of the center of the area to search
+	 * @param y y coordinate of the center of the area to search
+	 * @param distance distance from (x, y) to search
+	 * @param reach distance from (x, y) within which the center of a Circle could be within distance
+	 */
+	public void getObjectsWithinDistance(List<Circle> in_view, float x, float y, float distance, float reach) {
+		for(int i = 0; i < numObjects; i++)
+			if(objects[i].IsCollision(x, y, distance))
+				in_view.add(objects[i]);
+		if(children != null)
+			for(LooseQuadtreeNode q : children)
+				if(q.subtreeCount > 0 && q.looselyOverlaps(x - reach, y - reach, x + reach, y + reach))
+					q.getObjectsWithinDistance(in_view, x, y, distance, reach);
+	}
+
+	/**Splits this leaf into four children, and moves each of its Circles into a child where it fits
+	 */
+	void split() {
+		float x_mid = (x1 + x2)/2, y_mid = (y1 + y2)/2;
+		children = new LooseQuadtreeNode[4];
+		children[0] = new LooseQuadtreeNode(this, x1, y1, x_mid, y_mid);
+		children[1] = new LooseQuadtreeNode(this, x_mid, y1, x2, y_mid);
+		children[2] = new LooseQuadtreeNode(this, x1, y_mid, x_mid, y2);
+		children[3] = new LooseQuadtreeNode(this, x_mid, y_mid, x2, y2);
+
+		Circle held[] = objects;
+		int num_held = numObjects;
+		objects = new Circle[4];
+		numObjects = 0;
+		for(int i = 0; i < num_held; i++) {
+			Circle c = held[i];
+			LooseQuadtreeNode child = children[getChildIndex(c.getX(), c.getY())];
+			if(child.looselyContains(c.getX(), c.getY()))
+				child.insert(c);
+			else
+				holdObject(c);
+		}
+	}
+
+	/**Takes all of the Circles of the descendants of this node into the node itself, and removes its children
+	 */
+	void merge() {
+		for(LooseQuadtreeNode q : children) {
+			if(q.children != null)
+				q.merge();
+			for(int i = 0; i < q.numObjects; i++)
+				holdObject(q.objects[i]);
+			q.parent = null;	//marks the node as no longer in the tree
+		}
+		children = null;
+	}
+}
@@ -13,6 +13,7 @@ import alphabetsoup.base.BucketbotBase;
  * @author Chris Hazard
  */
 public class Map implements Updateable {
+	private static final long serialVersionUID = 1L;
 	
 	private float width, height;
 	private float tolerance;		//distance between a bucket and a station, etc. where it will still be considered "close enough"
@@ -24,8 +25,24 @@ public class Map implements Updateable {
 	List<LetterStation> letterStations;
 	List<WordStation> wordStations;
 	
-	Quadtree bucketbotQuadtree;
-	Quadtree bucketQuadtree;
+	SpatialIndex bucketbotIndex;
+	SpatialIndex bucketIndex;
+	
+	private float maxBucketbotVelocity = 0.001f;	//start non-zero
+	private float maxRadius = 0.0f;		//largest radius of any bucketbot or bucket
+	
+	//collision certificates, if certificateHorizon is greater than 0: no bucketbot can touch anything before its safeUntil,
+	// however everything accelerates from the velocities it had when the certificate was made
+	private double certificateHorizon = 0.0;
+	private boolean kineticCertificates = false;	//made for each bucketbot as it asks, see certifyBucketbot
+	private float maxSensingDistance = 0.0f;		//largest sensing distance a certificate has been made for
+	private double safeUntil[] = new double[0];
+	private double certifiedTime[] = new double[0];		//time each certificate was made
+	private double retryAfter[] = new double[0];		//time before which a certificate too short to lengthen the steps isn't made again
+	private IdentityHashMap<Bucketbot, Integer> bucketbotNumbers = new IdentityHashMap<Bucketbot, Integer>();	//index of each bucketbot's certificate
+	private IdentityHashMap<Circle, BucketbotBase> bucketCarriers = new IdentityHashMap<Circle, BucketbotBase>();
+	private List<Circle> nearbyObjects = new ArrayList<Circle>();
+	private long numCertificates = 0;
 
 	/**Constructs a map with given dimensions and tolerance
 	 * @param map_width width of the map
@@ -43,8 +60,18 @@ public class Map implements Updateable {
 		letterStations = new ArrayList<LetterStation>();
 		wordStations = new ArrayList<WordStation>();
 		
-		bucketbotQuadtree = new Quadtree(map_width, map_height);
-		bucketQuadtree = new Quadtree(map_width, map_height);
+		bucketbotIndex = new Quadtree(map_width, map_height);
+		bucketIndex = new Quadtree(map_width, map_height);
+	}
+
+	/**Replaces the structures used to look up the locations of bucketbots and buckets,
+	 * which are Quadtrees by default.  Must be called before anything is added to the map.
+	 * @param bucketbot_index SpatialIndex to hold the bucketbots
+	 * @param bucket_index SpatialIndex to hold the buckets
+	 */
+	public void setSpatialIndexes(SpatialIndex bucketbot_index, SpatialIndex bucket_index) {
+		bucketbotIndex = bucketbot_index;
+		bucketIndex = bucket_index;
 	}
 
 	/**Adds a Bucketbot to the map and gives the Bucketbot a reference to the Map.
@@ -54,8 +81,11 @@ public class Map implements Updateable {
 	public boolean addRobot(Bucketbot r) {	
 		if(!isBucketbotMoveValid(r, r.getX(), r.getY()))
 			return false;
+		bucketbotNumbers.put(r, bucketbots.size());
 		bucketbots.add(r);
-		bucketbotQuadtree.addCircleObject((Circle)r);
+		bucketbotIndex.addCircleObject((Circle)r);
+		maxBucketbotVelocity = Math.max(maxBucketbotVelocity, r.getMaxVelocity());
+		maxRadius = Math.max(maxRadius, r.getRadius());
 		return true;
 	}
 	
@@ -67,7 +97,8 @@ public class Map implements Updateable {
 		if(!isValidBucketStorageLocation(b, b.getX(), b.getY()))
 			return false;
 		buckets.add(b);
-		bucketQuadtree.addCircleObject((Circle)b);
+		bucketIndex.addCircleObject((Circle)b);
+		maxRadius = Math.max(maxRadius, b.getRadius());
 		return true;
 	}
 	
@@ -93,7 +124,7 @@ public class Map implements Updateable {
 	 */
 	public Collection<Circle> getBucketbotsWithinDistance(float x, float y, float distance) {
 		Circle c = new Circle(distance, x, y);
-		return bucketbotQuadtree.getObjectsWithinCircle(c);
+		return bucketbotIndex.getObjectsWithinCircle(c);
 	}
 	
 	/**Returns a Collection of the buckets within the specified distance from the point
@@ -104,7 +135,31 @@ public class Map implements Updateable {
 	 */
 	public Collection<Circle> getBucketsWithinDistance(float x, float y, float distance) {
 		Circle c = new Circle(distance, x, y);
-		return bucketQuadtree.getObjectsWithinCircle(c);
+		return bucketIndex.getObjectsWithinCircle(c);
+	}
+	
+	/**Adds the bucketbots within the specified distance from the point to in_view.
+	 * Unlike getBucketbotsWithinDistance(float, float, float), this does not allocate anything,
+	 * so it can be called on every update with a List that is reused.
+	 * @param x x coordinate of center to find bucketbots
+	 * @param y y coordinate of center to find bucketbots
+	 * @param distance from (x,y)
+	 * @param in_view List<Circle> to add the bucketbots to
+	 */
+	public void getBucketbotsWithinDistance(float x, float y, float distance, List<Circle> in_view) {
+		bucketbotIndex.getObjectsWithinDistance(x, y, distance, in_view);
+	}
+	
+	/**Adds the buckets within the specified distance from the point to in_view.
+	 * Unlike getBucketsWithinDistance(float, float, float), this does not allocate anything,
+	 * so it can be called on every update with a List that is reused.
+	 * @param x x coordinate of center to find buckets
+	 * @param y y coordinate of center to find buckets
+	 * @param distance from (x,y)
+	 * @param in_view List<Circle> to add the buckets to
+	 */
+	public void getBucketsWithinDistance(float x, float y, float distance, List<Circle> in_view) {
+		bucketIndex.getObjectsWithinDistance(x, y, distance, in_view);
 	}
 	
 	/**Returns true if moving the bucketbot to the new location is valid.
@@ -119,11 +174,11 @@ public class Map implements Updateable {
 		if(x_new - r.getRadius() < 0 || x_new + r.getRadius() > getWidth()
 				|| y_new - r.getRadius() < 0 || y_new + r.getRadius() > getHeight() )
 			return false;
-		if(bucketbotQuadtree.isValidMove((Circle)r, x_new, y_new)) {
+		if(bucketbotIndex.isValidMove((Circle)r, x_new, y_new)) {
 			if(r.getBucket() == null)
 				return true;
 
-			if(bucketQuadtree.isValidMove((Circle)r.getBucket(), x_new, y_new))
+			if(bucketIndex.isValidMove((Circle)r.getBucket(), x_new, y_new))
 				return true;
 		}
 		return false;
@@ -141,15 +196,15 @@ public class Map implements Updateable {
 		if(x_new - r.getRadius() < 0 || x_new + r.getRadius() > getWidth()
 				|| y_new - r.getRadius() < 0 || y_new + r.getRadius() > getHeight() )
 			return false;
-		if(bucketbotQuadtree.isValidMove((Circle)r, x_new, y_new)) {
+		if(bucketbotIndex.isValidMove((Circle)r, x_new, y_new)) {
 			if(r.getBucket() == null) {
-				bucketbotQuadtree.moveTo((Circle)r, x_new, y_new);			
+				bucketbotIndex.moveTo((Circle)r, x_new, y_new);			
 				return true;
 			}
 			
-			if(bucketQuadtree.isValidMove((Circle)r.getBucket(), x_new, y_new)) {
-				bucketQuadtree.moveTo((Circle)r.getBucket(), x_new, y_new);
-				bucketbotQuadtree.moveTo((Circle)r, x_new, y_new);			
+			if(bucketIndex.isValidMove((Circle)r.getBucket(), x_new, y_new)) {
+				bucketIndex.moveTo((Circle)r.getBucket(), x_new, y_new);
+				bucketbotIndex.moveTo((Circle)r, x_new, y_new);			
 				return true;
 			}
 		}
@@ -167,7 +222,7 @@ public class Map implements Updateable {
 		if(x_new - b.getRadius() < 0 || x_new + b.getRadius() > getWidth()
 				|| y_new - b.getRadius() < 0 || y_new + b.getRadius() > getHeight() )
 			return false;
-		if(!bucketQuadtree.isValidMove((Circle)b, x_new, y_new))
+		if(!bucketIndex.isValidMove((Circle)b, x_new, y_new))
 			return false;
 		
 		//make sure not overlapping with any station
@@ -181,23 +236,256 @@ public class Map implements Updateable {
 		return true;		
 	}
 	
+	/**Makes getShortestTimeWithoutCollision(double) use collision certificates on top of the time
+	 * for the fastest bucketbot to cover most of its diameter.
+	 * @param horizon longest time a certificate can be made for; the longer it is, the further away
+	 * a bucketbot needs to look when its certificate is made
+	 */
+	public void useCollisionCertificates(double horizon) {
+		certificateHorizon = horizon;
+	}
+	
 	/**Returns the shortest amount of time that bucketbots will operate until the next possible collision.
-	 * @return shortest possible time until next collision 
+	 * The shortest is the time it takes the fastest bucketbot to cover 0.9 of its diameter, so that bucketbots
+	 * can't pass through each other within a step.  If collision certificates are used, each bucketbot has a certificate of a time before which it can't
+	 * touch anything, no matter how everything accelerates, which is computed from the relative positions and
+	 * velocities of the bucketbots and buckets around it, and of the walls.  A certificate is only made again
+	 * when less than half of it is left, or when something nearby picks up or sets down a bucket or is stopped by a collision
+	 * (see bucketPickup, bucketSetdown and bucketbotStopped), and a certificate too short to lengthen the steps isn't made
+	 * again for twice the horizon, leaving the steps as short as before.  The time returned is the time left on the shortest
+	 * certificate plus the diameter time, so steps are only as short as before where things are close enough to touch,
+	 * and can be longer where they aren't.  If kinetic certificates are used, the steps aren't bounded here at all.
+	 * @param cur_time the current system time
+	 * @return shortest possible time until next collision
+	 */
+	public double getShortestTimeWithoutCollision(double cur_time) {
+		float diameter_time = 1.8f * ((BucketbotBase)bucketbots.get(0)).getRadius() / maxBucketbotVelocity;
+		if(kineticCertificates)
+			return Double.POSITIVE_INFINITY;
+		if(certificateHorizon <= 0.0)
+			return diameter_time;
+		
+		int n = bucketbots.size();
+		growCertificates();
+		
+		double min_time = certificateHorizon;
+		//once the step can't be any longer than diameter_time, the rest of the certificates can wait
+		for(int i = 0; i < n && min_time > 0.0; i++) {
+			//renew the certificate when less than half of it is left, unless the last one was too short to make any
+			// difference, since a bucketbot that close to something usually stays close for a while
+			if((safeUntil[i] <= cur_time || safeUntil[i] - cur_time < (safeUntil[i] - certifiedTime[i]) / 2)
+					&& retryAfter[i] <= cur_time) {
+				double time = getTimeWithoutCollision((BucketbotBase)bucketbots.get(i), 0.0f);
+				safeUntil[i] = cur_time + time;
+				certifiedTime[i] = cur_time;
+				if(time < diameter_time)
+					retryAfter[i] = cur_time + 2.0 * certificateHorizon;
+				numCertificates++;
+			}
+			min_time = Math.min(min_time, safeUntil[i] - cur_time);
+		}
+		//once things can touch, steps still need to be short enough that they can't pass through each other
+		return Math.max(min_time, 0.0) + diameter_time;
+	}
+	
+	/**Makes the collision certificates be made for each bucketbot only when it asks for one with certifyBucketbot,
+	 * for kinetic motion, where each bucketbot is only updated at its own events.  getShortestTimeWithoutCollision
+	 * then doesn't bound the steps at all, since the bucketbots' events do.
+	 * @param horizon longest time a certificate can be made for
+	 */
+	public void useKineticCertificates(double horizon) {
+		certificateHorizon = horizon;
+		kineticCertificates = true;
+	}
+	
+	/**Makes a collision certificate for the bucketbot alone, which holds until it could touch a wall, or could come
+	 * within sensing_distance of the center of another bucketbot (or bucket, if it is carrying one), no matter how
+	 * everything accelerates, up to the certificate horizon.  If kinetic certificates are used, a bucketbot whose
+	 * certificate is made again early, because something nearby picked up or set down a bucket or was stopped by a collision,
+	 * is rescheduled so that it gets to ask for a new one.
+	 * @param r bucketbot to certify
+	 * @param sensing_distance distance from its center within which the bucketbot reacts to other objects,
+	 * 0 if it only needs to know when it could touch something
+	 * @param cur_time the current system time
+	 * @return the time the certificate runs out
+	 */
+	public double certifyBucketbot(Bucketbot r, float sensing_distance, double cur_time) {
+		growCertificates();
+		int i = bucketbotNumbers.get(r);
+		maxSensingDistance = Math.max(maxSensingDistance, sensing_distance);
+		safeUntil[i] = cur_time + getTimeWithoutCollision((BucketbotBase)r, sensing_distance);
+		certifiedTime[i] = cur_time;
+		numCertificates++;
+		return safeUntil[i];
+	}
+	
+	/**Makes room for the certificates of bucketbots added since the certificates were last made,
+	 * which start out without one
+	 */
+	private void growCertificates() {
+		int n = bucketbots.size();
+		if(safeUntil.length != n) {
+			int old_n = safeUntil.length;
+			safeUntil = Arrays.copyOf(safeUntil, n);
+			certifiedTime = Arrays.copyOf(certifiedTime, n);
+			retryAfter = Arrays.copyOf(retryAfter, n);
+			Arrays.fill(safeUntil, old_n, n, Double.NEGATIVE_INFINITY);
+		}
+	}
+	
+	/**Should be called when a bucketbot has picked up a bucket.  The bucketbot jumped onto the bucket, and the bucket
+	 * can now move, so the collision certificates of every bucketbot which could have looked at either are made again.
+	 * @param r bucketbot which picked up the bucket
+	 */
+	public void bucketPickup(Bucketbot r) {
+		if(certificateHorizon <= 0.0)
+			return;
+		bucketCarriers.put((Circle)r.getBucket(), (BucketbotBase)r);
+		invalidateCertificatesNear(r);
+	}
+	
+	/**Should be called when a bucketbot is stopped by a collision.  The certificates assume that velocities
+	 * only change as fast as the bucketbots can accelerate, but a stopped bucketbot loses all of its velocity at once,
+	 * so the certificates of every bucketbot which could have looked at it are made again.
+	 * @param r bucketbot which was stopped
+	 */
+	public void bucketbotStopped(Bucketbot r) {
+		if(certificateHorizon <= 0.0)
+			return;
+		invalidateCertificatesNear(r);
+	}
+	
+	/**Should be called when a bucketbot is setting down its bucket.  A stored bucket can't move and the bucketbot
+	 * no longer has to keep a bucket clear of the others, so the other certificates still hold, and only the
+	 * bucketbot's own certificate is made again.
+	 * @param r bucketbot setting down the bucket
+	 * @param b bucket being set down
+	 */
+	public void bucketSetdown(Bucketbot r, Bucket b) {
+		if(certificateHorizon <= 0.0)
+			return;
+		bucketCarriers.remove((Circle)b);
+		invalidateCertificate(r);
+	}
+	
+	/**Makes the collision certificates of the bucketbot and every bucketbot which could have looked at it,
+	 * or at its bucket, be made again the next time they are needed
+	 */
+	private void invalidateCertificatesNear(Bucketbot r) {
+		//a certificate looks at objects within its reach of the bucketbot's center, plus their radius,
+		// and the bucketbot may have jumped as far as the tolerance to pick up a bucket
+		float distance = Math.max(2.0f * maxRadius, maxRadius + maxSensingDistance) + tolerance
+							+ (float)((maxBucketbotVelocity + maxVelocity) * certificateHorizon);
+		nearbyObjects.clear();
+		bucketbotIndex.getObjectsWithinDistance(r.getX(), r.getY(), distance, nearbyObjects);
+		for(Circle c : nearbyObjects)
+			invalidateCertificate((Bucketbot)c);
+		invalidateCertificate(r);
+	}
+	
+	/**Makes the bucketbot's collision certificate be made again the next time it is needed,
+	 * and if it is made by certifyBucketbot, reschedules the bucketbot so that it asks for it
+	 */
+	private void invalidateCertificate(Bucketbot r) {
+		Integer i = bucketbotNumbers.get(r);
+		if(i != null && i < safeUntil.length) {
+			if(kineticCertificates && safeUntil[i] != Double.NEGATIVE_INFINITY)
+				SimulationWorld.getSimulationWorld().rescheduleUpdateable((Updateable)r);
+			safeUntil[i] = Double.NEGATIVE_INFINITY;
+		}
+	}
+	
+	/**Returns a time before which the bucketbot can't touch a wall, or come within sensing_distance of the center of
+	 * (or touch) another bucketbot, or (if it is carrying a bucket) another bucket, up to the certificate horizon
 	 */
-	public float getShortestTimeWithoutCollision() {
-		//TODO revisit this minimal timing code
-		//float min_dist = bucketbotQuadtree.getShortestDistanceWithoutCollision();
-		//min_dist = Math.min(min_dist, bucketQuadtree.getShortestDistanceWithoutCollision());
+	private double getTimeWithoutCollision(BucketbotBase b, float sensing_distance) {
+		float x = b.getX(), y = b.getY(), r = b.getRadius();
+		float x_velocity = b.getXVelocity(), y_velocity = b.getYVelocity();
+		float max_velocity = b.getMaxVelocity(), max_acceleration = b.getMaxAcceleration();
+		
+		double time = certificateHorizon;
+		time = Math.min(time, getTimeToContact(x - r, -x_velocity, max_acceleration, max_velocity));
+		time = Math.min(time, getTimeToContact(width - r - x, x_velocity, max_acceleration, max_velocity));
+		time = Math.min(time, getTimeToContact(y - r, -y_velocity, max_acceleration, max_velocity));
+		time = Math.min(time, getTimeToContact(height - r - y, y_velocity, max_acceleration, max_velocity));
 		
-		float max_vel = 0.001f;	//start non-zero
-		for(Bucketbot b : bucketbots)
-			max_vel = Math.max(max_vel, b.getMaxVelocity());
-		//return min_dist / max_vel;
+		//anything further away than reach can't be touched within the horizon
+		Circle bucket = (Circle)b.getBucket();
+		float reach = Math.max(bucket == null ? r : Math.max(r, bucket.getRadius()), sensing_distance)
+						+ (float)((max_velocity + maxVelocity) * certificateHorizon);
+		
+		//any other bucketbot might speed up toward this one
+		nearbyObjects.clear();
+		bucketbotIndex.getObjectsWithinDistance(x, y, reach, nearbyObjects);
+		for(Circle c : nearbyObjects) {
+			if(c == b)
+				continue;
+			BucketbotBase other = (BucketbotBase)c;
+			time = Math.min(time, getTimeToContact(b, c, Math.max(r + c.getRadius(), sensing_distance), other.getXVelocity(), other.getYVelocity(),
+											other.getMaxAcceleration(), other.getMaxVelocity()));
+		}
 		
-		//temporary method - simply find the min time a bucketbot can cover its diameter
-		//under the diameters, such that bucketbots don't "tunnel" through each other
-		float diam = 1.8f * ((BucketbotBase)bucketbots.get(0)).getRadius();
-		return diam / max_vel;
+		//buckets only block a bucketbot carrying one; stored buckets stay put, and carried ones move with their bucketbots
+		if(bucket != null) {
+			nearbyObjects.clear();
+			bucketIndex.getObjectsWithinDistance(x, y, reach, nearbyObjects);
+			for(Circle c : nearbyObjects) {
+				if(c == bucket)
+					continue;
+				float contact_distance = Math.max(bucket.getRadius() + c.getRadius(), sensing_distance);
+				BucketbotBase carrier = bucketCarriers.get(c);
+				if(carrier == null)
+					time = Math.min(time, getTimeToContact(b, c, contact_distance, 0.0f, 0.0f, 0.0f, 0.0f));
+				else
+					time = Math.min(time, getTimeToContact(b, c, contact_distance, carrier.getXVelocity(), carrier.getYVelocity(),
+													carrier.getMaxAcceleration(), carrier.getMaxVelocity()));
+			}
+		}
+		return time;
+	}
+	
+	/**Returns a time before which the bucketbot can't come within contact_distance of the center of the Circle
+	 * @param b bucketbot
+	 * @param c Circle moving with the specified velocity, and able to accelerate and move at most as specified
+	 */
+	private static double getTimeToContact(BucketbotBase b, Circle c, float contact_distance,
+			float x_velocity, float y_velocity, float max_acceleration, float max_velocity) {
+		float dx = c.getX() - b.getX();
+		float dy = c.getY() - b.getY();
+		float distance = (float)Math.sqrt(dx*dx + dy*dy);
+		//only the part of the relative velocity along the line between them brings them closer
+		float closing_speed = b.getMaxVelocity() + max_velocity;
+		if(distance > 0.0f)
+			closing_speed = ((b.getXVelocity() - x_velocity) * dx + (b.getYVelocity() - y_velocity) * dy) / distance;
+		return getTimeToContact(distance - contact_distance, closing_speed, b.getMaxAcceleration() + max_acceleration,
+								b.getMaxVelocity() + max_velocity);
+	}
+	
+	/**Returns a lower bound on the time it takes to close a gap.  Since velocities are changed by at most
+	 * the acceleration times the length of each step at the start of the step, the gap closes by at most
+	 * closing_speed*t + acceleration*t^2 in time t, and never faster than max_closing_speed.
+	 * @param gap distance left to close
+	 * @param closing_speed current speed at which the gap is closing, negative if it is opening
+	 * @param acceleration greatest rate at which closing_speed can increase
+	 * @param max_closing_speed greatest speed at which the gap can close
+	 * @return time before which the gap can't close
+	 */
+	private static double getTimeToContact(float gap, float closing_speed, float acceleration, float max_closing_speed) {
+		if(gap <= 0.0f)
+			return 0.0;
+		double time = Double.POSITIVE_INFINITY;
+		//root of acceleration*t^2 + closing_speed*t - gap, in a form that doesn't cancel
+		double denominator = closing_speed + Math.sqrt((double)closing_speed*closing_speed + 4.0*acceleration*gap);
+		if(denominator > 0.0)
+			time = 2.0 * gap / denominator;
+		return Math.max(time, gap / max_closing_speed);
+	}
+	
+	/**
+	 * @return the number of collision certificates made
+	 */
+	public long getNumCertificates() {
+		return numCertificates;
 	}
 
 	
@@ -212,8 +500,8 @@ public class Map implements Updateable {
 	 * @see alphabetsoup.framework.Updateable#update(double, double)
 	 */
 	public void update(double last_time, double cur_time) {
-		bucketQuadtree.updateTree();
-		bucketbotQuadtree.updateTree();
+		bucketIndex.updateTree();
+		bucketbotIndex.updateTree();
 	}
 
 	/**
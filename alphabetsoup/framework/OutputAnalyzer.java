@@ -0,0 +1,263 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+import java.text.DecimalFormat;
+import java.util.*;
+
+/**OutputAnalyzer decides how long a simulation without user interface runs, by watching the streams of completed
+ * words and letters as it goes.  The simulation is run in intervals of a fixed length, and the number of words and letters
+ * completed in each interval is recorded as an observation of the throughput.<br>
+ * During warmup, the end of the initial transient is found with MSER-5: the letter observations are averaged in batches of 5,
+ * and the truncation point is the number of leading batches which, when left out, minimizes the variance of the mean of the
+ * rest.  Once the truncation point is in the first half of the batches (and there are enough of them), the transient is
+ * over, and the statistics are reset.  If it is not found within the maximum warmup time, the statistics are reset then.<br>
+ * After warmup, the letter observations are split into a fixed number of equal batches, and the run stops once the 95%
+ * confidence interval on the mean letter throughput, from the batch means, has a half width of at most the target precision
+ * times the mean, or once the maximum run time has been reached.  The confidence intervals of the word and letter
+ * throughput and the reason the run stopped are added to the SummaryReport.
+ */
+public class OutputAnalyzer implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**size of the batches MSER averages the observations in*/
+	public static final int mserBatchSize = 5;
+	/**fewest MSER batches to look for the end of the transient in*/
+	public static final int minMserBatches = 10;
+	/**fewest MSER batches to leave after a truncation point, since the variance of fewer says little*/
+	public static final int minMserTailBatches = 5;
+	/**fewest observations in each batch of the batch means*/
+	public static final int minBatchSize = 2;
+
+	private double interval;		//length of time of each observation
+	private double precision;		//target half width of the confidence interval, relative to the mean
+	private int numBatches;			//number of batches of the batch means
+
+	private List<Double> letterObservations = new ArrayList<Double>();
+	private List<Double> wordObservations = new ArrayList<Double>();
+	private int numWordsSeen = 0;	//number of completed words already observed
+
+	//results
+	private boolean warmupDetected = false;
+	private double warmupTime = 0.0;		//time the statistics were reset
+	private double truncationTime = 0.0;	//time the transient was found to end
+	private String stoppingReason = "not run";
+	private double letterMean = Double.NaN, letterHalfWidth = Double.NaN;
+	private double wordMean = Double.NaN, wordHalfWidth = Double.NaN;
+	private int batchSize = 0;
+
+	/**Constructs an OutputAnalyzer
+	 * @param observation_interval length of time of each observation of the throughput
+	 * @param relative_precision target half width of the 95% confidence interval on letter throughput, as a fraction of the mean
+	 * @param num_batches number of batches to split the observations into for the batch means
+	 */
+	public OutputAnalyzer(double observation_interval, double relative_precision, int num_batches) {
+		interval = observation_interval;
+		precision = relative_precision;
+		numBatches = Math.max(num_batches, 2);
+	}
+
+	/**Runs the simulation for one interval, and records the number of words and letters completed in it
+	 */
+	private void observe(SimulationWorld sw, double time) {
+		sw.update(time);
+		List<Word> completed = sw.getWordList().getCompletedWords();
+		//the completed words are cleared when the statistics are reset
+		if(completed.size() < numWordsSeen)
+			numWordsSeen = 0;
+		int num_letters = 0;
+		for(int i = numWordsSeen; i < completed.size(); i++)
+			num_letters += completed.get(i).getOriginalLetters().length;
+		wordObservations.add((completed.size() - numWordsSeen) / time);
+		letterObservations.add(num_letters / time);
+		numWordsSeen = completed.size();
+	}
+
+	/**Returns the MSER-5 truncation point of the observations, as a number of batches, or -1 if there are
+	 * too few observations or the truncation point is not yet in the first half.
+	 * Every truncation point leaving at least minMserTailBatches is evaluated, so while the transient is still going on
+	 * the minimum lands in the second half, and the transient isn't taken to be over until more observations push it into the first.
+	 * The simulation starts with no words under way, so the batches up to the first completed word are always part of the transient;
+	 * otherwise a long idle start followed by a few word sized bursts looks no more variable than the bursts alone.
+	 */
+	private static int getTruncationPoint(List<Double> observations) {
+		int num_batches = observations.size() / mserBatchSize;
+		if(num_batches < minMserBatches)
+			return -1;
+		double batch_means[] = new double[num_batches];
+		for(int j = 0; j < num_batches; j++) {
+			for(int i = 0; i < mserBatchSize; i++)
+				batch_means[j] += observations.get(j * mserBatchSize + i);
+			batch_means[j] /= mserBatchSize;
+		}
+
+		//nothing completed yet is still the transient
+		int first_completion = 0;
+		while(first_completion < observations.size() && observations.get(first_completion) <= 0.0)
+			first_completion++;
+		int first_truncation_point = (first_completion == 0) ? 0 : first_completion / mserBatchSize + 1;
+
+		//accumulate sums from the end, so each truncation point is evaluated in constant time
+		int best = -1;
+		double best_mser = Double.POSITIVE_INFINITY;
+		double sum = 0.0, sum_of_squares = 0.0;
+		for(int d = num_batches - 1; d >= first_truncation_point; d--) {
+			sum += batch_means[d];
+			sum_of_squares += batch_means[d] * batch_means[d];
+			int n = num_batches - d;
+			if(n < minMserTailBatches)
+				continue;
+			double mser = Math.max(sum_of_squares - sum * sum / n, 0.0) / ((double)n * n);
+			if(mser <= best_mser) {
+				best_mser = mser;
+				best = d;
+			}
+		}
+		return (best < num_batches / 2) ? best : -1;
+	}
+
+	/**Runs the simulation until the end of the initial transient is found, or until max_warmup_time, and resets its statistics.
+	 * @param sw simulation to warm up
+	 * @param max_warmup_time longest time to warm up for
+	 */
+	public void warmUp(SimulationWorld sw, double max_warmup_time) {
+		double start_time = sw.getCurrentTime();
+		double end_time = start_time + max_warmup_time;
+		while(sw.getCurrentTime() + interval <= end_time) {
+			observe(sw, interval);
+			int truncation_point = getTruncationPoint(letterObservations);
+			if(truncation_point >= 0) {
+				warmupDetected = true;
+				truncationTime = start_time + truncation_point * mserBatchSize * interval;
+				break;
+			}
+		}
+		if(!warmupDetected) {
+			sw.update(end_time - sw.getCurrentTime());
+			truncationTime = sw.getCurrentTime();
+		}
+		warmupTime = sw.getCurrentTime();
+		sw.resetStatistics();
+		letterObservations.clear();
+		wordObservations.clear();
+		numWordsSeen = 0;
+	}
+
+	/**Computes the mean and the half width of the 95% confidence interval of the observations from the batch means
+	 * @return {mean, half width}
+	 */
+	private double[] getConfidenceInterval(List<Double> observations) {
+		double batch_means[] = new double[numBatches];
+		for(int j = 0; j < numBatches; j++) {
+			for(int i = 0; i < batchSize; i++)
+				batch_means[j] += observations.get(j * batchSize + i);
+			batch_means[j] /= batchSize;
+		}
+		double mean = 0.0;
+		for(double m : batch_means)
+			mean += m;
+		mean /= numBatches;
+		double variance = 0.0;
+		for(double m : batch_means)
+			variance += (m - mean) * (m - mean);
+		variance /= numBatches - 1;
+		return new double[] {mean, getStudentTQuantile(numBatches - 1) * Math.sqrt(variance / numBatches)};
+	}
+
+	/**Returns the 0.975 quantile of Student's t distribution, from the Cornish-Fisher expansion about the normal quantile,
+	 * which is within 0.003 of the exact value for 5 or more degrees of freedom
+	 * @param degrees_of_freedom degrees of freedom
+	 */
+	private static double getStudentTQuantile(int degrees_of_freedom) {
+		double z = 1.959963985;
+		double z3 = z*z*z, z5 = z3*z*z, z7 = z5*z*z;
+		double v = degrees_of_freedom;
+		return z + (z3 + z) / (4*v) + (5*z5 + 16*z3 + 3*z) / (96*v*v)
+				+ (3*z7 + 19*z5 + 17*z3 - 15*z) / (384*v*v*v);
+	}
+
+	/**Runs the warmed up simulation until the confidence interval on letter throughput is narrow enough,
+	 * or until max_run_time has passed.
+	 * @param sw simulation to run
+	 * @param max_run_time longest time to run for, no limit if 0 or less
+	 */
+	public void run(SimulationWorld sw, double max_run_time) {
+		double end_time = (max_run_time > 0.0) ? sw.getCurrentTime() + max_run_time : Double.POSITIVE_INFINITY;
+		boolean converged = false;
+		while(!converged && sw.getCurrentTime() + interval <= end_time) {
+			observe(sw, interval);
+			if(letterObservations.size() < numBatches * minBatchSize)
+				continue;
+			batchSize = letterObservations.size() / numBatches;
+			double letter_ci[] = getConfidenceInterval(letterObservations);
+			letterMean = letter_ci[0];
+			letterHalfWidth = letter_ci[1];
+			converged = (letterMean > 0.0 && letterHalfWidth <= precision * letterMean);
+		}
+		stoppingReason = converged ? "confidence interval" : "maximum run time";
+		//run out the part of an interval left before the limit
+		if(!converged && sw.getCurrentTime() < end_time)
+			sw.update(end_time - sw.getCurrentTime());
+
+		if(letterObservations.size() >= numBatches * minBatchSize) {
+			batchSize = letterObservations.size() / numBatches;
+			double letter_ci[] = getConfidenceInterval(letterObservations);
+			letterMean = letter_ci[0];
+			letterHalfWidth = letter_ci[1];
+			double word_ci[] = getConfidenceInterval(wordObservations);
+			wordMean = word_ci[0];
+			wordHalfWidth = word_ci[1];
+		}
+	}
+
+	/**
+	 * @return true if the end of the initial transient was found, false if the warmup ran for its maximum time
+	 */
+	public boolean isWarmupDetected() {
+		return warmupDetected;
+	}
+
+	/**
+	 * @return the time the statistics were reset at the end of warmup
+	 */
+	public double getWarmupTime() {
+		return warmupTime;
+	}
+
+	/**
+	 * @return the time MSER found the initial transient to end, which is before getWarmupTime()
+	 */
+	public double getTruncationTime() {
+		return truncationTime;
+	}
+
+	/**
+	 * @return "confidence interval" if the run stopped because the confidence interval was narrow enough,
+	 * otherwise "maximum run time"
+	 */
+	public String getStoppingReason() {
+		return stoppingReason;
+	}
+
+	/**Returns the lines to add to the SummaryReport
+	 * @return a List of Strings in sequential order
+	 */
+	public List<String> getReportText() {
+		DecimalFormat three_digits = new DecimalFormat("0.000");
+		DecimalFormat four_digits = new DecimalFormat("0.0000");
+		List<String> lines = new ArrayList<String>();
+		lines.add("warmup detected: " + (warmupDetected ? 1 : 0));
+		lines.add("warmup truncation time: " + three_digits.format(truncationTime));
+		lines.add("warmup end time: " + three_digits.format(warmupTime));
+		lines.add("stopping reason: " + stoppingReason);
+		lines.add("batch means batches: " + numBatches);
+		lines.add("batch means batch size: " + batchSize);
+		lines.add("letter completion rate batch mean: " + four_digits.format(letterMean));
+		lines.add("letter completion rate 95% ci half width: " + four_digits.format(letterHalfWidth));
+		lines.add("word completion rate batch mean: " + four_digits.format(wordMean));
+		lines.add("word completion rate 95% ci half width: " + four_digits.format(wordHalfWidth));
+		return lines;
+	}
+}
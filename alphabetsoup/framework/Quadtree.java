@@ -11,12 +11,19 @@ import org.lwjgl.opengl.GL11;
  * used for fast lookup of local interactions between objects.
  * @author Chris Hazard
  */
-public class Quadtree {
+public class Quadtree implements SpatialIndex {
+	private static final long serialVersionUID = 1L;
 
 	/**Head node of the Quadtree
 	 */
 	private QuadtreeNode topnode;
 	
+	//binary min heap of nodes and objects for the nearest neighbor searches, kept between searches so they don't allocate
+	private transient float heapKeys[] = null;
+	private transient Object heapItems[] = null;
+	private transient int heapSize = 0;
+	private transient List<Circle> nearestObject = null;
+	
 	/**When at least divisionThreshold objects are in the same QuadtreeNode,
 	 *  the QuadtreeNode is split into 4.
 	 */
@@ -75,9 +82,7 @@ public class Quadtree {
 	 * @param y_new new y position
 	 */
 	public void moveTo(Circle c, float x_new, float y_new) {
-		topnode.removeCircleObject(c);
-		c.setX(x_new);	c.setY(y_new);
-		topnode.addCircleObject(c);
+		topnode.moveCircleObject(c, x_new, y_new);
 	}
 	
 	/**Updates the Quadtree such that it stays the optimal size
@@ -96,6 +101,120 @@ public class Quadtree {
 		return in_view;
 	}
 
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#getObjectsWithinDistance(float, float, float, java.util.List)
+	 */
+	public void getObjectsWithinDistance(float x, float y, float distance, List<Circle> in_view) {
+		topnode.getObjectsWithinDistance(in_view, x, y, distance);
+	}
+
+	/**Adds a node or object to the search heap, keyed by the square of its distance
+	 */
+	private void heapPush(float key, Object item) {
+		if(heapKeys == null) {
+			heapKeys = new float[64];
+			heapItems = new Object[64];
+		}
+		if(heapSize == heapKeys.length) {
+			heapKeys = Arrays.copyOf(heapKeys, 2 * heapSize);
+			heapItems = Arrays.copyOf(heapItems, 2 * heapSize);
+		}
+		//sift up
+		int i = heapSize++;
+		while(i > 0) {
+			int parent = (i - 1) / 2;
+			if(heapKeys[parent] <= key)
+				break;
+			heapKeys[i] = heapKeys[parent];
+			heapItems[i] = heapItems[parent];
+			i = parent;
+		}
+		heapKeys[i] = key;
+		heapItems[i] = item;
+	}
+	
+	/**Removes and returns the nearest node or object from the search heap
+	 */
+	private Object heapPop() {
+		Object top = heapItems[0];
+		heapSize--;
+		float key = heapKeys[heapSize];
+		Object item = heapItems[heapSize];
+		heapItems[heapSize] = null;
+		//sift down
+		int i = 0;
+		while(2 * i + 1 < heapSize) {
+			int child = 2 * i + 1;
+			if(child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child])
+				child++;
+			if(key <= heapKeys[child])
+				break;
+			heapKeys[i] = heapKeys[child];
+			heapItems[i] = heapItems[child];
+			i = child;
+		}
+		if(heapSize > 0) {
+			heapKeys[i] = key;
+			heapItems[i] = item;
+		}
+		return top;
+	}
+	
+	/**Finds the k objects whose centers are nearest to (x, y), out of those accepted by the filter.
+	 * Nodes are visited in order of their distance, so only the nodes which could hold one of the nearest objects are looked at.
+	 * @param x x coordinate of the position to search from
+	 * @param y y coordinate of the position to search from
+	 * @param k number of objects to find
+	 * @param filter CircleFilter the objects must be accepted by, null to accept every object
+	 * @param nearest List<Circle> to add the objects to, nearest first
+	 */
+	public void getNearestObjects(float x, float y, int k, CircleFilter filter, List<Circle> nearest) {
+		int num_found = 0;
+		heapSize = 0;
+		heapPush(0.0f, topnode);
+		while(heapSize > 0 && num_found < k) {
+			Object item = heapPop();
+			//objects come off of the heap before any node which could hold something nearer
+			if(item instanceof Circle) {
+				nearest.add((Circle)item);
+				num_found++;
+				continue;
+			}
+			
+			QuadtreeNode n = (QuadtreeNode)item;
+			if(n.children[0] == null) {
+				for(int i = 0; i < n.getNumObjects(); i++) {
+					Circle c = n.getObject(i);
+					if(filter == null || filter.accept(c))
+						heapPush((c.getX() - x) * (c.getX() - x) + (c.getY() - y) * (c.getY() - y), c);
+				}
+			}
+			else {
+				for(QuadtreeNode child : n.children)
+					heapPush(child.getDistanceSquaredTo(x, y), child);
+			}
+		}
+		//don't hold on to anything between searches
+		while(heapSize > 0)
+			heapItems[--heapSize] = null;
+	}
+	
+	/**Finds the object whose center is nearest to (x, y), out of those accepted by the filter
+	 * @param x x coordinate of the position to search from
+	 * @param y y coordinate of the position to search from
+	 * @param filter CircleFilter the object must be accepted by, null to accept every object
+	 * @return the nearest object, null if there are none accepted by the filter
+	 */
+	public Circle getNearestObject(float x, float y, CircleFilter filter) {
+		if(nearestObject == null)
+			nearestObject = new ArrayList<Circle>(1);
+		nearestObject.clear();
+		getNearestObjects(x, y, 1, filter, nearestObject);
+		Circle c = nearestObject.isEmpty() ? null : nearestObject.get(0);
+		nearestObject.clear();
+		return c;
+	}
+
 	/**Recursively renders the quadtree.
 	 * Note that glBegin and glEnd must be called before and after this function, as it only
 	 * generates vertecies.
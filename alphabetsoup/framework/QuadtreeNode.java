@@ -1,6 +1,7 @@
 
 package alphabetsoup.framework;
 
+import java.io.Serializable;
 import java.util.*;
 
 import org.lwjgl.opengl.GL11;
@@ -8,7 +9,8 @@ import org.lwjgl.opengl.GL11;
 /**QuadtreeNode is the class that makes up the nodes of the Quadtree and performs recursive functions.
  * @author Chris Hazard
  */
-public class QuadtreeNode {
+public class QuadtreeNode implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	//using the shape below, with the 4 values representing the order of child nodes
 	// y1 \ x1...x2
@@ -19,8 +21,10 @@ public class QuadtreeNode {
 	HashSet<Circle> objects;
 	private Circle largestCircle = null;	//largest circle within the node
 	
-	//used by getShortestDistanceWithoutCollision() to iterate over the the contents of the HashSet objects 
-	static Circle staticDistanceArray[] = new Circle[Quadtree.divisionThreshold+1];
+	//contents of the HashSet objects in the same order, kept up to date whenever objects changes
+	// so that the objects of a leaf can be iterated over on every query without allocating an Iterator
+	private Circle objectArray[] = new Circle[Quadtree.divisionThreshold+1];
+	private int numObjects = 0;
 	
 	/**Constructs a QuadtreeNode
 	 * @param parent_node Parent QuadtreeNode, null if head node.
@@ -48,7 +52,8 @@ public class QuadtreeNode {
 	public boolean isValidMove(Circle c, float x_new, float y_new) {
 		//if leaf node, check all the objects contained within
 		if(children[0] == null) {
-			for(Circle o : objects) {
+			for(int i = 0; i < numObjects; i++) {
+				Circle o = objectArray[i];
 				//don't detect collision with self
 				if(c == o)
 					continue;
@@ -101,6 +106,7 @@ public class QuadtreeNode {
 
 		if(children[0] == null) {
 			objects.add(c);
+			updateObjectArray();
 		}
 		else {
 			//see if in left half
@@ -128,6 +134,7 @@ public class QuadtreeNode {
 		//if leaf node, remove circle, otherwise traverse subnodes
 		if(children[0] == null) {
 			objects.remove(c);
+			updateObjectArray();
 			
 			//get new largest circle
 			float largest_size = 0.0f;
@@ -171,42 +178,124 @@ public class QuadtreeNode {
 	 * @param c Circle to find objects within
 	 */
 	public void getObjectsWithinDistance(List<Circle> in_view, Circle c) {
+		getObjectsWithinDistance(in_view, c.getX(), c.getY(), c.getRadius());
+	}
+	
+	/**Populates in_view with the list of objects within the specified distance of (x, y),
+	 * without needing a Circle to be allocated for the query.
+	 * @param in_view List<Circle> to add objects within distance to.
+	 * @param x x coordinate of the center of the area to search
+	 * @param y y coordinate of the center of the area to search
+	 * @param distance distance from (x, y) to search
+	 */
+	public void getObjectsWithinDistance(List<Circle> in_view, float x, float y, float distance) {
 		if(children[0] == null) {
-			for(Circle o : objects)
-				if(o.IsCollision(c))
-					in_view.add(o);
+			for(int i = 0; i < numObjects; i++)
+				if(objectArray[i].IsCollision(x, y, distance))
+					in_view.add(objectArray[i]);
 			return;
 		}
 		
 		//find distance to search for another object (but make sure to include
 		// a padding to check for the nodes where an object may be overlapping
 		// two nodes (but don't pass this distance on to the collision detection itself)
-		float dist = c.getRadius();
+		float dist = distance;
 		if(largestCircle != null)
 			dist += largestCircle.getRadius();
 
 		//check to see if it's in any of the four quadrants
 		//see if in left half
-		if(c.getX() - dist <= x1 + (x2 - x1)/2) {
+		if(x - dist <= x1 + (x2 - x1)/2) {
 			//see if in top half
-			if(c.getY() - dist <= y1 + (y2 - y1)/2)
-				children[0].getObjectsWithinDistance(in_view, c);
+			if(y - dist <= y1 + (y2 - y1)/2)
+				children[0].getObjectsWithinDistance(in_view, x, y, distance);
 
 			//see if in bottom half
-			if(c.getY() + dist >= y1 + (y2 - y1)/2)
-				children[2].getObjectsWithinDistance(in_view, c);
+			if(y + dist >= y1 + (y2 - y1)/2)
+				children[2].getObjectsWithinDistance(in_view, x, y, distance);
 		}
 		
 		//see if in right half
-		if(c.getX() + dist >= x1 + (x2 - x1)/2) {
+		if(x + dist >= x1 + (x2 - x1)/2) {
 			//see if in top half
-			if(c.getY() - dist <= y1 + (y2 - y1)/2)
-				children[1].getObjectsWithinDistance(in_view, c);
+			if(y - dist <= y1 + (y2 - y1)/2)
+				children[1].getObjectsWithinDistance(in_view, x, y, distance);
 
 			//see if in bottom half
-			if(c.getY() + dist >= y1 + (y2 - y1)/2)
-				children[3].getObjectsWithinDistance(in_view, c);
+			if(y + dist >= y1 + (y2 - y1)/2)
+				children[3].getObjectsWithinDistance(in_view, x, y, distance);
+		}
+	}
+	
+	/**Recursively moves the specified Circle object to (x_new, y_new).  If the Circle stays
+	 * within the same leaf node, only its position is changed, so that moving doesn't
+	 * need to remove and reinsert it (which would allocate a new HashSet entry).
+	 * @param c Circle object to move.
+	 * @param x_new new x position
+	 * @param y_new new y position
+	 */
+	public void moveCircleObject(Circle c, float x_new, float y_new) {
+		if(children[0] == null) {
+			c.setX(x_new);	c.setY(y_new);
+			return;
 		}
+		
+		int old_child = getChildIndex(c.getX(), c.getY());
+		int new_child = getChildIndex(x_new, y_new);
+		if(old_child == new_child) {
+			children[old_child].moveCircleObject(c, x_new, y_new);
+			return;
+		}
+		children[old_child].removeCircleObject(c);
+		c.setX(x_new);	c.setY(y_new);
+		children[new_child].addCircleObject(c);
+	}
+	
+	/**Returns the index of the child node which contains the position,
+	 * using the same rules as addCircleObject and removeCircleObject
+	 * @param x x position
+	 * @param y y position
+	 * @return index of the child node
+	 */
+	private int getChildIndex(float x, float y) {
+		if(x < x1 + (x2 - x1)/2)
+			return (y < y1 + (y2 - y1)/2) ? 0 : 2;
+		return (y < y1 + (y2 - y1)/2) ? 1 : 3;
+	}
+	
+	/**Returns the square of the distance from the position to the nearest point of the area of this node,
+	 * 0 if the position is within it.  Since each object is in the node containing its center, this is a lower bound
+	 * on the square of the distance from the position to the center of any object within this node.
+	 * @param x x position
+	 * @param y y position
+	 * @return square of the distance
+	 */
+	float getDistanceSquaredTo(float x, float y) {
+		float dx = Math.max(0.0f, Math.max(x1 - x, x - x2));
+		float dy = Math.max(0.0f, Math.max(y1 - y, y - y2));
+		return dx * dx + dy * dy;
+	}
+	
+	/**
+	 * @return the number of objects in this node, 0 if it is not a leaf
+	 */
+	int getNumObjects() {
+		return numObjects;
+	}
+	
+	/**
+	 * @param i index of the object, from 0 to getNumObjects() - 1
+	 * @return the object
+	 */
+	Circle getObject(int i) {
+		return objectArray[i];
+	}
+	
+	/**Copies the contents of objects into objectArray, growing objectArray if needed
+	 */
+	private void updateObjectArray() {
+		objectArray = objects.toArray(objectArray);
+		numObjects = objects.size();
 	}
 	
 	/**reoptimizeNode recursively optimizes each node, adjusting the number of children and rearanging
@@ -227,6 +316,7 @@ public class QuadtreeNode {
 				addCircleObject(c);
 
 			objects.clear();
+			updateObjectArray();
 		}
 		
 		//update all children
@@ -270,12 +360,10 @@ public class QuadtreeNode {
 		}
 
 		//leaf node, so find shortest distances for each robot
-		staticDistanceArray = objects.toArray(staticDistanceArray);
-		
 		float min_distance = Float.POSITIVE_INFINITY;
 		for(int i = 0; i < objects.size() - 1; i++) {
 			
-			Circle c1 = staticDistanceArray[i];
+			Circle c1 = objectArray[i];
 			//only check moving objects
 			if(!c1.isMoving())
 				continue;
@@ -284,7 +372,7 @@ public class QuadtreeNode {
 
 			//find distance to closest other circle object
 			for(int j = i+1; j < objects.size(); j++) {
-				Circle c2 = staticDistanceArray[j];
+				Circle c2 = objectArray[j];
 				//only check moving objects
 				if(!c2.isMoving())
 					continue;
@@ -0,0 +1,99 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**RandomStreams hands out the random number generators used by the entities of a simulation.
+ * Each entity asks for a stream by name (e.g. "bucketbot") when it is constructed, and the streams
+ * of a name are numbered in the order they are asked for, which is fixed by the order the simulation is built in.<br>
+ * When the streams are independent, each (name, number) gets its own MersenneTwisterFast, seeded
+ * from a hash of the master seed, the name and the number, so an entity's draws don't depend on when
+ * or in what order the other entities draw theirs.  This keeps runs reproducible when entities are
+ * updated in a different order or at the same time, and lets the same streams be used when comparing
+ * different policies with the same seed.  When the streams are shared, every stream is the one generator of
+ * the SimulationContext, which is how the simulation has always drawn its random numbers.
+ */
+public class RandomStreams implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private MersenneTwisterFast shared;
+	private boolean independent = false;
+	private long masterSeed = 0;
+
+	//every independent stream handed out, so they can all be seeded again
+	private List<MersenneTwisterFast> streams = new ArrayList<MersenneTwisterFast>();
+	private List<String> streamNames = new ArrayList<String>();
+	private List<Integer> streamNumbers = new ArrayList<Integer>();
+	private HashMap<String, Integer> numStreams = new HashMap<String, Integer>();
+
+	/**Constructs a RandomStreams which shares the specified generator for every stream
+	 * @param shared_rand generator to hand out while the streams aren't independent
+	 */
+	public RandomStreams(MersenneTwisterFast shared_rand) {
+		shared = shared_rand;
+	}
+
+	/**Sets the master seed and whether the streams are independent.  Any independent streams
+	 * already handed out are seeded again from the new master seed.
+	 * @param master_seed seed all of the independent streams are derived from
+	 * @param independent_streams true to give each stream its own generator, false to share one
+	 */
+	public void setSeed(long master_seed, boolean independent_streams) {
+		masterSeed = master_seed;
+		independent = independent_streams;
+		for(int i = 0; i < streams.size(); i++)
+			streams.get(i).setSeed(getStreamSeed(streamNames.get(i), streamNumbers.get(i)));
+	}
+
+	/**Seeds the independent streams again from a new master seed
+	 * @param master_seed seed all of the independent streams are derived from
+	 */
+	public void setSeed(long master_seed) {
+		setSeed(master_seed, independent);
+	}
+
+	/**
+	 * @return true if each stream has its own generator
+	 */
+	public boolean isIndependent() {
+		return independent;
+	}
+
+	/**Returns the next stream of the specified name
+	 * @param name name of the kind of entity the stream is for
+	 * @return the stream's generator, which is the shared one unless the streams are independent
+	 */
+	public MersenneTwisterFast newStream(String name) {
+		if(!independent)
+			return shared;
+		Integer count = numStreams.get(name);
+		int number = (count == null) ? 0 : count;
+		numStreams.put(name, number + 1);
+
+		MersenneTwisterFast rand = new MersenneTwisterFast(getStreamSeed(name, number));
+		streams.add(rand);
+		streamNames.add(name);
+		streamNumbers.add(number);
+		return rand;
+	}
+
+	/**SplitMix64 finalizer, which spreads every bit of the input over the whole output
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**Returns the seed of the numbered stream of the name, derived from the master seed
+	 */
+	private int[] getStreamSeed(String name, int number) {
+		long a = mix(masterSeed ^ mix(name.hashCode()));
+		long b = mix(a + 0x9E3779B97F4A7C15L * (number + 1));
+		long c = mix(b + 0x9E3779B97F4A7C15L);
+		return new int[] {(int)(b >>> 32), (int)b, (int)(c >>> 32), (int)c};
+	}
+}
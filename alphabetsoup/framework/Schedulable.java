@@ -0,0 +1,19 @@
+/**
+ *
+ */
+package alphabetsoup.framework;
+
+/**Schedulable should be implemented by an Updateable whose update function performs no action at all
+ * while it is blocked (e.g. a Bucketbot picking up a Bucket, or a station transferring a Letter).
+ * When the UpdateScheduler is used, a Schedulable is not updated until the simulation reaches its wake time.
+ * If the blocking or event times of a Schedulable are changed from outside of its own update function,
+ * SimulationWorld.rescheduleUpdateable should be called so that its next event time is recomputed.
+ */
+public interface Schedulable extends Updateable {
+
+	/**Gets the time until which update will not perform any action
+	 * @return the absolute time at which update must next be called.  Double.NEGATIVE_INFINITY
+	 * indicates that update must be called every time the simulation advances.
+	 */
+	public double getWakeTime();
+}
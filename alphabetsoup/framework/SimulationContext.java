@@ -0,0 +1,70 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+import alphabetsoup.waypointgraph.WaypointGraph;
+
+/**SimulationContext holds everything that would otherwise be global to a single simulation:
+ * the random number generator and the streams handed out to entities, the SimulationWorld, its Map and its WaypointGraph.
+ * Each thread has its own current SimulationContext, so several SimulationWorlds can be
+ * built and run at the same time in one JVM as long as each one stays on its own thread.
+ * A SimulationWorld captures the current SimulationContext when it is constructed, and makes it
+ * current again whenever it is updated.
+ */
+public class SimulationContext implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static ThreadLocal<SimulationContext> currentContext = new ThreadLocal<SimulationContext>() {
+		protected SimulationContext initialValue() {
+			return new SimulationContext();
+		}
+	};
+
+	/**Returns the SimulationContext of the calling thread, creating a new one if the thread has none.
+	 * @return the current SimulationContext
+	 */
+	public static SimulationContext getCurrentContext() {
+		return currentContext.get();
+	}
+
+	/**Sets the SimulationContext used by the calling thread
+	 * @param context SimulationContext to make current, null to release the current one
+	 * (a new one will be created the next time one is needed)
+	 */
+	public static void setCurrentContext(SimulationContext context) {
+		if(context == null)
+			currentContext.remove();
+		else
+			currentContext.set(context);
+	}
+
+	public MersenneTwisterFast rand = new MersenneTwisterFast();
+	public RandomStreams randomStreams = new RandomStreams(rand);
+	public SimulationWorld simulationWorld = null;
+	public Map map = null;
+	public WaypointGraph waypointGraph = null;
+
+	/**parameters which take precedence over those loaded from the configuration file
+	 */
+	private Properties parameterOverrides = new Properties();
+
+	/**
+	 * @return the parameters which will override those loaded from the configuration file
+	 */
+	public Properties getParameterOverrides() {
+		return parameterOverrides;
+	}
+
+	/**Sets a parameter which will override the value loaded from the configuration file
+	 * when the next SimulationWorld is constructed with this context
+	 * @param key name of the parameter
+	 * @param value value of the parameter
+	 */
+	public void setParameterOverride(String key, String value) {
+		parameterOverrides.setProperty(key, value);
+	}
+}
@@ -3,19 +3,28 @@
  */
 package alphabetsoup.framework;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.*;
 import java.lang.reflect.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import alphabetsoup.base.BucketbotKinematics;
+import alphabetsoup.base.LatencyRecorder;
+import alphabetsoup.base.TelemetryRecorder;
 
 /**SimulationWorld is the base class of the AlphabetSoup simulation itself.
  * This class should be extended to load and initialize all of the entities within
  * AlphabetSoup.  SimulationWorld contains these entities and updates them all accordingly
- * to advance the simulation forward in time.
+ * to advance the simulation forward in time.<br>
+ * The whole state of a SimulationWorld, along with its SimulationContext, can be saved to a checkpoint
+ * and loaded again later, so that runs can start from a warmed up simulation instead of warming up again.
  * @author Chris Hazard
  */
-public class SimulationWorld {
+public class SimulationWorld implements Serializable {
+	private static final long serialVersionUID = 1L;
 	
 	public Bucketbot bucketbots[] = null;
 	public LetterStation letterStations[] = null;
@@ -27,15 +36,71 @@ public class SimulationWorld {
 	
 	protected List<Updateable> updateables;
 	
+	/**if useEventScheduler is true, updateScheduler only updates updateables with pending events,
+	 * instead of scanning all updateables each step
+	 */
+	protected boolean useEventScheduler = false;
+	protected UpdateScheduler updateScheduler = null;
+	
+	/**if bucketbotKinematics is not null, the kinematic state of all of the bucketbots is kept in its arrays,
+	 * and their velocities are all computed together at the start of each step (and their moves resolved together,
+	 * if bucketbot_movement is batched or kinetic)
+	 */
+	protected BucketbotKinematics bucketbotKinematics = null;
+	
+	/**if outputAnalyzer is not null, it finds the end of warmup and how long to run from the completed words and letters,
+	 * and the simulation_warmup_time and simulation_duration are only the longest times to run
+	 */
+	protected OutputAnalyzer outputAnalyzer = null;
+	
+	/**warmup_time the simulation was warmed up with before it was saved to a checkpoint, which a simulation
+	 * loading the checkpoint must be warming up for too (with an OutputAnalyzer, the longest time to warm up for,
+	 * so the warmup found is the same)
+	 */
+	private double checkpointWarmupTime = Double.NaN;
+	
+	/**if telemetry is not null, it samples the simulation after each step and writes the samples to the telemetry_file
+	 */
+	protected transient TelemetryRecorder telemetry = null;
+	
+	/**if updateProfiler is not null, the wall clock time of each phase of each step, and of the calls to each class
+	 * of Updateable, is accumulated in it
+	 */
+	protected UpdateProfiler updateProfiler = null;
+	
+	/**if latencyRecorder is not null, the cycle time of each word and the lead time of each bucketbot task are recorded in it
+	 */
+	protected LatencyRecorder latencyRecorder = null;
+	
 	private double currentTime = 0.0;
 	private double statisticsTime = 0.0;
+	private long numSteps = 0;
 	
 	/**letterColors is the list of probabilities of each color.
 	 * the colorID is the color's index into this list.
 	 */
 	protected List<LetterColor> letterColors;
 
-	public static MersenneTwisterFast rand = new MersenneTwisterFast();
+	/**context which holds the random number generator and other per-simulation globals of this SimulationWorld
+	 */
+	protected SimulationContext context;
+	
+	/**
+	 * @return the random number generator of the current thread's simulation
+	 */
+	public static MersenneTwisterFast getRand() {
+		return SimulationContext.getCurrentContext().rand;
+	}
+	
+	/**Entities should get their random number generator from this when they are constructed,
+	 * instead of drawing from getRand(), so that they can each be given their own stream.
+	 * @see RandomStreams#newStream(String)
+	 * @param name name of the kind of entity the stream is for
+	 * @return the next stream of the name from the current thread's simulation
+	 */
+	public static MersenneTwisterFast newRandomStream(String name) {
+		return SimulationContext.getCurrentContext().randomStreams.newStream(name);
+	}
 	
 	protected boolean usingGUI;
 
@@ -45,9 +110,8 @@ public class SimulationWorld {
 
 	protected Properties params;	//parameters of the simulation
 	
-	protected static SimulationWorld simulationWorld;
 	public static SimulationWorld getSimulationWorld() {
-		return simulationWorld;
+		return SimulationContext.getCurrentContext().simulationWorld;
 	}
 	
 	public void resetStatistics() {
@@ -62,6 +126,8 @@ public class SimulationWorld {
 		for(Bucket b : buckets)
 			b.resetStatistics();
 		wordList.resetStatistics();
+		if(latencyRecorder != null)
+			latencyRecorder.resetStatistics();
 	}
 
 	public SimulationWorld() {};
@@ -71,7 +137,8 @@ public class SimulationWorld {
 	 * @param configuration_file_name path of the configuration file to load
 	 */
 	public SimulationWorld(String configuration_file_name) {
-		simulationWorld = this;
+		context = SimulationContext.getCurrentContext();
+		context.simulationWorld = this;
 		
 		//load in parameters from configuration file
 		params = new Properties();
@@ -81,6 +148,7 @@ public class SimulationWorld {
 			//InputStream fis = this.getClass().getResourceAsStream(configuration_file_name);
 			params.load(fis);
 		} catch(Throwable e) { System.out.println("could not open alphabetsoup.config"); System.exit(1); }
+		params.putAll(context.getParameterOverrides());
 		
 		float map_width = Float.parseFloat(params.getProperty("map_width"));
 		float map_length = Float.parseFloat(params.getProperty("map_length"));
@@ -88,10 +156,54 @@ public class SimulationWorld {
 		float max_acceleration = Float.parseFloat( params.getProperty("max_acceleration"));
 		float max_velocity = Float.parseFloat( params.getProperty("max_velocity"));
 		map = new Map(map_width, map_length, tolerance, max_acceleration, max_velocity);
+		context.map = map;
+		
+		//use uniform grids instead of quadtrees if specified, with cells big enough to hold the largest object
+		if(params.getProperty("spatial_index", "quadtree").equals("grid")) {
+			float cell_size = 2 * Math.max(Float.parseFloat(params.getProperty("bucketbot_size")),
+											Float.parseFloat(params.getProperty("bucket_size")));
+			map.setSpatialIndexes(new UniformGrid(map_width, map_length, cell_size),
+									new UniformGrid(map_width, map_length, cell_size));
+		}
+		//or loose quadtrees, which move objects in place and only rebalance the nodes that need it
+		if(params.getProperty("spatial_index", "quadtree").equals("loose_quadtree"))
+			map.setSpatialIndexes(new LooseQuadtree(map_width, map_length), new LooseQuadtree(map_width, map_length));
+		
+		useEventScheduler = (Integer.parseInt(params.getProperty("use_event_scheduler", "0")) == 1);
+		
+		//kinetic motion only updates bucketbots at their own events, and certifies each one as it needs to
+		if(params.getProperty("bucketbot_movement", "sequential").equals("kinetic")) {
+			useEventScheduler = true;
+			map.useKineticCertificates(Double.parseDouble(params.getProperty("collision_certificate_horizon", "0.5")));
+		}
+		//otherwise bound each step by the time until anything could touch, if specified
+		else if(params.getProperty("collision_time_bound", "diameter").equals("certificates"))
+			map.useCollisionCertificates(Double.parseDouble(params.getProperty("collision_certificate_horizon", "0.5")));
+		
+		//measure where the time of each step goes, if specified
+		if(Integer.parseInt(params.getProperty("profile_updates", "0")) == 1)
+			updateProfiler = new UpdateProfiler();
+		
+		//record the distributions of word cycle times and task lead times, if specified
+		if(Integer.parseInt(params.getProperty("latency_histograms", "0")) == 1)
+			latencyRecorder = new LatencyRecorder();
 		
-		long random_seed = Integer.parseInt(params.getProperty("random_seed"));
+		//decide the warmup and run length from the output, if specified
+		if(Integer.parseInt(params.getProperty("output_analysis", "0")) == 1)
+			outputAnalyzer = new OutputAnalyzer(Double.parseDouble(params.getProperty("output_analysis_interval", "5.0")),
+										Double.parseDouble(params.getProperty("output_analysis_precision", "0.05")),
+										Integer.parseInt(params.getProperty("output_analysis_batches", "20")));
+		
+		long random_seed = Long.parseLong(params.getProperty("random_seed"));
 		if(random_seed != 0)
-			rand.setSeed(random_seed);
+			context.rand.setSeed(random_seed);
+		
+		//give each entity its own stream of random numbers derived from the seed, if specified
+		boolean independent_streams = params.getProperty("random_streams", "shared").equals("independent");
+		long master_seed = random_seed;
+		if(independent_streams && master_seed == 0)
+			master_seed = context.rand.nextLong();
+		context.randomStreams.setSeed(master_seed, independent_streams);
 		
 		wordList = (WordList)createClass(params.getProperty("word_list_class"));
 		
@@ -155,35 +267,273 @@ public class SimulationWorld {
 	 * @param elapsed_time relative time to move the system forward
 	 */
 	public void update(double elapsed_time) {
+		//this world may be run on a different thread than it was built on
+		SimulationContext.setCurrentContext(context);
 		
 		//don't want to update less than the time required for something to move past 
 		// 1/3 of the tolerance in a given time interval
 		float minimumUpdateTime = map.getTolerance()/3 / map.getMaxVelocity();
 		
+		//build the scheduler the first time it is needed, after all updateables have been added
+		if(updateScheduler == null) {
+			//the shared kinematics must be updated before any of the bucketbots
+			String movement = (params == null) ? "sequential" : params.getProperty("bucketbot_movement", "sequential");
+			if(params != null && (params.getProperty("bucketbot_kinematics", "objects").equals("arrays")
+					|| movement.equals("batched") || movement.equals("kinetic"))) {
+				bucketbotKinematics = new BucketbotKinematics(bucketbots);
+				if(movement.equals("batched") || movement.equals("kinetic"))
+					bucketbotKinematics.setMoveResolution(map,
+							Integer.parseInt(params.getProperty("bucketbot_movement_threads", "1")),
+							movement.equals("kinetic"));
+				updateables.add(0, bucketbotKinematics);
+			}
+			updateScheduler = new UpdateScheduler(updateables, useEventScheduler);
+			updateScheduler.setProfiler(updateProfiler);
+		}
+		
+		//start recording the telemetry the first time it is needed, if specified
+		if(telemetry == null && params != null && params.getProperty("telemetry_file", "").length() > 0) {
+			try {
+				telemetry = new TelemetryRecorder(this, params.getProperty("telemetry_file"),
+										Double.parseDouble(params.getProperty("telemetry_interval", "1.0")),
+										Integer.parseInt(params.getProperty("telemetry_buffer_rows", "4096")));
+			} catch(IOException e) {
+				System.out.println("could not write telemetry file " + params.getProperty("telemetry_file") + ". " + e);
+				params.setProperty("telemetry_file", "");
+			}
+		}
+		
 		double update_finish_time = currentTime + elapsed_time;
 		while(currentTime < update_finish_time) {
+			//measure each phase of the step, if profiling
+			UpdateProfiler.StepEvent step_event = null;
+			long phase_start = 0;
+			if(updateProfiler != null) {
+				step_event = updateProfiler.beginStep();
+				phase_start = System.nanoTime();
+			}
 			
 			//get the next event time
 			double next_time = update_finish_time;
 
 			//find the time of the earliest next event
-			for(Updateable u : updateables)
-				next_time = Math.min(u.getNextEventTime(currentTime), next_time);
+			next_time = Math.min(updateScheduler.getNextEventTime(currentTime), next_time);
+			if(updateProfiler != null)
+				phase_start = updateProfiler.endPhase(UpdateProfiler.nextEventPhase, phase_start);
 			
 			//see if a potential collision will happen before the next event
-			double min_time_delta = Math.min( map.getShortestTimeWithoutCollision(), next_time - currentTime);
+			double min_time_delta = Math.min( map.getShortestTimeWithoutCollision(currentTime), next_time - currentTime);
 			min_time_delta = Math.max(min_time_delta, minimumUpdateTime);	//make sure update rate never gets too slow
 
 			//update by at least a the minimum, but don't go past the next time
 			next_time = Math.min(update_finish_time, currentTime + min_time_delta);
+			if(updateProfiler != null)
+				phase_start = updateProfiler.endPhase(UpdateProfiler.collisionPhase, phase_start);
 
 			//run up til the next event
-			for(Updateable u : updateables)
-				u.update(currentTime, next_time);
+			updateScheduler.update(currentTime, next_time);
+			if(updateProfiler != null)
+				phase_start = updateProfiler.endPhase(UpdateProfiler.updatePhase, phase_start);
 			
+			double last_time = currentTime;
 			currentTime = next_time;
+			numSteps++;
+			
+			if(telemetry != null)
+				telemetry.sample(this, currentTime);
+			
+			if(updateProfiler != null) {
+				updateProfiler.endPhase(UpdateProfiler.telemetryPhase, phase_start);
+				updateProfiler.endStep(step_event, currentTime, currentTime - last_time);
+			}
+		}
+	}
+	
+	/**Runs the simulation for the warmup time and then resets the statistics.  If the checkpoint_file parameter
+	 * is set and the file exists, the warmed up simulation is loaded from it instead of being run, otherwise the
+	 * warmed up simulation is saved to it.  A checkpoint which can't be loaded, is of a different simulation, or was made with
+	 * different parameters (other than those in checkpointIgnoredParams) or a different warmup_time is left alone.  If this simulation has a different random_seed than the one the checkpoint
+	 * was made with, the random number generator of the loaded simulation is reseeded with it, so that replications
+	 * with different seeds can all start from the same warm state.<br>
+	 * Loading a checkpoint assigns new identity hash codes, which changes the iteration order of hashed
+	 * collections of simulation objects, and so a loaded simulation does not always follow exactly the same course
+	 * as the one that was saved.  So after saving, the run continues from the checkpoint just like every later run will.<br>
+	 * If there is an OutputAnalyzer, it warms up until it finds the end of the initial transient, for at most warmup_time.
+	 * @param warmup_time amount of time to warm up for
+	 * @return the warmed up SimulationWorld, which is the one loaded from the checkpoint if there was one
+	 */
+	public SimulationWorld warmUp(double warmup_time) {
+		String checkpoint_file = params.getProperty("checkpoint_file", "");
+		//if the checkpoint can't be used, just warm up, and leave it alone
+		boolean checkpoint_exists = (checkpoint_file.length() > 0 && new File(checkpoint_file).exists());
+		if(checkpoint_exists) {
+			SimulationWorld sw = loadWarmCheckpoint(checkpoint_file, warmup_time);
+			if(sw != null) {
+				sw.telemetry = telemetry;
+				return sw;
+			}
+		}
+
+		if(outputAnalyzer != null)
+			outputAnalyzer.warmUp(this, warmup_time);
+		else {
+			update(warmup_time);
+			resetStatistics();
+		}
+
+		if(checkpoint_file.length() > 0 && !checkpoint_exists) {
+			checkpointWarmupTime = warmup_time;
+			try {
+				saveCheckpoint(checkpoint_file);
+			} catch(IOException e) {
+				System.out.println("could not save checkpoint " + checkpoint_file + ". " + e);
+				return this;
+			}
+			SimulationWorld sw = loadWarmCheckpoint(checkpoint_file, warmup_time);
+			if(sw != null) {
+				//the loaded simulation carries on the same telemetry
+				sw.telemetry = telemetry;
+				return sw;
+			}
+		}
+		return this;
+	}
+
+	/**Warms up and then runs the simulation without user interface.  If there is an OutputAnalyzer,
+	 * it decides how long to run, for at most simulation_time, otherwise it runs for simulation_time.
+	 * @see #warmUp(double)
+	 * @param warmup_time amount of time to warm up for
+	 * @param simulation_time amount of time to run for after warming up
+	 * @return the SimulationWorld that was run, which is the one loaded from the checkpoint if there was one
+	 */
+	public SimulationWorld run(double warmup_time, double simulation_time) {
+		SimulationWorld sw = warmUp(warmup_time);
+		if(sw.outputAnalyzer != null)
+			sw.outputAnalyzer.run(sw, simulation_time);
+		else
+			sw.update(simulation_time);
+		if(sw.telemetry != null)
+			sw.telemetry.close();
+		return sw;
+	}
+
+	/**parameters which may differ between a checkpoint and the simulation loading it, since they don't change the warmed up state
+	 * (the warmup_time given to warmUp is checked instead of simulation_warmup_time)
+	 */
+	public static final String checkpointIgnoredParams[] = {"random_seed", "checkpoint_file", "telemetry_file",
+															"simulation_duration", "simulation_warmup_time"};
+
+	/**Returns the first parameter which is different in the checkpoint than in this simulation, ignoring checkpointIgnoredParams
+	 * @param checkpoint_params parameters the checkpoint was made with
+	 * @return a description of the difference, or null if there is none
+	 */
+	private String getCheckpointParamDifference(Properties checkpoint_params) {
+		Set<String> names = new TreeSet<String>(params.stringPropertyNames());
+		names.addAll(checkpoint_params.stringPropertyNames());
+		names.removeAll(Arrays.asList(checkpointIgnoredParams));
+		for(String name : names) {
+			String value = params.getProperty(name), checkpoint_value = checkpoint_params.getProperty(name);
+			if(value == null ? checkpoint_value != null : !value.equals(checkpoint_value))
+				return name + "=" + checkpoint_value + ", not " + value;
+		}
+		return null;
+	}
+
+	/**Loads the checkpoint for warmUp, reseeding it if this simulation's random_seed is different
+	 * @param checkpoint_file name of the checkpoint file
+	 * @param warmup_time amount of time this simulation is to be warmed up for
+	 * @return the loaded SimulationWorld, or null if it couldn't be loaded, is a different simulation,
+	 * or was made with different parameters or warmup_time, in which case this SimulationWorld's context is left as the current one
+	 */
+	private SimulationWorld loadWarmCheckpoint(String checkpoint_file, double warmup_time) {
+		SimulationWorld sw;
+		try {
+			sw = loadCheckpoint(checkpoint_file);
+		} catch(IOException e) {
+			System.out.println("could not load checkpoint " + checkpoint_file + ". " + e);
+			SimulationContext.setCurrentContext(context);
+			return null;
+		}
+		if(sw.getClass() != getClass()) {
+			System.out.println("checkpoint " + checkpoint_file + " is of " + sw.getClass().getName() + ", not " + getClass().getName());
+			SimulationContext.setCurrentContext(context);
+			return null;
+		}
+		String difference = getCheckpointParamDifference(sw.params);
+		if(difference != null) {
+			System.out.println("checkpoint " + checkpoint_file + " was made with " + difference);
+			SimulationContext.setCurrentContext(context);
+			return null;
+		}
+		if(sw.checkpointWarmupTime != warmup_time) {
+			if(outputAnalyzer != null)
+				System.out.println("checkpoint " + checkpoint_file + " was warmed up for at most " + sw.checkpointWarmupTime
+						+ " (until " + sw.getCurrentTime() + "), not at most " + warmup_time);
+			else
+				System.out.println("checkpoint " + checkpoint_file + " was warmed up for " + sw.checkpointWarmupTime + ", not " + warmup_time);
+			SimulationContext.setCurrentContext(context);
+			return null;
+		}
+		String random_seed = params.getProperty("random_seed");
+		if(Long.parseLong(random_seed) != 0 && !random_seed.equals(sw.params.getProperty("random_seed"))) {
+			sw.context.rand.setSeed(Long.parseLong(random_seed));
+			sw.context.randomStreams.setSeed(Long.parseLong(random_seed));
+		}
+		return sw;
+	}
+
+	/**Writes the whole state of the simulation to a checkpoint file, which is the SimulationContext
+	 * (and so this SimulationWorld and the random number generator) as a gzipped serialization stream.
+	 * The file is written under a temporary name and then renamed, so other runs never see a partially written checkpoint.
+	 * Every serializable class has a fixed serialVersionUID, so a checkpoint can still be loaded after the simulation is
+	 * rebuilt, as long as the fields of its classes haven't been changed incompatibly.
+	 * @param file_name name of the checkpoint file
+	 */
+	public void saveCheckpoint(String file_name) throws IOException {
+		File file = new File(file_name).getAbsoluteFile();
+		File temp_file = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		try {
+			ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+											new GZIPOutputStream(new FileOutputStream(temp_file))));
+			try {
+				out.writeObject(context);
+			} finally {
+				out.close();
+			}
+			Files.move(temp_file.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp_file.delete();
 		}
 	}
+
+	/**Loads a simulation from a checkpoint file written by saveCheckpoint, and makes its SimulationContext
+	 * the current one of the calling thread.
+	 * @param file_name name of the checkpoint file
+	 * @return the SimulationWorld, in the same state as when it was saved
+	 */
+	public static SimulationWorld loadCheckpoint(String file_name) throws IOException {
+		SimulationContext loaded_context;
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+										new GZIPInputStream(new FileInputStream(file_name))));
+		try {
+			loaded_context = (SimulationContext)in.readObject();
+		} catch(ClassNotFoundException e) {
+			throw new InvalidClassException("checkpoint " + file_name + " was not saved by this simulation: " + e);
+		} finally {
+			in.close();
+		}
+		SimulationContext.setCurrentContext(loaded_context);
+		return loaded_context.simulationWorld;
+	}
+	
+	/**Should be called whenever the event or blocking times of an Updateable are changed by something
+	 * other than its own update function, so that the UpdateScheduler will recompute its next event time.
+	 * @param u Updateable which has changed
+	 */
+	public void rescheduleUpdateable(Updateable u) {
+		if(updateScheduler != null)
+			updateScheduler.markDirty(u);
+	}
 	
 	/**populates buckets with completely random inventory
 	 * @param initial_inventory fraction of total capacity that should be full in the range of [0,1]
@@ -192,6 +542,7 @@ public class SimulationWorld {
 	public void initializeBucketContentsRandom(float initial_inventory, int bundle_size) {
 		int initial_num_letter_bundles = (int)(initial_inventory
 				* buckets.length * buckets[0].getCapacity() / bundle_size + 0.5f);
+		MersenneTwisterFast rand = newRandomStream("bucket_contents");
 		for(int i = 0; i < initial_num_letter_bundles; i++) {
 			while(true) {
 				//pick random bucket
@@ -312,6 +663,48 @@ public class SimulationWorld {
 	public double getCurrentTime() {
 		return currentTime;
 	}
+	
+	/**
+	 * @return the Updateables of the simulation, in the order they are updated
+	 */
+	public List<Updateable> getUpdateables() {
+		return updateables;
+	}
+	
+	/**
+	 * @return the OutputAnalyzer deciding the warmup and run length, null if they are fixed
+	 */
+	public OutputAnalyzer getOutputAnalyzer() {
+		return outputAnalyzer;
+	}
+	
+	/**
+	 * @return the TelemetryRecorder sampling the simulation, null if there is no telemetry_file
+	 */
+	public TelemetryRecorder getTelemetry() {
+		return telemetry;
+	}
+	
+	/**
+	 * @return the UpdateProfiler measuring the steps, null if profile_updates is off
+	 */
+	public UpdateProfiler getUpdateProfiler() {
+		return updateProfiler;
+	}
+	
+	/**
+	 * @return the LatencyRecorder of the word cycle times and task lead times, null if latency_histograms is off
+	 */
+	public LatencyRecorder getLatencyRecorder() {
+		return latencyRecorder;
+	}
+	
+	/**
+	 * @return the number of steps the simulation has been moved forward in
+	 */
+	public long getNumSteps() {
+		return numSteps;
+	}
 
 	/**
 	 * @return Returns the usingGUI.
@@ -320,6 +713,20 @@ public class SimulationWorld {
 		return usingGUI;
 	}
 
+	/**
+	 * @return the SimulationContext of this SimulationWorld
+	 */
+	public SimulationContext getContext() {
+		return context;
+	}
+
+	/**
+	 * @return the UpdateScheduler, null until the first call to update
+	 */
+	public UpdateScheduler getUpdateScheduler() {
+		return updateScheduler;
+	}
+
 	/**
 	 * @return the statisticsTime
 	 */
@@ -0,0 +1,58 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**SpatialIndex is a structure which keeps track of the locations of Circles,
+ * used by Map for fast lookup of local interactions between objects.
+ */
+public interface SpatialIndex extends Serializable {
+
+	/**Adds a circle object to the SpatialIndex
+	 * @param c circle object to add
+	 */
+	public void addCircleObject(Circle c);
+
+	/**Removes a circle object from the SpatialIndex
+	 * @param c circle object to remove
+	 */
+	public void removeCircleObject(Circle c);
+
+	/**Returns true if Circle c moving to location x_new, y_new will not collide with another Circle,
+	 * false if it will collide.
+	 * @param c Circle to check against for collisions.
+	 * @param x_new new x position.
+	 * @param y_new new y position.
+	 * @return true if the move is valid
+	 */
+	public boolean isValidMove(Circle c, float x_new, float y_new);
+
+	/**Moves Circle c from its current location to the position specified by x_new, y_new
+	 * @param c Circle to move
+	 * @param x_new new x position
+	 * @param y_new new y position
+	 */
+	public void moveTo(Circle c, float x_new, float y_new);
+
+	/**Performs any periodic maintenance the structure needs to stay efficient as objects move
+	 */
+	public void updateTree();
+
+	/**Returns a list of objects within the specified Circle.
+	 * @param c Circle to find objects within
+	 * @return List<Circle> containing all objects within the specified bounds
+	 */
+	public List<Circle> getObjectsWithinCircle(Circle c);
+
+	/**Adds the objects within the specified distance of (x, y) to in_view,
+	 * without allocating anything for the query itself.
+	 * @param x x coordinate of the center of the area to search
+	 * @param y y coordinate of the center of the area to search
+	 * @param distance distance from (x, y) to search
+	 * @param in_view List<Circle> to add the objects to
+	 */
+	public void getObjectsWithinDistance(float x, float y, float distance, List<Circle> in_view);
+}
@@ -0,0 +1,22 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+/**TelemetrySource should be implemented by an Updateable which has its own values to be recorded over time
+ * by the telemetry recorder (e.g. the prices of a market), along with the values recorded for every simulation.
+ * Sampling must not change anything in the simulation.
+ */
+public interface TelemetrySource {
+
+	/**
+	 * @return the names of the values to record, which must not change
+	 */
+	public String[] getTelemetryNames();
+
+	/**Puts the current values into the array, in the order of their names
+	 * @param values array to put the values into
+	 * @param offset index in values of the first value
+	 */
+	public void sampleTelemetry(double values[], int offset);
+}
@@ -0,0 +1,209 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.util.*;
+
+/**UniformGrid divides the area into square cells of equal size, and keeps the Circles
+ * of each cell in a linked list stored in flat int arrays, such that moving a Circle
+ * only has to relink it when it crosses into another cell, and a query only has to
+ * look at the few cells around its location.  It works best when the cell size is
+ * on the order of the diameter of the Circles it holds, which is the case for the
+ * bucketbots and buckets of a Map, all of which have the same size.
+ */
+public class UniformGrid implements SpatialIndex {
+	private static final long serialVersionUID = 1L;
+
+	private float cellSize;
+	private int numColumns, numRows;
+	private int cellHead[];		//first slot in each cell, -1 if the cell is empty
+
+	//each Circle is kept in a slot, and the slots of a cell are doubly linked
+	private Circle slotObject[];
+	private int slotCell[];
+	private int slotNext[];		//next slot in the same cell, or next free slot
+	private int slotPrev[];
+	private int numSlots = 0;
+	private int freeSlot = -1;	//head of the list of free slots
+
+	private IdentityHashMap<Circle, Integer> slots = new IdentityHashMap<Circle, Integer>();
+
+	/**Largest radius of any Circle added, which is how far beyond a query an object may reach
+	 */
+	private float largestRadius = 0.0f;
+
+	/**Constructs a UniformGrid with the dimensions specified.
+	 * @param width Width of the UniformGrid area
+	 * @param height Height of the UniformGrid area
+	 * @param cell_size width and height of each cell
+	 */
+	public UniformGrid(float width, float height, float cell_size) {
+		cellSize = cell_size;
+		numColumns = Math.max(1, (int)Math.ceil(width / cell_size));
+		numRows = Math.max(1, (int)Math.ceil(height / cell_size));
+		cellHead = new int[numColumns * numRows];
+		Arrays.fill(cellHead, -1);
+
+		int capacity = 16;
+		slotObject = new Circle[capacity];
+		slotCell = new int[capacity];
+		slotNext = new int[capacity];
+		slotPrev = new int[capacity];
+	}
+
+	/**Returns the column containing the x position, clamped to the grid
+	 */
+	private int getColumn(float x) {
+		int column = (int)(x / cellSize);
+		if(column < 0)	return 0;
+		if(column >= numColumns)	return numColumns - 1;
+		return column;
+	}
+
+	/**Returns the row containing the y position, clamped to the grid
+	 */
+	private int getRow(float y) {
+		int row = (int)(y / cellSize);
+		if(row < 0)	return 0;
+		if(row >= numRows)	return numRows - 1;
+		return row;
+	}
+
+	/**Inserts the slot at the head of the list of the specified cell
+	 */
+	private void link(int slot, int cell) {
+		slotCell[slot] = cell;
+		slotPrev[slot] = -1;
+		slotNext[slot] = cellHead[cell];
+		if(cellHead[cell] != -1)
+			slotPrev[cellHead[cell]] = slot;
+		cellHead[cell] = slot;
+	}
+
+	/**Removes the slot from the list of its cell
+	 */
+	private void unlink(int slot) {
+		if(slotPrev[slot] != -1)
+			slotNext[slotPrev[slot]] = slotNext[slot];
+		else
+			cellHead[slotCell[slot]] = slotNext[slot];
+		if(slotNext[slot] != -1)
+			slotPrev[slotNext[slot]] = slotPrev[slot];
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#addCircleObject(alphabetsoup.framework.Circle)
+	 */
+	public void addCircleObject(Circle c) {
+		if(slots.containsKey(c))
+			return;
+
+		int slot;
+		if(freeSlot != -1) {
+			slot = freeSlot;
+			freeSlot = slotNext[slot];
+		}
+		else {
+			if(numSlots == slotObject.length) {
+				int capacity = 2 * slotObject.length;
+				slotObject = Arrays.copyOf(slotObject, capacity);
+				slotCell = Arrays.copyOf(slotCell, capacity);
+				slotNext = Arrays.copyOf(slotNext, capacity);
+				slotPrev = Arrays.copyOf(slotPrev, capacity);
+			}
+			slot = numSlots++;
+		}
+
+		slotObject[slot] = c;
+		slots.put(c, slot);
+		link(slot, getRow(c.getY()) * numColumns + getColumn(c.getX()));
+		largestRadius = Math.max(largestRadius, c.getRadius());
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#removeCircleObject(alphabetsoup.framework.Circle)
+	 */
+	public void removeCircleObject(Circle c) {
+		Integer slot = slots.remove(c);
+		if(slot == null)
+			return;
+		unlink(slot);
+		slotObject[slot] = null;
+		slotNext[slot] = freeSlot;
+		freeSlot = slot;
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#isValidMove(alphabetsoup.framework.Circle, float, float)
+	 */
+	public boolean isValidMove(Circle c, float x_new, float y_new) {
+		float reach = c.getRadius() + largestRadius;
+		int column_start = getColumn(x_new - reach), column_end = getColumn(x_new + reach);
+		int row_start = getRow(y_new - reach), row_end = getRow(y_new + reach);
+		for(int row = row_start; row <= row_end; row++)
+			for(int column = column_start; column <= column_end; column++)
+				for(int slot = cellHead[row * numColumns + column]; slot != -1; slot = slotNext[slot]) {
+					Circle o = slotObject[slot];
+					//don't detect collision with self
+					if(c == o)
+						continue;
+					if(o.IsCollision(x_new, y_new, c.getRadius()))
+						return false;
+				}
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#moveTo(alphabetsoup.framework.Circle, float, float)
+	 */
+	public void moveTo(Circle c, float x_new, float y_new) {
+		c.setX(x_new);	c.setY(y_new);
+		Integer slot = slots.get(c);
+		if(slot == null)
+			return;
+		//only need to relink if it moved into another cell
+		int cell = getRow(y_new) * numColumns + getColumn(x_new);
+		if(cell != slotCell[slot]) {
+			unlink(slot);
+			link(slot, cell);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#updateTree()
+	 */
+	public void updateTree() {
+		//cells never change, so there's nothing to rebalance
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#getObjectsWithinCircle(alphabetsoup.framework.Circle)
+	 */
+	public List<Circle> getObjectsWithinCircle(Circle c) {
+		List<Circle> in_view = new ArrayList<Circle>();
+		getObjectsWithinDistance(c.getX(), c.getY(), c.getRadius(), in_view);
+		return in_view;
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.SpatialIndex#getObjectsWithinDistance(float, float, float, java.util.List)
+	 */
+	public void getObjectsWithinDistance(float x, float y, float distance, List<Circle> in_view) {
+		float reach = distance + largestRadius;
+		int column_start = getColumn(x - reach), column_end = getColumn(x + reach);
+		int row_start = getRow(y - reach), row_end = getRow(y + reach);
+		for(int row = row_start; row <= row_end; row++)
+			for(int column = column_start; column <= column_end; column++)
+				for(int slot = cellHead[row * numColumns + column]; slot != -1; slot = slotNext[slot])
+					if(slotObject[slot].IsCollision(x, y, distance))
+						in_view.add(slotObject[slot]);
+	}
+
+	/**
+	 * @return the width and height of each cell
+	 */
+	public float getCellSize() {
+		return cellSize;
+	}
+}
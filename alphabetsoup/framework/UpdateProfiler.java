@@ -0,0 +1,219 @@
+/**
+ * 
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+import java.text.DecimalFormat;
+import java.util.*;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**UpdateProfiler accumulates where the wall clock time of SimulationWorld.update goes.  Each step is split into
+ * phases (the scan for the next event time, the collision bound, the updates, and the telemetry), and within the
+ * next event scan and the updates, the time and number of calls are accumulated for each class of Updateable
+ * (e.g. the bucketbots, the stations, the map, the economy), so that the time spent in the scheduling itself is
+ * the phase time less the time of its calls.  Times are measured with System.nanoTime, and only when profiling
+ * is on, otherwise the cost is a null check per call.  The totals cover the whole run, including the warmup.<br>
+ * While profiling, JFR events are also emitted for every step, task assignment and market clear, so that a
+ * flight recording (e.g. java -XX:StartFlightRecording) shows them alongside garbage collections.
+ */
+public class UpdateProfiler implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final String phaseNames[] = {"next event scan", "collision bound", "update", "telemetry"};
+	public static final int nextEventPhase = 0, collisionPhase = 1, updatePhase = 2, telemetryPhase = 3;
+
+	/**JFR event for one step of SimulationWorld.update*/
+	@Name("alphabetsoup.Step")
+	@Label("Simulation Step")
+	@Category("AlphabetSoup")
+	@Description("One step of SimulationWorld.update")
+	public static class StepEvent extends Event {
+		@Label("Simulation Time")
+		double simulationTime;
+		@Label("Step Length")
+		@Description("Simulated seconds moved forward")
+		double stepLength;
+	}
+
+	/**JFR event for a task being assigned to a bucketbot*/
+	@Name("alphabetsoup.TaskAssignment")
+	@Label("Task Assignment")
+	@Category("AlphabetSoup")
+	public static class TaskAssignmentEvent extends Event {
+		@Label("Simulation Time")
+		double simulationTime;
+		@Label("Task")
+		String task;
+	}
+
+	/**JFR event for one pass of clearing the markets of an economy*/
+	@Name("alphabetsoup.MarketClear")
+	@Label("Market Clear")
+	@Category("AlphabetSoup")
+	public static class MarketClearEvent extends Event {
+		@Label("Simulation Time")
+		double simulationTime;
+		@Label("Exchanges")
+		int exchanges;
+	}
+
+	private long phaseNanos[] = new long[phaseNames.length];
+	private long numSteps = 0;
+
+	//time and calls of each class of Updateable, for the next event scan and for the updates
+	private List<String> classNames = new ArrayList<String>();
+	private int classOf[] = new int[0];		//index into classNames of each Updateable of the UpdateScheduler
+	private long nextEventNanos[] = new long[0], nextEventCalls[] = new long[0];
+	private long updateNanos[] = new long[0], updateCalls[] = new long[0];
+
+	private long numTaskAssignments = 0;
+	private long numMarketClears = 0;
+	private long marketClearNanos = 0;
+	private long marketClearStart = 0;
+
+	/**Sets the Updateables whose calls are measured, in the order of their indices in the UpdateScheduler
+	 * @param updateables Updateables of the UpdateScheduler
+	 */
+	public void setUpdateables(Updateable updateables[]) {
+		classOf = new int[updateables.length];
+		for(int i = 0; i < updateables.length; i++) {
+			Class<?> c = updateables[i].getClass();
+			String name = (c.getSimpleName().length() > 0) ? c.getSimpleName() : c.getName();
+			int index = classNames.indexOf(name);
+			if(index < 0) {
+				index = classNames.size();
+				classNames.add(name);
+			}
+			classOf[i] = index;
+		}
+		int n = classNames.size();
+		nextEventNanos = Arrays.copyOf(nextEventNanos, n);
+		nextEventCalls = Arrays.copyOf(nextEventCalls, n);
+		updateNanos = Arrays.copyOf(updateNanos, n);
+		updateCalls = Arrays.copyOf(updateCalls, n);
+	}
+
+	/**Adds the time of a call to getNextEventTime
+	 * @param updateable index of the Updateable in the UpdateScheduler
+	 * @param nanos wall clock time of the call
+	 */
+	public void addNextEventTime(int updateable, long nanos) {
+		nextEventNanos[classOf[updateable]] += nanos;
+		nextEventCalls[classOf[updateable]]++;
+	}
+
+	/**Adds the time of a call to update
+	 * @param updateable index of the Updateable in the UpdateScheduler
+	 * @param nanos wall clock time of the call
+	 */
+	public void addUpdate(int updateable, long nanos) {
+		updateNanos[classOf[updateable]] += nanos;
+		updateCalls[classOf[updateable]]++;
+	}
+
+	/**Adds the time of a phase of a step, which ends now
+	 * @param phase one of nextEventPhase, collisionPhase, updatePhase or telemetryPhase
+	 * @param start_time System.nanoTime at the start of the phase
+	 * @return System.nanoTime at the end of the phase, which is the start of the next
+	 */
+	public long endPhase(int phase, long start_time) {
+		long end_time = System.nanoTime();
+		phaseNanos[phase] += end_time - start_time;
+		return end_time;
+	}
+
+	/**Starts the JFR event of a step
+	 * @return the event to pass to endStep
+	 */
+	public StepEvent beginStep() {
+		StepEvent e = new StepEvent();
+		e.begin();
+		return e;
+	}
+
+	/**Ends a step, and commits its JFR event
+	 * @param e event returned by beginStep
+	 * @param cur_time simulation time at the end of the step
+	 * @param step_length amount of simulation time the step moved forward
+	 */
+	public void endStep(StepEvent e, double cur_time, double step_length) {
+		numSteps++;
+		e.end();
+		if(e.shouldCommit()) {
+			e.simulationTime = cur_time;
+			e.stepLength = step_length;
+			e.commit();
+		}
+	}
+
+	/**Records a task being assigned to a bucketbot, and emits its JFR event
+	 * @param task description of the task (e.g. its type)
+	 * @param cur_time current simulation time
+	 */
+	public void taskAssigned(String task, double cur_time) {
+		numTaskAssignments++;
+		TaskAssignmentEvent e = new TaskAssignmentEvent();
+		if(e.shouldCommit()) {
+			e.simulationTime = cur_time;
+			e.task = task;
+			e.commit();
+		}
+	}
+
+	/**Starts the JFR event of clearing the markets
+	 * @return the event to pass to endMarketClear
+	 */
+	public MarketClearEvent beginMarketClear() {
+		MarketClearEvent e = new MarketClearEvent();
+		e.begin();
+		marketClearStart = System.nanoTime();
+		return e;
+	}
+
+	/**Ends clearing the markets, and commits its JFR event
+	 * @param e event returned by beginMarketClear
+	 * @param cur_time current simulation time
+	 * @param num_exchanges number of exchanges made
+	 */
+	public void endMarketClear(MarketClearEvent e, double cur_time, int num_exchanges) {
+		numMarketClears++;
+		marketClearNanos += System.nanoTime() - marketClearStart;
+		e.end();
+		if(e.shouldCommit()) {
+			e.simulationTime = cur_time;
+			e.exchanges = num_exchanges;
+			e.commit();
+		}
+	}
+
+	/**Returns the lines to add to the SummaryReport, with times in seconds
+	 * @return a List of Strings in sequential order
+	 */
+	public List<String> getReportText() {
+		DecimalFormat three_digits = new DecimalFormat("0.000");
+		List<String> lines = new ArrayList<String>();
+		long total_nanos = 0;
+		for(long nanos : phaseNanos)
+			total_nanos += nanos;
+		lines.add("profile steps: " + numSteps);
+		lines.add("profile step time: " + three_digits.format(total_nanos / 1e9));
+		for(int p = 0; p < phaseNames.length; p++)
+			lines.add("profile " + phaseNames[p] + " time: " + three_digits.format(phaseNanos[p] / 1e9));
+		for(int c = 0; c < classNames.size(); c++) {
+			lines.add("profile " + classNames.get(c) + " update time: " + three_digits.format(updateNanos[c] / 1e9));
+			lines.add("profile " + classNames.get(c) + " update calls: " + updateCalls[c]);
+			lines.add("profile " + classNames.get(c) + " next event time: " + three_digits.format(nextEventNanos[c] / 1e9));
+			lines.add("profile " + classNames.get(c) + " next event calls: " + nextEventCalls[c]);
+		}
+		lines.add("profile task assignments: " + numTaskAssignments);
+		lines.add("profile market clears: " + numMarketClears);
+		lines.add("profile market clear time: " + three_digits.format(marketClearNanos / 1e9));
+		return lines;
+	}
+}
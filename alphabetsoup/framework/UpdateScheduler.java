@@ -0,0 +1,212 @@
+/**
+ *
+ */
+package alphabetsoup.framework;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**UpdateScheduler performs the event time queries and updates of each step of SimulationWorld.update.
+ * If skipIdle is false, it simply scans every Updateable on every step.  If skipIdle is true,
+ * it keeps the next event time of each Updateable in an IndexedMinHeap, and only recomputes it
+ * when the Updateable has been updated, has been marked dirty, or its event time has passed.
+ * Schedulable objects which are blocked are put to sleep in a second heap keyed by their wake time,
+ * and are not updated again until the simulation reaches it.  Updateables are always updated in the
+ * order of the original list, so a seeded simulation produces the same results either way.
+ */
+public class UpdateScheduler implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private boolean skipIdle;
+	private Updateable updateables[];
+	private Schedulable schedulables[];	//same indices as updateables, null if not Schedulable
+	private IdentityHashMap<Updateable, Integer> indices;
+
+	private IndexedMinHeap eventHeap;	//next event time of every Updateable
+	private IndexedMinHeap wakeHeap;	//wake time of every sleeping Schedulable
+
+	private BitSet active;	//Updateables to update on the next step
+	private BitSet dirty;	//Updateables whose next event time must be recomputed
+	private int staleBuffer[];		//used by getNextEventTime to collect entries with passed event times
+	private int positionStack[];	//used by getNextEventTime to walk the heap
+
+	private UpdateProfiler profiler = null;	//measures each call, if not null
+
+	//statistics
+	private long numUpdates = 0;
+	private long numSkippedUpdates = 0;
+
+	/**Constructs an UpdateScheduler over the Updateables in the given order
+	 * @param updateable_list list of Updateables, in the order that they should be updated
+	 * @param skip_idle if true, only Updateables with pending events are queried and updated,
+	 * otherwise every Updateable is scanned on every step
+	 */
+	public UpdateScheduler(List<Updateable> updateable_list, boolean skip_idle) {
+		skipIdle = skip_idle;
+		int n = updateable_list.size();
+		updateables = updateable_list.toArray(new Updateable[n]);
+		schedulables = new Schedulable[n];
+		indices = new IdentityHashMap<Updateable, Integer>(n);
+		for(int i = 0; i < n; i++) {
+			indices.put(updateables[i], i);
+			if(updateables[i] instanceof Schedulable)
+				schedulables[i] = (Schedulable)updateables[i];
+		}
+
+		eventHeap = new IndexedMinHeap(n);
+		wakeHeap = new IndexedMinHeap(n);
+		staleBuffer = new int[n];
+		positionStack = new int[n + 1];
+
+		//everything starts out awake and needing its event time computed
+		active = new BitSet(n);
+		active.set(0, n);
+		dirty = new BitSet(n);
+		dirty.set(0, n);
+	}
+
+	/**Measures the time of every call to getNextEventTime and update of the Updateables with the profiler
+	 * @param update_profiler UpdateProfiler to accumulate the time of the calls in, null to stop measuring
+	 */
+	public void setProfiler(UpdateProfiler update_profiler) {
+		profiler = update_profiler;
+		if(profiler != null)
+			profiler.setUpdateables(updateables);
+	}
+
+	/**Returns the next event time of the Updateable of the index, measuring it if profiling
+	 */
+	private double queryNextEventTime(int i, double cur_time) {
+		if(profiler == null)
+			return updateables[i].getNextEventTime(cur_time);
+		long start_time = System.nanoTime();
+		double next_time = updateables[i].getNextEventTime(cur_time);
+		profiler.addNextEventTime(i, System.nanoTime() - start_time);
+		return next_time;
+	}
+
+	/**Updates the Updateable of the index, measuring it if profiling
+	 */
+	private void update(int i, double last_time, double cur_time) {
+		if(profiler == null) {
+			updateables[i].update(last_time, cur_time);
+			return;
+		}
+		long start_time = System.nanoTime();
+		updateables[i].update(last_time, cur_time);
+		profiler.addUpdate(i, System.nanoTime() - start_time);
+	}
+
+	/**Marks the Updateable such that its next event time will be recomputed before the next step,
+	 * and wakes it up if it is sleeping, since its wake time may have moved earlier.
+	 * Does nothing if the Updateable is not managed by this UpdateScheduler.
+	 * @param u Updateable which has changed
+	 */
+	public void markDirty(Updateable u) {
+		if(!skipIdle)
+			return;
+		Integer index = indices.get(u);
+		if(index == null)
+			return;
+		dirty.set(index);
+		if(!active.get(index)) {
+			wakeHeap.remove(index);
+			active.set(index);
+		}
+	}
+
+	/**Returns the time of the earliest next event of all of the Updateables, recomputing only
+	 * those which are dirty or whose cached event time is no longer in the future.
+	 * @param cur_time the current system time
+	 * @return the absolute time of the soonest possible event
+	 */
+	public double getNextEventTime(double cur_time) {
+		if(!skipIdle) {
+			double next_time = Double.POSITIVE_INFINITY;
+			for(int i = 0; i < updateables.length; i++)
+				next_time = Math.min(queryNextEventTime(i, cur_time), next_time);
+			return next_time;
+		}
+
+		//recompute anything that has changed
+		for(int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i+1))
+			eventHeap.put(i, queryNextEventTime(i, cur_time));
+
+		//collect anything that isn't dirty, but whose event time has passed,
+		// by walking the part of the heap with keys that are not in the future
+		int num_stale = 0;
+		if(eventHeap.peekKey() <= cur_time) {
+			int stack_size = 0;
+			positionStack[stack_size++] = 0;
+			while(stack_size > 0) {
+				int pos = positionStack[--stack_size];
+				int id = eventHeap.getAtPosition(pos);
+				//children can't have smaller keys, so don't need to look any further down
+				if(eventHeap.getKey(id) > cur_time)
+					continue;
+				if(!dirty.get(id))
+					staleBuffer[num_stale++] = id;
+				if(2*pos + 1 < eventHeap.size())	positionStack[stack_size++] = 2*pos + 1;
+				if(2*pos + 2 < eventHeap.size())	positionStack[stack_size++] = 2*pos + 2;
+			}
+		}
+		for(int i = 0; i < num_stale; i++) {
+			int id = staleBuffer[i];
+			eventHeap.put(id, queryNextEventTime(id, cur_time));
+		}
+
+		dirty.clear();
+		return eventHeap.peekKey();
+	}
+
+	/**Updates all of the Updateables that are awake, in their original order, and puts any
+	 * Schedulable to sleep that will be blocked beyond cur_time.
+	 * @param last_time absolute time all objects were last updated
+	 * @param cur_time current system time to update to
+	 */
+	public void update(double last_time, double cur_time) {
+		if(!skipIdle) {
+			for(int i = 0; i < updateables.length; i++)
+				update(i, last_time, cur_time);
+			numUpdates += updateables.length;
+			return;
+		}
+
+		//wake up anything that will be able to act by the end of this step
+		while(!wakeHeap.isEmpty() && wakeHeap.peekKey() <= cur_time)
+			active.set(wakeHeap.poll());
+
+		int num_active = 0;
+		for(int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i+1)) {
+			update(i, last_time, cur_time);
+			dirty.set(i);
+			num_active++;
+
+			//put it to sleep if it can't act on the next step
+			if(schedulables[i] != null) {
+				double wake_time = schedulables[i].getWakeTime();
+				if(wake_time > cur_time) {
+					active.clear(i);
+					wakeHeap.put(i, wake_time);
+				}
+			}
+		}
+
+		numUpdates += num_active;
+		numSkippedUpdates += updateables.length - num_active;
+	}
+
+	/**
+	 * @return the number of calls made to Updateable.update
+	 */
+	public long getNumUpdates() {
+		return numUpdates;
+	}
+
+	/**
+	 * @return the number of calls to Updateable.update avoided by the UpdateScheduler
+	 */
+	public long getNumSkippedUpdates() {
+		return numSkippedUpdates;
+	}
+}
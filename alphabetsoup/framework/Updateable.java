@@ -3,11 +3,13 @@
  */
 package alphabetsoup.framework;
 
+import java.io.Serializable;
+
 /**Updateable is an interface which should be implemented by any agent in the system.
  * Here, we define agent to be any entity that can act or perform any actions on its own.
  * @author Chris Hazard
  */
-public interface Updateable {
+public interface Updateable extends Serializable {
 
 	/**Gets the time of the earliest scheduled or possible event
 	 * @param cur_time the current system time
@@ -3,6 +3,7 @@
  */
 package alphabetsoup.framework;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 
@@ -12,7 +13,7 @@ import java.util.List;
  * generate new incoming Words, and keep track of the Words completed.  
  * @author Chris Hazard
  */
-public interface WordList {
+public interface WordList extends Serializable {
 
 	/**Loads a text file with a list of words, stores the color distribution,
 	 * and generates the initial buffer of available words. 
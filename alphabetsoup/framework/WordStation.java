@@ -3,6 +3,7 @@
  */
 package alphabetsoup.framework;
 
+import java.io.Serializable;
 import java.util.List;
 
 
@@ -10,7 +11,7 @@ import java.util.List;
  * in AlphabetSoup.
  * @author Chris Hazard
  */
-public interface WordStation {
+public interface WordStation extends Serializable {
 	
 	/**Returns the maximum capacity of the WordStation in terms of number of Words
 	 * it can have simultaneously
@@ -3,6 +3,7 @@
  */
 package alphabetsoup.simulators.combinatorialmarkettaskallocation;
 
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -12,6 +13,7 @@ import alphabetsoup.base.BucketBase;
 import alphabetsoup.framework.Circle;
 import alphabetsoup.framework.Letter;
 import alphabetsoup.framework.LetterType;
+import alphabetsoup.framework.MersenneTwisterFast;
 import alphabetsoup.framework.SimulationWorld;
 import alphabetsoup.framework.Updateable;
 import alphabetsoup.framework.WordList;
@@ -22,6 +24,7 @@ import alphabetsoup.waypointgraph.Waypoint;
  *
  */
 public class BucketAgent extends BucketBase implements Updateable {
+	private static final long serialVersionUID = 1L;
 	
 	public BucketAgent(float bucket_radius, int bucket_capacity) {
 		super(bucket_radius, bucket_capacity);
@@ -35,8 +38,11 @@ public class BucketAgent extends BucketBase implements Updateable {
 	
 	private BucketbotAgent assignedBucketbot = null;
 	private Waypoint assignedStorage = null;
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucket_agent");
 	
-	static public class Delivery {
+	static public class Delivery implements Serializable {
+		private static final long serialVersionUID = 1L;
+
 		public Letter letterToDeliver;
 		public Letter letterSlotToDeliver;
 		public WordStationAgent wordStationAgent;
@@ -49,7 +55,9 @@ public class BucketAgent extends BucketBase implements Updateable {
 	 */
 	public List<Delivery> lettersToDeliver = new ArrayList<Delivery>();
 	
-	static public class Pickup {
+	static public class Pickup implements Serializable {
+		private static final long serialVersionUID = 1L;
+
 		public Letter letterToPickUp;
 		public LetterStationAgent letterStationAgent;
 		public Pickup(Letter letterToPickUp, LetterStationAgent letterStationAgent) {
@@ -445,12 +453,12 @@ public class BucketAgent extends BucketBase implements Updateable {
 
 			//pick random market
 			MultiItemDoubleAuction<LetterType, Letter, LetterStationAgent, BucketAgent> m = 
-				economy.letterToBucketMarkets.get(SimulationWorld.rand.nextInt(economy.letterToBucketMarkets.size()));
+				economy.letterToBucketMarkets.get(rand.nextInt(economy.letterToBucketMarkets.size()));
 			
 			List<LetterType> lts = m.getItemTypesWithAsks();
 			if(lts.size() == 0)
 				continue;
-			LetterType lt = lts.get(SimulationWorld.rand.nextInt(lts.size()));
+			LetterType lt = lts.get(rand.nextInt(lts.size()));
 			//TODO does the next line work as well with the 100-... ?
 			m.addBid(this, lt, lt, 100 - frac_capacity * getTravelCost(economy.getMarketLocation(m)));
 		}
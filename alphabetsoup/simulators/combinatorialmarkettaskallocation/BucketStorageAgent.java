@@ -10,6 +10,7 @@ import org.lwjgl.util.glu.Disk;
 
 import alphabetsoup.framework.*;
 import alphabetsoup.userinterface.Renderable;
+import alphabetsoup.waypointgraph.IndexedWaypointSet;
 import alphabetsoup.waypointgraph.Waypoint;
 
 /**BucketStorageAgent implements a basic Bucketbot manager that uses basic queues of tasks
@@ -17,8 +18,9 @@ import alphabetsoup.waypointgraph.Waypoint;
  * @author Chris Hazard
  */
 public class BucketStorageAgent implements Updateable, Renderable {
+	private static final long serialVersionUID = 1L;
 
-	HashSet<Waypoint> unusedBucketStorageLocations = new HashSet<Waypoint>();
+	IndexedWaypointSet unusedBucketStorageLocations = new IndexedWaypointSet();
 	HashMap<Bucket,Waypoint> usedBucketStorageLocations = new HashMap<Bucket,Waypoint>();
 	
 	private double curTime = 0.0;
@@ -65,7 +67,7 @@ public class BucketStorageAgent implements Updateable, Renderable {
 	}	
 	
 	//routines which may be used to render the current used storage locations
-	private Disk disk = new Disk();
+	static private Disk disk = new Disk();
 	public void render() {
 		GL11.glLineWidth(1.0f);
 		GL11.glColor4ub((byte)0xFF, (byte)0x0, (byte)0x0, (byte)0xFF);
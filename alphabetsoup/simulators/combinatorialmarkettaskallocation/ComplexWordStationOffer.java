@@ -3,6 +3,7 @@
  */
 package alphabetsoup.simulators.combinatorialmarkettaskallocation;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -17,7 +18,8 @@ import alphabetsoup.framework.WordStation;
  * @author Chris Hazard
  *
  */
-public class ComplexWordStationOffer {
+public class ComplexWordStationOffer implements Serializable {
+	private static final long serialVersionUID = 1L;
 	
 	public BucketAgent bucket;
 	
@@ -42,7 +44,9 @@ public class ComplexWordStationOffer {
 	}
 	
 	
-	public static class LetterOffer {
+	public static class LetterOffer implements Serializable {
+		private static final long serialVersionUID = 1L;
+
 		public Letter letter;
 		public float value;
 		public LetterOffer(Letter l, float value) {
@@ -55,9 +59,16 @@ public class ComplexWordStationOffer {
 	
 	public List<LetterOffer> letterOffers = new ArrayList<LetterOffer>();
 	
-	private static float wordStationTravelCosts[];
-	private static Circle wordStationTravelStartingLocations[];
-	private static Map<WordStation, Integer> wordStationToIndex;
+	/**Travel distances for visiting each subset of WordStations, in order of their index.
+	 * Each SimulationWorld keeps its own, so that multiple simulations can run at once.
+	 */
+	public static class WordStationTravelCosts implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		float travelCosts[];
+		Circle travelStartingLocations[];
+		Map<WordStation, Integer> wordStationToIndex;
+	}
 	
 	public static float getTotalRevenue(Awarded a) {
 		SimulationWorldMarketTaskAllocation sw = SimulationWorldMarketTaskAllocation.getSimulationWorld();
@@ -74,24 +85,26 @@ public class ComplexWordStationOffer {
 	public static float getTravelCosts(Awarded a) {
 		if(a.bucketbot == null)
 			return Float.POSITIVE_INFINITY;
+		WordStationTravelCosts tc = SimulationWorldMarketTaskAllocation.getSimulationWorld().wordStationTravelCosts;
 		int entry = 0;
 		for(int i = 0; i < a.letters.size(); i++)
-			entry |= (1 << wordStationToIndex.get(a.letters.get(i).wordStation));
+			entry |= (1 << tc.wordStationToIndex.get(a.letters.get(i).wordStation));
 		if(entry == 0)
 			return Float.POSITIVE_INFINITY;
 
-		return wordStationTravelCosts[entry]
-		                              + a.bucket.getDistance(wordStationTravelStartingLocations[entry])
+		return tc.travelCosts[entry]
+		                              + a.bucket.getDistance(tc.travelStartingLocations[entry])
 		                              + a.bucketbot.bucketbot.getDistance(a.bucket);
 	}
 	
-	public static void initializeWordStationTravelCosts(WordStation ws[]) {
+	public static WordStationTravelCosts initializeWordStationTravelCosts(WordStation ws[]) {
 		int num_entries = (1 << ws.length);
-		wordStationTravelCosts = new float[num_entries];
-		wordStationTravelStartingLocations = new Circle[num_entries];
-		wordStationToIndex = new HashMap<WordStation, Integer>();
+		WordStationTravelCosts tc = new WordStationTravelCosts();
+		tc.travelCosts = new float[num_entries];
+		tc.travelStartingLocations = new Circle[num_entries];
+		tc.wordStationToIndex = new HashMap<WordStation, Integer>();
 		for(int i = 0; i < ws.length; i++)
-			wordStationToIndex.put(ws[i], i);
+			tc.wordStationToIndex.put(ws[i], i);
 		
 		for(int entry = 0; entry < num_entries; entry++) {
 			float total_distance = 0.0f;
@@ -104,7 +117,7 @@ public class ComplexWordStationOffer {
 					//if it's the first WordStation come across, then just record it (no distance traveled)
 					if(start == null) {
 						start = (Circle)ws[i];
-						wordStationTravelStartingLocations[entry] = start;
+						tc.travelStartingLocations[entry] = start;
 						continue;
 					}
 					
@@ -113,7 +126,8 @@ public class ComplexWordStationOffer {
 					start = (Circle)ws[i];
 				}
 			}
-			wordStationTravelCosts[entry] = total_distance;
+			tc.travelCosts[entry] = total_distance;
 		}
+		return tc;
 	}
 }
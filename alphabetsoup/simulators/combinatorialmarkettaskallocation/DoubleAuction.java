@@ -3,13 +3,15 @@
  */
 package alphabetsoup.simulators.combinatorialmarkettaskallocation;
 
+import java.io.Serializable;
 import java.util.*;
 
 /**
  * @author Chris Hazard
  *
  */
-public class DoubleAuction<ItemType, SellerType, BuyerType> {
+public class DoubleAuction<ItemType, SellerType, BuyerType> implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**List that maintains all of the offers, always sorted descending by value.
 	 */
@@ -17,7 +17,11 @@ import java.util.Set;
 import alphabetsoup.framework.Circle;
 import alphabetsoup.framework.Letter;
 import alphabetsoup.framework.LetterType;
+import alphabetsoup.framework.MersenneTwisterFast;
+import alphabetsoup.framework.Quadtree;
 import alphabetsoup.framework.SimulationWorld;
+import alphabetsoup.framework.TelemetrySource;
+import alphabetsoup.framework.UpdateProfiler;
 import alphabetsoup.framework.Updateable;
 import alphabetsoup.framework.Word;
 import alphabetsoup.waypointgraph.Waypoint;
@@ -26,7 +30,8 @@ import alphabetsoup.waypointgraph.Waypoint;
  * @author Chris Hazard
  *
  */
-public class Economy implements Updateable {
+public class Economy implements Updateable, TelemetrySource {
+	private static final long serialVersionUID = 1L;
 	
 	public List<MultiItemDoubleAuction<LetterType, Letter, BucketAgent, WordStationAgent>> letterToWordMarkets
 									= new ArrayList<MultiItemDoubleAuction<LetterType, Letter, BucketAgent, WordStationAgent>>();
@@ -52,8 +57,13 @@ public class Economy implements Updateable {
 	private double bidUpdateInterval = 0.5;
 	private double lastBidUpdateTime = Double.NEGATIVE_INFINITY;
 	
-	//TODO need to add some way of finding the closest market to all waypoints...
-	// perhaps pre-compute the closest for each waypoint in the system
+	//stream of random numbers for trying the offers in different orders
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("economy");
+	
+	//locations of the storage markets, to find the closest one to a waypoint
+	private Quadtree storageMarketIndex;
+	private HashMap<Circle, MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent>> storageMarketAtLocation
+									= new HashMap<Circle, MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent>>();
 	
 	/**This function works around Java's picky generics system to add a new market to any of the lists
 	 * @param <ItemType>
@@ -88,12 +98,18 @@ public class Economy implements Updateable {
 	}
 	
 	public MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent> addStorageMarket(Circle location) {
-		return createSituatedMarket(storageMarkets, location);
+		MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent> m = createSituatedMarket(storageMarkets, location);
+		storageMarketIndex.addCircleObject(location);
+		storageMarketAtLocation.put(location, m);
+		return m;
 	}
 	
+	/**Returns the storage market whose location is closest to the specified location
+	 * @param location
+	 * @return the closest storage market, null if there are none
+	 */
 	public MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent> getClosestStorageMarket(Waypoint location) {
-		//TODO make this actually work for multiple situated markets
-		return storageMarkets.get(0);
+		return storageMarketAtLocation.get(storageMarketIndex.getNearestObject(location.getX(), location.getY(), null));
 	}
 	
 	
@@ -104,6 +120,8 @@ public class Economy implements Updateable {
 	public Economy(float word_completion_base_revenue, float word_completion_letter_marginal_revenue) {
 		wordCompletionBaseRevenue = word_completion_base_revenue;
 		wordCompletionLetterMarginalRevenue = word_completion_letter_marginal_revenue;
+		storageMarketIndex = new Quadtree(SimulationWorld.getSimulationWorld().getMap().getWidth(),
+											SimulationWorld.getSimulationWorld().getMap().getHeight());
 	}
 	
 	/* (non-Javadoc)
@@ -122,8 +140,12 @@ public class Economy implements Updateable {
 		
 		if(curTime >= lastBidUpdateTime + bidUpdateInterval) {
 			lastBidUpdateTime = curTime;
+			//measure the clearing, if profiling
+			UpdateProfiler profiler = SimulationWorld.getSimulationWorld().getUpdateProfiler();
+			UpdateProfiler.MarketClearEvent clear_event = (profiler != null) ? profiler.beginMarketClear() : null;
+			int num_exchanges = 0;
 			
-			clearComplexWordStationOffers();
+			num_exchanges += clearComplexWordStationOffers();
 			
 			//clear transportation markets
 			{
@@ -135,6 +157,7 @@ public class Economy implements Updateable {
 					for(Exchange<Waypoint, BucketbotAgent, BucketAgent> e : m.clearMarkets(buyers, sellers)) {
 						e.buyer.transportationBought(e);
 						e.seller.transportationSold(e);
+						num_exchanges++;
 					}
 				}
 			}
@@ -149,10 +172,13 @@ public class Economy implements Updateable {
 					for(Exchange<Letter, LetterStationAgent, BucketAgent> e : m.clearMarkets(buyers, sellers)) {
 						e.buyer.letterBundleBought(e);
 						e.seller.letterBundleSold(e);
+						num_exchanges++;
 					}
 				}
 			}
-	
+			
+			if(profiler != null)
+				profiler.endMarketClear(clear_event, curTime, num_exchanges);
 		}
 		
 	}
@@ -231,22 +257,23 @@ public class Economy implements Updateable {
 	public static class ComplexWordStationOfferComparator implements Comparator<ComplexWordStationOffer> {
 		public int compare(ComplexWordStationOffer a, ComplexWordStationOffer b) {
 			//first sort by if it has its own bucketbot
-			if(a.bucketbots.size() == 1 && a.bucketbotCosts.get(0) == 0.0f)
-				return -1;
-			if(b.bucketbots.size() == 1 && b.bucketbotCosts.get(0) == 0.0f)
-				return +1;
+			boolean a_own = (a.bucketbots.size() == 1 && a.bucketbotCosts.get(0) == 0.0f);
+			boolean b_own = (b.bucketbots.size() == 1 && b.bucketbotCosts.get(0) == 0.0f);
+			if(a_own != b_own)
+				return a_own ? -1 : +1;
 			
-			//now sort by number of letters * probabliity
+			//now sort by number of letters * probabliity, highest first, keeping the order of ties
+			// so that the comparison is consistent
 			float a_val = a.bucket.getLetters().size() * a.bucket.getProbabilityBucketContainsALetter();
 			float b_val = b.bucket.getLetters().size() * b.bucket.getProbabilityBucketContainsALetter();
-			
-			if(a_val > b_val)
-				return -1;
-			return +1;
+			return Float.compare(b_val, a_val);
 		}
 	}
 	
-	public void clearComplexWordStationOffers() {
+	/**Awards the best of a number of random orderings of the complex word station offers
+	 * @return the number of offers awarded
+	 */
+	public int clearComplexWordStationOffers() {
 		SimulationWorldMarketTaskAllocation sw = SimulationWorldMarketTaskAllocation.getSimulationWorld();
 		
 		//build list of all outstanding letters
@@ -278,7 +305,7 @@ public class Economy implements Updateable {
 			List<BucketbotAgent> tempOutstandingBucketbots = new ArrayList<BucketbotAgent>(outstandingBucketbots);
 			List<ComplexWordStationOffer> tempOffers = new ArrayList<ComplexWordStationOffer>(offers);
 			
-			Random r = new Random(SimulationWorld.rand.nextLong());
+			Random r = new Random(rand.nextLong());
 			
 			Collections.shuffle(tempOutstandingLetters, r);
 			Collections.shuffle(tempOutstandingBucketbots, r);
@@ -320,6 +347,7 @@ public class Economy implements Updateable {
 				e.seller.letterSold(e);
 			}
 		}
+		return best_awards.size();
 	}
 	
 	public List<String> getAdditionalInfo() {
@@ -415,4 +443,43 @@ public class Economy implements Updateable {
 	public Circle getMarketLocation(MultiItemDoubleAuction<?, ?, ?, ?> m) {
 		return marketLocation.get(m);
 	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.TelemetrySource#getTelemetryNames()
+	 */
+	public String[] getTelemetryNames() {
+		return new String[] {"letter to word bid price", "letter to word bids",
+				"letter to bucket bid price", "letter to bucket bids",
+				"transportation bid price", "transportation bids",
+				"storage bid price", "storage bids"};
+	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.TelemetrySource#sampleTelemetry(double[], int)
+	 */
+	public void sampleTelemetry(double values[], int offset) {
+		sampleMarkets(letterToWordMarkets, values, offset);
+		sampleMarkets(letterToBucketMarkets, values, offset + 2);
+		sampleMarkets(transportationMarkets, values, offset + 4);
+		sampleMarkets(storageMarkets, values, offset + 6);
+	}
+	
+	/**Puts the mean bid price over every item type of the markets that has one, and the total number of bids, into values
+	 */
+	private static void sampleMarkets(List<? extends MultiItemDoubleAuction<?, ?, ?, ?>> markets, double values[], int offset) {
+		double price_sum = 0.0;
+		int num_prices = 0, num_bids = 0;
+		for(MultiItemDoubleAuction<?, ?, ?, ?> m : markets) {
+			for(DoubleAuction<?, ?, ?> auction : m.market.values()) {
+				float price = auction.getBidPrice();
+				if(!Float.isInfinite(price)) {
+					price_sum += price;
+					num_prices++;
+				}
+				num_bids += auction.getNumBids();
+			}
+		}
+		values[offset] = (num_prices > 0) ? price_sum / num_prices : Double.NaN;
+		values[offset + 1] = num_bids;
+	}
 }
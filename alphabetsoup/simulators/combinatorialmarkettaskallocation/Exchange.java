@@ -3,8 +3,11 @@
  */
 package alphabetsoup.simulators.combinatorialmarkettaskallocation;
 
+import java.io.Serializable;
+
 public class Exchange<ItemType, SellerType, BuyerType>
-		implements Comparable<Exchange<ItemType, SellerType, BuyerType>> {
+		implements Serializable, Comparable<Exchange<ItemType, SellerType, BuyerType>> {
+	private static final long serialVersionUID = 1L;
 	
 	public SellerType seller;
 	public ItemType sellerItem;
@@ -3,6 +3,7 @@
  */
 package alphabetsoup.simulators.combinatorialmarkettaskallocation;
 
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -13,7 +14,8 @@ import java.util.Set;
  * @author Chris Hazard
  *
  */
-public class MultiItemDoubleAuction<ItemType, ItemInstanceType, SellerType, BuyerType> {
+public class MultiItemDoubleAuction<ItemType, ItemInstanceType, SellerType, BuyerType> implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	public HashMap<ItemType, DoubleAuction<ItemInstanceType, SellerType, BuyerType>> market = new HashMap<ItemType, DoubleAuction<ItemInstanceType, SellerType, BuyerType>>();
 
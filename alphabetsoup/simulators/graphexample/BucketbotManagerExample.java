@@ -19,6 +19,8 @@ import alphabetsoup.base.*;
  * @author Chris Hazard
  */
 public class BucketbotManagerExample implements alphabetsoup.waypointgraph.BucketbotManager, Updateable, Renderable {
+	private static final long serialVersionUID = 1L;
+
 	protected LinkedHashSet<Bucket> usedBuckets = new LinkedHashSet<Bucket>();
 	protected LinkedHashSet<Bucket> unusedBuckets = new LinkedHashSet<Bucket>();
 	
@@ -59,6 +61,8 @@ public class BucketbotManagerExample implements alphabetsoup.waypointgraph.Bucke
 	protected HashMap<Bucket,Waypoint> pendingBucketStorageLocations = new HashMap<Bucket,Waypoint>();
 	protected HashMap<Bucket,Waypoint> usedBucketStorageLocations = new HashMap<Bucket,Waypoint>();
 	
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot_manager");
+	
 	/**Adds a new valid currently used location to store buckets on the map
 	 */
 	public void addNewUsedBucketStorageLocation(Bucket b, Waypoint w) {
@@ -76,7 +80,6 @@ public class BucketbotManagerExample implements alphabetsoup.waypointgraph.Bucke
 	 * @param s WordStation the word was assigned to
 	 */
 	public void newWordAssignedToStation(Word w, WordStation s) {
-		MersenneTwisterFast rand = SimulationWorldGraphExample.rand;
 		for(Letter l : w.getOriginalLetters()) {
 			if(openLetterRequests.size() > 0)
 				openLetterRequests.add(rand.nextInt(openLetterRequests.size()), new LetterWordStationPair(l, s));
@@ -90,7 +93,6 @@ public class BucketbotManagerExample implements alphabetsoup.waypointgraph.Bucke
 	 * @param s LetterStation the Letter was assigned to
 	 */
 	public void newLetterBundleAssignedToStation(Letter l, LetterStation s) {
-		MersenneTwisterFast rand = SimulationWorldGraphExample.rand;
 		if(availableLetters.size() > 0)
 			availableLetters.add(rand.nextInt(availableLetters.size()), new LetterLetterStationPair(l, s));
 		else
@@ -296,7 +298,7 @@ public class BucketbotManagerExample implements alphabetsoup.waypointgraph.Bucke
 	
 	
 	//routines which may be used to render the current used storage locations
-	private Disk disk = new Disk();
+	static private Disk disk = new Disk();
 	public void render() {
 		GL11.glLineWidth(1.0f);
 		GL11.glColor4ub((byte)0xFF, (byte)0x0, (byte)0x0, (byte)0xFF);
@@ -16,6 +16,7 @@ import alphabetsoup.framework.WordStation;
  * @author Chris Hazard
  */
 public class LetterManagerExample implements Updateable {
+	private static final long serialVersionUID = 1L;
 	
 	//letters that have been requested but haven't been dispensed
 	protected List<Letter> requiredLetters = new ArrayList<Letter>();
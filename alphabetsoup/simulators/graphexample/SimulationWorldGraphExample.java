@@ -26,6 +26,7 @@ import alphabetsoup.waypointgraph.*;
  * @author Chris Hazard
  */
 public class SimulationWorldGraphExample extends SimulationWorld {
+	private static final long serialVersionUID = 1L;
 	
 	private double simulationDuration = 0.0;
 	public LetterManagerExample letterManager = null;
@@ -33,14 +34,19 @@ public class SimulationWorldGraphExample extends SimulationWorld {
 	public BucketbotManagerExample bucketbotManager = null;
 	public WaypointGraph waypointGraph = null;
 	
-	private static SimulationWorldGraphExample simulationWorldGraphExample;
 	public static SimulationWorldGraphExample getSimulationWorld() {
-		return simulationWorldGraphExample;
+		return (SimulationWorldGraphExample)SimulationWorld.getSimulationWorld();
 	}
 	
 	public SimulationWorldGraphExample() {
-		super("alphabetsoup.config");
-		simulationWorldGraphExample = this;
+		this("alphabetsoup.config");
+	}
+	
+	/**Builds the simulation from the specified configuration file
+	 * @param configuration_file_name path of the configuration file to load
+	 */
+	public SimulationWorldGraphExample(String configuration_file_name) {
+		super(configuration_file_name);
 
 		float bucketbot_size = Float.parseFloat(params.getProperty("bucketbot_size"));
 		float bucket_size = Float.parseFloat(params.getProperty("bucket_size"));
@@ -59,13 +65,15 @@ public class SimulationWorldGraphExample extends SimulationWorld {
 		simulationDuration = Double.parseDouble(params.getProperty("simulation_duration"));
 		
 		waypointGraph = new WaypointGraph(map.getWidth(), map.getHeight());
+		waypointGraph.initializeRouteCache(params);
+		waypointGraph.initializePathPlanner(params);
+		waypointGraph.initializeTravelTimeEstimator(params, map.getMaxVelocity());
 		
 		//Set up base map to add things to
 		if(usingGUI)
 			RenderWindow.initializeUserInterface(Integer.parseInt(window_size[0]), Integer.parseInt(window_size[1]), this);
 		
-		BucketbotDriver.waypointGraph = waypointGraph;
-		BucketbotDriver.map = map;
+		context.waypointGraph = waypointGraph;
 
 		//Create classes, and add them to the map accordingly
 		for(int i = 0; i < bucketbots.length; i++)
@@ -144,7 +152,7 @@ public class SimulationWorldGraphExample extends SimulationWorld {
 	 * @param args
 	 */
 	public static void main(String[] args) {
-		simulationWorld = new SimulationWorldGraphExample();
+		SimulationWorld simulationWorld = new SimulationWorldGraphExample();
 		if(simulationWorld.isUsingGUI())
 		{
 			RenderWindow.mainLoop(simulationWorld,
@@ -0,0 +1,106 @@
+/**
+ * 
+ */
+package alphabetsoup.simulators.greedytaskallocation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import alphabetsoup.framework.Bucket;
+import alphabetsoup.framework.Letter;
+import alphabetsoup.framework.LetterInventory;
+import alphabetsoup.framework.WordStation;
+import alphabetsoup.simulators.greedytaskallocation.BucketbotGlobalResources.WordStationDeliveryRequest;
+
+/**BucketInventoryIndex keeps track of which buckets hold each type of letter (letter and color),
+ * so that the buckets which can fill a request can be found without looking through every bucket.
+ * IndexedBuckets keep it up to date as letters are added and removed.
+ */
+public class BucketInventoryIndex implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**buckets holding each type of letter, by LetterInventory key*/
+	private HashMap<Integer, HashSet<Bucket>> bucketsWithLetter = new HashMap<Integer, HashSet<Bucket>>();
+
+	/**Should be called whenever a Letter is added to a Bucket
+	 * @param b Bucket the letter was added to
+	 * @param l Letter added
+	 */
+	public void letterAdded(Bucket b, Letter l) {
+		int key = LetterInventory.getKey(l);
+		HashSet<Bucket> holders = bucketsWithLetter.get(key);
+		if(holders == null) {
+			holders = new HashSet<Bucket>();
+			bucketsWithLetter.put(key, holders);
+		}
+		holders.add(b);
+	}
+
+	/**Should be called whenever a Letter has been removed from a Bucket
+	 * @param b Bucket the letter was removed from
+	 * @param l Letter removed
+	 */
+	public void letterRemoved(Bucket b, Letter l) {
+		HashSet<Bucket> holders = bucketsWithLetter.get(LetterInventory.getKey(l));
+		if(holders != null && b.getNumMatchingLetters(l) == 0)
+			holders.remove(b);
+	}
+
+	/**Finds every bucket holding a letter that one of the requests needs, and for each of those buckets,
+	 * the first request of each word station that the bucket could fill.
+	 * @param requests open requests, in order of preference
+	 * @param stations filled with the WordStations of the requests, in the order they first appear
+	 * @return map from each bucket to the index into requests of the first request of each WordStation in
+	 * stations that the bucket could fill, Integer.MAX_VALUE where it can't fill any
+	 */
+	public IdentityHashMap<Bucket, int[]> getFirstMatchingRequests(List<WordStationDeliveryRequest> requests, List<WordStation> stations) {
+		stations.clear();
+		IdentityHashMap<WordStation, Integer> station_indices = new IdentityHashMap<WordStation, Integer>();
+		for(WordStationDeliveryRequest r : requests)
+			if(!station_indices.containsKey(r.station)) {
+				station_indices.put(r.station, stations.size());
+				stations.add(r.station);
+			}
+
+		//first request of each station for each letter type
+		HashMap<Integer, int[]> first_requests = new HashMap<Integer, int[]>();
+		List<Integer> keys = new ArrayList<Integer>();
+		for(int i = 0; i < requests.size(); i++) {
+			WordStationDeliveryRequest r = requests.get(i);
+			int key = LetterInventory.getKey(r.letter);
+			int first[] = first_requests.get(key);
+			if(first == null) {
+				first = new int[stations.size()];
+				Arrays.fill(first, Integer.MAX_VALUE);
+				first_requests.put(key, first);
+				keys.add(key);
+			}
+			int s = station_indices.get(r.station);
+			if(first[s] == Integer.MAX_VALUE)
+				first[s] = i;
+		}
+
+		//combine the requests of every letter type each bucket holds
+		IdentityHashMap<Bucket, int[]> buckets = new IdentityHashMap<Bucket, int[]>();
+		for(int key : keys) {
+			HashSet<Bucket> holders = bucketsWithLetter.get(key);
+			if(holders == null)
+				continue;
+			int first[] = first_requests.get(key);
+			for(Bucket b : holders) {
+				int bucket_first[] = buckets.get(b);
+				if(bucket_first == null)
+					buckets.put(b, first.clone());
+				else
+					for(int s = 0; s < first.length; s++)
+						bucket_first[s] = Math.min(bucket_first[s], first[s]);
+			}
+		}
+		return buckets;
+	}
+}
@@ -3,8 +3,11 @@
  */
 package alphabetsoup.simulators.greedytaskallocation;
 
+import java.util.*;
+
 import alphabetsoup.base.BucketbotTask;
 import alphabetsoup.framework.*;
+import alphabetsoup.framework.Map;
 import alphabetsoup.simulators.greedytaskallocation.BucketbotGlobalResources.LetterStationPickupRequest;
 import alphabetsoup.simulators.greedytaskallocation.BucketbotGlobalResources.WordStationDeliveryRequest;
 import alphabetsoup.waypointgraph.*;
@@ -13,6 +16,7 @@ import alphabetsoup.waypointgraph.*;
  * @author Chris Hazard
  */
 public class BucketbotAgent implements BucketbotManager, Updateable {
+	private static final long serialVersionUID = 1L;
 	
 	BucketbotDriver bucketbot = null;
 	BucketbotGlobalResources manager = null;
@@ -27,28 +31,29 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 	Letter letterToDropOff = null;	//letter want to drop off
 	Waypoint reservedStorage = null;
 	
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot_agent");
+	
 	public BucketbotAgent(BucketbotDriver bucketbot) {
 		this.bucketbot = bucketbot;
 		bucketbot.manager = (BucketbotManager)this;
 	}
 	
-	/**Optimistically estimates the time it will take this.bucketbot to reach Waypoint w
+	/**Estimates the time it will take this.bucketbot to reach Waypoint w, carrying its current bucket if any
 	 * @param w
 	 * @return estimated travel time
 	 */
 	public float estimateTravelTime(Waypoint w) {
-		float travel_time = bucketbot.getDistance(w) / bucketbot.getMaxVelocity();
-		return travel_time;
+		return bucketbot.waypointGraph.getTravelTimeEstimator().estimateTravelTime(bucketbot, w);
 	}
 	
-	/**Optimistically estimates the time it will take a bucketbot to go from Waypoints start to end
+	/**Estimates the time it will take a bucketbot to go from Waypoints start to end
 	 * @param start
 	 * @param end
+	 * @param carrying_bucket true if the bucketbot will be carrying a bucket
 	 * @return estimated travel time
 	 */
-	public float estimateTravelTime(Waypoint start, Waypoint end) {
-		float travel_time = start.getDistance(end) / bucketbot.getMaxVelocity();
-		return travel_time;
+	public float estimateTravelTime(Waypoint start, Waypoint end, boolean carrying_bucket) {
+		return bucketbot.waypointGraph.getTravelTimeEstimator().estimateTravelTime(start, end, carrying_bucket);
 	}
 	
 	/**Estimates the amount of time it will take before a new letter can be delivered to the word station 
@@ -99,18 +104,7 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 	 */
 	public void storeBucketAtClosestStorageLocation() {
 		//find closest free storage location
-		Waypoint closest = null;
-		double closest_distance = Double.POSITIVE_INFINITY;
-		for(Waypoint w : manager.unusedBucketStorageLocations) {
-			double distance = bucketbot.getDistance(w);
-			//if it's closer than the previous closest, then use this new one instead
-			if(distance < closest_distance) {
-				closest_distance = distance;
-				closest = w;
-			}
-		}
-		
-		storeBucketAtStorageLocation(closest);
+		storeBucketAtStorageLocation(manager.unusedBucketStorageLocations.getNearest(bucketbot));
 	}
 	
 	/**Tells bucketbot to store its current bucket at the closest location (if it has one),
@@ -126,15 +120,15 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 		}
 		
 		//pick a random offset to move
-		float x = bucketbot.getX() + bucketbot.getRadius() * 2 * (SimulationWorld.rand.nextFloat() - .5f);
-		float y = bucketbot.getY() + bucketbot.getRadius() * 2 * (SimulationWorld.rand.nextFloat() - .5f);
+		float x = bucketbot.getX() + bucketbot.getRadius() * 2 * (rand.nextFloat() - .5f);
+		float y = bucketbot.getY() + bucketbot.getRadius() * 2 * (rand.nextFloat() - .5f);
 		
 		//don't get too close to the edge
 		int radii_from_edge = 8;
 		x = Math.max(x, radii_from_edge*bucketbot.getRadius());
-		x = Math.min(x, BucketbotDriver.map.getWidth() - radii_from_edge*bucketbot.getRadius());
+		x = Math.min(x, bucketbot.map.getWidth() - radii_from_edge*bucketbot.getRadius());
 		y = Math.max(y, radii_from_edge*bucketbot.getRadius());
-		y = Math.min(y, BucketbotDriver.map.getHeight() - radii_from_edge*bucketbot.getRadius());
+		y = Math.min(y, bucketbot.map.getHeight() - radii_from_edge*bucketbot.getRadius());
 		bucketbot.<BucketbotTask>assignTask(BucketbotTask.createTaskMOVE(x, y));
 	}
 	
@@ -165,7 +159,7 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 				//see how long it would take to get to this letter station
 				// chose the worst of delivering or waiting
 				Waypoint sw = waypointGraph.getLetterStationWaypoint(lspr.station);
-				float time = Math.max( estimateTravelTime(bucketbot.getCurrentWaypoint(), sw), estimateLetterStationWaitTime(sw) );
+				float time = Math.max( estimateTravelTime(bucketbot.getCurrentWaypoint(), sw, true), estimateLetterStationWaitTime(sw) );
 				
 				//if it's the best, then use it
 				if(time < closest_letter_station_time) {
@@ -201,7 +195,7 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 					//see how long it would take to get to this letter station
 					// chose the worst of delivering or waiting
 					Waypoint sw = waypointGraph.getLetterStationWaypoint(lspr.station);
-					float deliver_time = Math.max( estimateTravelTime(waypointGraph.getBucketWaypoint(b), sw), estimateLetterStationWaitTime(sw) );
+					float deliver_time = Math.max( estimateTravelTime(waypointGraph.getBucketWaypoint(b), sw, true), estimateLetterStationWaitTime(sw) );
 					
 					//if it's the best, then use it
 					if(pickup_time + deliver_time < best_pickup_time) {
@@ -228,39 +222,77 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 	float bestTimeForDeliveryRequest = 0.0f;
 	Letter bestLetterForDeliveryRequest = null;
 	/**Finds the best delivery task for the specified bucekt.
+	 * Every request to the same word station takes the same time, so only the first request of each
+	 * word station that the bucket can fill is checked, and of equally good requests the first is taken.
 	 * Sets bestDeliveryRequest to null if none found, otherwise bestDeliveryRequest and bestTimeForDeliveryRequest are initialized.
 	 * @param b Bucket to take
 	 * @param w Current location of the Bucket b
+	 * @param first_requests index into manager.openLetterRequests of the first request of each WordStation
+	 * in stations that the bucket can fill, Integer.MAX_VALUE if none, or null if it can't fill any request
+	 * @param stations WordStations of the requests
 	 */
-	void getBestTaskForBucket(Bucket b, Waypoint w) {
+	void getBestTaskForBucket(Bucket b, Waypoint w, int first_requests[], List<WordStation> stations) {
 		bestDeliveryRequest = null;
-		if(b == null || w == null)
+		if(b == null || w == null || first_requests == null)
 			return;
 		
 		bestTimeForDeliveryRequest = Float.POSITIVE_INFINITY;
+		int best_request = Integer.MAX_VALUE;
 
-		//check all tasks
-		for(WordStationDeliveryRequest wsdr : manager.openLetterRequests) {
-			//if it has the letter
-			Letter l = b.containsMatchingLetter(wsdr.letter);
-			if(l != null) {
-				//see how long it would take to get to the word station
-				// chose the worst of delivering or waiting
-				Waypoint sw = waypointGraph.getWordStationWaypoint(wsdr.station);
-				float time = Math.max( estimateTravelTime(w, sw), estimateWordStationWaitTime(sw) );
-				
-				//if it's the best, then use it
-				if(time < bestTimeForDeliveryRequest) {
-					bestDeliveryRequest = wsdr;
-					bestTimeForDeliveryRequest = time;
-					bestLetterForDeliveryRequest = l;
-				}
+		//check the first task of each station
+		for(int s = 0; s < first_requests.length; s++) {
+			if(first_requests[s] == Integer.MAX_VALUE)
+				continue;
+			
+			//see how long it would take to get to the word station
+			// chose the worst of delivering or waiting
+			Waypoint sw = waypointGraph.getWordStationWaypoint(stations.get(s));
+			float time = Math.max( estimateTravelTime(w, sw, true), estimateWordStationWaitTime(sw) );
+			
+			//if it's the best, then use it
+			if(time < bestTimeForDeliveryRequest
+					|| (time == bestTimeForDeliveryRequest && best_request != Integer.MAX_VALUE && first_requests[s] < best_request)) {
+				best_request = first_requests[s];
+				bestTimeForDeliveryRequest = time;
+			}
+		}
+		
+		if(best_request == Integer.MAX_VALUE)
+			return;
+		bestDeliveryRequest = manager.openLetterRequests.get(best_request);
+		bestLetterForDeliveryRequest = b.containsMatchingLetter(bestDeliveryRequest.letter);
+	}
+	
+	/**Finds the unused bucket storage location that takes the least time to set down the current bucket at
+	 * and then go to the specified Waypoint, taking the first of equally good locations
+	 * @param target_bucket_waypoint Waypoint to go to after setting down the current bucket
+	 * @return the best storage location, null if there are none
+	 */
+	Waypoint getBestStorageLocation(Waypoint target_bucket_waypoint) {
+		float min_storage_time = Float.POSITIVE_INFINITY;
+		Waypoint best_storage_location = null;
+		for(Waypoint w : manager.unusedBucketStorageLocations) {
+			//need time to set down current bucket and also pick up new bucket
+			float store_time = 2 * bucketbot.getBucketPickupSetdownTime();
+			
+			//find time to get to storage location
+			store_time += estimateTravelTime(w);
+			//find time to get from storage location to new bucket
+			store_time += estimateTravelTime(w, target_bucket_waypoint, false);
+			
+			if(store_time < min_storage_time) {
+				min_storage_time = store_time;
+				best_storage_location = w;
 			}
 		}
+		return best_storage_location;
 	}
 	
 	Waypoint bestDeliveryTaskStorageLocation;
-	/**Determines the best delivery task for the given bucketbot, and allocates the required resources
+	/**Determines the best delivery task for the given bucketbot, and allocates the required resources.
+	 * Only the buckets that hold a letter of an open request are looked at, as found by the manager's BucketInventoryIndex.
+	 * Buckets and storage locations which can't beat the best task found so far are skipped, such that the
+	 * task chosen is the same as if every bucket, storage location and request were compared.
 	 * @return Bucket to be used to complete the task
 	 */
 	public Bucket getBestDeliveryTask() {
@@ -272,8 +304,12 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 		float best_task_time = Float.POSITIVE_INFINITY;
 		Waypoint best_storage_location = null;	//set to non-null if best task requires a different bucket
 		
+		//find the requests each bucket could fill
+		List<WordStation> stations = new ArrayList<WordStation>();
+		IdentityHashMap<Bucket, int[]> first_requests = manager.inventory.getFirstMatchingRequests(manager.openLetterRequests, stations);
+		
 		//try with the current bucket
-		getBestTaskForBucket(bucketbot.getBucket(), bucketbot.getCurrentWaypoint());
+		getBestTaskForBucket(bucketbot.getBucket(), bucketbot.getCurrentWaypoint(), first_requests.get(bucketbot.getBucket()), stations);
 		best_task = bestDeliveryRequest;
 		if(best_task != null) {
 			best_task_time = bestTimeForDeliveryRequest;
@@ -287,54 +323,86 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 		if(bucketbot.getBucket() != null)
 			base_time += bucketbot.getBucketPickupSetdownTime();
 		
+		//unused storage locations in order of the time to get to them, found when first needed
+		Waypoint storage_locations[] = null;
+		float storage_times[] = null;
+		boolean best_task_needs_storage = false;
+		
 		for(Bucket b : manager.unusedBuckets) {
 			
+			int bucket_first_requests[] = first_requests.get(b);
+			//can't fill any of the requests
+			if(bucket_first_requests == null)
+				continue;
+			
+			//get place to take the bucket
+			Waypoint target_bucket_waypoint = waypointGraph.getBucketWaypoint(b);
+			getBestTaskForBucket(b, target_bucket_waypoint, bucket_first_requests, stations);
+			if(bestDeliveryRequest == null)
+				continue;
+			//can't be better than the best task, even if getting the bucket took no time
+			if(base_time + bestTimeForDeliveryRequest >= best_task_time)
+				continue;
+			
 			float t = base_time;
-			Waypoint best_storage_location_for_this_bucket = null;
 			
 			//if need to set down current bucket
 			if(bucketbot.getBucket() != null) {
 				
-				//grab this once to pull it out of the loop
-				Waypoint target_bucket_waypoint = waypointGraph.getBucketWaypoint(b);
+				if(storage_locations == null) {
+					//sort by time, keeping the index in the low bits (times are never negative, so their bits sort the same way)
+					storage_locations = manager.unusedBucketStorageLocations.toArray(new Waypoint[0]);
+					long sorted[] = new long[storage_locations.length];
+					for(int i = 0; i < storage_locations.length; i++)
+						sorted[i] = ((long)Float.floatToIntBits(estimateTravelTime(storage_locations[i])) << 32) | i;
+					Arrays.sort(sorted);
+					Waypoint unsorted[] = storage_locations;
+					storage_locations = new Waypoint[unsorted.length];
+					storage_times = new float[unsorted.length];
+					for(int i = 0; i < sorted.length; i++) {
+						storage_locations[i] = unsorted[(int)sorted[i]];
+						storage_times[i] = Float.intBitsToFloat((int)(sorted[i] >>> 32));
+					}
+				}
 				
 				float min_storage_time = Float.POSITIVE_INFINITY;
 				
-				for(Waypoint w : manager.unusedBucketStorageLocations) {
+				for(int i = 0; i < storage_locations.length; i++) {
 					//need time to set down current bucket and also pick up new bucket
 					float store_time = 2 * bucketbot.getBucketPickupSetdownTime();
 					
 					//find time to get to storage location
-					store_time += estimateTravelTime(w);
+					store_time += storage_times[i];
+					//the rest of the storage locations take at least as long to get to
+					if(store_time >= min_storage_time)
+						break;
 					//find time to get from storage location to new bucket
-					store_time += estimateTravelTime(w, target_bucket_waypoint);
+					store_time += estimateTravelTime(storage_locations[i], target_bucket_waypoint, false);
 					
-					if(store_time < min_storage_time) {
+					if(store_time < min_storage_time)
 						min_storage_time = store_time;
-						best_storage_location_for_this_bucket = w;
-					}				
 				}
 				
 				//use the best waypoint
 				t += min_storage_time;
 			}
 			else { //no bucket, just go pick it up
-				t += estimateTravelTime(waypointGraph.getBucketWaypoint(b));				
+				t += estimateTravelTime(target_bucket_waypoint);				
 			}
 			
-			//get place to take the bucket
-			getBestTaskForBucket(b, waypointGraph.getBucketWaypoint(b));
-			if(bestDeliveryRequest != null) {
-				//if the time is still better, then count it
-				if(t + bestTimeForDeliveryRequest < best_task_time) {
-					best_task = bestDeliveryRequest;
-					best_task_time = t + bestTimeForDeliveryRequest;
-					best_bucket = b;
-					best_letter = bestLetterForDeliveryRequest;
-					best_storage_location = best_storage_location_for_this_bucket; 
-				}
+			//if the time is still better, then count it
+			if(t + bestTimeForDeliveryRequest < best_task_time) {
+				best_task = bestDeliveryRequest;
+				best_task_time = t + bestTimeForDeliveryRequest;
+				best_bucket = b;
+				best_letter = bestLetterForDeliveryRequest;
+				best_task_needs_storage = (bucketbot.getBucket() != null);
 			}
 		}
+		
+		//only need to know where to store the current bucket for the bucket chosen
+		if(best_task_needs_storage)
+			best_storage_location = getBestStorageLocation(waypointGraph.getBucketWaypoint(best_bucket));
 
 		//if found no task, take the oldest
 		if(best_task == null)
@@ -3,14 +3,15 @@
  */
 package alphabetsoup.simulators.greedytaskallocation;
 
+import java.io.Serializable;
 import java.util.*;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.util.glu.Disk;
 
 import alphabetsoup.framework.*;
-import alphabetsoup.simulators.graphexample.SimulationWorldGraphExample;
 import alphabetsoup.userinterface.Renderable;
+import alphabetsoup.waypointgraph.IndexedWaypointSet;
 import alphabetsoup.waypointgraph.Waypoint;
 
 /**BucketbotGlobalResources implements a basic Bucketbot manager that uses basic queues of tasks
@@ -18,16 +19,27 @@ import alphabetsoup.waypointgraph.Waypoint;
  * @author Chris Hazard
  */
 public class BucketbotGlobalResources implements Updateable, Renderable {
+	private static final long serialVersionUID = 1L;
 	
 	protected LinkedHashSet<Bucket> usedBuckets = new LinkedHashSet<Bucket>();
 	protected LinkedHashSet<Bucket> unusedBuckets = new LinkedHashSet<Bucket>();
 	
-	public BucketbotGlobalResources(Bucket [] buckets) {
+	/**which buckets hold each type of letter*/
+	protected BucketInventoryIndex inventory;
+	
+	/**
+	 * @param buckets buckets to manage
+	 * @param inventory BucketInventoryIndex kept up to date by the buckets
+	 */
+	public BucketbotGlobalResources(Bucket [] buckets, BucketInventoryIndex inventory) {
+		this.inventory = inventory;
 		for(Bucket b : buckets)
 			unusedBuckets.add(b);
 	}
 	
-	public static class WordStationDeliveryRequest {
+	public static class WordStationDeliveryRequest implements Serializable {
+		private static final long serialVersionUID = 1L;
+
 		public WordStationDeliveryRequest(Letter l, Word w, WordStation s) {
 			letter = l;	word = w; station = s;
 		}
@@ -36,7 +48,9 @@ public class BucketbotGlobalResources implements Updateable, Renderable {
 		public WordStation station;
 	}
 	
-	public static class LetterStationPickupRequest {
+	public static class LetterStationPickupRequest implements Serializable {
+		private static final long serialVersionUID = 1L;
+
 		public LetterStationPickupRequest(Letter l, LetterStation s) {
 			letter = l;	station = s;
 		}
@@ -47,9 +61,12 @@ public class BucketbotGlobalResources implements Updateable, Renderable {
 	List<WordStationDeliveryRequest> openLetterRequests = new ArrayList<WordStationDeliveryRequest>();
 	List<LetterStationPickupRequest> availableLetters = new ArrayList<LetterStationPickupRequest>();
 	
-	HashSet<Waypoint> unusedBucketStorageLocations = new HashSet<Waypoint>();
+	IndexedWaypointSet unusedBucketStorageLocations = new IndexedWaypointSet();
 	HashMap<Bucket,Waypoint> usedBucketStorageLocations = new HashMap<Bucket,Waypoint>();
 	
+	//stream of random numbers for shuffling new requests in
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot_manager");
+	
 	/**Adds a new valid currently used location to store buckets on the map
 	 */
 	public void addNewUsedBucketStorageLocation(Bucket b, Waypoint w) {
@@ -67,7 +84,6 @@ public class BucketbotGlobalResources implements Updateable, Renderable {
 	 * @param s WordStation the word was assigned to
 	 */
 	public void newWordAssignedToStation(Word w, WordStation s) {
-		MersenneTwisterFast rand = SimulationWorldGreedyTaskAllocation.rand;
 		for(Letter l : w.getOriginalLetters()) {
 			if(openLetterRequests.size() > 0)
 				openLetterRequests.add(rand.nextInt(openLetterRequests.size()), new WordStationDeliveryRequest(l, w, s));
@@ -81,7 +97,6 @@ public class BucketbotGlobalResources implements Updateable, Renderable {
 	 * @param s LetterStation the Letter was assigned to
 	 */
 	public void newLetterBundleAssignedToStation(Letter l, LetterStation s) {
-		MersenneTwisterFast rand = SimulationWorldGraphExample.rand;
 		if(availableLetters.size() > 0)
 			availableLetters.add(rand.nextInt(availableLetters.size()), new LetterStationPickupRequest(l, s));
 		else
@@ -103,7 +118,7 @@ public class BucketbotGlobalResources implements Updateable, Renderable {
 	}	
 	
 	//routines which may be used to render the current used storage locations
-	private Disk disk = new Disk();
+	static private Disk disk = new Disk();
 	public void render() {
 		GL11.glLineWidth(1.0f);
 		GL11.glColor4ub((byte)0xFF, (byte)0x0, (byte)0x0, (byte)0xFF);
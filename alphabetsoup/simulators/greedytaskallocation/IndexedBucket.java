@@ -0,0 +1,57 @@
+/**
+ * 
+ */
+package alphabetsoup.simulators.greedytaskallocation;
+
+import java.util.ArrayList;
+
+import alphabetsoup.base.BucketBase;
+import alphabetsoup.framework.Letter;
+
+/**IndexedBucket is a BucketBase which keeps a BucketInventoryIndex up to date with its contents.
+ */
+public class IndexedBucket extends BucketBase {
+	private static final long serialVersionUID = 1L;
+
+	private BucketInventoryIndex inventory;
+
+	/**
+	 * @param bucket_radius radius of the bucket
+	 * @param bucket_capacity maximum number of letters the bucket can hold
+	 * @param inventory BucketInventoryIndex to keep up to date
+	 */
+	public IndexedBucket(float bucket_radius, int bucket_capacity, BucketInventoryIndex inventory) {
+		super(bucket_radius, bucket_capacity);
+		this.inventory = inventory;
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.base.BucketBase#addLetter(alphabetsoup.framework.Letter)
+	 */
+	public void addLetter(Letter l) {
+		//only index it if there was room and it wasn't already in the bucket
+		if(containsLetter(l))
+			return;
+		super.addLetter(l);
+		if(containsLetter(l))
+			inventory.letterAdded(this, l);
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.base.BucketBase#removeLetter(alphabetsoup.framework.Letter)
+	 */
+	public void removeLetter(Letter l) {
+		if(!containsLetter(l))
+			return;
+		super.removeLetter(l);
+		inventory.letterRemoved(this, l);
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.base.BucketBase#removeAllLetters()
+	 */
+	public void removeAllLetters() {
+		for(Letter l : new ArrayList<Letter>(getLetters()))
+			removeLetter(l);
+	}
+}
@@ -15,6 +15,7 @@ import alphabetsoup.waypointgraph.*;
  * @author Chris Hazard
  */
 public class SimulationWorldGreedyTaskAllocation extends SimulationWorld {
+	private static final long serialVersionUID = 1L;
 	
 	private double simulationDuration = 0.0;
 	private double simulationWarmupTime = 0.0;
@@ -25,14 +26,19 @@ public class SimulationWorldGreedyTaskAllocation extends SimulationWorld {
 	public WaypointGraph waypointGraph = null;
 	public BucketbotAgent bucketbotagents[] = null;
 
-	private static SimulationWorldGreedyTaskAllocation simulationWorldGraphExample;
 	public static SimulationWorldGreedyTaskAllocation getSimulationWorld() {
-		return simulationWorldGraphExample;
+		return (SimulationWorldGreedyTaskAllocation)SimulationWorld.getSimulationWorld();
 	}
 	
 	public SimulationWorldGreedyTaskAllocation() {
-		super("alphabetsoup.config");
-		simulationWorldGraphExample = this;
+		this("alphabetsoup.config");
+	}
+	
+	/**Builds the simulation from the specified configuration file
+	 * @param configuration_file_name path of the configuration file to load
+	 */
+	public SimulationWorldGreedyTaskAllocation(String configuration_file_name) {
+		super(configuration_file_name);
 		
 		float bucketbot_size = Float.parseFloat(params.getProperty("bucketbot_size"));
 		float bucket_size = Float.parseFloat(params.getProperty("bucket_size"));
@@ -52,13 +58,15 @@ public class SimulationWorldGreedyTaskAllocation extends SimulationWorld {
 		simulationWarmupTime = Double.parseDouble(params.getProperty("simulation_warmup_time"));
 		
 		waypointGraph = new WaypointGraph(map.getWidth(), map.getHeight());
+		waypointGraph.initializeRouteCache(params);
+		waypointGraph.initializePathPlanner(params);
+		waypointGraph.initializeTravelTimeEstimator(params, map.getMaxVelocity());
 		
 		//Set up base map to add things to
 		if(usingGUI)
 			RenderWindow.initializeUserInterface(Integer.parseInt(window_size[0]), Integer.parseInt(window_size[1]), this);
 		
-		BucketbotDriver.waypointGraph = waypointGraph;
-		BucketbotDriver.map = map;
+		context.waypointGraph = waypointGraph;
 
 		//Create classes and agents, and add them to the map accordingly
 		bucketbotagents = new BucketbotAgent[bucketbots.length];
@@ -76,10 +84,11 @@ public class SimulationWorldGreedyTaskAllocation extends SimulationWorld {
 			wordStations[i] = (WordStation) new WordStationBase(
 														station_size, bucket_to_letter_time, word_completion_time, word_station_capacity);
 		
+		BucketInventoryIndex inventory = new BucketInventoryIndex();
 		for(int i = 0; i < buckets.length; i++)
-			buckets[i] = (Bucket) new BucketBase(bucket_size, bucket_capacity);
+			buckets[i] = (Bucket) new IndexedBucket(bucket_size, bucket_capacity, inventory);
 		
-		bucketbotManager	= new BucketbotGlobalResources(buckets);
+		bucketbotManager	= new BucketbotGlobalResources(buckets, inventory);
 		letterManager	= new LetterManager();
 		wordManager		= (Updateable)new WordOrderManager();
 
@@ -138,7 +147,7 @@ public class SimulationWorldGreedyTaskAllocation extends SimulationWorld {
 	 * @param args
 	 */
 	public static void main(String[] args) {
-		simulationWorld = new SimulationWorldGreedyTaskAllocation();
+		SimulationWorld simulationWorld = new SimulationWorldGreedyTaskAllocation();
 		double warmup_time = ((SimulationWorldGreedyTaskAllocation)simulationWorld).simulationWarmupTime;
 		double simulation_time = ((SimulationWorldGreedyTaskAllocation)simulationWorld).simulationDuration; 
 		if(simulationWorld.isUsingGUI()) {
@@ -148,9 +157,7 @@ public class SimulationWorldGreedyTaskAllocation extends SimulationWorld {
 			RenderWindow.destroyUserInterface();
 		}
 		else {
-			simulationWorld.update(warmup_time);
-			simulationWorld.resetStatistics();
-			simulationWorld.update(simulation_time);
+			simulationWorld = simulationWorld.run(warmup_time, simulation_time);
 		}
 
 		SummaryReport.generateReport(simulationWorld);
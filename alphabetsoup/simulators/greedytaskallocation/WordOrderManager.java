@@ -13,6 +13,7 @@ import alphabetsoup.framework.WordStation;
  * @author Chris Hazard
  */
 public class WordOrderManager implements Updateable {
+	private static final long serialVersionUID = 1L;
 
 	/* (non-Javadoc)
 	 * @see alphabetsoup.framework.Updateable#getNextEventTime(double)
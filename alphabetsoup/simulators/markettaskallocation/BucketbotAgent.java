@@ -11,6 +11,7 @@ import alphabetsoup.waypointgraph.*;
  * @author Chris Hazard
  */
 public class BucketbotAgent implements BucketbotManager, Updateable {
+	private static final long serialVersionUID = 1L;
 	
 	BucketbotDriver bucketbot = null;
 	BucketStorageAgent manager = null;
@@ -25,30 +26,29 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 	
 	private double profit = 0.0;
 	
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot_agent");
+	
 	public BucketbotAgent(BucketbotDriver bucketbot) {
 		this.bucketbot = bucketbot;
 		bucketbot.manager = (BucketbotManager)this;
 	}
 	
-	/**Optimistically estimates the time it will take this.bucketbot to reach Waypoint w
+	/**Estimates the time it will take this.bucketbot to reach Waypoint w, carrying its current bucket if any
 	 * @param w
 	 * @return estimated travel time
 	 */
 	public float estimateTravelTime(Waypoint w) {
-		float travel_time = bucketbot.getDistance(w) / bucketbot.getMaxVelocity();
-		return travel_time;
+		return bucketbot.waypointGraph.getTravelTimeEstimator().estimateTravelTime(bucketbot, w);
 	}
 	
-	/**Optimistically estimates the time it will take a bucketbot to go from Waypoints start to end
+	/**Estimates the time it will take a bucketbot to go from Waypoints start to end
 	 * @param start
 	 * @param end
+	 * @param carrying_bucket true if the bucketbot will be carrying a bucket
 	 * @return estimated travel time
 	 */
-	public float estimateTravelTime(Waypoint start, Waypoint end) {
-		if(start == null || end == null)
-			return Float.POSITIVE_INFINITY;
-		float travel_time = start.getDistance(end) / bucketbot.getMaxVelocity();
-		return travel_time;
+	public float estimateTravelTime(Waypoint start, Waypoint end, boolean carrying_bucket) {
+		return bucketbot.waypointGraph.getTravelTimeEstimator().estimateTravelTime(start, end, carrying_bucket);
 	}
 	
 	/**Estimates the amount of time it will take before a new letter can be delivered to the word station 
@@ -113,7 +113,7 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 					= economy.storageToTransportationMarketMap.get(w);
 			
 			//randomly skip a spot so bucketbot agents don't get stuck
-			if(SimulationWorld.rand.nextFloat() > 0.75)
+			if(rand.nextFloat() > 0.75)
 				continue;
 			
 			float price = m.getBidPrice(w) - .1f * bucketbot.getDistance(w);
@@ -128,15 +128,15 @@ public class BucketbotAgent implements BucketbotManager, Updateable {
 		}
 		
 		//pick a random offset to move
-		float x = bucketbot.getX() + bucketbot.getRadius() * 2 * (SimulationWorld.rand.nextFloat() - .5f);
-		float y = bucketbot.getY() + bucketbot.getRadius() * 2 * (SimulationWorld.rand.nextFloat() - .5f);
+		float x = bucketbot.getX() + bucketbot.getRadius() * 2 * (rand.nextFloat() - .5f);
+		float y = bucketbot.getY() + bucketbot.getRadius() * 2 * (rand.nextFloat() - .5f);
 		
 		//don't get too close to the edge
 		int radii_from_edge = 8;
 		x = Math.max(x, radii_from_edge*bucketbot.getRadius());
-		x = Math.min(x, BucketbotDriver.map.getWidth() - radii_from_edge*bucketbot.getRadius());
+		x = Math.min(x, bucketbot.map.getWidth() - radii_from_edge*bucketbot.getRadius());
 		y = Math.max(y, radii_from_edge*bucketbot.getRadius());
-		y = Math.min(y, BucketbotDriver.map.getHeight() - radii_from_edge*bucketbot.getRadius());
+		y = Math.min(y, bucketbot.map.getHeight() - radii_from_edge*bucketbot.getRadius());
 		bucketbot.<BucketbotTask>assignTask(BucketbotTask.createTaskMOVE(x, y));
 	}
 	
@@ -14,7 +14,10 @@ import java.util.Set;
 import alphabetsoup.framework.Circle;
 import alphabetsoup.framework.Letter;
 import alphabetsoup.framework.LetterType;
+import alphabetsoup.framework.Quadtree;
 import alphabetsoup.framework.SimulationWorld;
+import alphabetsoup.framework.TelemetrySource;
+import alphabetsoup.framework.UpdateProfiler;
 import alphabetsoup.framework.Updateable;
 import alphabetsoup.framework.Word;
 import alphabetsoup.waypointgraph.Waypoint;
@@ -23,7 +26,8 @@ import alphabetsoup.waypointgraph.Waypoint;
  * @author Chris Hazard
  *
  */
-public class Economy implements Updateable {
+public class Economy implements Updateable, TelemetrySource {
+	private static final long serialVersionUID = 1L;
 	
 	public List<MultiItemDoubleAuction<LetterType, Letter, BucketAgent, WordStationAgent>> letterToWordMarkets
 									= new ArrayList<MultiItemDoubleAuction<LetterType, Letter, BucketAgent, WordStationAgent>>();
@@ -46,8 +50,10 @@ public class Economy implements Updateable {
 	private double bidUpdateInterval = 0.5;
 	private double lastBidUpdateTime = Double.NEGATIVE_INFINITY;
 	
-	//TODO need to add some way of finding the closest market to all waypoints...
-	// perhaps pre-compute the closest for each waypoint in the system
+	//locations of the storage markets, to find the closest one to a waypoint
+	private Quadtree storageMarketIndex;
+	private HashMap<Circle, MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent>> storageMarketAtLocation
+									= new HashMap<Circle, MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent>>();
 	
 	/**This function works around Java's picky generics system to add a new market to any of the lists
 	 * @param <ItemType>
@@ -82,12 +88,18 @@ public class Economy implements Updateable {
 	}
 	
 	public MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent> addStorageMarket(Circle location) {
-		return createSituatedMarket(storageMarkets, location);
+		MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent> m = createSituatedMarket(storageMarkets, location);
+		storageMarketIndex.addCircleObject(location);
+		storageMarketAtLocation.put(location, m);
+		return m;
 	}
 	
+	/**Returns the storage market whose location is closest to the specified location
+	 * @param location
+	 * @return the closest storage market, null if there are none
+	 */
 	public MultiItemDoubleAuction<Waypoint, Waypoint, BucketStorageAgent, BucketAgent> getClosestStorageMarket(Waypoint location) {
-		//TODO make this actually work for multiple situated markets
-		return storageMarkets.get(0);
+		return storageMarketAtLocation.get(storageMarketIndex.getNearestObject(location.getX(), location.getY(), null));
 	}
 	
 	
@@ -98,6 +110,8 @@ public class Economy implements Updateable {
 	public Economy(float word_completion_base_revenue, float word_completion_letter_marginal_revenue) {
 		wordCompletionBaseRevenue = word_completion_base_revenue;
 		wordCompletionLetterMarginalRevenue = word_completion_letter_marginal_revenue;
+		storageMarketIndex = new Quadtree(SimulationWorld.getSimulationWorld().getMap().getWidth(),
+											SimulationWorld.getSimulationWorld().getMap().getHeight());
 	}
 	
 	/* (non-Javadoc)
@@ -116,6 +130,10 @@ public class Economy implements Updateable {
 		
 		if(curTime >= lastBidUpdateTime + bidUpdateInterval) {
 			lastBidUpdateTime = curTime;
+			//measure the clearing, if profiling
+			UpdateProfiler profiler = SimulationWorld.getSimulationWorld().getUpdateProfiler();
+			UpdateProfiler.MarketClearEvent clear_event = (profiler != null) ? profiler.beginMarketClear() : null;
+			int num_exchanges = 0;
 			
 			//clear letter to word markets
 			{
@@ -127,6 +145,7 @@ public class Economy implements Updateable {
 					for(Exchange<Letter, BucketAgent, WordStationAgent> e : m.clearMarkets(buyers, sellers)) {
 						e.buyer.letterBought(e);
 						e.seller.letterSold(e);
+						num_exchanges++;
 					}
 				}
 			}
@@ -142,6 +161,7 @@ public class Economy implements Updateable {
 					for(Exchange<Waypoint, BucketbotAgent, BucketAgent> e : m.clearMarkets(buyers, sellers)) {
 						e.buyer.transportationBought(e);
 						e.seller.transportationSold(e);
+						num_exchanges++;
 					}
 				}
 			}
@@ -156,10 +176,13 @@ public class Economy implements Updateable {
 					for(Exchange<Letter, LetterStationAgent, BucketAgent> e : m.clearMarkets(buyers, sellers)) {
 						e.buyer.letterBundleBought(e);
 						e.seller.letterBundleSold(e);
+						num_exchanges++;
 					}
 				}
 			}
-	
+			
+			if(profiler != null)
+				profiler.endMarketClear(clear_event, curTime, num_exchanges);
 		}
 		
 	}
@@ -257,4 +280,43 @@ public class Economy implements Updateable {
 	public Circle getMarketLocation(MultiItemDoubleAuction<?, ?, ?, ?> m) {
 		return marketLocation.get(m);
 	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.TelemetrySource#getTelemetryNames()
+	 */
+	public String[] getTelemetryNames() {
+		return new String[] {"letter to word bid price", "letter to word bids",
+				"letter to bucket bid price", "letter to bucket bids",
+				"transportation bid price", "transportation bids",
+				"storage bid price", "storage bids"};
+	}
+	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.TelemetrySource#sampleTelemetry(double[], int)
+	 */
+	public void sampleTelemetry(double values[], int offset) {
+		sampleMarkets(letterToWordMarkets, values, offset);
+		sampleMarkets(letterToBucketMarkets, values, offset + 2);
+		sampleMarkets(transportationMarkets, values, offset + 4);
+		sampleMarkets(storageMarkets, values, offset + 6);
+	}
+	
+	/**Puts the mean bid price over every item type of the markets that has one, and the total number of bids, into values
+	 */
+	private static void sampleMarkets(List<? extends MultiItemDoubleAuction<?, ?, ?, ?>> markets, double values[], int offset) {
+		double price_sum = 0.0;
+		int num_prices = 0, num_bids = 0;
+		for(MultiItemDoubleAuction<?, ?, ?, ?> m : markets) {
+			for(DoubleAuction<?, ?, ?> auction : m.market.values()) {
+				float price = auction.getBidPrice();
+				if(!Float.isInfinite(price)) {
+					price_sum += price;
+					num_prices++;
+				}
+				num_bids += auction.getNumBids();
+			}
+		}
+		values[offset] = (num_prices > 0) ? price_sum / num_prices : Double.NaN;
+		values[offset + 1] = num_bids;
+	}
 }
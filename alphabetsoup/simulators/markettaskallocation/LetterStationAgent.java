@@ -16,6 +16,7 @@ import alphabetsoup.framework.LetterType;
  *
  */
 public class LetterStationAgent extends LetterStationBase {
+	private static final long serialVersionUID = 1L;
 	
 	private MultiItemDoubleAuction<LetterType, Letter, LetterStationAgent, ?> situatedMarket = null;
 	
@@ -43,6 +44,14 @@ public class LetterStationAgent extends LetterStationBase {
 		return Math.min(lastBidUpdateTime + bidUpdateInterval, super.getNextEventTime(cur_time));
 	}
 	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Schedulable#getWakeTime()
+	 */
+	public double getWakeTime() {
+		//bids are updated even while blocked, so must always be updated
+		return Double.NEGATIVE_INFINITY;
+	}
+	
 	/* (non-Javadoc)
 	 * @see alphabetsoup.framework.Updateable#update(double, double)
 	 */
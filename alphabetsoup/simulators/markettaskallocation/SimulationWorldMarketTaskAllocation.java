@@ -15,6 +15,7 @@ import alphabetsoup.waypointgraph.*;
  * @author Chris Hazard
  */
 public class SimulationWorldMarketTaskAllocation extends SimulationWorld {
+	private static final long serialVersionUID = 1L;
 	
 	private double simulationDuration = 0.0;
 	private double simulationWarmupTime = 0.0;
@@ -30,9 +31,8 @@ public class SimulationWorldMarketTaskAllocation extends SimulationWorld {
 	
 	public Economy economy = null;
 	
-	private static SimulationWorldMarketTaskAllocation simulationWorldMarketTaskAllocation;
 	public static SimulationWorldMarketTaskAllocation getSimulationWorld() {
-		return simulationWorldMarketTaskAllocation;
+		return (SimulationWorldMarketTaskAllocation)SimulationWorld.getSimulationWorld();
 	}
 	
 	public void resetStatistics() {
@@ -51,8 +51,14 @@ public class SimulationWorldMarketTaskAllocation extends SimulationWorld {
 	}
 	
 	public SimulationWorldMarketTaskAllocation() {
-		super("alphabetsoup.config");
-		simulationWorldMarketTaskAllocation = this;
+		this("alphabetsoup.config");
+	}
+	
+	/**Builds the simulation from the specified configuration file
+	 * @param configuration_file_name path of the configuration file to load
+	 */
+	public SimulationWorldMarketTaskAllocation(String configuration_file_name) {
+		super(configuration_file_name);
 		
 		float bucketbot_size = Float.parseFloat(params.getProperty("bucketbot_size"));
 		float bucket_size = Float.parseFloat(params.getProperty("bucket_size"));
@@ -77,13 +83,15 @@ public class SimulationWorldMarketTaskAllocation extends SimulationWorld {
 		float letter_bundle_cost = Float.parseFloat(params.getProperty("letter_bundle_cost"));
 		
 		waypointGraph = new WaypointGraph(map.getWidth(), map.getHeight());
+		waypointGraph.initializeRouteCache(params);
+		waypointGraph.initializePathPlanner(params);
+		waypointGraph.initializeTravelTimeEstimator(params, map.getMaxVelocity());
 		
 		//Set up base map to add things to
 		if(usingGUI)
 			RenderWindow.initializeUserInterface(Integer.parseInt(window_size[0]), Integer.parseInt(window_size[1]), this);
 		
-		BucketbotDriver.waypointGraph = waypointGraph;
-		BucketbotDriver.map = map;
+		context.waypointGraph = waypointGraph;
 
 		//Create classes and agents, and add them to the map accordingly
 		bucketbotAgents = new ArrayList<BucketbotAgent>(bucketbots.length); 
@@ -290,7 +298,7 @@ else {
 System.exit(0);
 //*/
 
-		simulationWorld = new SimulationWorldMarketTaskAllocation();
+		SimulationWorld simulationWorld = new SimulationWorldMarketTaskAllocation();
 		double warmup_time = ((SimulationWorldMarketTaskAllocation)simulationWorld).simulationWarmupTime;
 		double simulation_time = ((SimulationWorldMarketTaskAllocation)simulationWorld).simulationDuration; 
 		if(simulationWorld.isUsingGUI()) {
@@ -300,9 +308,7 @@ System.exit(0);
 			RenderWindow.destroyUserInterface();
 		}
 		else {
-			simulationWorld.update(warmup_time);
-			simulationWorld.resetStatistics();
-			simulationWorld.update(simulation_time);
+			simulationWorld = simulationWorld.run(warmup_time, simulation_time);
 		}
 
 		SummaryReport.generateReport(simulationWorld);
@@ -15,6 +15,7 @@ import alphabetsoup.framework.WordStation;
  * @author Chris Hazard
  */
 public class WordOrderManager implements Updateable {
+	private static final long serialVersionUID = 1L;
 
 	public HashMap<Word, DoubleAuction<Word, WordStationAgent, WordOrderManager>> wordMarket = new HashMap<Word, DoubleAuction<Word, WordStationAgent, WordOrderManager>>(); 
 	
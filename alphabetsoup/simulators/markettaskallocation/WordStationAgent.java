@@ -12,6 +12,7 @@ import java.util.Map;
 import alphabetsoup.base.WordStationBase;
 import alphabetsoup.framework.Letter;
 import alphabetsoup.framework.LetterType;
+import alphabetsoup.framework.MersenneTwisterFast;
 import alphabetsoup.framework.SimulationWorld;
 import alphabetsoup.framework.Word;
 
@@ -20,8 +21,10 @@ import alphabetsoup.framework.Word;
  *
  */
 public class WordStationAgent extends WordStationBase {
+	private static final long serialVersionUID = 1L;
 	
 	private MultiItemDoubleAuction<LetterType, Letter, ?, WordStationAgent> situatedMarket = null;
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("word_station_agent");
 
 	public WordStationAgent(float station_radius, float bucket_to_letter_time, float word_completion_time, int station_capacity) {
 		super(station_radius, bucket_to_letter_time, word_completion_time, station_capacity);
@@ -53,7 +56,7 @@ public class WordStationAgent extends WordStationBase {
 		if(market_price < economy.getWordCompletionLetterMarginalRevenue())
 			return market_price;
 		//shave a little off to get some stochasticness going (so not one word station gets them all)
-		return economy.getWordCompletionLetterMarginalRevenue() * (1.0f - .5f * SimulationWorld.rand.nextFloat());
+		return economy.getWordCompletionLetterMarginalRevenue() * (1.0f - .5f * rand.nextFloat());
 	}
 	
 	/* (non-Javadoc)
@@ -63,6 +66,14 @@ public class WordStationAgent extends WordStationBase {
 		return Math.min(lastBidUpdateTime + bidUpdateInterval, super.getNextEventTime(cur_time));
 	}
 	
+	/* (non-Javadoc)
+	 * @see alphabetsoup.framework.Schedulable#getWakeTime()
+	 */
+	public double getWakeTime() {
+		//bids are updated even while blocked, so must always be updated
+		return Double.NEGATIVE_INFINITY;
+	}
+	
 	public void update(double last_time, double cur_time) {
 		curTime = cur_time;
 		
@@ -19,6 +19,7 @@ import alphabetsoup.base.*;
  * @author Chris Hazard
  */
 public class BucketbotManagerExample implements alphabetsoup.waypointgraph.BucketbotManager, Updateable, Renderable {
+	private static final long serialVersionUID = 1L;
 
 	//stores the task assignment lists for each bucketbot
 	// the next task to take is the last element in each array
@@ -72,6 +73,8 @@ public class BucketbotManagerExample implements alphabetsoup.waypointgraph.Bucke
 	protected HashMap<Bucket,Waypoint> pendingBucketStorageLocations = new HashMap<Bucket,Waypoint>();
 	protected HashMap<Bucket,Waypoint> usedBucketStorageLocations = new HashMap<Bucket,Waypoint>();
 	
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot_manager");
+	
 	/**Adds a new valid currently used location to store buckets on the map
 	 */
 	public void addNewUsedBucketStorageLocation(Bucket b, Waypoint w) {
@@ -89,7 +92,6 @@ public class BucketbotManagerExample implements alphabetsoup.waypointgraph.Bucke
 	 * @param s WordStation the word was assigned to
 	 */
 	public void newWordAssignedToStation(Word w, WordStation s) {
-		MersenneTwisterFast rand = SimulationWorldPrecomputed.rand;
 		for(Letter l : w.getOriginalLetters()) {
 			if(openLetterRequests.size() > 0)
 				openLetterRequests.add(rand.nextInt(openLetterRequests.size()), new LetterWordStationPair(l, s));
@@ -103,7 +105,6 @@ public class BucketbotManagerExample implements alphabetsoup.waypointgraph.Bucke
 	 * @param s LetterStation the Letter was assigned to
 	 */
 	public void newLetterBundleAssignedToStation(Letter l, LetterStation s) {
-		MersenneTwisterFast rand = SimulationWorldPrecomputed.rand;
 		if(availableLetters.size() > 0)
 			availableLetters.add(rand.nextInt(availableLetters.size()), new LetterLetterStationPair(l, s));
 		else
@@ -134,7 +135,6 @@ public class BucketbotManagerExample implements alphabetsoup.waypointgraph.Bucke
 	
 	public void assignGetOutOfTheWayTask(Bucketbot r) {
 		Map map = SimulationWorld.getSimulationWorld().getMap();
-		MersenneTwisterFast rand = SimulationWorld.rand;
 		r.assignTask(BucketbotTask.createTaskMOVE(
 				 (map.getWidth()-2*r.getRadius())* rand.nextFloat() + r.getRadius(),
 					(map.getHeight()-2*r.getRadius()) * rand.nextFloat() + r.getRadius()) );
@@ -366,7 +366,7 @@ if(true) throw new Error("task aborted!");
 	
 	
 	//routines which may be used to render the current used storage locations
-	private Disk disk = new Disk();
+	static private Disk disk = new Disk();
 	public void render() {
 		GL11.glLineWidth(1.0f);
 		GL11.glColor4ub((byte)0xFF, (byte)0x0, (byte)0x0, (byte)0xFF);
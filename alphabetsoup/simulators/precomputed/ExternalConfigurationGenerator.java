@@ -15,13 +15,14 @@ import alphabetsoup.waypointgraph.*;
  *
  */
 public class ExternalConfigurationGenerator extends SimulationWorldPrecomputed {
+	private static final long serialVersionUID = 1L;
 
 	/**Changes a Letter into a unique integer based on the leter itself and its color
 	 * @param l Letter
 	 * @return unique integer
 	 */ 
 	static int letterToInt(Letter l) {
-		return 256 * l.getColorID() + (int)l.getLetter();
+		return LetterInventory.getKey(l);
 	}
 	
 	/**Generates configuration text as a List of Strings.
@@ -64,6 +65,8 @@ public class ExternalConfigurationGenerator extends SimulationWorldPrecomputed {
 		
 		//find fastest time to get to each place
 		Bucketbot bb = bucketbots[0];
+		//nothing moves while generating, so each route only needs to be found once for all of its hops
+		WaypointRouteCache route_cache = new WaypointRouteCache(wpg, Integer.MAX_VALUE, Integer.MAX_VALUE);
 		//for each waypoint
 		for(int i = 0; i < wp.size(); i++) {
 			String s = "";
@@ -76,7 +79,8 @@ public class ExternalConfigurationGenerator extends SimulationWorldPrecomputed {
 					Waypoint w = wp.get(i);
 					Waypoint end = wp.get(j);
 					while(w != null) {
-						Waypoint next = ((BucketbotDriver)bb).getNextWaypointTo(w, end);
+						Waypoint next = route_cache.getNextWaypointTo(w, end, bb.getBucket() != null,
+															((BucketbotDriver)bb).getCrowdingPenalty());
 						//accumulate time
 						//TODO have better time approximation
 						float ave_velocity = 9.18f; //bb.getMaxVelocity();
@@ -96,7 +100,7 @@ public class ExternalConfigurationGenerator extends SimulationWorldPrecomputed {
 		//populate buckets
 		//clear bucket contents from before
 		for(Bucket b : buckets)
-			b.getLetters().clear();
+			b.removeAllLetters();
 		initializeBucketContentsRandom(Float.parseFloat(params.getProperty("initial_inventory")), Integer.parseInt(params.getProperty("bundle_size")));
 		
 		///////////////////////////
@@ -151,7 +155,7 @@ public class ExternalConfigurationGenerator extends SimulationWorldPrecomputed {
 	 * @param args
 	 */
 	public static void main(String[] args) {
-		simulationWorld = new ExternalConfigurationGenerator();
+		SimulationWorld simulationWorld = new ExternalConfigurationGenerator();
 
 		FileWriter outfile;
 		PrintWriter outf;
@@ -14,6 +14,7 @@ import alphabetsoup.framework.Updateable;
  * @author Chris Hazard
  */
 public class LetterManagePrecomputed implements Updateable {
+	private static final long serialVersionUID = 1L;
 	
 	//stores the letter assignment lists for each station
 	// the next letter to take is the last element in each array
@@ -18,6 +18,7 @@ import alphabetsoup.waypointgraph.*;
  * @author Chris Hazard
  */
 public class SimulationWorldPrecomputed extends SimulationWorld {
+	private static final long serialVersionUID = 1L;
 	
 	/**Changes a Letter into a unique integer based on the leter itself and its color
 	 * @param l Letter
@@ -33,14 +34,19 @@ public class SimulationWorldPrecomputed extends SimulationWorld {
 	public BucketbotManagerExample bucketbotManager = null;
 	public WaypointGraph waypointGraph = null;
 	
-	private static SimulationWorldPrecomputed simulationWorldPrecomputed;
 	public static SimulationWorldPrecomputed getSimulationWorld() {
-		return simulationWorldPrecomputed;
+		return (SimulationWorldPrecomputed)SimulationWorld.getSimulationWorld();
 	}
 	
 	public SimulationWorldPrecomputed() {
-		super("alphabetsoup.config");
-		simulationWorldPrecomputed = this;
+		this("alphabetsoup.config");
+	}
+	
+	/**Builds the simulation from the specified configuration file
+	 * @param configuration_file_name path of the configuration file to load
+	 */
+	public SimulationWorldPrecomputed(String configuration_file_name) {
+		super(configuration_file_name);
 		
 		float bucketbot_size = Float.parseFloat(params.getProperty("bucketbot_size"));
 		float bucket_size = Float.parseFloat(params.getProperty("bucket_size"));
@@ -59,13 +65,15 @@ public class SimulationWorldPrecomputed extends SimulationWorld {
 		simulationDuration = Double.parseDouble(params.getProperty("simulation_duration"));
 		
 		waypointGraph = new WaypointGraph(map.getWidth(), map.getHeight());
+		waypointGraph.initializeRouteCache(params);
+		waypointGraph.initializePathPlanner(params);
+		waypointGraph.initializeTravelTimeEstimator(params, map.getMaxVelocity());
 		
 		//Set up base map to add things to
 		if(usingGUI)
 			RenderWindow.initializeUserInterface(Integer.parseInt(window_size[0]), Integer.parseInt(window_size[1]), this);
 		
-		BucketbotDriver.waypointGraph = waypointGraph;
-		BucketbotDriver.map = map;
+		context.waypointGraph = waypointGraph;
 
 		//Create classes, and add them to the map accordingly
 		for(int i = 0; i < bucketbots.length; i++)
@@ -211,7 +219,7 @@ public class SimulationWorldPrecomputed extends SimulationWorld {
 	 * @param args
 	 */
 	public static void main(String[] args) {
-		simulationWorld = new SimulationWorldPrecomputed();
+		SimulationWorld simulationWorld = new SimulationWorldPrecomputed();
 		if(simulationWorld.isUsingGUI())
 		{
 			RenderWindow.mainLoop(simulationWorld,
@@ -17,6 +17,7 @@ import alphabetsoup.framework.WordStation;
  * @author Chris Hazard
  */
 public class WordManagerPrecomputed implements Updateable {
+	private static final long serialVersionUID = 1L;
 
 	//stores the word number assignment lists for each station
 	// the next word to take is the last element in each array
@@ -14,10 +14,12 @@ import alphabetsoup.framework.*;
  * @author Chris Hazard
  */
 public class BucketbotExample extends BucketbotBase {
+	private static final long serialVersionUID = 1L;
 
 	float frustration = 0.0f;	//0.0->1.0 for maximal frustration
 	int stuckCount = 0;			//number of updates not able to move at all
 	static final double sqrt2 = Math.sqrt(2.0);
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot");
 	
 	public BucketbotExample(float bucketbot_radius, float bucket_pickup_setdown_time,
 			float bucketbot_max_acceleration, float bucketbot_max_velocity, float collision_penalty_time) {
@@ -110,6 +112,8 @@ public class BucketbotExample extends BucketbotBase {
 	}
 
 	public class BucketbotPickupBucket implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "PickupBucket"; }
 		Bucket bucket;
 		public BucketbotPickupBucket(Bucket b) {
@@ -128,6 +132,8 @@ public class BucketbotExample extends BucketbotBase {
 	}
 	
 	public class BucketbotSetdownBucket implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "SetdownBucket"; }
 		public BucketbotSetdownBucket() { }
 		public void act(BucketbotBase self) {
@@ -142,6 +148,8 @@ public class BucketbotExample extends BucketbotBase {
 	}
 	
 	public class BucketbotGetLetter implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "GetLetter"; }
 		Letter letter;
 		LetterStation station;
@@ -183,6 +191,8 @@ public class BucketbotExample extends BucketbotBase {
 	}
 	
 	public class BucketbotPutLetter implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "PutLetter"; }
 		Letter letter;
 		WordStation station;
@@ -321,15 +331,15 @@ public class BucketbotExample extends BucketbotBase {
 	}
 
 	public class BucketbotEvade implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "Evade"; }
 		public void act(BucketbotBase self) {
 			setDrawBolded(true);
 			
-			if(curTime < cruiseUntil)
+			if(curTime < getCruiseUntil())
 				return;
 			
-			MersenneTwisterFast rand = SimulationWorld.rand;
-			
 			//if doing something else (stateQueue isn't empty), are trying to move to a new location,
 			// but there's another bucketbot at that location, then sit and wait most of the time
 			if(stateQueue.size() > 1
@@ -360,6 +370,8 @@ public class BucketbotExample extends BucketbotBase {
 	BucketbotEvade bucketbotEvade = this.new BucketbotEvade();
 	
 	public class BucketbotMove implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "Move"; }
 		public float moveToX, moveToY;
 		public BucketbotMove(float x, float y) {
@@ -390,7 +402,7 @@ public class BucketbotExample extends BucketbotBase {
 			if( ((getBucket() == null && visible_objects.size() == 1) 
 						|| (getBucket() != null && visible_objects.size() == 2) )
 					&& cur_speed > 0.0f
-					&& curTime < cruiseUntil)
+					&& curTime < getCruiseUntil())
 				return;
  
 
@@ -424,7 +436,7 @@ public class BucketbotExample extends BucketbotBase {
 						setDirection(new_direction);
 
 					setTargetSpeed(getMaxVelocity());
-					cruiseUntil = curTime + 0.25f;
+					setCruiseUntil(curTime + 0.25f);
 
 					frustration = 0.0f;
 					stateQueue.add(0, bucketbotEvade);
@@ -475,7 +487,7 @@ public class BucketbotExample extends BucketbotBase {
 				setDirection((float)Math.atan2(moveToY - getY(), moveToX - getX()));
 				if(cur_speed > 0)
 					setTargetSpeed(0.0f);
-				cruiseUntil = getAccelerateUntil();
+				setCruiseUntil(getAccelerateUntil());
 				return;
 			}
 			
@@ -486,7 +498,7 @@ public class BucketbotExample extends BucketbotBase {
 			float decel_distance = getMaxAcceleration()/2 * decel_time * decel_time;
 			if(cur_speed > 0.0f && decel_distance > goal_distance) {
 				setTargetSpeed(0.0f);
-				cruiseUntil = getAccelerateUntil();
+				setCruiseUntil(getAccelerateUntil());
 				frustration = (frustration + 1.0f) / 2;
 				return;
 			}
@@ -503,7 +515,7 @@ public class BucketbotExample extends BucketbotBase {
 
 			//if enough room to fully accelerate, do so
 			if(accel_distance + decel_distance <= goal_distance)
-				cruiseUntil = getAccelerateUntil();
+				setCruiseUntil(getAccelerateUntil());
 			else { //don't have time to fully accelerate
 				//having this code spread out with sub-steps dramatically helps the java compiler have
 				// better performance
@@ -513,17 +525,17 @@ public class BucketbotExample extends BucketbotBase {
 				double y_accel = getMaxAcceleration() * sin_dir;
 				if(Math.abs(x_accel) > Math.abs(y_accel)) {
 					double x_goal = goal_distance * cos_dir;
-					cruiseUntil = curTime + 
+					setCruiseUntil(curTime + 
 							sqrt2 * (Math.sqrt(2*x_accel*x_goal + getXVelocity()*getXVelocity())
 										- sqrt2*getXVelocity())
-								/ (2*x_accel);
+								/ (2*x_accel));
 				}
 				else {
 					double y_goal = goal_distance * sin_dir;
-					cruiseUntil = curTime +
+					setCruiseUntil(curTime +
 							sqrt2 * (Math.sqrt(2*y_accel*y_goal + getYVelocity()*getYVelocity())
 										- sqrt2*getYVelocity())
-								/ (2*y_accel);
+								/ (2*y_accel));
 				}				
 			}
 		} //act()
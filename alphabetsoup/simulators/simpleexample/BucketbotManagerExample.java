@@ -13,6 +13,8 @@ import alphabetsoup.base.*;
  * @author Chris Hazard
  */
 public class BucketbotManagerExample implements Updateable {
+	private static final long serialVersionUID = 1L;
+
 	protected LinkedHashSet<Bucket> usedBuckets = new LinkedHashSet<Bucket>();
 	protected LinkedHashSet<Bucket> unusedBuckets = new LinkedHashSet<Bucket>();
 	
@@ -53,6 +55,8 @@ public class BucketbotManagerExample implements Updateable {
 	protected HashMap<Bucket,Circle> pendingBucketStorageLocations = new HashMap<Bucket,Circle>();
 	protected HashMap<Bucket,Circle> usedBucketStorageLocations = new HashMap<Bucket,Circle>();
 	
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot_manager");
+	
 	/**Adds a new valid currently used location to store buckets on the map
 	 */
 	public void addNewUsedBucketStorageLocation(Bucket b) {
@@ -71,7 +75,6 @@ public class BucketbotManagerExample implements Updateable {
 	 * @param s WordStation the word was assigned to
 	 */
 	public void newWordAssignedToStation(Word w, WordStation s) {
-		MersenneTwisterFast rand = SimulationWorldSimpleExample.rand;
 		for(Letter l : w.getOriginalLetters()) {
 			if(openLetterRequests.size() > 0)
 				openLetterRequests.add(rand.nextInt(openLetterRequests.size()), new LetterWordStationPair(l, s));
@@ -85,7 +88,6 @@ public class BucketbotManagerExample implements Updateable {
 	 * @param s LetterStation the Letter was assigned to
 	 */
 	public void newLetterBundleAssignedToStation(Letter l, LetterStation s) {
-		MersenneTwisterFast rand = SimulationWorldSimpleExample.rand;
 		if(availableLetters.size() > 0)
 			availableLetters.add(rand.nextInt(availableLetters.size()), new LetterLetterStationPair(l, s));
 		else
@@ -112,8 +114,6 @@ public class BucketbotManagerExample implements Updateable {
 	public void requestNewTask(Bucketbot r) {
 		
 		alphabetsoup.framework.Map map = SimulationWorldSimpleExample.getSimulationWorld().map;
-		MersenneTwisterFast rand = SimulationWorldSimpleExample.rand;
-		
 		//if robot has a bucket, store it
 		if(r.getBucket() != null && unusedBucketStorageLocations.size() > 0) {
 			Circle location = unusedBucketStorageLocations.get(0);
@@ -20,20 +20,26 @@ import alphabetsoup.userinterface.WordStationRender;
  * @author Chris Hazard
  */
 public class SimulationWorldSimpleExample extends SimulationWorld {
+	private static final long serialVersionUID = 1L;
 	
 	private double simulationDuration = 0.0;
 	public LetterManagerExample letterManager = null;
 	public Updateable wordManager = null;
 	public BucketbotManagerExample bucketbotManager = null;
 	
-	private static SimulationWorldSimpleExample simulationWorldExample;
 	public static SimulationWorldSimpleExample getSimulationWorld() {
-		return simulationWorldExample;
+		return (SimulationWorldSimpleExample)SimulationWorld.getSimulationWorld();
 	}
 	
 	public SimulationWorldSimpleExample() {
-		super("alphabetsoup.config");
-		simulationWorldExample = this;
+		this("alphabetsoup.config");
+	}
+	
+	/**Builds the simulation from the specified configuration file
+	 * @param configuration_file_name path of the configuration file to load
+	 */
+	public SimulationWorldSimpleExample(String configuration_file_name) {
+		super(configuration_file_name);
 
 		float bucketbot_size = Float.parseFloat(params.getProperty("bucketbot_size"));
 		float bucket_size = Float.parseFloat(params.getProperty("bucket_size"));
@@ -187,7 +193,7 @@ public class SimulationWorldSimpleExample extends SimulationWorld {
 		for(Bucketbot r: bucketbots)		bucketbots_to_add.add((Circle)r);
 		
 		//set up random locations for buckets and bucketbots, making sure they don't collide
-		MersenneTwisterFast rand = SimulationWorld.rand;
+		MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot_placement");
 		for(Circle c : bucketbots_to_add)
 		{
 			boolean collision;
@@ -215,7 +221,7 @@ public class SimulationWorldSimpleExample extends SimulationWorld {
 	 * @param args
 	 */
 	public static void main(String[] args) {
-		simulationWorld = new SimulationWorldSimpleExample();
+		SimulationWorld simulationWorld = new SimulationWorldSimpleExample();
 		if(simulationWorld.isUsingGUI())
 		{
 			RenderWindow.mainLoop(simulationWorld,
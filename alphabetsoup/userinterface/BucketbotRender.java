@@ -155,7 +155,7 @@ if(bucketbot.getCurrentTask().getWordStation() != null) {
 		}
 		RenderWindow.renderString(x, y, "state: " + state_name);
 		y += RenderWindow.getFontRenderHeight();
-		RenderWindow.renderString(x, y, "Cruise Time: " + df.format(bucketbot.cruiseUntil - bucketbot.curTime));
+		RenderWindow.renderString(x, y, "Cruise Time: " + df.format(bucketbot.getCruiseUntil() - bucketbot.curTime));
 		y += RenderWindow.getFontRenderHeight();
 		RenderWindow.renderString(x, y, "Distance Traveled: " + df.format(bucketbot.getDistanceTraveled()) );
 		y += RenderWindow.getFontRenderHeight();
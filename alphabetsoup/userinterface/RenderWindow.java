@@ -57,6 +57,7 @@ public class RenderWindow {
 	
 	static private boolean paused = false;
 	static private boolean renderReport = false;
+	static private boolean renderProfile = false;
 	
 	static private List<Renderable> solidRenders = new ArrayList<Renderable>();
 	static private List<Renderable> lineRenders = new ArrayList<Renderable>();
@@ -164,6 +165,7 @@ public class RenderWindow {
 			if(Keyboard.getEventKey() == Keyboard.KEY_R) SummaryReport.generateReport(simulationWorld);
 			if(Keyboard.getEventKey() == Keyboard.KEY_C) simulationWorld.resetStatistics();
 			if(Keyboard.getEventKey() == Keyboard.KEY_TAB) renderReport = !renderReport;
+			if(Keyboard.getEventKey() == Keyboard.KEY_P) renderProfile = !renderProfile;
 			if(Keyboard.getEventKey() == Keyboard.KEY_LSHIFT
 					|| Keyboard.getEventKey() == Keyboard.KEY_RSHIFT) inZoomMode = !inZoomMode;
 			if(Keyboard.getEventKey() == Keyboard.KEY_LCONTROL
@@ -365,28 +367,12 @@ public class RenderWindow {
 			y += RenderWindow.getFontRenderHeight();
 		}
 		
-		if(renderReport) {
-			List<String> report = SummaryReport.generateReportText(simulationWorld);
-			
-			//draw background "window"
-			int longest_line_length = 0;
-			for(String s : report) longest_line_length = Math.max(longest_line_length, s.length());
-			GL11.glColor4f(0.8f, 0.8f, 0.8f, 0.9f);
-			GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
-			GL11.glBegin(GL11.GL_QUADS);
-			GL11.glVertex2f(x, y - fontRenderHeight/2);
-			GL11.glVertex2f(x, y + fontRenderHeight * report.size());
-			GL11.glVertex2f(x + fontRenderWidth * longest_line_length, y + fontRenderHeight * report.size());
-			GL11.glVertex2f(x + fontRenderWidth * longest_line_length, y - fontRenderHeight/2);
-			GL11.glEnd();
-
-			//render report text
-			GL11.glColor4f(0.0f, 0.0f, 0.0f, 1.0f);
-			for(String s : report) {
-				RenderWindow.renderString(x, y, s);
-				y += RenderWindow.getFontRenderHeight();
-			}
-		}
+		if(renderReport)
+			y = renderTextWindow(x, y, SummaryReport.generateReportText(simulationWorld));
+		
+		//where the time of the steps is going, if profiling
+		if(renderProfile && simulationWorld.getUpdateProfiler() != null)
+			y = renderTextWindow(x, y, simulationWorld.getUpdateProfiler().getReportText());
 		
 		GL11.glDisable(GL11.GL_TEXTURE_2D);
 
@@ -394,6 +380,34 @@ public class RenderWindow {
 		GL11.glFinish();
 	}
 	
+	/**Renders lines of text on a background window
+	 * @param x x coordinate of the left of the window
+	 * @param y y coordinate of the first line
+	 * @param lines text to render
+	 * @return y coordinate below the last line
+	 */
+	static private float renderTextWindow(float x, float y, List<String> lines) {
+		//draw background "window"
+		int longest_line_length = 0;
+		for(String s : lines) longest_line_length = Math.max(longest_line_length, s.length());
+		GL11.glColor4f(0.8f, 0.8f, 0.8f, 0.9f);
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+		GL11.glBegin(GL11.GL_QUADS);
+		GL11.glVertex2f(x, y - fontRenderHeight/2);
+		GL11.glVertex2f(x, y + fontRenderHeight * lines.size());
+		GL11.glVertex2f(x + fontRenderWidth * longest_line_length, y + fontRenderHeight * lines.size());
+		GL11.glVertex2f(x + fontRenderWidth * longest_line_length, y - fontRenderHeight/2);
+		GL11.glEnd();
+
+		//render text
+		GL11.glColor4f(0.0f, 0.0f, 0.0f, 1.0f);
+		for(String s : lines) {
+			RenderWindow.renderString(x, y, s);
+			y += RenderWindow.getFontRenderHeight();
+		}
+		return y;
+	}
+	
 	/**Continually loops, processing user input and rendering the state of the simulation until
 	 * finished
 	 * @param elapsed_time time to run the simulation.  if 0.0, then continually run
@@ -7,6 +7,7 @@ import java.util.*;
 
 import alphabetsoup.base.BucketbotBase;
 import alphabetsoup.base.BucketbotTask;
+import alphabetsoup.base.LatencyRecorder;
 import alphabetsoup.framework.*;
 import alphabetsoup.framework.Map;
 
@@ -15,6 +16,7 @@ import alphabetsoup.framework.Map;
  * @author Chris Hazard
  */
 public class BucketbotDriver extends BucketbotBase {
+	private static final long serialVersionUID = 1L;
 
 	public float frustration = 0.0f;	//0.0->1.0 for maximal frustration
 	int stuckCount = 0;			//number of updates not able to move at all
@@ -23,16 +25,29 @@ public class BucketbotDriver extends BucketbotBase {
 	
 	public float evadeDistance = 0.0f;	//if see something within this distance, then evade!
 	
-	static public WaypointGraph waypointGraph = null;	//should be set to the global waypointGraph
-	static public Map map = null;	//should be set to the global map
+	public WaypointGraph waypointGraph = null;	//waypointGraph of the SimulationContext this was created in
+	public Map map = null;	//map of the SimulationContext this was created in
 
 	private Waypoint currentWaypoint = null;
 	
+	//reused by each neighbor query so that moving doesn't allocate anything
+	private List<Circle> visibleObjects = new ArrayList<Circle>();
+	
+	//route being followed when the WaypointGraph has a HierarchicalPathPlanner
+	private HierarchicalPathPlanner.Route hierarchicalRoute = new HierarchicalPathPlanner.Route();
+	
+	//stream of random numbers for this bucketbot's evasive moves
+	private MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot");
+	
 	public BucketbotDriver(float bucketbot_radius, float bucket_pickup_setdown_time,
 			float bucketbot_max_acceleration, float bucketbot_max_velocity, float collision_penalty_time) {
 		super(bucketbot_radius, bucket_pickup_setdown_time, bucketbot_max_acceleration, bucketbot_max_velocity, collision_penalty_time);
 		
 		evadeDistance = 2.3f * getRadius();
+		
+		SimulationContext context = SimulationContext.getCurrentContext();
+		waypointGraph = context.waypointGraph;
+		map = context.map;
 	}
 
 	/* (non-Javadoc)
@@ -41,11 +56,18 @@ public class BucketbotDriver extends BucketbotBase {
 	//public void assignTask(Object tt) {
 	public <T> void assignTask(T tt) {
 		BucketbotTask t = (BucketbotTask)tt;
+		LatencyRecorder latency = SimulationWorld.getSimulationWorld().getLatencyRecorder();
+		if(latency != null && t != null)
+			latency.taskAssigned(t, getCurrentTask(), SimulationWorld.getSimulationWorld().getCurrentTime());
 		setCurrentTask(t);
 		stateQueue.clear();
 		if(t == null)
 			return;
 		
+		UpdateProfiler profiler = SimulationWorld.getSimulationWorld().getUpdateProfiler();
+		if(profiler != null)
+			profiler.taskAssigned(t.getTaskType().toString(), SimulationWorld.getSimulationWorld().getCurrentTime());
+		
 		switch(t.getTaskType()) {
 		case NONE:	break;
 		case CANCEL:	break;
@@ -57,7 +79,7 @@ public class BucketbotDriver extends BucketbotBase {
 			break;
 		case STORE_BUCKET:
 			if(t.getBucket() != getBucket()) {
-				manager.taskAborted(this, t);
+				taskAborted(t);
 				return;
 			}
 			
@@ -92,13 +114,35 @@ public class BucketbotDriver extends BucketbotBase {
 	 * @see alphabetsoup.framework.Bucketbot#idle()
 	 */
 	public void idle() {
+		LatencyRecorder latency = SimulationWorld.getSimulationWorld().getLatencyRecorder();
+		if(latency != null)
+			latency.taskCompleted(getCurrentTask(), SimulationWorld.getSimulationWorld().getCurrentTime());
 		manager.taskComplete(this, getCurrentTask());
 		manager.requestNewTask(this);
 		if(stateQueue.size() > 0)
 			stateQueue.get(0).act(this);
 	}
+	
+	/**Returns evadeDistance, since anything in front of the bucketbot closer than that makes it evade
+	 * @see alphabetsoup.base.BucketbotBase#getSensingDistance()
+	 */
+	public float getSensingDistance() {
+		return evadeDistance;
+	}
+	
+	/**Tells the manager that a task has been aborted, and records how long it was worked on
+	 * @param t task aborted
+	 */
+	protected void taskAborted(BucketbotTask t) {
+		LatencyRecorder latency = SimulationWorld.getSimulationWorld().getLatencyRecorder();
+		if(latency != null)
+			latency.taskAborted(t, SimulationWorld.getSimulationWorld().getCurrentTime());
+		manager.taskAborted(this, t);
+	}
 
 	public class BucketbotPickupBucket implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "PickupBucket"; }
 		Bucket bucket;
 		public BucketbotPickupBucket(Bucket b) {
@@ -112,13 +156,15 @@ public class BucketbotDriver extends BucketbotBase {
 				stateQueue.remove(0);
 			}
 			else { //failed to pick up bucket
-				manager.taskAborted(self, getCurrentTask());
+				taskAborted(getCurrentTask());
 				stateQueue.clear();
 			}
 		}
 	}
 	
 	public class BucketbotSetdownBucket implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "SetdownBucket"; }
 		Waypoint waypoint = null;
 		public BucketbotSetdownBucket(Waypoint w) {
@@ -132,13 +178,15 @@ public class BucketbotDriver extends BucketbotBase {
 				stateQueue.remove(0);
 			}
 			else { //failed to set down bucket
-				manager.taskAborted(self, getCurrentTask());
+				taskAborted(getCurrentTask());
 				stateQueue.clear();
 			}
 		}
 	}
 	
 	public class BucketbotGetLetter implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "GetLetter"; }
 		Letter letter;
 		LetterStation station;
@@ -162,7 +210,7 @@ public class BucketbotDriver extends BucketbotBase {
 
 			if(self.getBucket() == null) {
 				//something wrong happened... don't have a bucket!
-				manager.taskAborted(self, getCurrentTask());
+				taskAborted(getCurrentTask());
 				stateQueue.remove(0);
 				if(stateQueue.size() > 0)
 					stateQueue.get(0).act(self);
@@ -180,6 +228,8 @@ public class BucketbotDriver extends BucketbotBase {
 	}
 	
 	public class BucketbotPutLetter implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "PutLetter"; }
 		Letter letter;
 		WordStation station;
@@ -203,7 +253,7 @@ public class BucketbotDriver extends BucketbotBase {
 			
 			if(self.getBucket() == null) {
 				//something wrong happened... don't have a bucket!
-				manager.taskAborted(self, getCurrentTask());
+				taskAborted(getCurrentTask());
 				stateQueue.remove(0);
 				if(stateQueue.size() > 0)
 					stateQueue.get(0).act(self);
@@ -249,9 +299,11 @@ public class BucketbotDriver extends BucketbotBase {
 	 */
 	public float getBestEvadeDirection(float visible_distance) {
 		//get visible objects within the distance of the next planned update
-		Collection<Circle> visible_objects = map.getBucketbotsWithinDistance(getX(), getY(), visible_distance);
+		List<Circle> visible_objects = visibleObjects;
+		visible_objects.clear();
+		map.getBucketbotsWithinDistance(getX(), getY(), visible_distance, visible_objects);
 		if(getBucket() != null)
-			visible_objects.addAll(map.getBucketsWithinDistance(getX(), getY(), visible_distance));
+			map.getBucketsWithinDistance(getX(), getY(), visible_distance, visible_objects);
 	
 		List<CollideableObject> objects = new ArrayList<CollideableObject>();
 		//get object distances and directions
@@ -311,15 +363,15 @@ public class BucketbotDriver extends BucketbotBase {
 	}
 
 	public class BucketbotEvade implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "Evade"; }
 		public void act(BucketbotBase self) {
 			setDrawBolded(true);
 			
-			if(curTime < cruiseUntil)
+			if(curTime < getCruiseUntil())
 				return;
 			
-			MersenneTwisterFast rand = SimulationWorld.rand;
-			
 			//if doing something else (stateQueue isn't empty), are trying to move to a new location,
 			// but there's another bucketbot at that location, then sit and wait most of the time
 			if(stateQueue.size() > 1
@@ -337,7 +389,7 @@ public class BucketbotDriver extends BucketbotBase {
 
 			setTargetSpeed(getMaxVelocity());
 			//cruiseUntil = curTime + getRadius() / getMaxVelocity() / 2;
-			cruiseUntil = curTime + (Math.sqrt(2 * getMaxAcceleration() * getRadius() + getMaxVelocity() * getMaxVelocity()) - getMaxVelocity()) / getMaxAcceleration() / 2;
+			setCruiseUntil(curTime + (Math.sqrt(2 * getMaxAcceleration() * getRadius() + getMaxVelocity() * getMaxVelocity()) - getMaxVelocity()) / getMaxAcceleration() / 2);
 			
 			float new_direction = getBestEvadeDirection(evadeDistance);
 			if(getDirection() != new_direction)
@@ -354,115 +406,56 @@ public class BucketbotDriver extends BucketbotBase {
 	}
 	BucketbotEvade bucketbotEvade = this.new BucketbotEvade();
 	
-	/**Used by getNextWaypointTo store the move search tree for A*
-	 * @author Chris Hazard
-	 */
-	private static class WaypointSearchData {
-		public WaypointSearchData(float t, float d, Waypoint w, WaypointSearchData p) {
-			distanceTraveled = t; distanceToGoal = d;	waypoint = w;	parentMove = p;
-		}
-		public float distanceTraveled;
-		public float distanceToGoal;
-		public Waypoint waypoint;
-		public WaypointSearchData parentMove;
-	}
-	
-	/**Uses A* to find the next move the Bucketbot should make to get from start to end
+	/**Uses A* to find the next move the Bucketbot should make to get from start to end.
+	 * Bucketbots going to a Waypoint make it look further away, and bucket storage locations
+	 * can't be passed through while carrying a bucket.  Follows a route from the HierarchicalPathPlanner
+	 * of the WaypointGraph if it has one, otherwise uses its WaypointRouteCache if it has one.
+	 * @see WaypointPathPlanner#getNextWaypointTo(Waypoint, Waypoint, boolean, float)
 	 * @param start Waypoint the Bucketbot is starting from
 	 * @param end Waypoint the Bucketbot wants to get to
 	 * @return Waypoint that is connected to start which is the best move to get towards end
 	 */
 	public Waypoint getNextWaypointTo(Waypoint start, Waypoint end) {
-		if(start == null || end == null)
-			return null;
-
-		HashMap<Waypoint, WaypointSearchData> openLocations = new HashMap<Waypoint, WaypointSearchData>();
-		HashMap<Waypoint, WaypointSearchData> closedLocations = new HashMap<Waypoint, WaypointSearchData>();
-		openLocations.put(start, new WaypointSearchData(0.0f, start.getDistance(end), start, null) );
-		
-		//don't move if already at destination
-		if(start == end)
-			return null;
-		
-		//maximum number of waypoints to look at in search
-		int max_num_iterations = 1000;
-		int num_iterations = 0;
+		HierarchicalPathPlanner hierarchical_planner = waypointGraph.getHierarchicalPlanner();
+		if(hierarchical_planner != null)
+			return hierarchical_planner.getNextWaypointTo(hierarchicalRoute, start, end, getBucket() != null, getCrowdingPenalty());
+		if(waypointGraph.getRouteCache() != null)
+			return waypointGraph.getRouteCache().getNextWaypointTo(start, end, getBucket() != null, getCrowdingPenalty());
+		return waypointGraph.getPathPlanner().getNextWaypointTo(start, end, getBucket() != null, getCrowdingPenalty());
+	}
+	
+	/**Returns how long the Bucketbot can keep going toward a point straight ahead before it needs to start stopping
+	 * to stop there, if it changes speed at its maximum acceleration, as it does under kinetic motion
+	 * @param distance distance to the point
+	 * @param speed current speed
+	 * @param target_speed speed it is accelerating or decelerating toward
+	 * @return time until it needs to start stopping, 0 if it already does
+	 */
+	public double getTimeUntilStopping(float distance, float speed, float target_speed) {
+		double acceleration = getMaxAcceleration();
+		double change_time = Math.abs(target_speed - speed) / acceleration;
+		double change_distance = (speed + target_speed) / 2 * change_time;
+		double stop_distance = target_speed * target_speed / (2 * acceleration);
+		//reaches the target speed, and holds it until it needs to stop
+		if(target_speed > 0.0f && change_distance + stop_distance <= distance)
+			return change_time + (distance - change_distance - stop_distance) / target_speed;
+		if(target_speed < speed)
+			return 0.0;
+		//needs to stop while still speeding up, when the distance left is the distance it takes to stop
+		double top_speed = Math.sqrt(acceleration * distance + speed * speed / 2);
+		return Math.max((top_speed - speed) / acceleration, 0.0);
+	}
 
-		//loop until end is found
-		while(true) {
-			
-			//find lowest cost waypoint in openLocations
-			Waypoint closest = null;
-			float lowest_cost = Float.POSITIVE_INFINITY;
-			for(Waypoint w : openLocations.keySet()) {
-				if(openLocations.get(w).distanceTraveled + openLocations.get(w).distanceToGoal < lowest_cost) {
-					closest = w;
-					lowest_cost = openLocations.get(w).distanceTraveled + openLocations.get(w).distanceToGoal; 
-				}
-			}
-			//something wrong happened -can't find the end
-			if(closest == null)
-				return null;
-			
-			//grab the details about the current waypoint
-			WaypointSearchData wsd = openLocations.get(closest);
-
-			//if the closest is also the destination or out of iterations
-			if(closest == end || num_iterations++ == max_num_iterations) {
-				//found it on the first move
-				if(wsd.parentMove == null)
-					return null;
-				//go back to the first move made
-				while(wsd.parentMove.parentMove != null)
-					wsd = wsd.parentMove;
-				return wsd.waypoint;
-			}
-			
-			//transfer closest from open to closed list
-			closedLocations.put(closest, openLocations.get(closest));
-			openLocations.remove(closest);
-			
-			//expand all the moves
-			for(Waypoint w : closest.getPaths()) {
-				
-				if(closedLocations.containsKey(w))
-					//don't deal with anything already on the closed list (don't want loops)
-					continue;
-				
-				//can't go through a bucket storage location if carrying a bucket, unless it's the destination
-				if(w.isBucketStorageLocation() && getBucket() != null && w != end)
-					continue;
-				
-				//don't go to a waypoint that's crowded
-				//if(w.getBucketbots().size() > 0)
-				//	continue;
-				
-				//tag on more distance for a crowded node, as long as it's not the end node
-				float additional_distance = 0.0f;
-				if(w != end)
-					additional_distance = 5*2*getRadius()*w.getBucketbots().size();
-
-				//if it's not in the open list, add it
-				if(!openLocations.containsKey(w)) {
-					openLocations.put(w, new WaypointSearchData(
-							wsd.distanceTraveled + closest.getPathWeight(w),
-							w.getDistance(end) + additional_distance,
-							w,
-							wsd));
-				}
-				else { //it's already in the open list, but see if this new path is better
-					WaypointSearchData old_path = openLocations.get(w);
-					//replace it with the new one
-					if(old_path.distanceTraveled + old_path.distanceToGoal > wsd.distanceTraveled + closest.getPathWeight(w))
-						openLocations.put(w, new WaypointSearchData(
-								wsd.distanceTraveled + closest.getPathWeight(w),
-								w.getDistance(end) + additional_distance, w, wsd));
-				}
-			} //for closest.getPaths()
-		}
+	/**
+	 * @return the distance added to a Waypoint when planning routes for each Bucketbot going to it
+	 */
+	public float getCrowdingPenalty() {
+		return 5*2*getRadius();
 	}
 	
 	public class BucketbotMove implements BucketbotState {
+		private static final long serialVersionUID = 1L;
+
 		public String getStateName() { return "Move"; }
 		public float moveToX, moveToY;
 		public Waypoint destinationWaypoint;
@@ -495,9 +488,11 @@ public class BucketbotDriver extends BucketbotBase {
 			distance_to_be_covered = Math.max(distance_to_be_covered, evadeDistance);
 			
 			//get visible objects within the distance of the next planned update
-			Collection<Circle> visible_objects = map.getBucketbotsWithinDistance(getX(), getY(), distance_to_be_covered);
+			List<Circle> visible_objects = visibleObjects;
+			visible_objects.clear();
+			map.getBucketbotsWithinDistance(getX(), getY(), distance_to_be_covered, visible_objects);
 			if(self.getBucket() != null)
-				visible_objects.addAll(map.getBucketsWithinDistance(getX(), getY(), distance_to_be_covered));
+				map.getBucketsWithinDistance(getX(), getY(), distance_to_be_covered, visible_objects);
 
 			/* uncomment out this code and have Quadtree::isValidMove always return true
 			 * to allow buckets and bucketbots to drive through each other
@@ -516,7 +511,8 @@ public class BucketbotDriver extends BucketbotBase {
 	
 			//find closest object
 			float min_dist2 = Float.POSITIVE_INFINITY;	//minimum distance squared
-			for(Circle c : visible_objects) {
+			for(int i = 0; i < visible_objects.size(); i++) {
+				Circle c = visible_objects.get(i);
 				if(c == self || c == self.getBucket())
 					continue;
 				
@@ -541,7 +537,7 @@ public class BucketbotDriver extends BucketbotBase {
 
 				setTargetSpeed(getMaxVelocity());
 				//cruiseUntil = curTime + getRadius() / getMaxVelocity();
-				cruiseUntil = curTime + (Math.sqrt(2 * getMaxAcceleration() * getRadius() + getMaxVelocity() * getMaxVelocity()) - getMaxVelocity()) / getMaxAcceleration() / 2;
+				setCruiseUntil(curTime + (Math.sqrt(2 * getMaxAcceleration() * getRadius() + getMaxVelocity() * getMaxVelocity()) - getMaxVelocity()) / getMaxAcceleration() / 2);
 
 				frustration = 0.0f;
 				stateQueue.add(0, bucketbotEvade);
@@ -570,7 +566,7 @@ public class BucketbotDriver extends BucketbotBase {
 //				return;
 			
 			//see if still cruising
-			if(curTime < cruiseUntil) {
+			if(curTime < getCruiseUntil()) {
 				needToEvade(self);	//see if need to evade before continuing on
 				return;
 			}
@@ -627,7 +623,7 @@ public class BucketbotDriver extends BucketbotBase {
 				setDirection((float)Math.atan2(moveToY - getY(), moveToX - getX()));
 				if(cur_speed > 0)
 					setTargetSpeed(0.0f);
-				cruiseUntil = getAccelerateUntil();
+				setCruiseUntil(getAccelerateUntil());
 				return;
 			}
 			
@@ -636,17 +632,35 @@ public class BucketbotDriver extends BucketbotBase {
 			//if too close to stop, then stop as fast as possible
 			float decel_time = cur_speed / getMaxAcceleration();
 			float decel_distance = getMaxAcceleration()/2 * decel_time * decel_time;
-			if(cur_speed > 0.0f && decel_distance > goal_distance) {
+			boolean too_close = decel_distance > goal_distance;
+			
+			//under kinetic motion, the bucketbot moves exactly as planned, and isn't looked at while following its plan,
+			// so it stops when the plan says to, which is aimed at half the tolerance short of the goal
+			float cur_vel = getMaxVelocity() * Math.max(1.0f-frustration, 0.0078125f);
+			float stopping_distance = goal_distance - tolerance / 2;
+			double stopping_time = 0.0;
+			if(getKinematics().isKinetic()) {
+				if(stopping_distance > 0.0f)
+					stopping_time = getTimeUntilStopping(stopping_distance, cur_speed, cur_vel);
+				too_close = stopping_time * cur_speed < tolerance / 2;
+			}
+			
+			if(cur_speed > 0.0f && too_close) {
 				setTargetSpeed(0.0f);
-				cruiseUntil = getAccelerateUntil();
+				setCruiseUntil(getAccelerateUntil());
 				frustration = (frustration + 1.0f) / 2;
 				return;
 			}
 			
 			//get new velocity based on frustration
-			float cur_vel = getMaxVelocity() * Math.max(1.0f-frustration, 0.0078125f);
 			setTargetSpeed(cur_vel);
 			
+			//under kinetic motion, go until it needs to stop
+			if(getKinematics().isKinetic()) {
+				setCruiseUntil(curTime + stopping_time);
+				return;
+			}
+			
 			float acceleration = getMaxAcceleration() * Math.max(1.0f-frustration, 0.0078125f);
 
 			//see if have room to accelerate to full speed and still decelerate
@@ -657,7 +671,7 @@ public class BucketbotDriver extends BucketbotBase {
 			
 			//if enough room to fully accelerate, do so
 			if(accel_distance + decel_distance <= goal_distance)
-				cruiseUntil = getAccelerateUntil();
+				setCruiseUntil(getAccelerateUntil());
 			else { //don't have time to fully accelerate
 				//having this code spread out with sub-steps dramatically helps the java compiler have
 				// better performance
@@ -667,17 +681,17 @@ public class BucketbotDriver extends BucketbotBase {
 				double y_accel = acceleration * sin_dir;
 				if(Math.abs(x_accel) > Math.abs(y_accel)) {
 					double x_goal = (goal_distance - tolerance)* cos_dir;
-					cruiseUntil = curTime + 
+					setCruiseUntil(curTime + 
 							sqrt2 * (Math.sqrt(2*x_accel*x_goal + getXVelocity()*getXVelocity())
 										- sqrt2*getXVelocity())
-								/ (2*x_accel);
+								/ (2*x_accel));
 				}
 				else {
 					double y_goal = (goal_distance - tolerance) * sin_dir;
-					cruiseUntil = curTime +
+					setCruiseUntil(curTime +
 							sqrt2 * (Math.sqrt(2*y_accel*y_goal + getYVelocity()*getYVelocity())
 										- sqrt2*getYVelocity())
-								/ (2*y_accel);
+								/ (2*y_accel));
 				}				
 			}
 		} //act()
@@ -3,6 +3,8 @@
  */
 package alphabetsoup.waypointgraph;
 
+import java.io.Serializable;
+
 import alphabetsoup.base.BucketbotTask;
 import alphabetsoup.framework.Bucket;
 import alphabetsoup.framework.Bucketbot;
@@ -11,7 +13,7 @@ import alphabetsoup.framework.Bucketbot;
  * @author Chris Hazard
  *
  */
-public interface BucketbotManager {
+public interface BucketbotManager extends Serializable {
 	
 	/**Called when a Bucketbot successfully picks a Bucket up 
 	 * @param r Bucketbot that picked up the Bucket
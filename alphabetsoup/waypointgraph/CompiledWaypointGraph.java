@@ -0,0 +1,179 @@
+/**
+ * 
+ */
+package alphabetsoup.waypointgraph;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**CompiledWaypointGraph is a compact, int indexed copy of the Waypoints and paths of a WaypointGraph,
+ * for the searches which run over the graph many times.  Each Waypoint gets an index from 0 to getNumWaypoints()-1,
+ * the paths out of each Waypoint are kept as compressed sparse rows of target indices and float weights,
+ * and the paths into each Waypoint are kept the same way, as the index of the origin and of the path in the
+ * forward arrays, so that the paths into a Waypoint can be found without looking at every other Waypoint.
+ * What kind of location each Waypoint is (bucket storage location, letter station, word station) is kept as flag bits,
+ * and the number of Bucketbots going to each Waypoint is kept as an int counter.<br>
+ * It is a read-only snapshot: the structure never changes once built, and any change to the Waypoints or paths
+ * throws it away, so the WaypointGraph builds a new one, in time linear in the Waypoints and paths, the next time
+ * it's needed.  Edits aren't patched into the arrays in place, since the planners, the LandmarkHeuristic and the
+ * TravelTimeOracle keep their own arrays derived from it and would have to be rebuilt anyway; in this simulator the
+ * graph is only edited while it's being generated, before anything is compiled.  The reverse paths are only used to
+ * edit the object graph, by WaypointGraph.removeWaypoint, which finds the paths into a Waypoint with getPathsInto
+ * instead of looking at every Waypoint.  Only the occupancy counters are kept up to date by the Waypoints.<br>
+ * It is kept alongside the HashMaps and HashSets of the Waypoints and WaypointGraph rather than replacing them,
+ * so it adds to the memory used by the graph instead of reducing it; it's meant to make the searches faster.
+ * The searches read the arrays directly, so they are package visible.
+ */
+public class CompiledWaypointGraph implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int bucketStorageFlag = 1;
+	public static final int letterStationFlag = 2;
+	public static final int wordStationFlag = 4;
+	/**any of the flags of a station*/
+	public static final int stationFlags = letterStationFlag | wordStationFlag;
+
+	final Waypoint waypoints[];		//Waypoint of each index
+
+	//paths out of waypoint i are pathStart[i] to pathStart[i+1]-1
+	final int pathStart[];
+	final int pathTarget[];
+	final float pathWeight[];
+
+	//paths into waypoint i are reverseStart[i] to reverseStart[i+1]-1
+	final int reverseStart[];
+	final int reverseOrigin[];
+	final int reversePath[];		//index of the path in the forward arrays
+
+	final byte flags[];
+	final int occupancy[];			//number of Bucketbots going to each waypoint
+
+	/**Builds the compiled form of the current Waypoints and paths of the WaypointGraph,
+	 * and sets the index of each Waypoint.  Paths to Waypoints which aren't in the WaypointGraph are left out.
+	 * @param waypoint_graph WaypointGraph to compile
+	 */
+	public CompiledWaypointGraph(WaypointGraph waypoint_graph) {
+		Set<Waypoint> waypoint_set = waypoint_graph.getWaypoints();
+		int n = waypoint_set.size();
+		waypoints = waypoint_set.toArray(new Waypoint[n]);
+		for(int i = 0; i < n; i++)
+			waypoints[i].plannerIndex = i;
+
+		//count and fill the paths, counting the paths into each waypoint along the way
+		pathStart = new int[n + 1];
+		reverseStart = new int[n + 1];
+		int num_paths = 0;
+		for(int i = 0; i < n; i++) {
+			pathStart[i] = num_paths;
+			for(Waypoint w : waypoints[i].getPaths())
+				if(waypoint_set.contains(w)) {
+					num_paths++;
+					reverseStart[w.plannerIndex + 1]++;
+				}
+		}
+		pathStart[n] = num_paths;
+		pathTarget = new int[num_paths];
+		pathWeight = new float[num_paths];
+		for(int i = 0; i < n; i++) {
+			int p = pathStart[i];
+			for(Waypoint w : waypoints[i].getPaths())
+				if(waypoint_set.contains(w)) {
+					pathTarget[p] = w.plannerIndex;
+					pathWeight[p] = waypoints[i].getPathWeight(w);
+					p++;
+				}
+		}
+
+		//the paths into each waypoint, in order of origin
+		for(int i = 0; i < n; i++)
+			reverseStart[i + 1] += reverseStart[i];
+		reverseOrigin = new int[num_paths];
+		reversePath = new int[num_paths];
+		int fill[] = Arrays.copyOf(reverseStart, n);
+		for(int i = 0; i < n; i++)
+			for(int p = pathStart[i]; p < pathStart[i + 1]; p++) {
+				int r = fill[pathTarget[p]]++;
+				reverseOrigin[r] = i;
+				reversePath[r] = p;
+			}
+
+		flags = new byte[n];
+		occupancy = new int[n];
+		for(int i = 0; i < n; i++) {
+			Waypoint w = waypoints[i];
+			int f = 0;
+			if(w.isBucketStorageLocation())	f |= bucketStorageFlag;
+			if(w.getLetterStation() != null)	f |= letterStationFlag;
+			if(w.getWordStation() != null)	f |= wordStationFlag;
+			flags[i] = (byte)f;
+			occupancy[i] = w.getBucketbots().size();
+		}
+	}
+
+	/**Returns true if the Waypoint was compiled into this CompiledWaypointGraph
+	 */
+	public boolean isCompiled(Waypoint w) {
+		return w.plannerIndex >= 0 && w.plannerIndex < waypoints.length && waypoints[w.plannerIndex] == w;
+	}
+
+	/**Adds to the number of Bucketbots going to a Waypoint
+	 * @param w Waypoint the Bucketbots are going to
+	 * @param change number of Bucketbots added, negative if removed
+	 */
+	void occupancyChanged(Waypoint w, int change) {
+		if(isCompiled(w))
+			occupancy[w.plannerIndex] += change;
+	}
+
+	/**Returns the Waypoints which have a path to the specified Waypoint
+	 * @param w compiled Waypoint
+	 * @return a List of the Waypoints with a path to w
+	 */
+	public List<Waypoint> getPathsInto(Waypoint w) {
+		List<Waypoint> origins = new ArrayList<Waypoint>();
+		if(!isCompiled(w))
+			return origins;
+		for(int r = reverseStart[w.plannerIndex]; r < reverseStart[w.plannerIndex + 1]; r++)
+			origins.add(waypoints[reverseOrigin[r]]);
+		return origins;
+	}
+
+	/**
+	 * @return the number of Waypoints compiled
+	 */
+	public int getNumWaypoints() {
+		return waypoints.length;
+	}
+
+	/**
+	 * @return the number of paths compiled
+	 */
+	public int getNumPaths() {
+		return pathTarget.length;
+	}
+
+	/**
+	 * @param index index of a compiled Waypoint, from 0 to getNumWaypoints()-1
+	 * @return the Waypoint compiled at the index
+	 */
+	public Waypoint getWaypoint(int index) {
+		return waypoints[index];
+	}
+
+	/**
+	 * @param index index of a compiled Waypoint
+	 * @param flag one or more of bucketStorageFlag, letterStationFlag and wordStationFlag
+	 * @return true if the Waypoint has any of the flags
+	 */
+	public boolean hasFlag(int index, int flag) {
+		return (flags[index] & flag) != 0;
+	}
+
+	/**
+	 * @param index index of a compiled Waypoint
+	 * @return the number of Bucketbots going to the Waypoint
+	 */
+	public int getOccupancy(int index) {
+		return occupancy[index];
+	}
+}
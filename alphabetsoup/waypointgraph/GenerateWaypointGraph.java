@@ -174,7 +174,7 @@ public class GenerateWaypointGraph {
 		for(Bucketbot r: sw.bucketbots)		bucketbots_to_add.add((Circle)r);
 		
 		//set up random locations for buckets and bucketbots, making sure they don't collide
-		MersenneTwisterFast rand = SimulationWorld.rand;
+		MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot_placement");
 		for(Circle c : bucketbots_to_add)
 		{
 			boolean collision;
@@ -387,7 +387,7 @@ public class GenerateWaypointGraph {
 		for(Bucketbot r: sw.bucketbots)		bucketbots_to_add.add((Circle)r);
 		
 		//set up random locations for buckets and bucketbots, making sure they don't collide
-		MersenneTwisterFast rand = SimulationWorld.rand;
+		MersenneTwisterFast rand = SimulationWorld.newRandomStream("bucketbot_placement");
 		for(Circle c : bucketbots_to_add)
 		{
 			boolean collision;
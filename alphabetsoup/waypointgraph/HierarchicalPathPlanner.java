@@ -0,0 +1,494 @@
+/**
+ * 
+ */
+package alphabetsoup.waypointgraph;
+
+import java.io.Serializable;
+import java.util.*;
+
+import alphabetsoup.framework.IndexedMinHeap;
+
+/**HierarchicalPathPlanner finds routes over large WaypointGraphs with hierarchical A* (HPA*), so that the cost
+ * of a search doesn't grow with the length of the route the way the WaypointPathPlanner's does.
+ * The Waypoints are split into square sectors, a number of typical path lengths (the median path weight) across,
+ * and every Waypoint with a path to or from another sector is an entrance.
+ * When built, the shortest distance within each sector from each of its entrances to each of the others is found,
+ * once for bucketbots without a bucket and once for bucketbots carrying one, which can't pass through bucket storage locations.
+ * These distances and the paths between sectors make up a much smaller abstract graph.<br>
+ * A route is found by connecting the start and end to the entrances of their sectors with searches limited to
+ * those sectors, and then running A* over the abstract graph (with the LandmarkHeuristic of the WaypointPathPlanner
+ * if it has one), giving the sequence of entrances to pass through.
+ * Since every entrance is kept and the distances within sectors are exact, the route is as short as the WaypointPathPlanner's
+ * would be without its iteration limit (ignoring crowding).  The route is refined lazily: each Bucketbot keeps its
+ * Route, and each move is found by the WaypointPathPlanner from where the Bucketbot is to the next entrance along the route,
+ * which is nearby, so the crowding penalty still applies to each move.  The route is found again if the Bucketbot
+ * leaves it, changes destination, or picks up or sets down a bucket.  Starts and ends in the same sector are left to the
+ * WaypointPathPlanner.
+ * The HierarchicalPathPlanner must be rebuilt along with the CompiledWaypointGraph if Waypoints or paths change,
+ * and must only be used by one thread at a time.
+ */
+public class HierarchicalPathPlanner implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**maximum number of abstract nodes to look at in a search*/
+	public static final int maxNumIterations = 20000;
+
+	/**Route is the sequence of entrances a Bucketbot is following, kept by the Bucketbot between moves
+	 */
+	public static class Route implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		HierarchicalPathPlanner planner = null;	//planner the route was found with, null if no route
+		Waypoint end;
+		boolean carryingBucket;
+		Waypoint waypoints[];	//entrances to pass through, then the end
+		int next;				//index of the next waypoint to get to
+	}
+
+	private CompiledWaypointGraph graph;
+	private WaypointPathPlanner pathPlanner;	//finds each move along the route
+	private LandmarkHeuristic landmarks;		//of the pathPlanner, null to use the straight line distance alone
+
+	//sectors, numbered row by row
+	private float sectorSize;
+	private float minX, minY;
+	private int numSectorsX;
+	private int sectorOf[];
+	private int sectorEntranceStart[];	//entrances of sector s are sectorEntrances[sectorEntranceStart[s]] to [sectorEntranceStart[s+1]-1]
+	private int sectorEntrances[];
+
+	//entrances: entranceIndex[i] is the entrance of waypoint i, -1 if it isn't one
+	private int entranceIndex[];
+	private int entranceWaypoint[];
+	private int numEntrances;
+
+	//abstract graph, without [0] and with [1] a bucket: edges of entrance e are edgeStart[][e] to edgeStart[][e+1]-1
+	private int edgeStart[][] = new int[2][];
+	private int edgeTarget[][] = new int[2][];
+	private float edgeCost[][] = new float[2][];
+
+	//state of the searches within a sector, only valid where stamp equals the current search
+	private int localStamp[];
+	private float localCost[];
+	private int localSearch = 0;
+	private IndexedMinHeap localOpen;
+
+	//state of the abstract search, with two more nodes for the start and end
+	private int openStamp[];
+	private int closedStamp[];
+	private int goalStamp[];		//set on entrances of the end's sector which can reach the end
+	private float distanceTraveled[];
+	private float goalCost[];		//distance from the entrance to the end
+	private int parentMove[];
+	private int search = 0;
+	private IndexedMinHeap openLocations;
+
+	//statistics
+	private long numSearches = 0;
+	private long numExpansions = 0;
+	private long numRefinements = 0;
+	private long numFallbacks = 0;
+
+	/**Builds the sectors and abstract graph of the compiled Waypoints and paths
+	 * @param path_planner WaypointPathPlanner of the CompiledWaypointGraph, used to refine routes
+	 * @param sector_waypoints width and height of each sector, in typical path lengths
+	 */
+	public HierarchicalPathPlanner(WaypointPathPlanner path_planner, int sector_waypoints) {
+		pathPlanner = path_planner;
+		graph = path_planner.getCompiledGraph();
+		landmarks = path_planner.getLandmarkHeuristic();
+		int n = graph.getNumWaypoints();
+
+		//the typical distance between waypoints is the median path weight
+		float weights[] = Arrays.copyOf(graph.pathWeight, graph.pathWeight.length);
+		Arrays.sort(weights);
+		float typical_weight = (weights.length > 0) ? weights[weights.length / 2] : 1.0f;
+		sectorSize = sector_waypoints * ((typical_weight > 0.0f) ? typical_weight : 1.0f);
+
+		//sector of each waypoint
+		minX = Float.POSITIVE_INFINITY;	minY = Float.POSITIVE_INFINITY;
+		float max_x = Float.NEGATIVE_INFINITY;
+		for(int i = 0; i < n; i++) {
+			minX = Math.min(minX, graph.waypoints[i].getX());
+			minY = Math.min(minY, graph.waypoints[i].getY());
+			max_x = Math.max(max_x, graph.waypoints[i].getX());
+		}
+		numSectorsX = (n > 0) ? (int)((max_x - minX) / sectorSize) + 1 : 0;
+		sectorOf = new int[n];
+		int num_sectors = 0;
+		for(int i = 0; i < n; i++) {
+			sectorOf[i] = getSector(graph.waypoints[i]);
+			num_sectors = Math.max(num_sectors, sectorOf[i] + 1);
+		}
+
+		//entrances are waypoints with a path to or from another sector
+		entranceIndex = new int[n];
+		Arrays.fill(entranceIndex, -1);
+		numEntrances = 0;
+		sectorEntranceStart = new int[num_sectors + 1];
+		for(int i = 0; i < n; i++)
+			for(int p = graph.pathStart[i]; p < graph.pathStart[i + 1]; p++) {
+				int w = graph.pathTarget[p];
+				if(sectorOf[w] == sectorOf[i])
+					continue;
+				if(entranceIndex[i] < 0) {
+					entranceIndex[i] = numEntrances++;
+					sectorEntranceStart[sectorOf[i] + 1]++;
+				}
+				if(entranceIndex[w] < 0) {
+					entranceIndex[w] = numEntrances++;
+					sectorEntranceStart[sectorOf[w] + 1]++;
+				}
+			}
+		entranceWaypoint = new int[numEntrances];
+		for(int i = 0; i < n; i++)
+			if(entranceIndex[i] >= 0)
+				entranceWaypoint[entranceIndex[i]] = i;
+		for(int s = 0; s < num_sectors; s++)
+			sectorEntranceStart[s + 1] += sectorEntranceStart[s];
+		sectorEntrances = new int[numEntrances];
+		int fill[] = Arrays.copyOf(sectorEntranceStart, num_sectors);
+		for(int e = 0; e < numEntrances; e++)
+			sectorEntrances[fill[sectorOf[entranceWaypoint[e]]]++] = e;
+
+		localStamp = new int[n];
+		localCost = new float[n];
+		localOpen = new IndexedMinHeap(n);
+		openStamp = new int[numEntrances + 2];
+		closedStamp = new int[numEntrances + 2];
+		goalStamp = new int[numEntrances + 2];
+		distanceTraveled = new float[numEntrances + 2];
+		goalCost = new float[numEntrances + 2];
+		parentMove = new int[numEntrances + 2];
+		openLocations = new IndexedMinHeap(numEntrances + 2);
+
+		buildAbstractGraph(false);
+		buildAbstractGraph(true);
+	}
+
+	/**Returns the sector containing the Waypoint
+	 */
+	private int getSector(Waypoint w) {
+		return (int)((w.getY() - minY) / sectorSize) * numSectorsX + (int)((w.getX() - minX) / sectorSize);
+	}
+
+	/**Finds the edges of the abstract graph: the shortest distances within each sector between its entrances,
+	 * and the paths between sectors
+	 * @param carrying_bucket true to build the graph for bucketbots carrying a bucket
+	 */
+	private void buildAbstractGraph(boolean carrying_bucket) {
+		int mode = carrying_bucket ? 1 : 0;
+		int start[] = new int[numEntrances + 1];
+		int target[] = new int[Math.max(16, 4 * numEntrances)];
+		float cost[] = new float[target.length];
+		int num_edges = 0;
+		for(int e = 0; e < numEntrances; e++) {
+			start[e] = num_edges;
+			int i = entranceWaypoint[e];
+			int sector = sectorOf[i];
+
+			searchSector(i, carrying_bucket, false);
+			for(int k = sectorEntranceStart[sector]; k < sectorEntranceStart[sector + 1]; k++) {
+				int f = sectorEntrances[k];
+				int j = entranceWaypoint[f];
+				if(f == e || localStamp[j] != localSearch)
+					continue;
+				if(num_edges == target.length) {
+					target = Arrays.copyOf(target, 2 * target.length);
+					cost = Arrays.copyOf(cost, 2 * cost.length);
+				}
+				target[num_edges] = f;
+				cost[num_edges++] = localCost[j];
+			}
+
+			for(int p = graph.pathStart[i]; p < graph.pathStart[i + 1]; p++) {
+				int w = graph.pathTarget[p];
+				if(sectorOf[w] == sector)
+					continue;
+				if(num_edges == target.length) {
+					target = Arrays.copyOf(target, 2 * target.length);
+					cost = Arrays.copyOf(cost, 2 * cost.length);
+				}
+				target[num_edges] = entranceIndex[w];
+				cost[num_edges++] = graph.pathWeight[p];
+			}
+		}
+		start[numEntrances] = num_edges;
+		edgeStart[mode] = start;
+		edgeTarget[mode] = Arrays.copyOf(target, num_edges);
+		edgeCost[mode] = Arrays.copyOf(cost, num_edges);
+	}
+
+	/**Runs Dijkstra's algorithm from the waypoint without leaving its sector, leaving the distances in localCost
+	 * @param source index of the waypoint to search from
+	 * @param carrying_bucket true if bucket storage locations other than the source can't be passed through
+	 * @param backward true to follow the paths backward, finding the distances from each waypoint to the source
+	 */
+	private void searchSector(int source, boolean carrying_bucket, boolean backward) {
+		localSearch++;
+		if(localSearch == 0) {
+			Arrays.fill(localStamp, 0);
+			localSearch = 1;
+		}
+		int sector = sectorOf[source];
+		localOpen.clear();
+		localStamp[source] = localSearch;
+		localCost[source] = 0.0f;
+		localOpen.put(source, 0.0);
+		while(!localOpen.isEmpty()) {
+			int closest = localOpen.poll();
+			numExpansions++;
+			//can start from or reach a bucket storage location, but not pass through it
+			if(carrying_bucket && closest != source && graph.hasFlag(closest, CompiledWaypointGraph.bucketStorageFlag))
+				continue;
+			int first = backward ? graph.reverseStart[closest] : graph.pathStart[closest];
+			int last = backward ? graph.reverseStart[closest + 1] : graph.pathStart[closest + 1];
+			for(int p = first; p < last; p++) {
+				int w = backward ? graph.reverseOrigin[p] : graph.pathTarget[p];
+				if(sectorOf[w] != sector)
+					continue;
+				float c = localCost[closest] + graph.pathWeight[backward ? graph.reversePath[p] : p];
+				if(localStamp[w] != localSearch || c < localCost[w]) {
+					localStamp[w] = localSearch;
+					localCost[w] = c;
+					localOpen.put(w, c);
+				}
+			}
+		}
+	}
+
+	/**Runs A* over the abstract graph from start to end, in different sectors
+	 * @return the abstract node of the end, or -1 if the end can't be reached
+	 */
+	private int searchAbstract(int start, int end, boolean carrying_bucket) {
+		numSearches++;
+		search++;
+		//wrapped around, so old stamps could be mistaken for this search
+		if(search == 0) {
+			Arrays.fill(openStamp, 0);
+			Arrays.fill(closedStamp, 0);
+			Arrays.fill(goalStamp, 0);
+			search = 1;
+		}
+		int mode = carrying_bucket ? 1 : 0;
+		int start_node = (entranceIndex[start] >= 0) ? entranceIndex[start] : numEntrances;
+		int end_node = (entranceIndex[end] >= 0) ? entranceIndex[end] : numEntrances + 1;
+		Waypoint end_waypoint = graph.waypoints[end];
+
+		//distances from the entrances of the end's sector to the end
+		if(end_node == numEntrances + 1) {
+			searchSector(end, carrying_bucket, true);
+			int sector = sectorOf[end];
+			for(int k = sectorEntranceStart[sector]; k < sectorEntranceStart[sector + 1]; k++) {
+				int e = sectorEntrances[k];
+				if(localStamp[entranceWaypoint[e]] == localSearch) {
+					goalStamp[e] = search;
+					goalCost[e] = localCost[entranceWaypoint[e]];
+				}
+			}
+		}
+
+		openLocations.clear();
+		openStamp[start_node] = search;
+		distanceTraveled[start_node] = 0.0f;
+		parentMove[start_node] = -1;
+		if(start_node < numEntrances)
+			openLocations.put(start_node, getDistanceToGoal(start, end_waypoint));
+		else {
+			//the distances from the start to the entrances of its sector are the edges of the start node
+			closedStamp[start_node] = search;
+			searchSector(start, carrying_bucket, false);
+			int sector = sectorOf[start];
+			for(int k = sectorEntranceStart[sector]; k < sectorEntranceStart[sector + 1]; k++) {
+				int e = sectorEntrances[k];
+				int w = entranceWaypoint[e];
+				if(localStamp[w] == localSearch)
+					relax(e, start_node, localCost[w], end_waypoint);
+			}
+		}
+
+		int num_iterations = 0;
+		while(!openLocations.isEmpty()) {
+			int closest = openLocations.peek();
+			if(closest == end_node)
+				return closest;
+			if(num_iterations++ == maxNumIterations)
+				return -1;
+			openLocations.poll();
+			closedStamp[closest] = search;
+			numExpansions++;
+
+			//can't go through a bucket storage location if carrying a bucket, unless it's the start
+			if(carrying_bucket && closest != start_node
+					&& graph.hasFlag(entranceWaypoint[closest], CompiledWaypointGraph.bucketStorageFlag))
+				continue;
+
+			for(int p = edgeStart[mode][closest]; p < edgeStart[mode][closest + 1]; p++)
+				relax(edgeTarget[mode][p], closest, distanceTraveled[closest] + edgeCost[mode][p], end_waypoint);
+			if(goalStamp[closest] == search)
+				relax(end_node, closest, distanceTraveled[closest] + goalCost[closest], end_waypoint);
+		}
+		return -1;
+	}
+
+	/**Puts the abstract node on the open list if it hasn't been reached, or if the new distance is shorter
+	 */
+	private void relax(int node, int parent, float distance_traveled, Waypoint end) {
+		if(closedStamp[node] == search)
+			return;
+		if(openStamp[node] == search && distanceTraveled[node] <= distance_traveled)
+			return;
+		openStamp[node] = search;
+		distanceTraveled[node] = distance_traveled;
+		parentMove[node] = parent;
+		float distance_to_goal = (node < numEntrances) ? getDistanceToGoal(entranceWaypoint[node], end) : 0.0f;
+		openLocations.put(node, distance_traveled + distance_to_goal);
+	}
+
+	/**Returns the estimate of the distance from the waypoint to the end, which must not be more than the real distance
+	 */
+	private float getDistanceToGoal(int waypoint, Waypoint end) {
+		float distance = graph.waypoints[waypoint].getDistance(end);
+		if(landmarks != null)
+			distance = Math.max(distance, landmarks.getLowerBound(waypoint, end.plannerIndex));
+		return distance;
+	}
+
+	/**Finds the route from start to end, and stores it in the Route
+	 * @return true if a route was found
+	 */
+	private boolean findRoute(Route route, Waypoint start, Waypoint end, boolean carrying_bucket) {
+		route.planner = null;
+		int last = searchAbstract(start.plannerIndex, end.plannerIndex, carrying_bucket);
+		if(last < 0)
+			return false;
+
+		int length = 0;
+		for(int k = last; parentMove[k] != -1; k = parentMove[k])
+			length++;
+		route.waypoints = new Waypoint[length];
+		for(int k = last; parentMove[k] != -1; k = parentMove[k])
+			route.waypoints[--length] = (k < numEntrances) ? graph.waypoints[entranceWaypoint[k]] : end;
+		route.planner = this;
+		route.end = end;
+		route.carryingBucket = carrying_bucket;
+		route.next = 0;
+		return true;
+	}
+
+	/**Returns true if the Bucketbot at start can keep following the route, moving the route along past start
+	 */
+	private boolean followRoute(Route route, Waypoint start, Waypoint end, boolean carrying_bucket) {
+		if(route.planner != this || route.end != end || route.carryingBucket != carrying_bucket)
+			return false;
+		//skip ahead if the bucketbot has reached a waypoint further along the route
+		for(int i = route.next; i < route.waypoints.length; i++)
+			if(route.waypoints[i] == start) {
+				route.next = i + 1;
+				break;
+			}
+		if(route.next >= route.waypoints.length)
+			return false;
+		//the next waypoint must be in the same sector or one move away
+		Waypoint next = route.waypoints[route.next];
+		return sectorOf[next.plannerIndex] == sectorOf[start.plannerIndex] || start.getPaths().contains(next);
+	}
+
+	/**Returns the next move to make to get from start to end, following the Bucketbot's route,
+	 * and finding a new route if it isn't following one to end.
+	 * @see WaypointPathPlanner#getNextWaypointTo(Waypoint, Waypoint, boolean, float)
+	 * @param route Route kept by the Bucketbot between moves
+	 * @param start Waypoint the Bucketbot is starting from
+	 * @param end Waypoint the Bucketbot wants to get to
+	 * @param carrying_bucket true if the Bucketbot is carrying a bucket, and so can't pass through bucket storage locations
+	 * @param crowding_penalty distance added to the distance to goal of a Waypoint for each Bucketbot going to it
+	 * @return Waypoint that is connected to start which is the best move to get towards end,
+	 * null if already there or no path can be found
+	 */
+	public Waypoint getNextWaypointTo(Route route, Waypoint start, Waypoint end, boolean carrying_bucket, float crowding_penalty) {
+		if(start == null || end == null || start == end)
+			return null;
+		if(!graph.isCompiled(start) || !graph.isCompiled(end) || sectorOf[start.plannerIndex] == sectorOf[end.plannerIndex]) {
+			route.planner = null;
+			return pathPlanner.getNextWaypointTo(start, end, carrying_bucket, crowding_penalty);
+		}
+
+		if(!followRoute(route, start, end, carrying_bucket)
+				&& (!findRoute(route, start, end, carrying_bucket) || !followRoute(route, start, end, carrying_bucket))) {
+			numFallbacks++;
+			return pathPlanner.getNextWaypointTo(start, end, carrying_bucket, crowding_penalty);
+		}
+
+		numRefinements++;
+		Waypoint next = pathPlanner.getNextWaypointTo(start, route.waypoints[route.next], carrying_bucket, crowding_penalty);
+		if(next == null) {
+			route.planner = null;
+			numFallbacks++;
+			return pathPlanner.getNextWaypointTo(start, end, carrying_bucket, crowding_penalty);
+		}
+		return next;
+	}
+
+	/**Returns the length of the shortest route from start to end, ignoring crowding
+	 * @param start Waypoint to start from
+	 * @param end Waypoint to get to
+	 * @param carrying_bucket true if bucket storage locations can't be passed through
+	 * @return the length of the route, Float.POSITIVE_INFINITY if there is none, or NaN if start and end
+	 * are in the same sector
+	 */
+	public float getRouteLength(Waypoint start, Waypoint end, boolean carrying_bucket) {
+		if(!graph.isCompiled(start) || !graph.isCompiled(end) || sectorOf[start.plannerIndex] == sectorOf[end.plannerIndex])
+			return Float.NaN;
+		int last = searchAbstract(start.plannerIndex, end.plannerIndex, carrying_bucket);
+		return (last < 0) ? Float.POSITIVE_INFINITY : distanceTraveled[last];
+	}
+
+	/**
+	 * @return the WaypointPathPlanner used to refine routes
+	 */
+	public WaypointPathPlanner getPathPlanner() {
+		return pathPlanner;
+	}
+
+	/**
+	 * @return the number of entrances in the abstract graph
+	 */
+	public int getNumEntrances() {
+		return numEntrances;
+	}
+
+	/**
+	 * @return the number of edges in the abstract graph for bucketbots without a bucket
+	 */
+	public int getNumAbstractEdges() {
+		return edgeTarget[0].length;
+	}
+
+	/**
+	 * @return the number of abstract searches performed
+	 */
+	public long getNumSearches() {
+		return numSearches;
+	}
+
+	/**
+	 * @return the total number of abstract nodes and waypoints expanded by the abstract searches, and when building
+	 */
+	public long getNumExpansions() {
+		return numExpansions;
+	}
+
+	/**
+	 * @return the number of moves found along a route
+	 */
+	public long getNumRefinements() {
+		return numRefinements;
+	}
+
+	/**
+	 * @return the number of moves found without a route, because none could be found or followed
+	 */
+	public long getNumFallbacks() {
+		return numFallbacks;
+	}
+}
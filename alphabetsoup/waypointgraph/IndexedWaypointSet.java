@@ -0,0 +1,118 @@
+/**
+ * 
+ */
+package alphabetsoup.waypointgraph;
+
+import java.io.Serializable;
+import java.util.*;
+
+import alphabetsoup.framework.Circle;
+import alphabetsoup.framework.CircleFilter;
+import alphabetsoup.framework.Map;
+import alphabetsoup.framework.Quadtree;
+import alphabetsoup.framework.SimulationContext;
+
+/**IndexedWaypointSet is a Set of Waypoints which also keeps them in a Quadtree, so that the nearest Waypoints
+ * in the set to a position can be found without looking at all of them (e.g. the nearest unused bucket storage location).
+ * The Waypoints are iterated over in the same order as a HashSet, since it keeps them in one.
+ */
+public class IndexedWaypointSet extends AbstractSet<Waypoint> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private HashSet<Waypoint> waypoints = new HashSet<Waypoint>();
+	private Quadtree index;
+	
+	/**Constructs an empty IndexedWaypointSet covering the map of the current SimulationContext
+	 */
+	public IndexedWaypointSet() {
+		Map map = SimulationContext.getCurrentContext().map;
+		index = new Quadtree(map.getWidth(), map.getHeight());
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#add(java.lang.Object)
+	 */
+	public boolean add(Waypoint w) {
+		if(!waypoints.add(w))
+			return false;
+		index.addCircleObject(w);
+		return true;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#remove(java.lang.Object)
+	 */
+	public boolean remove(Object o) {
+		if(!waypoints.remove(o))
+			return false;
+		index.removeCircleObject((Waypoint)o);
+		return true;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#contains(java.lang.Object)
+	 */
+	public boolean contains(Object o) {
+		return waypoints.contains(o);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	public int size() {
+		return waypoints.size();
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#iterator()
+	 */
+	public Iterator<Waypoint> iterator() {
+		final Iterator<Waypoint> i = waypoints.iterator();
+		return new Iterator<Waypoint>() {
+			Waypoint last = null;
+			public boolean hasNext() {
+				return i.hasNext();
+			}
+			public Waypoint next() {
+				last = i.next();
+				return last;
+			}
+			public void remove() {
+				i.remove();
+				index.removeCircleObject(last);
+			}
+		};
+	}
+	
+	/**Returns the Waypoint in the set nearest to the Circle
+	 * @param c Circle to search from
+	 * @return the nearest Waypoint, null if the set is empty
+	 */
+	public Waypoint getNearest(Circle c) {
+		return (Waypoint)index.getNearestObject(c.getX(), c.getY(), null);
+	}
+	
+	/**Returns the Waypoint in the set nearest to (x, y) which is accepted by the filter
+	 * @param x x coordinate of the position to search from
+	 * @param y y coordinate of the position to search from
+	 * @param filter CircleFilter the Waypoint must be accepted by, null to accept every Waypoint
+	 * @return the nearest Waypoint, null if there are none accepted by the filter
+	 */
+	public Waypoint getNearest(float x, float y, CircleFilter filter) {
+		return (Waypoint)index.getNearestObject(x, y, filter);
+	}
+	
+	/**Adds the k Waypoints in the set nearest to (x, y) which are accepted by the filter to nearest, nearest first
+	 * @param x x coordinate of the position to search from
+	 * @param y y coordinate of the position to search from
+	 * @param k number of Waypoints to find
+	 * @param filter CircleFilter the Waypoints must be accepted by, null to accept every Waypoint
+	 * @param nearest List to add the Waypoints to
+	 */
+	public void getNearest(float x, float y, int k, CircleFilter filter, List<Waypoint> nearest) {
+		List<Circle> found = new ArrayList<Circle>(k);
+		index.getNearestObjects(x, y, k, filter, found);
+		for(Circle c : found)
+			nearest.add((Waypoint)c);
+	}
+}
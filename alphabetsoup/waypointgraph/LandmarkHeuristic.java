@@ -0,0 +1,189 @@
+/**
+ * 
+ */
+package alphabetsoup.waypointgraph;
+
+import java.io.Serializable;
+import java.util.*;
+
+import alphabetsoup.framework.IndexedMinHeap;
+
+/**LandmarkHeuristic gives lower bounds on the distance between Waypoints of a CompiledWaypointGraph using landmarks (ALT),
+ * which are much tighter than the straight line distance on grids where routes have to go around blocks of buckets.
+ * The shortest distances from each landmark to every Waypoint and from every Waypoint to each landmark are found when built,
+ * and by the triangle inequality, the distance from a Waypoint v to a goal t is at least d(L,t) - d(L,v) and d(v,L) - d(t,L)
+ * for every landmark L; the bound is the largest of these.<br>
+ * The landmarks are chosen from the stations and the Waypoints nearest the corners of the map: the first is the top left corner,
+ * and each next one is the candidate furthest (going there and back) from the landmarks already chosen.
+ * The distances are found over every path, so the bounds hold for bucketbots carrying a bucket too, since the routes they
+ * can take are a subset.  The distances are kept in two float arrays with the landmarks of each Waypoint next to each other.
+ */
+public class LandmarkHeuristic implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private int numLandmarks;
+	private int landmarks[];		//waypoint index of each landmark
+	//distanceFrom[i * numLandmarks + k] is the distance from landmark k to waypoint i,
+	// and distanceTo[i * numLandmarks + k] is the distance from waypoint i to landmark k
+	private float distanceFrom[];
+	private float distanceTo[];
+
+	/**Chooses the landmarks of the CompiledWaypointGraph and finds the distances to and from them
+	 * @param graph CompiledWaypointGraph to find bounds for
+	 * @param num_landmarks maximum number of landmarks to choose
+	 */
+	public LandmarkHeuristic(CompiledWaypointGraph graph, int num_landmarks) {
+		int n = graph.getNumWaypoints();
+
+		//candidates are the waypoints nearest each corner (furthest along each diagonal), and the stations
+		List<Integer> candidates = new ArrayList<Integer>();
+		int corners[] = new int[4];
+		float corner_extent[] = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+		for(int i = 0; i < n; i++) {
+			float x = graph.waypoints[i].getX(), y = graph.waypoints[i].getY();
+			float extent[] = {-x - y, x - y, y - x, x + y};
+			for(int c = 0; c < 4; c++)
+				if(extent[c] > corner_extent[c]) {
+					corner_extent[c] = extent[c];
+					corners[c] = i;
+				}
+		}
+		if(n > 0)
+			for(int corner : corners)
+				if(!candidates.contains(corner))
+					candidates.add(corner);
+		for(int i = 0; i < n; i++)
+			if(graph.hasFlag(i, CompiledWaypointGraph.stationFlags) && !candidates.contains(i))
+				candidates.add(i);
+
+		List<Integer> chosen = new ArrayList<Integer>();
+		List<float[]> from_landmark = new ArrayList<float[]>(), to_landmark = new ArrayList<float[]>();
+		float separation[] = new float[candidates.size()];	//shortest round trip from each candidate to a landmark
+		Arrays.fill(separation, Float.POSITIVE_INFINITY);
+		IndexedMinHeap open_locations = new IndexedMinHeap(n);
+		int next = candidates.isEmpty() ? -1 : 0;	//the top left corner
+		while(next >= 0 && chosen.size() < num_landmarks) {
+			int landmark = candidates.get(next);
+			float from[] = new float[n], to[] = new float[n];
+			findDistances(graph, landmark, false, from, open_locations);
+			findDistances(graph, landmark, true, to, open_locations);
+			chosen.add(landmark);
+			from_landmark.add(from);
+			to_landmark.add(to);
+
+			//next landmark is the candidate furthest from all of the landmarks so far,
+			// not counting candidates that can't get to and from them
+			next = -1;
+			for(int c = 0; c < separation.length; c++) {
+				separation[c] = Math.min(separation[c], from[candidates.get(c)] + to[candidates.get(c)]);
+				if(separation[c] != Float.POSITIVE_INFINITY && separation[c] > 0.0f
+						&& (next < 0 || separation[c] > separation[next]))
+					next = c;
+			}
+		}
+
+		//put the distances of each waypoint next to each other
+		numLandmarks = chosen.size();
+		landmarks = new int[numLandmarks];
+		distanceFrom = new float[n * numLandmarks];
+		distanceTo = new float[n * numLandmarks];
+		for(int k = 0; k < numLandmarks; k++) {
+			landmarks[k] = chosen.get(k);
+			float from[] = from_landmark.get(k), to[] = to_landmark.get(k);
+			for(int i = 0; i < n; i++) {
+				distanceFrom[i * numLandmarks + k] = from[i];
+				distanceTo[i * numLandmarks + k] = to[i];
+			}
+		}
+	}
+
+	/**Runs Dijkstra's algorithm from the landmark over every path, forward or backward
+	 * @param graph CompiledWaypointGraph to search
+	 * @param landmark index of the waypoint to search from
+	 * @param backward true to follow the paths backward, finding the distances to the landmark
+	 * @param distances distance of each waypoint, Float.POSITIVE_INFINITY if it can't be reached
+	 * @param open_locations open list to use
+	 */
+	private static void findDistances(CompiledWaypointGraph graph, int landmark, boolean backward,
+										float distances[], IndexedMinHeap open_locations) {
+		Arrays.fill(distances, Float.POSITIVE_INFINITY);
+		distances[landmark] = 0.0f;
+		open_locations.clear();
+		open_locations.put(landmark, 0.0);
+		while(!open_locations.isEmpty()) {
+			int closest = open_locations.poll();
+			int first = backward ? graph.reverseStart[closest] : graph.pathStart[closest];
+			int last = backward ? graph.reverseStart[closest + 1] : graph.pathStart[closest + 1];
+			for(int p = first; p < last; p++) {
+				int w = backward ? graph.reverseOrigin[p] : graph.pathTarget[p];
+				float d = distances[closest] + graph.pathWeight[backward ? graph.reversePath[p] : p];
+				if(d < distances[w]) {
+					distances[w] = d;
+					open_locations.put(w, d);
+				}
+			}
+		}
+	}
+
+	/**Fills the distances from the landmarks to the goal and from the goal to the landmarks,
+	 * to pass to getLowerBound for many waypoints with the same goal
+	 * @param goal index of the goal waypoint
+	 * @param goal_from array of getNumLandmarks() distances from each landmark to the goal
+	 * @param goal_to array of getNumLandmarks() distances from the goal to each landmark
+	 */
+	public void getGoalDistances(int goal, float goal_from[], float goal_to[]) {
+		System.arraycopy(distanceFrom, goal * numLandmarks, goal_from, 0, numLandmarks);
+		System.arraycopy(distanceTo, goal * numLandmarks, goal_to, 0, numLandmarks);
+	}
+
+	/**Returns a lower bound on the distance from a waypoint to the goal whose distances are given
+	 * @param waypoint index of the waypoint
+	 * @param goal_from distances from each landmark to the goal, from getGoalDistances
+	 * @param goal_to distances from the goal to each landmark, from getGoalDistances
+	 * @return the lower bound, 0 if the landmarks don't give one, or Float.POSITIVE_INFINITY if the goal can't be reached
+	 */
+	public float getLowerBound(int waypoint, float goal_from[], float goal_to[]) {
+		float bound = 0.0f;
+		int base = waypoint * numLandmarks;
+		for(int k = 0; k < numLandmarks; k++) {
+			//the differences are NaN where both distances are infinite, which never compare greater
+			float before = goal_from[k] - distanceFrom[base + k];
+			float after = distanceTo[base + k] - goal_to[k];
+			if(before > bound)	bound = before;
+			if(after > bound)	bound = after;
+		}
+		return bound;
+	}
+
+	/**Returns a lower bound on the distance from one waypoint to another
+	 * @param waypoint index of the waypoint
+	 * @param goal index of the goal waypoint
+	 * @return the lower bound, 0 if the landmarks don't give one, or Float.POSITIVE_INFINITY if the goal can't be reached
+	 */
+	public float getLowerBound(int waypoint, int goal) {
+		float bound = 0.0f;
+		int base = waypoint * numLandmarks, goal_base = goal * numLandmarks;
+		for(int k = 0; k < numLandmarks; k++) {
+			float before = distanceFrom[goal_base + k] - distanceFrom[base + k];
+			float after = distanceTo[base + k] - distanceTo[goal_base + k];
+			if(before > bound)	bound = before;
+			if(after > bound)	bound = after;
+		}
+		return bound;
+	}
+
+	/**
+	 * @return the number of landmarks chosen
+	 */
+	public int getNumLandmarks() {
+		return numLandmarks;
+	}
+
+	/**
+	 * @param k landmark number, from 0 to getNumLandmarks()-1
+	 * @return the index of the waypoint of the landmark
+	 */
+	public int getLandmark(int k) {
+		return landmarks[k];
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ * 
+ */
+package alphabetsoup.waypointgraph;
+
+/**StraightLineTravelTimeEstimator optimistically estimates travel time as the straight
+ * line distance divided by the maximum velocity, ignoring the paths of the WaypointGraph.
+ */
+public class StraightLineTravelTimeEstimator implements TravelTimeEstimator {
+	private static final long serialVersionUID = 1L;
+
+	private float maxVelocity;
+
+	/**
+	 * @param max_velocity maximum velocity of the bucketbots
+	 */
+	public StraightLineTravelTimeEstimator(float max_velocity) {
+		maxVelocity = max_velocity;
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.waypointgraph.TravelTimeEstimator#estimateTravelTime(alphabetsoup.waypointgraph.Waypoint, alphabetsoup.waypointgraph.Waypoint, boolean)
+	 */
+	public float estimateTravelTime(Waypoint start, Waypoint end, boolean carrying_bucket) {
+		if(start == null || end == null)
+			return Float.POSITIVE_INFINITY;
+		return start.getDistance(end) / maxVelocity;
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.waypointgraph.TravelTimeEstimator#estimateTravelTime(alphabetsoup.waypointgraph.BucketbotDriver, alphabetsoup.waypointgraph.Waypoint)
+	 */
+	public float estimateTravelTime(BucketbotDriver bucketbot, Waypoint end) {
+		if(end == null)
+			return Float.POSITIVE_INFINITY;
+		return bucketbot.getDistance(end) / maxVelocity;
+	}
+}
@@ -0,0 +1,28 @@
+/**
+ * 
+ */
+package alphabetsoup.waypointgraph;
+
+import java.io.Serializable;
+
+/**TravelTimeEstimator estimates how long it will take a Bucketbot to travel across
+ * the WaypointGraph, used by task allocators to compare the costs of tasks.
+ */
+public interface TravelTimeEstimator extends Serializable {
+
+	/**Estimates the time it will take a bucketbot to go from Waypoints start to end
+	 * @param start Waypoint to start from
+	 * @param end Waypoint to go to
+	 * @param carrying_bucket true if the bucketbot will be carrying a bucket
+	 * @return estimated travel time, Float.POSITIVE_INFINITY if start or end is null
+	 */
+	public float estimateTravelTime(Waypoint start, Waypoint end, boolean carrying_bucket);
+
+	/**Estimates the time it will take the bucketbot to reach Waypoint end from where it is now,
+	 * carrying the bucket it currently has, if any
+	 * @param bucketbot BucketbotDriver to move
+	 * @param end Waypoint to go to
+	 * @return estimated travel time, Float.POSITIVE_INFINITY if end is null
+	 */
+	public float estimateTravelTime(BucketbotDriver bucketbot, Waypoint end);
+}
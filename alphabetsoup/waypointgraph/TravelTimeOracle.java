@@ -0,0 +1,191 @@
+/**
+ * 
+ */
+package alphabetsoup.waypointgraph;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import alphabetsoup.framework.IndexedMinHeap;
+
+/**TravelTimeOracle precomputes the shortest travel time over the WaypointGraph from every Waypoint
+ * to every station and bucket storage Waypoint, so that task allocators get estimates that follow
+ * the paths around blocks of buckets instead of straight lines.  One Dijkstra search is run backward
+ * along the paths from each station and storage Waypoint, the searches being split among a number of threads,
+ * and the results are kept in two compact float matrices with one row per station or storage Waypoint:
+ * one for bucketbots without a bucket, which can go anywhere, and one for bucketbots carrying a bucket,
+ * which, as in the WaypointPathPlanner, can't pass through any bucket storage location other than the one they're going to.
+ * Since that doesn't depend on where the buckets are, the matrices only change if Waypoints or paths are added or
+ * removed, in which case they are rebuilt.  Estimates to other Waypoints fall back to the straight line distance.
+ */
+public class TravelTimeOracle implements TravelTimeEstimator {
+	private static final long serialVersionUID = 1L;
+
+	private WaypointGraph waypointGraph;
+	private float maxVelocity;
+	private int numThreads;
+
+	private CompiledWaypointGraph graph = null;	//compiled graph the matrices were built from
+	private Waypoint waypoints[];	//same indices as graph
+	private int numWaypoints = 0;
+
+	//paths into each waypoint, from the compiled graph: paths into i are reverseStart[i] to reverseStart[i+1]-1
+	private int reverseStart[];
+	private int reverseOrigin[];
+	private float reverseTime[];
+
+	private int sourceRow[];		//row of each waypoint, -1 if not a station or storage location
+	private int rowSource[];		//waypoint of each row
+
+	//times[row * numWaypoints + i] is the time from waypoint i to the waypoint of the row
+	private float emptyTimes[];
+	private float loadedTimes[];
+
+	/**Constructs a TravelTimeOracle for the WaypointGraph.  The matrices are built the first time
+	 * an estimate is requested, so the WaypointGraph should be fully built by then.
+	 * @param waypoint_graph WaypointGraph to estimate travel over
+	 * @param max_velocity maximum velocity of the bucketbots
+	 * @param num_threads number of threads to build the matrices with, 0 for one per processor
+	 */
+	public TravelTimeOracle(WaypointGraph waypoint_graph, float max_velocity, int num_threads) {
+		waypointGraph = waypoint_graph;
+		maxVelocity = max_velocity;
+		if(num_threads <= 0)
+			num_threads = Runtime.getRuntime().availableProcessors();
+		numThreads = num_threads;
+	}
+
+	/**Takes the paths into each waypoint from the CompiledWaypointGraph, and computes every row of both matrices
+	 */
+	private void build(CompiledWaypointGraph compiled_graph) {
+		graph = compiled_graph;
+		numWaypoints = graph.getNumWaypoints();
+		int n = numWaypoints;
+		waypoints = graph.waypoints;
+
+		//the times of the paths into each waypoint
+		reverseStart = graph.reverseStart;
+		reverseOrigin = graph.reverseOrigin;
+		reverseTime = new float[graph.getNumPaths()];
+		for(int r = 0; r < reverseTime.length; r++)
+			reverseTime[r] = graph.pathWeight[graph.reversePath[r]] / maxVelocity;
+
+		//a row for every station and storage location
+		sourceRow = new int[n];
+		int num_rows = 0;
+		for(int i = 0; i < n; i++) {
+			if(graph.hasFlag(i, CompiledWaypointGraph.bucketStorageFlag | CompiledWaypointGraph.stationFlags))
+				sourceRow[i] = num_rows++;
+			else
+				sourceRow[i] = -1;
+		}
+		rowSource = new int[num_rows];
+		for(int i = 0; i < n; i++)
+			if(sourceRow[i] >= 0)
+				rowSource[sourceRow[i]] = i;
+
+		emptyTimes = new float[num_rows * n];
+		loadedTimes = new float[num_rows * n];
+
+		//split the rows among the threads, each with its own open list
+		final int rows_per_task = (num_rows + numThreads - 1) / numThreads;
+		if(numThreads == 1 || num_rows <= 1) {
+			computeRows(0, num_rows, new IndexedMinHeap(n));
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for(int first = 0; first < num_rows; first += rows_per_task) {
+			final int first_row = first;
+			final int last_row = Math.min(num_rows, first + rows_per_task);
+			futures.add(pool.submit(new Runnable() {
+				public void run() {
+					computeRows(first_row, last_row, new IndexedMinHeap(numWaypoints));
+				}
+			}));
+		}
+		pool.shutdown();
+		try {
+			for(Future<?> f : futures)
+				f.get();
+		} catch(InterruptedException e) {
+			throw new RuntimeException("interrupted while building travel times", e);
+		} catch(ExecutionException e) {
+			throw new RuntimeException("failed to build travel times", e.getCause());
+		}
+	}
+
+	/**Computes the rows of both matrices from first_row up to but not including last_row
+	 */
+	private void computeRows(int first_row, int last_row, IndexedMinHeap open_locations) {
+		for(int row = first_row; row < last_row; row++) {
+			computeRow(row, emptyTimes, false, open_locations);
+			computeRow(row, loadedTimes, true, open_locations);
+		}
+	}
+
+	/**Runs Dijkstra's algorithm backward from the waypoint of the row, filling the row of times
+	 * @param row row to compute
+	 * @param times matrix to fill the row of
+	 * @param loaded true if storage locations other than the waypoint of the row can't be passed through
+	 * @param open_locations open list to use
+	 */
+	private void computeRow(int row, float times[], boolean loaded, IndexedMinHeap open_locations) {
+		int offset = row * numWaypoints;
+		int source = rowSource[row];
+		Arrays.fill(times, offset, offset + numWaypoints, Float.POSITIVE_INFINITY);
+		times[offset + source] = 0.0f;
+		open_locations.clear();
+		open_locations.put(source, 0.0);
+		while(!open_locations.isEmpty()) {
+			int closest = open_locations.poll();
+			//can start from a storage location while loaded, but not pass through it
+			if(loaded && closest != source && graph.hasFlag(closest, CompiledWaypointGraph.bucketStorageFlag))
+				continue;
+			float time = times[offset + closest];
+			for(int p = reverseStart[closest]; p < reverseStart[closest + 1]; p++) {
+				int w = reverseOrigin[p];
+				float t = time + reverseTime[p];
+				if(t < times[offset + w]) {
+					times[offset + w] = t;
+					open_locations.put(w, t);
+				}
+			}
+		}
+	}
+
+	/**Makes sure the matrices are built for the current paths
+	 */
+	private void update() {
+		CompiledWaypointGraph compiled_graph = waypointGraph.getCompiledGraph();
+		if(compiled_graph != graph)
+			build(compiled_graph);
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.waypointgraph.TravelTimeEstimator#estimateTravelTime(alphabetsoup.waypointgraph.Waypoint, alphabetsoup.waypointgraph.Waypoint, boolean)
+	 */
+	public float estimateTravelTime(Waypoint start, Waypoint end, boolean carrying_bucket) {
+		if(start == null || end == null)
+			return Float.POSITIVE_INFINITY;
+		update();
+		if(!graph.isCompiled(start) || !graph.isCompiled(end) || sourceRow[end.plannerIndex] < 0)
+			return start.getDistance(end) / maxVelocity;
+		int i = sourceRow[end.plannerIndex] * numWaypoints + start.plannerIndex;
+		return carrying_bucket ? loadedTimes[i] : emptyTimes[i];
+	}
+
+	/* (non-Javadoc)
+	 * @see alphabetsoup.waypointgraph.TravelTimeEstimator#estimateTravelTime(alphabetsoup.waypointgraph.BucketbotDriver, alphabetsoup.waypointgraph.Waypoint)
+	 */
+	public float estimateTravelTime(BucketbotDriver bucketbot, Waypoint end) {
+		if(end == null)
+			return Float.POSITIVE_INFINITY;
+		//go to the waypoint the bucketbot is headed to, then follow the paths from there
+		Waypoint current = bucketbot.getCurrentWaypoint();
+		if(current == null)
+			return bucketbot.getDistance(end) / maxVelocity;
+		return bucketbot.getDistance(current) / maxVelocity
+				+ estimateTravelTime(current, end, bucketbot.getBucket() != null);
+	}
+}
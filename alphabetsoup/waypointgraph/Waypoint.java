@@ -3,6 +3,9 @@
  */
 package alphabetsoup.waypointgraph;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.text.DecimalFormat;
 import java.util.*;
 
@@ -18,14 +21,19 @@ import alphabetsoup.framework.WordStation;
  * @author Chris Hazard
  */
 public class Waypoint extends Circle {
+	private static final long serialVersionUID = 1L;
 	
-	private HashMap<Waypoint, Float> paths = new HashMap<Waypoint, Float>();
+	private transient HashMap<Waypoint, Float> paths = new HashMap<Waypoint, Float>();	//serialized by writeObject or the WaypointGraph
 	private WordStation wordStation = null;
 	private LetterStation letterStation = null;
 	private Bucket bucket = null;
 	private boolean bucketStorageLocation = false;
 	private HashSet<Bucketbot> bucketbots = new HashSet<Bucketbot>();
 	
+	WaypointGraph waypointGraph = null;	//WaypointGraph this has been added to, to be notified when paths change
+	int plannerIndex = -1;		//index of this Waypoint in the CompiledWaypointGraph of its WaypointGraph
+	int occupancyChanges = 0;	//number of times a bucket has been picked up from or set down on this Waypoint
+	
 	/**Constructs a destinationWaypoint based on a LetterStation
 	 * @param ls
 	 */
@@ -75,6 +83,8 @@ public class Waypoint extends Circle {
 	 */
 	public void addPath(Waypoint w, float weight) {
 		paths.put(w, weight);
+		if(waypointGraph != null)
+			waypointGraph.pathsChanged();
 	}
 	
 	/**Adds a path to the possible paths, using distance as the weight
@@ -89,6 +99,8 @@ public class Waypoint extends Circle {
 	 */
 	public void removePath(Waypoint w) {
 		paths.remove(w);
+		if(waypointGraph != null)
+			waypointGraph.pathsChanged();
 	}
 	
 	/**Adds a path to the possible paths in both directions
@@ -96,7 +108,7 @@ public class Waypoint extends Circle {
 	 * @param weight weight of the path
 	 */
 	public void addBidirectionalPath(Waypoint w, float weight) {
-		paths.put(w, weight);
+		addPath(w, weight);
 		w.addPath(this, weight);
 	}
 	
@@ -113,7 +125,7 @@ public class Waypoint extends Circle {
 	 * @param w Waypoint to remove path
 	 */
 	public void removeBidirectionalPath(Waypoint w) {
-		paths.remove(w);
+		removePath(w);
 		w.removePath(this);
 	}
 	
@@ -162,14 +174,16 @@ public class Waypoint extends Circle {
 	 * @param b
 	 */
 	public void addBucketbot(Bucketbot b) {
-		bucketbots.add(b);
+		if(bucketbots.add(b) && waypointGraph != null)
+			waypointGraph.occupancyChanged(this, 1);
 	}
 	
 	/**Removes a Bucketbot that is no longer going to this location
 	 * @param b
 	 */
 	public void removeBucketbot(Bucketbot b) {
-		bucketbots.remove(b);
+		if(bucketbots.remove(b) && waypointGraph != null)
+			waypointGraph.occupancyChanged(this, -1);
 	}
 
 	/**
@@ -183,6 +197,8 @@ public class Waypoint extends Circle {
 	 */
 	public void setBucketStorageLocation() {
 		bucketStorageLocation = true;
+		if(waypointGraph != null)
+			waypointGraph.pathsChanged();
 	}
 
 	/**
@@ -199,6 +215,51 @@ public class Waypoint extends Circle {
 		return wordStation;
 	}
 	
+	/**Writes the paths to other Waypoints, for the WaypointGraph to write once all of its Waypoints are written
+	 * @param out stream to write to
+	 */
+	void writePaths(ObjectOutputStream out) throws IOException {
+		out.writeInt(paths.size());
+		for(java.util.Map.Entry<Waypoint, Float> e : paths.entrySet()) {
+			out.writeObject(e.getKey());
+			out.writeFloat(e.getValue());
+		}
+	}
+	
+	/**Reads the paths to other Waypoints written by writePaths
+	 * @param in stream to read from
+	 */
+	void readPaths(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		if(paths == null)
+			paths = new HashMap<Waypoint, Float>();
+		int num_paths = in.readInt();
+		for(int i = 0; i < num_paths; i++) {
+			Waypoint w = (Waypoint)in.readObject();
+			paths.put(w, in.readFloat());
+		}
+	}
+	
+	/**The paths of a Waypoint in a WaypointGraph are written by the WaypointGraph, after all of its Waypoints,
+	 * since serializing them along with the Waypoint would recurse from Waypoint to Waypoint across the whole graph
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(waypointGraph == null ? paths : null);
+	}
+	
+	/**Reads a Waypoint written by writeObject.  If it's in a WaypointGraph, its paths may already have been read
+	 * by the WaypointGraph, if the Waypoint was being read when the WaypointGraph was reached.
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		HashMap<Waypoint, Float> own_paths = (HashMap<Waypoint, Float>)in.readObject();
+		if(own_paths != null)
+			paths = own_paths;
+		else if(paths == null)
+			paths = new HashMap<Waypoint, Float>();
+	}
+	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
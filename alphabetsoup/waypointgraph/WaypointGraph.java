@@ -3,10 +3,16 @@
  */
 package alphabetsoup.waypointgraph;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.text.DecimalFormat;
 import java.util.*;
 
 import alphabetsoup.framework.Bucket;
 import alphabetsoup.framework.Circle;
+import alphabetsoup.framework.CircleFilter;
 import alphabetsoup.framework.LetterStation;
 import alphabetsoup.framework.Quadtree;
 import alphabetsoup.framework.WordStation;
@@ -15,13 +21,22 @@ import alphabetsoup.framework.WordStation;
  * ways to reference and manage them.   
  * @author Chris Hazard
  */
-public class WaypointGraph {
+public class WaypointGraph implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	private HashSet<Waypoint> waypoints = new HashSet<Waypoint>();
 	private HashMap<LetterStation, Waypoint> letterStations = new HashMap<LetterStation, Waypoint>();
 	private HashMap<WordStation, Waypoint> wordStations = new HashMap<WordStation, Waypoint>();
 	private HashMap<Bucket, Waypoint> buckets = new HashMap<Bucket, Waypoint>();
 	private Quadtree waypointQuadtree;
+	private CompiledWaypointGraph compiledGraph = null;	//compiled when first needed, and whenever the paths change
+	private WaypointPathPlanner pathPlanner = null;	//searches compiledGraph
+	private HierarchicalPathPlanner hierarchicalPlanner = null;	//built from pathPlanner when first needed
+	private int hierarchicalSectorWaypoints = 0;	//0 if the HierarchicalPathPlanner isn't used
+	private LandmarkHeuristic landmarkHeuristic = null;	//built with compiledGraph when first needed
+	private int numLandmarks = 0;	//0 if the straight line distance is used alone
+	private WaypointRouteCache routeCache = null;	//null if routes are not cached
+	private TravelTimeEstimator travelTimeEstimator = null;
 	
 	public WaypointGraph(float map_width, float map_height) {
 		 waypointQuadtree = new Quadtree(map_width, map_height);
@@ -33,6 +48,8 @@ public class WaypointGraph {
 	 */
 	public void addWaypoint(Waypoint w) {
 		waypoints.add(w);
+		w.waypointGraph = this;
+		pathsChanged();
 		waypointQuadtree.addCircleObject(w);
 
 		if(w.getLetterStation() != null) letterStations.put(w.getLetterStation(), w);
@@ -45,24 +62,187 @@ public class WaypointGraph {
 	 * @param w Waypoint to remove
 	 */
 	public void removeWaypoint(Waypoint w) {
+		//the paths into it can be found from the compiled graph if it's current,
+		// otherwise every Waypoint has to be checked
+		Collection<Waypoint> origins = waypoints;
+		if(compiledGraph != null && compiledGraph.isCompiled(w))
+			origins = compiledGraph.getPathsInto(w);
+
 		waypoints.remove(w);
+		w.waypointGraph = null;
+		pathsChanged();
 		waypointQuadtree.removeCircleObject(w);
 		
 		//remove all links to given Waypoint
-		for(Waypoint wp : waypoints)
+		for(Waypoint wp : origins)
 			if(wp.getPaths().contains(w))
 				wp.removePath(w);
 		
 		//remove any stations that point to it
-		for(LetterStation ls : letterStations.keySet())
-			if(letterStations.get(ls) == w)
-				letterStations.remove(ls);
-		for(WordStation ws : wordStations.keySet())
-			if(wordStations.get(ws) == w)
-				wordStations.remove(ws);
-		for(Bucket b : buckets.keySet())
-			if(buckets.get(b) == w)
-				buckets.remove(b);
+		if(w.getLetterStation() != null && letterStations.get(w.getLetterStation()) == w)
+			letterStations.remove(w.getLetterStation());
+		if(w.getWordStation() != null && wordStations.get(w.getWordStation()) == w)
+			wordStations.remove(w.getWordStation());
+		if(w.getBucket() != null && buckets.get(w.getBucket()) == w)
+			buckets.remove(w.getBucket());
+	}
+	
+	/**Called whenever Waypoints or paths are added or removed, so that the CompiledWaypointGraph
+	 * and WaypointPathPlanner will be recompiled the next time they are needed.  The whole graph is compiled
+	 * again, since the CompiledWaypointGraph is a read-only snapshot.
+	 */
+	void pathsChanged() {
+		compiledGraph = null;
+		pathPlanner = null;
+		hierarchicalPlanner = null;
+		landmarkHeuristic = null;
+	}
+	
+	/**Called whenever a Bucketbot starts or stops going to a Waypoint, to keep the occupancy
+	 * counters of the CompiledWaypointGraph up to date
+	 * @param w Waypoint whose Bucketbots changed
+	 * @param change number of Bucketbots added, negative if removed
+	 */
+	void occupancyChanged(Waypoint w, int change) {
+		if(compiledGraph != null)
+			compiledGraph.occupancyChanged(w, change);
+	}
+	
+	/**Returns the CompiledWaypointGraph of the current Waypoints and paths, compiling it if needed
+	 * @return the CompiledWaypointGraph
+	 */
+	public CompiledWaypointGraph getCompiledGraph() {
+		if(compiledGraph == null)
+			compiledGraph = new CompiledWaypointGraph(this);
+		return compiledGraph;
+	}
+	
+	/**Returns the WaypointPathPlanner for the current Waypoints and paths, compiling it if needed
+	 * @return the WaypointPathPlanner
+	 */
+	public WaypointPathPlanner getPathPlanner() {
+		if(pathPlanner == null)
+			pathPlanner = new WaypointPathPlanner(getCompiledGraph(), getLandmarkHeuristic());
+		return pathPlanner;
+	}
+	
+	/**Returns the LandmarkHeuristic for the current Waypoints and paths, building it if needed
+	 * @return the LandmarkHeuristic, null if the straight line distance is used alone
+	 */
+	public LandmarkHeuristic getLandmarkHeuristic() {
+		if(numLandmarks <= 0)
+			return null;
+		if(landmarkHeuristic == null)
+			landmarkHeuristic = new LandmarkHeuristic(getCompiledGraph(), numLandmarks);
+		return landmarkHeuristic;
+	}
+	
+	/**Returns the HierarchicalPathPlanner for the current Waypoints and paths, building it if needed
+	 * @return the HierarchicalPathPlanner, null if routes are found by the WaypointPathPlanner alone
+	 */
+	public HierarchicalPathPlanner getHierarchicalPlanner() {
+		if(hierarchicalSectorWaypoints <= 0)
+			return null;
+		if(hierarchicalPlanner == null)
+			hierarchicalPlanner = new HierarchicalPathPlanner(getPathPlanner(), hierarchicalSectorWaypoints);
+		return hierarchicalPlanner;
+	}
+	
+	/**Sets up the path planner given by the parameter path_planner, which is either astar (default)
+	 * to search the whole WaypointGraph with the WaypointPathPlanner, or hierarchical to use a
+	 * HierarchicalPathPlanner with sectors hierarchical_sector_size typical path lengths across (default 16),
+	 * and the estimate of the distance to the goal given by the parameter path_heuristic, which is either
+	 * straight_line (default) or landmarks for a LandmarkHeuristic with up to num_landmarks landmarks (default 8)
+	 * @param params parameters of the simulation
+	 */
+	public void initializePathPlanner(Properties params) {
+		String planner = params.getProperty("path_planner", "astar");
+		if(planner.equals("hierarchical"))
+			hierarchicalSectorWaypoints = Math.max(2, Integer.parseInt(params.getProperty("hierarchical_sector_size", "16")));
+		else
+			hierarchicalSectorWaypoints = 0;
+		String heuristic = params.getProperty("path_heuristic", "straight_line");
+		if(heuristic.equals("landmarks"))
+			numLandmarks = Math.max(1, Integer.parseInt(params.getProperty("num_landmarks", "8")));
+		else
+			numLandmarks = 0;
+		pathsChanged();
+	}
+	
+	/**Returns the lines to add to the SummaryReport: the number of searches made to find routes and
+	 * the number of Waypoints they expanded, and how the route cache did if routes are cached,
+	 * over the whole run, including the warmup
+	 * @return a List of Strings in sequential order
+	 */
+	public List<String> getReportText() {
+		DecimalFormat three_digits = new DecimalFormat("0.000");
+		List<String> lines = new ArrayList<String>();
+		WaypointPathPlanner planner = getPathPlanner();
+		lines.add("path searches: " + planner.getNumSearches());
+		lines.add("path expansions: " + planner.getNumExpansions());
+		if(planner.getNumSearches() > 0)
+			lines.add("path expansions per search: " + three_digits.format(planner.getNumExpansions() / (double)planner.getNumSearches()));
+		if(hierarchicalPlanner != null) {
+			lines.add("hierarchical path searches: " + hierarchicalPlanner.getNumSearches());
+			lines.add("hierarchical path expansions: " + hierarchicalPlanner.getNumExpansions());
+			lines.add("hierarchical route moves: " + hierarchicalPlanner.getNumRefinements());
+			lines.add("hierarchical route fallbacks: " + hierarchicalPlanner.getNumFallbacks());
+		}
+		if(routeCache != null) {
+			long num_lookups = routeCache.getNumHits() + routeCache.getNumMisses();
+			lines.add("path cache hits: " + routeCache.getNumHits());
+			lines.add("path cache misses: " + routeCache.getNumMisses());
+			if(num_lookups > 0)
+				lines.add("path cache hit rate: " + three_digits.format(routeCache.getNumHits() / (double)num_lookups));
+			lines.add("path cache invalidations: " + routeCache.getNumInvalidations());
+			lines.add("path cache evictions: " + routeCache.getNumEvictions());
+		}
+		return lines;
+	}
+	
+	/**Caches routes if the parameter path_cache_size is greater than 0, keeping at most
+	 * that many entries, and finding routes again when the number of Bucketbots going to a
+	 * Waypoint along them changes by path_cache_crowding_threshold (default 2)
+	 * @param params parameters of the simulation
+	 */
+	public void initializeRouteCache(Properties params) {
+		int path_cache_size = Integer.parseInt(params.getProperty("path_cache_size", "0"));
+		int crowding_threshold = Integer.parseInt(params.getProperty("path_cache_crowding_threshold", "2"));
+		if(path_cache_size > 0)
+			routeCache = new WaypointRouteCache(this, path_cache_size, crowding_threshold);
+		else
+			routeCache = null;
+	}
+	
+	/**
+	 * @return the WaypointRouteCache, null if routes are not being cached
+	 */
+	public WaypointRouteCache getRouteCache() {
+		return routeCache;
+	}
+	
+	/**Sets up the TravelTimeEstimator given by the parameter travel_time_estimator, which is either
+	 * straight_line (default) for straight line distance over maximum velocity, or oracle for
+	 * a TravelTimeOracle built with travel_time_oracle_threads threads (0 for one per processor)
+	 * @param params parameters of the simulation
+	 * @param max_velocity maximum velocity of the bucketbots
+	 */
+	public void initializeTravelTimeEstimator(Properties params, float max_velocity) {
+		String estimator = params.getProperty("travel_time_estimator", "straight_line");
+		if(estimator.equals("oracle")) {
+			int num_threads = Integer.parseInt(params.getProperty("travel_time_oracle_threads", "0"));
+			travelTimeEstimator = new TravelTimeOracle(this, max_velocity, num_threads);
+		}
+		else {
+			travelTimeEstimator = new StraightLineTravelTimeEstimator(max_velocity);
+		}
+	}
+	
+	/**
+	 * @return the TravelTimeEstimator for this WaypointGraph
+	 */
+	public TravelTimeEstimator getTravelTimeEstimator() {
+		return travelTimeEstimator;
 	}
 	
 	/**Returns all Waypoints within a given distance of a point
@@ -85,15 +265,17 @@ public class WaypointGraph {
 	 * @return
 	 */
 	public Waypoint getClosestWaypoint(Circle c) {
-		float min_dist = Float.POSITIVE_INFINITY;
-		Waypoint closest = null;
-		for(Waypoint w : getWaypoints()) {
-			if(c.getDistance(w.getX(), w.getY()) < min_dist) {
-				closest = w; 
-				min_dist = c.getDistance(w.getX(), w.getY());
-			}
-		}
-		return closest;
+		return (Waypoint)waypointQuadtree.getNearestObject(c.getX(), c.getY(), null);
+	}
+	
+	/**Returns the closest Waypoint to the specified position which is accepted by the filter
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @param filter CircleFilter the Waypoint must be accepted by, null to accept every Waypoint
+	 * @return the closest Waypoint, null if there are none accepted by the filter
+	 */
+	public Waypoint getClosestWaypoint(float x, float y, CircleFilter filter) {
+		return (Waypoint)waypointQuadtree.getNearestObject(x, y, filter);
 	}
 
 	/**Returns the Waypoint corresponding to the given LetterStation
@@ -125,6 +307,7 @@ public class WaypointGraph {
 	 * @param b Bucket picked up
 	 */
 	public void bucketPickup(Bucket b) {
+		buckets.get(b).occupancyChanges++;
 		buckets.get(b).setBucket(null);
 		buckets.remove(b);
 	}
@@ -135,6 +318,7 @@ public class WaypointGraph {
 	 * @param w Waypoint the bucket was set down on
 	 */
 	public void bucketSetdown(Bucket b, Waypoint w) {
+		w.occupancyChanges++;
 		w.setBucket(b);
 		buckets.put(b, w);
 	}
@@ -146,6 +330,27 @@ public class WaypointGraph {
 		return waypoints;
 	}
 
+	/**Writes the WaypointGraph, and then the paths of each of its Waypoints, so that the Waypoints are all
+	 * written before any of the paths between them, instead of recursing along the paths
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(waypoints.size());
+		for(Waypoint w : waypoints) {
+			out.writeObject(w);
+			w.writePaths(out);
+		}
+	}
+	
+	/**Reads a WaypointGraph written by writeObject, along with the paths of its Waypoints
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int num_waypoints = in.readInt();
+		for(int i = 0; i < num_waypoints; i++)
+			((Waypoint)in.readObject()).readPaths(in);
+	}
+
 	public HashMap<LetterStation, Waypoint> getLetterStations() {
 		return letterStations;
 	}
@@ -0,0 +1,279 @@
+/**
+ * 
+ */
+package alphabetsoup.waypointgraph;
+
+import java.io.Serializable;
+import java.util.*;
+
+import alphabetsoup.framework.IndexedMinHeap;
+
+/**WaypointPathPlanner runs A* searches over the int indexed arrays of a CompiledWaypointGraph
+ * (compressed sparse rows of path targets and weights, flags and occupancy counters),
+ * using an IndexedMinHeap for the open list.  All of the search state is kept in arrays
+ * that are reused by every search, and is stamped with the number of the search so that
+ * it never needs to be cleared, so a search doesn't allocate anything.<br>
+ * The distance to the goal is the straight line distance, or the larger of it and the bound given by a LandmarkHeuristic
+ * if there is one, which is much closer to the real distance on grids of aisles and blocks, so far fewer Waypoints are expanded.<br>
+ * The search follows the same rules as the original search in BucketbotDriver: crowded Waypoints
+ * (other than the destination) have a penalty added to their distance to the goal, bucket storage
+ * locations can't be passed through while carrying a bucket, Waypoints are never reopened once closed,
+ * and the search gives up after a maximum number of Waypoints have been expanded.
+ * A WaypointPathPlanner must only be used by one thread at a time.
+ */
+public class WaypointPathPlanner implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**maximum number of waypoints to look at in a search*/
+	public static final int maxNumIterations = 1000;
+
+	private CompiledWaypointGraph graph;
+	//arrays of the graph, paths of waypoint i are pathStart[i] to pathStart[i+1]-1
+	private Waypoint waypoints[];
+	private int pathStart[];
+	private int pathTarget[];
+	private float pathWeight[];
+	private byte flags[];
+	private int occupancy[];
+
+	//lower bounds on the distance to the goal, null to use the straight line distance alone
+	private LandmarkHeuristic landmarks;
+	private float goalFrom[], goalTo[];	//distances between the landmarks and the goal of the current search
+
+	//search state, only valid where stamp equals the current search
+	private int openStamp[];		//set when the waypoint has been put on the open list
+	private int closedStamp[];		//set when the waypoint has been moved to the closed list
+	private float distanceTraveled[];
+	private float distanceToGoal[];
+	private int parentMove[];
+	private int search = 0;
+	private IndexedMinHeap openLocations;
+
+	//statistics
+	private long numSearches = 0;
+	private long numExpansions = 0;
+
+	/**Constructs a WaypointPathPlanner over the compiled Waypoints and paths, using the straight line distance to the goal.
+	 * The WaypointPathPlanner must be rebuilt along with the CompiledWaypointGraph if Waypoints or paths are added or removed afterward.
+	 * @param compiled_graph CompiledWaypointGraph to search
+	 */
+	public WaypointPathPlanner(CompiledWaypointGraph compiled_graph) {
+		this(compiled_graph, null);
+	}
+
+	/**Constructs a WaypointPathPlanner over the compiled Waypoints and paths.  The WaypointPathPlanner
+	 * must be rebuilt along with the CompiledWaypointGraph if Waypoints or paths are added or removed afterward.
+	 * @param compiled_graph CompiledWaypointGraph to search
+	 * @param landmark_heuristic LandmarkHeuristic of the same CompiledWaypointGraph, null to use the straight line distance alone
+	 */
+	public WaypointPathPlanner(CompiledWaypointGraph compiled_graph, LandmarkHeuristic landmark_heuristic) {
+		graph = compiled_graph;
+		landmarks = landmark_heuristic;
+		if(landmarks != null) {
+			goalFrom = new float[landmarks.getNumLandmarks()];
+			goalTo = new float[landmarks.getNumLandmarks()];
+		}
+		waypoints = graph.waypoints;
+		pathStart = graph.pathStart;
+		pathTarget = graph.pathTarget;
+		pathWeight = graph.pathWeight;
+		flags = graph.flags;
+		occupancy = graph.occupancy;
+
+		int n = waypoints.length;
+		openStamp = new int[n];
+		closedStamp = new int[n];
+		distanceTraveled = new float[n];
+		distanceToGoal = new float[n];
+		parentMove = new int[n];
+		openLocations = new IndexedMinHeap(n);
+	}
+
+	/**Returns true if the Waypoint was compiled into this WaypointPathPlanner
+	 */
+	boolean isCompiled(Waypoint w) {
+		return graph.isCompiled(w);
+	}
+
+	/**Returns the estimate of the distance from the waypoint to the goal of the current search,
+	 * which must not be more than the real distance
+	 */
+	private float getDistanceToGoal(int waypoint, Waypoint end) {
+		float distance = waypoints[waypoint].getDistance(end);
+		if(landmarks != null)
+			distance = Math.max(distance, landmarks.getLowerBound(waypoint, goalFrom, goalTo));
+		return distance;
+	}
+
+	/**Uses A* to find the next move to make to get from start to end
+	 * @param start Waypoint the Bucketbot is starting from
+	 * @param end Waypoint the Bucketbot wants to get to
+	 * @param carrying_bucket true if the Bucketbot is carrying a bucket, and so can't pass through bucket storage locations
+	 * @param crowding_penalty distance added to the distance to goal of a Waypoint for each Bucketbot going to it
+	 * @return Waypoint that is connected to start which is the best move to get towards end,
+	 * null if already there or no path can be found
+	 */
+	public Waypoint getNextWaypointTo(Waypoint start, Waypoint end, boolean carrying_bucket, float crowding_penalty) {
+		int last = search(start, end, carrying_bucket, crowding_penalty);
+		//not found, or found it on the first move
+		if(last < 0 || parentMove[last] == -1)
+			return null;
+		//go back to the first move made
+		while(parentMove[parentMove[last]] != -1)
+			last = parentMove[last];
+		return waypoints[last];
+	}
+
+	/**Uses A* to find the whole route from start to end, with the same rules as getNextWaypointTo
+	 * @param start Waypoint the Bucketbot is starting from
+	 * @param end Waypoint the Bucketbot wants to get to
+	 * @param carrying_bucket true if the Bucketbot is carrying a bucket, and so can't pass through bucket storage locations
+	 * @param crowding_penalty distance added to the distance to goal of a Waypoint for each Bucketbot going to it
+	 * @return the Waypoints from start to end, including both, or null if end could not be reached
+	 * within the maximum number of iterations (or start is end)
+	 */
+	public Waypoint[] getRoute(Waypoint start, Waypoint end, boolean carrying_bucket, float crowding_penalty) {
+		int last = search(start, end, carrying_bucket, crowding_penalty);
+		if(last < 0 || last != end.plannerIndex || parentMove[last] == -1)
+			return null;
+		int length = 0;
+		for(int i = last; i != -1; i = parentMove[i])
+			length++;
+		Waypoint route[] = new Waypoint[length];
+		for(int i = last; i != -1; i = parentMove[i])
+			route[--length] = waypoints[i];
+		return route;
+	}
+
+	/**Runs A* from start towards end, leaving the search tree in parentMove
+	 * @return index of the Waypoint the search ended on, which is end unless the search ran out
+	 * of iterations, or -1 if there's nothing to search or end can't be reached
+	 */
+	private int search(Waypoint start, Waypoint end, boolean carrying_bucket, float crowding_penalty) {
+		if(start == null || end == null)
+			return -1;
+		//don't move if already at destination
+		if(start == end)
+			return -1;
+		if(!isCompiled(start) || !isCompiled(end))
+			return -1;
+
+		numSearches++;
+		search++;
+		//wrapped around, so old stamps could be mistaken for this search
+		if(search == 0) {
+			Arrays.fill(openStamp, 0);
+			Arrays.fill(closedStamp, 0);
+			search = 1;
+		}
+		openLocations.clear();
+
+		int end_index = end.plannerIndex;
+		int start_index = start.plannerIndex;
+		if(landmarks != null)
+			landmarks.getGoalDistances(end_index, goalFrom, goalTo);
+		openStamp[start_index] = search;
+		distanceTraveled[start_index] = 0.0f;
+		distanceToGoal[start_index] = getDistanceToGoal(start_index, end);
+		parentMove[start_index] = -1;
+		openLocations.put(start_index, distanceTraveled[start_index] + distanceToGoal[start_index]);
+
+		int num_iterations = 0;
+		//loop until end is found
+		while(true) {
+			//something wrong happened -can't find the end
+			if(openLocations.isEmpty())
+				return -1;
+
+			//lowest cost waypoint in openLocations
+			int closest = openLocations.peek();
+
+			//if the closest is also the destination or out of iterations
+			if(closest == end_index || num_iterations++ == maxNumIterations)
+				return closest;
+
+			//transfer closest from open to closed list
+			openLocations.poll();
+			closedStamp[closest] = search;
+			numExpansions++;
+
+			//expand all the moves
+			for(int p = pathStart[closest]; p < pathStart[closest + 1]; p++) {
+				int w = pathTarget[p];
+
+				//don't deal with anything already on the closed list (don't want loops)
+				if(closedStamp[w] == search)
+					continue;
+
+				//can't go through a bucket storage location if carrying a bucket, unless it's the destination
+				if((flags[w] & CompiledWaypointGraph.bucketStorageFlag) != 0 && carrying_bucket && w != end_index)
+					continue;
+
+				//tag on more distance for a crowded node, as long as it's not the end node
+				float additional_distance = 0.0f;
+				if(w != end_index)
+					additional_distance = crowding_penalty*occupancy[w];
+
+				float distance_traveled = distanceTraveled[closest] + pathWeight[p];
+
+				//if it's not in the open list, add it,
+				// otherwise see if this new path is better.  The original search compares the distance traveled plus the
+				// distance to goal of the old path against the distance traveled of the new one, which is kept for the straight
+				// line distance, but with the much larger landmark bounds it would let longer paths replace shorter ones
+				float previous_distance = distanceTraveled[w];
+				if(landmarks == null)
+					previous_distance += distanceToGoal[w];
+				if(openStamp[w] != search || previous_distance > distance_traveled) {
+					openStamp[w] = search;
+					distanceTraveled[w] = distance_traveled;
+					distanceToGoal[w] = getDistanceToGoal(w, end) + additional_distance;
+					parentMove[w] = closest;
+					openLocations.put(w, distanceTraveled[w] + distanceToGoal[w]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the CompiledWaypointGraph searched
+	 */
+	public CompiledWaypointGraph getCompiledGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the LandmarkHeuristic used, null if the straight line distance is used alone
+	 */
+	public LandmarkHeuristic getLandmarkHeuristic() {
+		return landmarks;
+	}
+
+	/**
+	 * @return the number of Waypoints compiled
+	 */
+	public int getNumWaypoints() {
+		return waypoints.length;
+	}
+
+	/**
+	 * @param index index of a compiled Waypoint, from 0 to getNumWaypoints()-1
+	 * @return the Waypoint compiled at the index
+	 */
+	public Waypoint getWaypoint(int index) {
+		return waypoints[index];
+	}
+
+	/**
+	 * @return the number of searches performed
+	 */
+	public long getNumSearches() {
+		return numSearches;
+	}
+
+	/**
+	 * @return the total number of Waypoints expanded by all searches
+	 */
+	public long getNumExpansions() {
+		return numExpansions;
+	}
+}
@@ -0,0 +1,200 @@
+/**
+ * 
+ */
+package alphabetsoup.waypointgraph;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**WaypointRouteCache keeps whole routes found by the WaypointPathPlanner, so that a Bucketbot
+ * following a route doesn't have to search again at every Waypoint it reaches.  A route is stored
+ * under the key (start, end, carrying bucket) of every Waypoint along it, so that each hop of the
+ * route is a hit.  Along with the route, the number of Bucketbots going to each of its Waypoints and
+ * the number of bucket pickups and setdowns at each are recorded.  A cached route is only thrown out
+ * when the number of Bucketbots going to one of its remaining Waypoints has changed by at least the
+ * crowding threshold, or when a bucket has been picked up from or set down on one of them.
+ * The least recently used routes are evicted when the cache is full.
+ */
+public class WaypointRouteCache implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**A route found by the WaypointPathPlanner, and the state of the Waypoints when it was found
+	 */
+	private static class Route implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		Waypoint waypoints[];
+		int crowding[];			//number of Bucketbots going to each Waypoint
+		int occupancyChanges[];	//number of bucket pickups and setdowns at each Waypoint
+		float crowdingPenalty;
+	}
+
+	/**A Route, and the position along it of the Waypoint the entry is keyed by
+	 */
+	private static class RouteEntry implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		RouteEntry(Route r, int p) {	route = r;	position = p;	}
+		Route route;
+		int position;
+	}
+
+	private WaypointGraph waypointGraph;
+	private WaypointPathPlanner pathPlanner = null;	//planner the cached routes were found with
+	private int crowdingThreshold;
+	private int maxNumEntries;
+	private LinkedHashMap<Long, RouteEntry> entries;
+
+	//statistics
+	private long numHits = 0;
+	private long numMisses = 0;
+	private long numInvalidations = 0;
+	private long numEvictions = 0;
+
+	/**Constructs a WaypointRouteCache for the routes of the specified WaypointGraph
+	 * @param waypoint_graph WaypointGraph to find routes on
+	 * @param max_num_entries maximum number of (start, end, carrying bucket) entries to keep
+	 * @param crowding_threshold change in the number of Bucketbots going to a Waypoint on a route
+	 * which causes the route to be found again
+	 */
+	public WaypointRouteCache(WaypointGraph waypoint_graph, int max_num_entries, int crowding_threshold) {
+		waypointGraph = waypoint_graph;
+		maxNumEntries = max_num_entries;
+		crowdingThreshold = crowding_threshold;
+		//access ordered, so the eldest entry is the least recently used
+		entries = new LinkedHashMap<Long, RouteEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(java.util.Map.Entry<Long, RouteEntry> eldest) {
+				if(size() <= maxNumEntries)
+					return false;
+				numEvictions++;
+				return true;
+			}
+		};
+	}
+
+	/**Returns the key of the entry for the specified route
+	 */
+	private long getKey(Waypoint start, Waypoint end, boolean carrying_bucket) {
+		return (((long)start.plannerIndex * pathPlanner.getNumWaypoints() + end.plannerIndex) << 1)
+				| (carrying_bucket ? 1 : 0);
+	}
+
+	/**Returns true if the route from the given position on is still usable
+	 */
+	private boolean isValid(Route route, int position, float crowding_penalty) {
+		if(route.crowdingPenalty != crowding_penalty)
+			return false;
+		for(int i = position; i < route.waypoints.length; i++) {
+			Waypoint w = route.waypoints[i];
+			if(w.occupancyChanges != route.occupancyChanges[i])
+				return false;
+			if(Math.abs(w.getBucketbots().size() - route.crowding[i]) >= crowdingThreshold)
+				return false;
+		}
+		return true;
+	}
+
+	/**Returns the next move to make to get from start to end, reusing a cached route if there
+	 * is one that's still valid, otherwise finding and caching a new route.
+	 * @see WaypointPathPlanner#getNextWaypointTo(Waypoint, Waypoint, boolean, float)
+	 * @param start Waypoint the Bucketbot is starting from
+	 * @param end Waypoint the Bucketbot wants to get to
+	 * @param carrying_bucket true if the Bucketbot is carrying a bucket
+	 * @param crowding_penalty distance added to the distance to goal of a Waypoint for each Bucketbot going to it
+	 * @return Waypoint that is connected to start which is the best move to get towards end,
+	 * null if already there or no path can be found
+	 */
+	public Waypoint getNextWaypointTo(Waypoint start, Waypoint end, boolean carrying_bucket, float crowding_penalty) {
+		if(start == null || end == null || start == end)
+			return null;
+
+		//if the waypoints or paths have changed, none of the routes can be trusted
+		WaypointPathPlanner planner = waypointGraph.getPathPlanner();
+		if(planner != pathPlanner) {
+			entries.clear();
+			pathPlanner = planner;
+		}
+
+		long key = getKey(start, end, carrying_bucket);
+		RouteEntry entry = entries.get(key);
+		if(entry != null) {
+			if(isValid(entry.route, entry.position, crowding_penalty)) {
+				numHits++;
+				return entry.route.waypoints[entry.position + 1];
+			}
+			entries.remove(key);
+			numInvalidations++;
+		}
+		numMisses++;
+
+		Waypoint waypoints[] = planner.getRoute(start, end, carrying_bucket, crowding_penalty);
+		//couldn't find the whole route, so just take the planner's best guess and don't cache it
+		if(waypoints == null)
+			return planner.getNextWaypointTo(start, end, carrying_bucket, crowding_penalty);
+
+		Route route = new Route();
+		route.waypoints = waypoints;
+		route.crowding = new int[waypoints.length];
+		route.occupancyChanges = new int[waypoints.length];
+		route.crowdingPenalty = crowding_penalty;
+		for(int i = 0; i < waypoints.length; i++) {
+			route.crowding[i] = waypoints[i].getBucketbots().size();
+			route.occupancyChanges[i] = waypoints[i].occupancyChanges;
+		}
+		//every Waypoint along the route but the last can use the rest of the route
+		for(int i = 0; i < waypoints.length - 1; i++)
+			entries.put(getKey(waypoints[i], end, carrying_bucket), new RouteEntry(route, i));
+
+		return waypoints[1];
+	}
+
+	/**Removes all cached routes
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * @return the number of (start, end, carrying bucket) entries currently cached
+	 */
+	public int getNumEntries() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of requests answered from a cached route
+	 */
+	public long getNumHits() {
+		return numHits;
+	}
+
+	/**
+	 * @return the number of requests which had to find a new route
+	 */
+	public long getNumMisses() {
+		return numMisses;
+	}
+
+	/**
+	 * @return the number of cached routes thrown out because of crowding or bucket storage changes
+	 */
+	public long getNumInvalidations() {
+		return numInvalidations;
+	}
+
+	/**
+	 * @return the number of entries evicted because the cache was full
+	 */
+	public long getNumEvictions() {
+		return numEvictions;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "WaypointRouteCache(entries " + entries.size() + ", hits " + numHits + ", misses " + numMisses
+				+ ", invalidations " + numInvalidations + ", evictions " + numEvictions + ")";
+	}
+}